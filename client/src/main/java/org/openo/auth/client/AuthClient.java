@@ -0,0 +1,228 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.client;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.httpclient.HttpClient;
+import org.apache.commons.httpclient.MultiThreadedHttpConnectionManager;
+import org.apache.commons.httpclient.methods.HeadMethod;
+import org.apache.commons.httpclient.params.HttpConnectionManagerParams;
+import org.openo.auth.constant.Constant;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * Client API for validating the <tt>X-Auth-Token</tt> through the Auth Service.
+ * </p>
+ * <p>
+ * The results are kept in a local bounded cache, concurrent validations of the same token share a
+ * single call to the Auth Service, and the calls go through a pool of persistent connections.
+ * </p>
+ * <blockquote><pre>
+ * Example :
+ * AuthClient client = AuthClient.getInstance();
+ * if(!client.isTokenValid(token)) {
+ *     // reject the request
+ * }
+ * </pre></blockquote>
+ *
+ * @author
+ * @version
+ */
+public class AuthClient {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AuthClient.class);
+
+    private static volatile AuthClient instance;
+
+    private final AuthClientConfig config;
+
+    private final TokenValidationCache cache;
+
+    private final MultiThreadedHttpConnectionManager connectionManager;
+
+    private final HttpClient httpClient;
+
+    private final ConcurrentMap<String, FutureTask<Integer>> inFlight =
+            new ConcurrentHashMap<String, FutureTask<Integer>>();
+
+    /**
+     * Constructor<br/>
+     * <p>
+     * </p>
+     *
+     * @param config : Configuration of the client.
+     * @since
+     */
+    public AuthClient(AuthClientConfig config) {
+
+        this.config = config;
+
+        this.cache = new TokenValidationCache(config.getMaxEntries(), config.getValidTtl(), config.getInvalidTtl());
+
+        this.connectionManager = new MultiThreadedHttpConnectionManager();
+
+        HttpConnectionManagerParams params = connectionManager.getParams();
+        params.setDefaultMaxConnectionsPerHost(config.getMaxConnections());
+        params.setMaxTotalConnections(config.getMaxConnections());
+        params.setConnectionTimeout(config.getConnectTimeout());
+        params.setSoTimeout(config.getReadTimeout());
+
+        this.httpClient = new HttpClient(connectionManager);
+    }
+
+    /**
+     * Provides the shared client, configured through the <tt>auth_client.properties</tt> file.
+     * <br/>
+     *
+     * @return instance : the shared <tt>AuthClient</tt>.
+     * @since
+     */
+    public static AuthClient getInstance() {
+        if(null == instance) {
+            synchronized(AuthClient.class) {
+                if(null == instance) {
+                    instance = new AuthClient(AuthClientConfig.load());
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Checks whether the token is valid.
+     * <br/>
+     *
+     * @param token : Auth token, which represents the current session.
+     * @return <tt>true</tt> if the Auth Service accepted the token.
+     * @since
+     */
+    public boolean isTokenValid(String token) {
+        return TokenValidationCache.isValid(checkToken(token));
+    }
+
+    /**
+     * Performs the validity check of the token, answering from the local cache when possible.
+     * <br/>
+     *
+     * @param token : Auth token, which represents the current session.
+     * @return int : returns the HTTP status of the validation.
+     * @since
+     */
+    public int checkToken(final String token) {
+
+        if(null == token || token.isEmpty()) {
+            return HttpServletResponse.SC_UNAUTHORIZED;
+        }
+
+        Integer cached = cache.get(token);
+
+        if(null != cached) {
+            return cached;
+        }
+
+        FutureTask<Integer> task = new FutureTask<Integer>(new Callable<Integer>() {
+
+            public Integer call() {
+                int status = requestValidation(token);
+                cache.put(token, status);
+                return status;
+            }
+        });
+
+        FutureTask<Integer> existing = inFlight.putIfAbsent(token, task);
+
+        if(null == existing) {
+            try {
+                task.run();
+            } finally {
+                inFlight.remove(token, task);
+            }
+            existing = task;
+        }
+
+        try {
+            return existing.get();
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.error("Interrupted while validating token " + e);
+        } catch(ExecutionException e) {
+            LOGGER.error("Exception Caught while validating token " + e.getCause());
+        }
+        return HttpServletResponse.SC_SERVICE_UNAVAILABLE;
+    }
+
+    /**
+     * Removes the token from the local cache, for example after the user logged out.
+     * <br/>
+     *
+     * @param token : Auth token, which represents the current session.
+     * @since
+     */
+    public void invalidate(String token) {
+        cache.remove(token);
+    }
+
+    /**
+     * Releases the pooled connections of the client, which can not be used afterwards. Only a
+     * client created by its user is closed, never the shared one.
+     * <br/>
+     *
+     * @since
+     */
+    public void close() {
+        connectionManager.shutdown();
+    }
+
+    /**
+     * Sends the validation request to the Auth Service.
+     * <br/>
+     *
+     * @param token : Auth token, which represents the current session.
+     * @return int : returns the HTTP status of the Auth Service, or <tt>503</tt> if it could not
+     *         be reached.
+     * @since
+     */
+    private int requestValidation(String token) {
+
+        HeadMethod method = new HeadMethod(config.getTokenURL());
+        method.setRequestHeader(Constant.TOKEN_AUTH, token);
+
+        try {
+            return httpClient.executeMethod(method);
+        } catch(IOException e) {
+            LOGGER.error("Exception Caught while connecting auth service ... " + e);
+            return HttpServletResponse.SC_SERVICE_UNAVAILABLE;
+        } finally {
+            method.releaseConnection();
+        }
+    }
+
+    TokenValidationCache getCache() {
+        return cache;
+    }
+
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.client;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+import org.openo.auth.constant.Constant;
+import org.openo.auth.entity.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * This class <tt>AuthClientConfig</tt> holds the configuration of the auth client, which is
+ * loaded from the <tt>auth_client.properties</tt> file of the consuming service.
+ * </p>
+ * <blockquote><pre>
+ * Example :
+ * IP=1.1.1.1 - IP Address where Auth Service is installed.
+ * PORT=8102 - Open port to access the Auth Service.
+ * cache.max_entries=10000 - Maximum number of tokens held in the validation cache.
+ * cache.valid_ttl_ms=30000 - How long a valid token is trusted without asking the Auth Service.
+ * cache.invalid_ttl_ms=5000 - How long a rejected token is rejected without asking the Auth Service.
+ * http.max_connections=20 - Size of the connection pool towards the Auth Service.
+ * http.connect_timeout_ms=2000 - Connect timeout towards the Auth Service.
+ * http.read_timeout_ms=5000 - Read timeout towards the Auth Service.
+ * </pre></blockquote>
+ *
+ * @author
+ * @version
+ */
+public class AuthClientConfig {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AuthClientConfig.class);
+
+    public static final String AUTH_CLIENT_PROPERTIES = "auth_client.properties";
+
+    public static final String CACHE_MAX_ENTRIES = "cache.max_entries";
+
+    public static final String CACHE_VALID_TTL = "cache.valid_ttl_ms";
+
+    public static final String CACHE_INVALID_TTL = "cache.invalid_ttl_ms";
+
+    public static final String HTTP_MAX_CONNECTIONS = "http.max_connections";
+
+    public static final String HTTP_CONNECT_TIMEOUT = "http.connect_timeout_ms";
+
+    public static final String HTTP_READ_TIMEOUT = "http.read_timeout_ms";
+
+    private Configuration service = new Configuration();
+
+    private int maxEntries = 10000;
+
+    private long validTtl = 30000L;
+
+    private long invalidTtl = 5000L;
+
+    private int maxConnections = 20;
+
+    private int connectTimeout = 2000;
+
+    private int readTimeout = 5000;
+
+    /**
+     * Loads the configuration from the <tt>auth_client.properties</tt> file available in the
+     * classpath. Values which are not configured keep their defaults.
+     * <br/>
+     *
+     * @return config : The loaded client configuration.
+     * @since
+     */
+    public static AuthClientConfig load() {
+
+        Properties properties = new Properties();
+
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+
+        InputStream input = classLoader.getResourceAsStream(AUTH_CLIENT_PROPERTIES);
+
+        if(null == input) {
+            LOGGER.warn(AUTH_CLIENT_PROPERTIES + " not found, using the defaults.");
+            return fromProperties(properties);
+        }
+
+        try {
+            properties.load(input);
+        } catch(IOException e) {
+            LOGGER.error("Exception Caught while loading " + AUTH_CLIENT_PROPERTIES + " : " + e);
+        } finally {
+            closeQuietly(input);
+        }
+
+        return fromProperties(properties);
+    }
+
+    /**
+     * Creates the configuration from the given properties.
+     * <br/>
+     *
+     * @param properties : Properties holding the client configuration.
+     * @return config : The client configuration.
+     * @since
+     */
+    public static AuthClientConfig fromProperties(Properties properties) {
+
+        AuthClientConfig config = new AuthClientConfig();
+
+        config.service.setIpAddr(properties.getProperty(Constant.AUTH_CONF_IP, "127.0.0.1"));
+        config.service.setPortNo(properties.getProperty(Constant.AUTH_CONF_PORT, "8102"));
+
+        config.maxEntries = getInt(properties, CACHE_MAX_ENTRIES, config.maxEntries);
+        config.validTtl = getLong(properties, CACHE_VALID_TTL, config.validTtl);
+        config.invalidTtl = getLong(properties, CACHE_INVALID_TTL, config.invalidTtl);
+        config.maxConnections = getInt(properties, HTTP_MAX_CONNECTIONS, config.maxConnections);
+        config.connectTimeout = getInt(properties, HTTP_CONNECT_TIMEOUT, config.connectTimeout);
+        config.readTimeout = getInt(properties, HTTP_READ_TIMEOUT, config.readTimeout);
+
+        return config;
+    }
+
+    private static int getInt(Properties properties, String key, int defaultValue) {
+        return (int)getLong(properties, key, defaultValue);
+    }
+
+    private static long getLong(Properties properties, String key, long defaultValue) {
+
+        String value = properties.getProperty(key);
+
+        if(null == value || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+
+        try {
+            return Long.parseLong(value.trim());
+        } catch(NumberFormatException e) {
+            LOGGER.warn("Invalid value for " + key + " : " + value + ", using " + defaultValue);
+            return defaultValue;
+        }
+    }
+
+    private static void closeQuietly(InputStream input) {
+        try {
+            input.close();
+        } catch(IOException e) {
+            LOGGER.warn("Exception Caught while closing " + AUTH_CLIENT_PROPERTIES + " : " + e);
+        }
+    }
+
+    /**
+     * Provides the url of the token resource of the Auth Service.
+     * <br/>
+     *
+     * @return url : The url of the token resource.
+     * @since
+     */
+    public String getTokenURL() {
+        return "http://" + service.getIpAddr() + ":" + service.getPortNo() + "/openoapi/auth/v1/tokens";
+    }
+
+    public Configuration getService() {
+        return service;
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public void setMaxEntries(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    public long getValidTtl() {
+        return validTtl;
+    }
+
+    public void setValidTtl(long validTtl) {
+        this.validTtl = validTtl;
+    }
+
+    public long getInvalidTtl() {
+        return invalidTtl;
+    }
+
+    public void setInvalidTtl(long invalidTtl) {
+        this.invalidTtl = invalidTtl;
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public void setMaxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public void setConnectTimeout(int connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    public int getReadTimeout() {
+        return readTimeout;
+    }
+
+    public void setReadTimeout(int readTimeout) {
+        this.readTimeout = readTimeout;
+    }
+
+}
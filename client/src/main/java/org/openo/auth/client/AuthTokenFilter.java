@@ -0,0 +1,158 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.client;
+
+import java.io.IOException;
+import java.util.Enumeration;
+import java.util.Properties;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.openo.auth.constant.Constant;
+
+/**
+ * <p>
+ * Servlet filter which rejects the requests not carrying a valid <tt>X-Auth-Token</tt>. The token
+ * is read from the header, or from the cookie set by the login of the Auth Service.
+ * </p>
+ * <p>
+ * The filter init parameters use the same keys as <tt>auth_client.properties</tt>; when no init
+ * parameter is given the shared <tt>AuthClient</tt> is used.
+ * </p>
+ * <blockquote><pre>
+ * Example :
+ * &lt;filter&gt;
+ *     &lt;filter-name&gt;AuthTokenFilter&lt;/filter-name&gt;
+ *     &lt;filter-class&gt;org.openo.auth.client.AuthTokenFilter&lt;/filter-class&gt;
+ * &lt;/filter&gt;
+ * </pre></blockquote>
+ *
+ * @author
+ * @version
+ */
+public class AuthTokenFilter implements Filter {
+
+    private AuthClient client;
+
+    private boolean ownClient;
+
+    /**
+     * Initializes the client of the filter.
+     * <br/>
+     *
+     * @param filterConfig : Configuration of the filter.
+     * @since
+     */
+    public void init(FilterConfig filterConfig) throws ServletException {
+
+        Enumeration<String> names = filterConfig.getInitParameterNames();
+
+        if(null == names || !names.hasMoreElements()) {
+            client = AuthClient.getInstance();
+            return;
+        }
+
+        Properties properties = new Properties();
+
+        while(names.hasMoreElements()) {
+            String name = names.nextElement();
+            properties.setProperty(name, filterConfig.getInitParameter(name));
+        }
+
+        client = new AuthClient(AuthClientConfig.fromProperties(properties));
+        ownClient = true;
+    }
+
+    /**
+     * Lets the request through only when its token is valid.
+     * <br/>
+     *
+     * @param request : ServletRequest Object
+     * @param response : ServletResponse Object
+     * @param chain : The remaining filter chain.
+     * @since
+     */
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+
+        HttpServletRequest httpRequest = (HttpServletRequest)request;
+
+        HttpServletResponse httpResponse = (HttpServletResponse)response;
+
+        int status = client.checkToken(getToken(httpRequest));
+
+        if(TokenValidationCache.isValid(status)) {
+            chain.doFilter(request, response);
+        } else if(TokenValidationCache.isRejected(status)) {
+            httpResponse.sendError(HttpServletResponse.SC_UNAUTHORIZED);
+        } else {
+            httpResponse.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        }
+    }
+
+    /**
+     * Provides the token of the request.
+     * <br/>
+     *
+     * @param request : HttpServletRequest Object
+     * @return token : The token of the request or <tt>null</tt>.
+     * @since
+     */
+    static String getToken(HttpServletRequest request) {
+
+        String token = request.getHeader(Constant.TOKEN_AUTH);
+
+        if(null != token) {
+            return token;
+        }
+
+        Cookie[] cookies = request.getCookies();
+
+        if(null != cookies) {
+            for(Cookie cookie : cookies) {
+                if(Constant.TOKEN_AUTH.equals(cookie.getName())) {
+                    return cookie.getValue();
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Closes the client created from the init parameters, the shared client is left open.
+     * <br/>
+     *
+     * @since
+     */
+    public void destroy() {
+
+        if(ownClient && null != client) {
+            client.close();
+        }
+        client = null;
+        ownClient = false;
+    }
+
+}
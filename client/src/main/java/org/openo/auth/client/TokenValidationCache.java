@@ -0,0 +1,172 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.client;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <p>
+ * A bounded, least recently used cache of token validation results. Valid and rejected tokens are
+ * kept with their own time to live, so that a rejected token is asked again soon while a valid
+ * token is trusted for longer.
+ * </p>
+ * <br/>
+ *
+ * @author
+ * @version
+ */
+public class TokenValidationCache {
+
+    private final long validTtl;
+
+    private final long invalidTtl;
+
+    private final LinkedHashMap<String, Entry> entries;
+
+    /**
+     * Constructor<br/>
+     * <p>
+     * </p>
+     *
+     * @param maxEntries : Maximum number of tokens held by the cache.
+     * @param validTtl : Time to live in milliseconds of a valid token.
+     * @param invalidTtl : Time to live in milliseconds of a rejected token.
+     * @since
+     */
+    public TokenValidationCache(final int maxEntries, long validTtl, long invalidTtl) {
+
+        this.validTtl = validTtl;
+
+        this.invalidTtl = invalidTtl;
+
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Provides the cached status for the token.
+     * <br/>
+     *
+     * @param token : Auth token.
+     * @return status : The cached HTTP status, or <tt>null</tt> if the token is not cached or its
+     *         entry has expired.
+     * @since
+     */
+    public Integer get(String token) {
+
+        synchronized(entries) {
+
+            Entry entry = entries.get(token);
+
+            if(null == entry) {
+                return null;
+            }
+
+            if(entry.expiry < System.currentTimeMillis()) {
+                entries.remove(token);
+                return null;
+            }
+
+            return entry.status;
+        }
+    }
+
+    /**
+     * Caches the status for the token. Only success and authentication failures are cached, any
+     * other status is treated as a transient failure of the Auth Service.
+     * <br/>
+     *
+     * @param token : Auth token.
+     * @param status : HTTP status returned by the Auth Service.
+     * @since
+     */
+    public void put(String token, int status) {
+
+        long ttl;
+
+        if(isValid(status)) {
+            ttl = validTtl;
+        } else if(isRejected(status)) {
+            ttl = invalidTtl;
+        } else {
+            return;
+        }
+
+        if(ttl <= 0) {
+            return;
+        }
+
+        synchronized(entries) {
+            entries.put(token, new Entry(status, System.currentTimeMillis() + ttl));
+        }
+    }
+
+    /**
+     * Removes the token from the cache.
+     * <br/>
+     *
+     * @param token : Auth token.
+     * @since
+     */
+    public void remove(String token) {
+        synchronized(entries) {
+            entries.remove(token);
+        }
+    }
+
+    /**
+     * Provides the number of cached tokens.
+     * <br/>
+     *
+     * @return size : number of cached tokens, including the expired ones not yet removed.
+     * @since
+     */
+    public int size() {
+        synchronized(entries) {
+            return entries.size();
+        }
+    }
+
+    static boolean isValid(int status) {
+        return status / 100 == 2;
+    }
+
+    static boolean isRejected(int status) {
+        return status == 401 || status == 403 || status == 404;
+    }
+
+    private static final class Entry {
+
+        private final int status;
+
+        private final long expiry;
+
+        Entry(int status, long expiry) {
+            this.status = status;
+            this.expiry = expiry;
+        }
+    }
+
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.client;
+
+import java.io.IOException;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.httpclient.HttpClient;
+import org.apache.commons.httpclient.HttpMethod;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import mockit.Mock;
+import mockit.MockUp;
+
+public class TestAuthClient {
+
+    private AuthClient client;
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @Before
+    public void setUp() throws Exception {
+        client = new AuthClient(AuthClientConfig.fromProperties(new Properties()));
+        calls.set(0);
+    }
+
+    private void mockAuthService(final int status) {
+
+        new MockUp<HttpClient>() {
+
+            @Mock
+            public int executeMethod(HttpMethod method) throws IOException {
+                calls.incrementAndGet();
+                return status;
+            }
+        };
+    }
+
+    private void mockAuthServiceDown() {
+
+        new MockUp<HttpClient>() {
+
+            @Mock
+            public int executeMethod(HttpMethod method) throws IOException {
+                calls.incrementAndGet();
+                throw new IOException("connection refused");
+            }
+        };
+    }
+
+    @Test
+    public void testValidTokenCached() {
+
+        mockAuthService(HttpServletResponse.SC_OK);
+
+        Assert.assertTrue(client.isTokenValid("token"));
+        Assert.assertTrue(client.isTokenValid("token"));
+
+        Assert.assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void testRejectedTokenCached() {
+
+        mockAuthService(HttpServletResponse.SC_NOT_FOUND);
+
+        Assert.assertFalse(client.isTokenValid("token"));
+        Assert.assertFalse(client.isTokenValid("token"));
+
+        Assert.assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void testAuthServiceDownNotCached() {
+
+        mockAuthServiceDown();
+
+        Assert.assertEquals(HttpServletResponse.SC_SERVICE_UNAVAILABLE, client.checkToken("token"));
+        Assert.assertEquals(HttpServletResponse.SC_SERVICE_UNAVAILABLE, client.checkToken("token"));
+
+        Assert.assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void testEmptyToken() {
+
+        Assert.assertEquals(HttpServletResponse.SC_UNAUTHORIZED, client.checkToken(""));
+        Assert.assertEquals(HttpServletResponse.SC_UNAUTHORIZED, client.checkToken(null));
+    }
+
+    @Test
+    public void testInvalidate() {
+
+        mockAuthService(HttpServletResponse.SC_OK);
+
+        client.checkToken("token");
+        client.invalidate("token");
+        client.checkToken("token");
+
+        Assert.assertEquals(2, calls.get());
+    }
+
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.openo.auth.client;
+
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletContext;
+
+import org.apache.commons.httpclient.MultiThreadedHttpConnectionManager;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import mockit.Mock;
+import mockit.MockUp;
+
+public class TestAuthTokenFilter {
+
+    private final AtomicInteger shutdowns = new AtomicInteger();
+
+    @Before
+    public void setUp() {
+
+        shutdowns.set(0);
+
+        new MockUp<MultiThreadedHttpConnectionManager>() {
+
+            @Mock
+            public void shutdown() {
+                shutdowns.incrementAndGet();
+            }
+        };
+    }
+
+    private static FilterConfig newConfig(final Properties properties) {
+
+        return new FilterConfig() {
+
+            public String getFilterName() {
+                return "AuthTokenFilter";
+            }
+
+            public ServletContext getServletContext() {
+                return null;
+            }
+
+            public String getInitParameter(String name) {
+                return properties.getProperty(name);
+            }
+
+            public Enumeration<String> getInitParameterNames() {
+                return Collections.enumeration(properties.stringPropertyNames());
+            }
+        };
+    }
+
+    @Test
+    public void testOwnClientClosed() throws Exception {
+
+        Properties properties = new Properties();
+        properties.setProperty(AuthClientConfig.HTTP_MAX_CONNECTIONS, "4");
+
+        AuthTokenFilter filter = new AuthTokenFilter();
+        filter.init(newConfig(properties));
+        filter.destroy();
+
+        Assert.assertEquals(1, shutdowns.get());
+
+        // A second destroy does not close again.
+        filter.destroy();
+
+        Assert.assertEquals(1, shutdowns.get());
+    }
+
+    @Test
+    public void testSharedClientLeftOpen() throws Exception {
+
+        AuthTokenFilter filter = new AuthTokenFilter();
+        filter.init(newConfig(new Properties()));
+        filter.destroy();
+
+        Assert.assertEquals(0, shutdowns.get());
+    }
+
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.client;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestTokenValidationCache {
+
+    @Test
+    public void testPutAndGet() {
+
+        TokenValidationCache cache = new TokenValidationCache(10, 60000L, 60000L);
+
+        cache.put("valid", HttpServletResponse.SC_OK);
+        cache.put("invalid", HttpServletResponse.SC_NOT_FOUND);
+
+        Assert.assertEquals(Integer.valueOf(HttpServletResponse.SC_OK), cache.get("valid"));
+        Assert.assertEquals(Integer.valueOf(HttpServletResponse.SC_NOT_FOUND), cache.get("invalid"));
+        Assert.assertNull(cache.get("unknown"));
+    }
+
+    @Test
+    public void testTransientFailureNotCached() {
+
+        TokenValidationCache cache = new TokenValidationCache(10, 60000L, 60000L);
+
+        cache.put("token", HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+
+        Assert.assertNull(cache.get("token"));
+    }
+
+    @Test
+    public void testExpiry() {
+
+        TokenValidationCache cache = new TokenValidationCache(10, 60000L, -1L);
+
+        cache.put("invalid", HttpServletResponse.SC_UNAUTHORIZED);
+
+        Assert.assertNull(cache.get("invalid"));
+    }
+
+    @Test
+    public void testBounded() {
+
+        TokenValidationCache cache = new TokenValidationCache(2, 60000L, 60000L);
+
+        cache.put("one", HttpServletResponse.SC_OK);
+        cache.put("two", HttpServletResponse.SC_OK);
+        cache.get("one");
+        cache.put("three", HttpServletResponse.SC_OK);
+
+        Assert.assertEquals(2, cache.size());
+        Assert.assertNotNull(cache.get("one"));
+        Assert.assertNull(cache.get("two"));
+    }
+
+    @Test
+    public void testRemove() {
+
+        TokenValidationCache cache = new TokenValidationCache(10, 60000L, 60000L);
+
+        cache.put("token", HttpServletResponse.SC_OK);
+        cache.remove("token");
+
+        Assert.assertNull(cache.get("token"));
+    }
+
+}
@@ -0,0 +1,86 @@
+# Copyright 2016 Huawei Technologies Co., Ltd.
+
+# Licensed under the Apache License, Version 2.0 (the "License");
+# you may not use this file except in compliance with the License.
+# You may obtain a copy of the License at
+
+#     http://www.apache.org/licenses/LICENSE-2.0
+
+# Unless required by applicable law or agreed to in writing, software
+# distributed under the License is distributed on an "AS IS" BASIS,
+# WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+# See the License for the specific language governing permissions and
+# limitations under the License.
+
+#!/bin/bash
+# Creates the class data sharing archives of the Auth Service for the JVM of JAVA_HOME :
+#  - cds/auth-service.jsa for bin/start-standalone.sh, with the JDK, library and service classes,
+#  - cds/tomcat.jsa for bin/start.sh when CATALINA_HOME is set, with the JDK classes only since
+#    the classes of the war are loaded by the class loader of Tomcat.
+# The classes are those loaded by a training run of the standalone service against a local
+# KeyStone stub. Run it again after a JVM or Auth Service upgrade, the start scripts ignore an
+# archive the JVM can not use.
+SCRIPT_DIR=`dirname "$0"`
+export APP_ROOT=`cd "$SCRIPT_DIR"/../; pwd`
+
+if [ -z "$JAVA_HOME" ]
+then
+    echo "There is no JAVA_HOME"
+    exit 1
+fi
+
+. "$APP_ROOT/bin/cds-env.sh"
+
+JAVA_VERSION=`cds_java_version`
+if [ -z "$JAVA_VERSION" ] || [ "$JAVA_VERSION" -lt 11 ]; then
+    echo "Application class data sharing needs JDK 11 or later, found $JAVA_VERSION, no archive created"
+    exit 0
+fi
+
+mkdir -p "$CDS_DIR"
+rm -f "$CDS_CLASS_LIST" "$CDS_STANDALONE_ARCHIVE" "$CDS_TOMCAT_ARCHIVE"
+
+LOG_DIR=$APP_ROOT/logs
+if [ ! -d "$LOG_DIR" ]; then
+  mkdir $LOG_DIR
+fi
+
+# The class path must be written the same way as in bin/start-standalone.sh.
+cd "$APP_ROOT"
+echo "Training run..."
+"$JAVA_HOME/bin/java" -Xshare:off -XX:DumpLoadedClassList="$CDS_CLASS_LIST" \
+    -Dcatalina.base="$APP_ROOT" \
+    -cp "$APP_ROOT/lib/*" \
+    org.openo.auth.standalone.CdsTrainingRun >> "$LOG_DIR/cds-archive.out" 2>&1
+if [ $? -ne 0 ] || [ ! -s "$CDS_CLASS_LIST" ]; then
+    echo "Training run failed, see $LOG_DIR/cds-archive.out"
+    exit 1
+fi
+
+# The default class list of the JDK keeps the classes of its own archive, which the training run
+# may not load, such as the JMX agent.
+if [ -r "$JAVA_HOME/lib/classlist" ]; then
+    cat "$JAVA_HOME/lib/classlist" >> "$CDS_CLASS_LIST"
+fi
+
+echo "Creating $CDS_STANDALONE_ARCHIVE..."
+"$JAVA_HOME/bin/java" -Xshare:dump -XX:SharedClassListFile="$CDS_CLASS_LIST" \
+    -XX:SharedArchiveFile="$CDS_STANDALONE_ARCHIVE" \
+    -cp "$APP_ROOT/lib/*" >> "$LOG_DIR/cds-archive.out" 2>&1
+if [ $? -ne 0 ]; then
+    echo "Archive creation failed, see $LOG_DIR/cds-archive.out"
+    exit 1
+fi
+
+if [ -n "$CATALINA_HOME" ]; then
+    echo "Creating $CDS_TOMCAT_ARCHIVE..."
+    # The classes missing from the Tomcat class path are skipped with a warning.
+    "$JAVA_HOME/bin/java" -Xshare:dump -XX:SharedClassListFile="$CDS_CLASS_LIST" \
+        -XX:SharedArchiveFile="$CDS_TOMCAT_ARCHIVE" \
+        -cp "$CATALINA_HOME/bin/bootstrap.jar:$CATALINA_HOME/bin/tomcat-juli.jar" >> "$LOG_DIR/cds-archive.out" 2>&1
+    if [ $? -ne 0 ]; then
+        echo "Archive creation failed, see $LOG_DIR/cds-archive.out"
+        exit 1
+    fi
+fi
+echo "Class data sharing archives created in $CDS_DIR"
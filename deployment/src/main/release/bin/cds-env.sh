@@ -0,0 +1,41 @@
+# Copyright 2016 Huawei Technologies Co., Ltd.
+
+# Licensed under the Apache License, Version 2.0 (the "License");
+# you may not use this file except in compliance with the License.
+# You may obtain a copy of the License at
+
+#     http://www.apache.org/licenses/LICENSE-2.0
+
+# Unless required by applicable law or agreed to in writing, software
+# distributed under the License is distributed on an "AS IS" BASIS,
+# WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+# See the License for the specific language governing permissions and
+# limitations under the License.
+
+# Class data sharing helpers, sourced by the start scripts and bin/cds-archive.sh after APP_ROOT
+# and JAVA_HOME are set.
+CDS_DIR=$APP_ROOT/cds
+CDS_CLASS_LIST=$CDS_DIR/auth-service.classlist
+CDS_STANDALONE_ARCHIVE=$CDS_DIR/auth-service.jsa
+CDS_TOMCAT_ARCHIVE=$CDS_DIR/tomcat.jsa
+
+# Prints the major version of the JVM, 8 for 1.8.0_x, 11 for 11.0.x.
+cds_java_version()
+{
+    "$JAVA_HOME/bin/java" -version 2>&1 | awk -F'"' '/version/ { print $2; exit }' \
+        | awk -F. '{ if ($1 == "1") print $2; else print $1 }' | sed 's/[^0-9].*//'
+}
+
+# Prints the options using the archive $1 with the class path $2, or nothing when the archive is
+# missing or this JVM can not map it (other JVM build, changed jars, no CDS support).
+cds_options()
+{
+    if [ "$AUTH_CDS" = "off" ] || [ ! -r "$1" ]; then
+        return
+    fi
+    if "$JAVA_HOME/bin/java" -XX:SharedArchiveFile="$1" -Xshare:on -cp "$2" -version >/dev/null 2>&1; then
+        echo "-XX:SharedArchiveFile=$1 -Xshare:auto"
+    else
+        echo "The class data sharing archive $1 does not match this JVM, run bin/cds-archive.sh" >&2
+    fi
+}
@@ -0,0 +1,41 @@
+# Copyright 2016 Huawei Technologies Co., Ltd.
+
+# Licensed under the Apache License, Version 2.0 (the "License");
+# you may not use this file except in compliance with the License.
+# You may obtain a copy of the License at
+
+#     http://www.apache.org/licenses/LICENSE-2.0
+
+# Unless required by applicable law or agreed to in writing, software
+# distributed under the License is distributed on an "AS IS" BASIS,
+# WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+# See the License for the specific language governing permissions and
+# limitations under the License.
+
+#!/bin/bash
+# Compares the cold start of the standalone service without and with the class data sharing
+# archive : time to the first response, metaspace used and classes loaded, median of RUNS runs.
+SCRIPT_DIR=`dirname "$0"`
+export APP_ROOT=`cd "$SCRIPT_DIR"/../; pwd`
+
+if [ -z "$JAVA_HOME" ]
+then
+    echo "There is no JAVA_HOME"
+    exit 1
+fi
+
+. "$APP_ROOT/bin/cds-env.sh"
+
+RUNS=${RUNS:-5}
+
+if [ ! -r "$CDS_STANDALONE_ARCHIVE" ]; then
+    echo "There is no $CDS_STANDALONE_ARCHIVE, run bin/cds-archive.sh first"
+    exit 1
+fi
+
+cd "$APP_ROOT"
+# The launched JVMs inherit this class path, as written in bin/start-standalone.sh.
+"$JAVA_HOME/bin/java" -cp "$APP_ROOT/lib/*" org.openo.auth.standalone.StartupBenchmark $RUNS \
+    -Xshare:auto $JAVA_OPTS
+"$JAVA_HOME/bin/java" -cp "$APP_ROOT/lib/*" org.openo.auth.standalone.StartupBenchmark $RUNS \
+    -XX:SharedArchiveFile="$CDS_STANDALONE_ARCHIVE" -Xshare:on $JAVA_OPTS
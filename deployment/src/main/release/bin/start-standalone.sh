@@ -0,0 +1,59 @@
+# Copyright 2016 Huawei Technologies Co., Ltd.
+
+# Licensed under the Apache License, Version 2.0 (the "License");
+# you may not use this file except in compliance with the License.
+# You may obtain a copy of the License at
+
+#     http://www.apache.org/licenses/LICENSE-2.0
+
+# Unless required by applicable law or agreed to in writing, software
+# distributed under the License is distributed on an "AS IS" BASIS,
+# WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+# See the License for the specific language governing permissions and
+# limitations under the License.
+
+#!/bin/bash
+# Starts the Auth Service on its embedded server, without an external Tomcat.
+SCRIPT_DIR=`dirname "$0"`
+export APP_ROOT=`cd "$SCRIPT_DIR"/../; pwd`
+
+if [ -z "$JAVA_HOME" ]
+then
+    echo "There is no JAVA_HOME"
+    exit 1
+fi
+
+if [ -z "$APP_ROOT" ]
+then
+    echo "There is no APP_ROOT"
+    exit 1
+fi
+
+LOG_DIR=$APP_ROOT/logs
+if [ ! -d "$LOG_DIR" ]; then
+  mkdir $LOG_DIR
+fi
+
+PID_FILE=$APP_ROOT/standalone.pid
+if [ -f "$PID_FILE" ] && kill -0 `cat "$PID_FILE"` 2>/dev/null; then
+    echo "Auth Service is already running"
+    exit 1
+fi
+
+if [ -z "$JAVA_OPTS" ]
+then
+    JAVA_OPTS="-Xms256m -Xmx512m"
+fi
+
+# Maps the classes of bin/cds-archive.sh when the archive fits this JVM, AUTH_CDS=off disables it.
+. "$APP_ROOT/bin/cds-env.sh"
+CDS_OPTS=`cds_options "$CDS_STANDALONE_ARCHIVE" "$APP_ROOT/lib/*"`
+
+cd "$APP_ROOT"
+nohup "$JAVA_HOME/bin/java" $JAVA_OPTS $CDS_OPTS \
+    -Dcatalina.base="$APP_ROOT" \
+    -Dauth.standalone.port=${AUTH_PORT:-8102} \
+    -cp "$APP_ROOT/lib/*" \
+    org.openo.auth.standalone.StandaloneLauncher >> "$LOG_DIR/standalone.out" 2>&1 &
+echo $! > "$PID_FILE"
+echo "Auth Service started, pid `cat $PID_FILE`"
@@ -40,6 +40,11 @@ LOG_DIR=$CATALINA_BASE/logs
 if [ ! -d "$LOG_DIR" ]; then
   mkdir $LOG_DIR
 fi
+# Maps the JDK classes of bin/cds-archive.sh when the archive fits this JVM, AUTH_CDS=off disables it.
+. "$APP_ROOT/bin/cds-env.sh"
+CDS_OPTS=`cds_options "$CDS_TOMCAT_ARCHIVE" "$CATALINA_HOME/bin/bootstrap.jar:$CATALINA_HOME/bin/tomcat-juli.jar"`
+export CATALINA_OPTS="$CATALINA_OPTS $CDS_OPTS"
+
 $CATALINA_HOME/bin/catalina.sh start
 
 
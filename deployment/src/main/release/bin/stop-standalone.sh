@@ -0,0 +1,41 @@
+# Copyright 2016 Huawei Technologies Co., Ltd.
+
+# Licensed under the Apache License, Version 2.0 (the "License");
+# you may not use this file except in compliance with the License.
+# You may obtain a copy of the License at
+
+#     http://www.apache.org/licenses/LICENSE-2.0
+
+# Unless required by applicable law or agreed to in writing, software
+# distributed under the License is distributed on an "AS IS" BASIS,
+# WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+# See the License for the specific language governing permissions and
+# limitations under the License.
+
+#!/bin/bash
+SCRIPT_DIR=`dirname "$0"`
+export APP_ROOT=`cd "$SCRIPT_DIR"/../; pwd`
+
+PID_FILE=$APP_ROOT/standalone.pid
+if [ ! -f "$PID_FILE" ]
+then
+    echo "Auth Service is not running"
+    exit 0
+fi
+
+PID=`cat "$PID_FILE"`
+
+# SIGTERM runs the shutdown hook, which saves the cache snapshot before exiting.
+kill $PID 2>/dev/null
+for i in `seq 1 30`
+do
+    if ! kill -0 $PID 2>/dev/null; then
+        break
+    fi
+    sleep 1
+done
+
+if kill -0 $PID 2>/dev/null; then
+    kill -9 $PID
+fi
+rm -f "$PID_FILE"
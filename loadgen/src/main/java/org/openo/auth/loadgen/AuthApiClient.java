@@ -0,0 +1,199 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.loadgen;
+
+import java.io.IOException;
+
+import org.apache.commons.httpclient.Header;
+import org.apache.commons.httpclient.HostConfiguration;
+import org.apache.commons.httpclient.HttpClient;
+import org.apache.commons.httpclient.HttpMethod;
+import org.apache.commons.httpclient.MultiThreadedHttpConnectionManager;
+import org.apache.commons.httpclient.methods.DeleteMethod;
+import org.apache.commons.httpclient.methods.EntityEnclosingMethod;
+import org.apache.commons.httpclient.methods.GetMethod;
+import org.apache.commons.httpclient.methods.HeadMethod;
+import org.apache.commons.httpclient.methods.PostMethod;
+import org.apache.commons.httpclient.methods.StringRequestEntity;
+import org.apache.commons.httpclient.params.HttpConnectionManagerParams;
+import org.openo.auth.constant.Constant;
+
+/**
+ * <p>
+ * A minimal HTTP client of the Auth Service REST API, which calls the endpoints as a real client
+ * does and only reports whether they succeeded.
+ * </p>
+ *
+ * @author
+ * @version
+ */
+public class AuthApiClient {
+
+    private static final String JSON = "application/json";
+
+    private static final String UTF_8 = "UTF-8";
+
+    private final String baseUrl;
+
+    private final MultiThreadedHttpConnectionManager connectionManager;
+
+    private final HttpClient client;
+
+    /**
+     * Constructor<br/>
+     * <p>
+     * </p>
+     *
+     * @param baseUrl : the base URL of the Auth Service, such as
+     *            <tt>http://127.0.0.1:8080/openoapi/auth/v1</tt>.
+     * @param maxConnections : the maximum number of connections to the Auth Service.
+     * @since
+     */
+    public AuthApiClient(String baseUrl, int maxConnections) {
+
+        this.baseUrl = baseUrl;
+
+        this.connectionManager = new MultiThreadedHttpConnectionManager();
+
+        HttpConnectionManagerParams params = connectionManager.getParams();
+        params.setMaxConnectionsPerHost(HostConfiguration.ANY_HOST_CONFIGURATION, maxConnections);
+        params.setMaxTotalConnections(maxConnections);
+        params.setTcpNoDelay(true);
+
+        this.client = new HttpClient(connectionManager);
+    }
+
+    /**
+     * Logs in.
+     * <br/>
+     *
+     * @param userName : the name of the user.
+     * @param password : the password of the user.
+     * @return token : the token of the session, <tt>null</tt> if the login failed.
+     * @throws IOException if the service can not be reached.
+     * @since
+     */
+    public String login(String userName, String password) throws IOException {
+
+        PostMethod post = new PostMethod(baseUrl + "/tokens");
+
+        post.setRequestEntity(new StringRequestEntity(
+                "{\"userName\":\"" + userName + "\",\"password\":\"" + password + "\"}", JSON, UTF_8));
+
+        try {
+            int status = client.executeMethod(post);
+            post.getResponseBody();
+
+            if(!isSuccess(status)) {
+                return null;
+            }
+
+            String prefix = Constant.TOKEN_AUTH + "=";
+
+            for(Header header : post.getResponseHeaders("Set-Cookie")) {
+                String value = header.getValue();
+                if(value.startsWith(prefix)) {
+                    int end = value.indexOf(';');
+                    return value.substring(prefix.length(), end < 0 ? value.length() : end);
+                }
+            }
+            return null;
+        } finally {
+            post.releaseConnection();
+        }
+    }
+
+    public boolean logout(String token) throws IOException {
+        return send(new DeleteMethod(baseUrl + "/tokens"), token);
+    }
+
+    public boolean checkToken(String token) throws IOException {
+        return send(new HeadMethod(baseUrl + "/tokens"), token);
+    }
+
+    public boolean listUsers(String token) throws IOException {
+        return send(new GetMethod(baseUrl + "/users"), token);
+    }
+
+    public boolean getUser(String token, String userId) throws IOException {
+        return send(new GetMethod(baseUrl + "/users/" + userId), token);
+    }
+
+    /**
+     * Modifies the description of a user.
+     * <br/>
+     *
+     * @param token : the token of the session.
+     * @param userId : the id of the user.
+     * @param description : the new description, without any character to escape in JSON.
+     * @return <tt>true</tt> if the user was modified.
+     * @throws IOException if the service can not be reached.
+     * @since
+     */
+    public boolean modifyUser(String token, String userId, String description) throws IOException {
+
+        PatchMethod patch = new PatchMethod(baseUrl + "/users/" + userId);
+        patch.setRequestEntity(new StringRequestEntity("{\"description\":\"" + description + "\"}", JSON, UTF_8));
+
+        return send(patch, token);
+    }
+
+    /**
+     * Closes the connections.
+     * <br/>
+     *
+     * @since
+     */
+    public void close() {
+        connectionManager.shutdown();
+    }
+
+    private boolean send(HttpMethod method, String token) throws IOException {
+
+        if(null != token) {
+            method.setRequestHeader(Constant.TOKEN_AUTH, token);
+        }
+
+        try {
+            int status = client.executeMethod(method);
+            method.getResponseBody();
+            return isSuccess(status);
+        } finally {
+            method.releaseConnection();
+        }
+    }
+
+    private static boolean isSuccess(int status) {
+        return status >= 200 && status < 300;
+    }
+
+    /**
+     * The PATCH method, which commons-httpclient does not provide.
+     */
+    private static class PatchMethod extends EntityEnclosingMethod {
+
+        PatchMethod(String uri) {
+            super(uri);
+        }
+
+        @Override
+        public String getName() {
+            return "PATCH";
+        }
+    }
+
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.loadgen;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * <p>
+ * The workload of the Auth Service REST API : login, logout, check token, list users, get user
+ * and modify user, over HTTP as a real client does.
+ * </p>
+ * <p>
+ * A pool of sessions is logged in before the run, each request uses the token of a random
+ * session. A login replaces the token of a random session and a logout ends one of the replaced
+ * sessions, so the weight of logout in the mix should not exceed the weight of login.
+ * </p>
+ *
+ * @author
+ * @version
+ */
+public class AuthWorkload implements IWorkload {
+
+    private static final int MAX_REPLACED = 10000;
+
+    private final AuthApiClient client;
+
+    private final WorkloadMix mix;
+
+    private final List<String> userNames;
+
+    private final List<String> userIds;
+
+    private final String password;
+
+    private final Queue<String> replaced = new ConcurrentLinkedQueue<String>();
+
+    private AtomicReferenceArray<String> sessions = new AtomicReferenceArray<String>(0);
+
+    /**
+     * Constructor<br/>
+     * <p>
+     * </p>
+     *
+     * @param client : the client of the Auth Service.
+     * @param mix : the workload mix.
+     * @param userNames : the names of the users which log in.
+     * @param userIds : the ids of the users which are read and modified.
+     * @param password : the password of the users.
+     * @since
+     */
+    public AuthWorkload(AuthApiClient client, WorkloadMix mix, List<String> userNames, List<String> userIds,
+            String password) {
+        this.client = client;
+        this.mix = mix;
+        this.userNames = userNames;
+        this.userIds = userIds;
+        this.password = password;
+    }
+
+    /**
+     * Logs in the sessions used by the requests.
+     * <br/>
+     *
+     * @param count : the number of sessions.
+     * @throws IOException if a login fails.
+     * @since
+     */
+    public void prepare(int count) throws IOException {
+
+        AtomicReferenceArray<String> tokens = new AtomicReferenceArray<String>(count);
+
+        for(int i = 0; i < count; i++) {
+
+            String userName = userNames.get(i % userNames.size());
+
+            String token = client.login(userName, password);
+
+            if(null == token) {
+                throw new IOException("Login of " + userName + " failed");
+            }
+            tokens.set(i, token);
+        }
+        sessions = tokens;
+    }
+
+    public Operation nextOperation() {
+        return mix.next();
+    }
+
+    public boolean execute(Operation operation) {
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        int session = random.nextInt(sessions.length());
+
+        try {
+            switch(operation) {
+                case LOGIN:
+                    String token = client.login(userNames.get(random.nextInt(userNames.size())), password);
+                    if(null == token) {
+                        return false;
+                    }
+                    String old = sessions.getAndSet(session, token);
+                    if(replaced.size() < MAX_REPLACED) {
+                        replaced.offer(old);
+                    }
+                    return true;
+
+                case LOGOUT:
+                    String ended = replaced.poll();
+                    return null != ended && client.logout(ended);
+
+                case CHECK_TOKEN:
+                    return client.checkToken(sessions.get(session));
+
+                case LIST:
+                    return client.listUsers(sessions.get(session));
+
+                case GET:
+                    return client.getUser(sessions.get(session), randomUserId(random));
+
+                case MODIFY:
+                    return client.modifyUser(sessions.get(session), randomUserId(random),
+                            "loadgen " + random.nextInt(1000000));
+
+                default:
+                    return false;
+            }
+        } catch(IOException e) {
+            return false;
+        }
+    }
+
+    private String randomUserId(ThreadLocalRandom random) {
+        return userIds.get(random.nextInt(userIds.size()));
+    }
+
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.loadgen;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>
+ * Closed loop driver : a fixed number of threads, each sending its next request when the
+ * previous response is received.
+ * </p>
+ * <p>
+ * The closed loop measures the latency as seen by a caller with a fixed concurrency, the
+ * offered load drops when the service slows down, so it can not show the latency at a given
+ * throughput, use the {@link OpenLoopDriver} for that.
+ * </p>
+ *
+ * @author
+ * @version
+ */
+public class ClosedLoopDriver {
+
+    private final IWorkload workload;
+
+    /**
+     * Constructor<br/>
+     * <p>
+     * </p>
+     *
+     * @param workload : the workload to run.
+     * @since
+     */
+    public ClosedLoopDriver(IWorkload workload) {
+        this.workload = workload;
+    }
+
+    /**
+     * Runs the workload.
+     * <br/>
+     *
+     * @param threads : the number of threads.
+     * @param durationMs : the duration of the run.
+     * @return result : the recorded latencies.
+     * @throws InterruptedException if the calling thread is interrupted.
+     * @since
+     */
+    public StepResult run(int threads, long durationMs) throws InterruptedException {
+
+        final StepResult result = new StepResult("threads=" + threads, 0);
+
+        final long start = System.nanoTime();
+
+        final long end = start + durationMs * 1000000L;
+
+        List<Thread> workers = new ArrayList<Thread>();
+
+        for(int i = 0; i < threads; i++) {
+
+            Thread worker = new Thread(new Runnable() {
+
+                public void run() {
+                    while(System.nanoTime() < end) {
+                        Operation operation = workload.nextOperation();
+                        long sent = System.nanoTime();
+                        boolean success = workload.execute(operation);
+                        result.record(operation, System.nanoTime() - sent, success);
+                    }
+                }
+            }, "loadgen-closed-" + i);
+
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+
+        for(Thread worker : workers) {
+            worker.join();
+        }
+
+        result.setElapsedNanos(System.nanoTime() - start);
+        return result;
+    }
+
+}
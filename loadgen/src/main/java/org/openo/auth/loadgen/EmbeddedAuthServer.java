@@ -0,0 +1,130 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.loadgen;
+
+import org.apache.cxf.transport.servlet.CXFServlet;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.springframework.web.context.ContextLoader;
+import org.springframework.web.context.ContextLoaderListener;
+
+/**
+ * <p>
+ * The Auth Service running in an embedded Jetty, with the same Spring wiring
+ * (<tt>authservice_service.xml</tt>) and CXF servlet as the packaged war, without the
+ * registration to the microservice bus.
+ * </p>
+ *
+ * @author
+ * @version
+ */
+public class EmbeddedAuthServer {
+
+    public static final String CONTEXT_CONFIG = "classpath:spring/authservice_service.xml";
+
+    public static final String SERVLET_PATH = "/openoapi/auth/v1";
+
+    private final int port;
+
+    private final int threads;
+
+    private Server server;
+
+    /**
+     * Constructor<br/>
+     * <p>
+     * </p>
+     *
+     * @param port : the port to listen on, 0 picks a free port.
+     * @param threads : the size of the thread pool of the server.
+     * @since
+     */
+    public EmbeddedAuthServer(int port, int threads) {
+        this.port = port;
+        this.threads = threads;
+    }
+
+    /**
+     * Starts the server on the loopback interface.
+     * <br/>
+     *
+     * @throws Exception if the server or the Spring context fails to start.
+     * @since
+     */
+    public synchronized void start() throws Exception {
+
+        QueuedThreadPool pool = new QueuedThreadPool(threads);
+        pool.setName("auth-server");
+
+        server = new Server(pool);
+
+        ServerConnector connector = new ServerConnector(server);
+        connector.setHost("127.0.0.1");
+        connector.setPort(port);
+        server.addConnector(connector);
+
+        ServletContextHandler context = new ServletContextHandler(ServletContextHandler.NO_SESSIONS);
+        context.setContextPath("/");
+        context.setInitParameter(ContextLoader.CONFIG_LOCATION_PARAM, CONTEXT_CONFIG);
+        context.addEventListener(new ContextLoaderListener());
+        context.addServlet(new ServletHolder(new CXFServlet()), SERVLET_PATH + "/*");
+
+        server.setHandler(context);
+        server.start();
+    }
+
+    /**
+     * Stops the server.
+     * <br/>
+     *
+     * @throws Exception if the server fails to stop.
+     * @since
+     */
+    public synchronized void stop() throws Exception {
+        if(null != server) {
+            server.stop();
+            server = null;
+        }
+    }
+
+    /**
+     * Provides the port the server listens on.
+     * <br/>
+     *
+     * @return port : the port.
+     * @since
+     */
+    public int getPort() {
+        return ((ServerConnector)server.getConnectors()[0]).getLocalPort();
+    }
+
+    /**
+     * Provides the base URL of the REST API, such as
+     * <tt>http://127.0.0.1:8080/openoapi/auth/v1</tt>.
+     * <br/>
+     *
+     * @return url : the base URL.
+     * @since
+     */
+    public String getBaseURL() {
+        return "http://127.0.0.1:" + getPort() + SERVLET_PATH;
+    }
+
+}
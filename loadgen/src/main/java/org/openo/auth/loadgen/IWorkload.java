@@ -0,0 +1,47 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.loadgen;
+
+/**
+ * A workload run by the load generator drivers.
+ * <br/>
+ *
+ * @author
+ * @version
+ */
+public interface IWorkload {
+
+    /**
+     * Picks the next operation to run.
+     * <br/>
+     *
+     * @return operation : the operation.
+     * @since
+     */
+    Operation nextOperation();
+
+    /**
+     * Runs an operation, on the calling thread.
+     * <br/>
+     *
+     * @param operation : the operation.
+     * @return <tt>true</tt> if the operation succeeded.
+     * @since
+     */
+    boolean execute(Operation operation);
+
+}
@@ -0,0 +1,286 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.loadgen;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.openo.auth.simulator.SimulatorConfig;
+
+/**
+ * <p>
+ * The configuration of a load generator run, read from <tt>loadgen.properties</tt> or from the
+ * properties file given on the command line.
+ * </p>
+ * <blockquote><pre>
+ * Example :
+ * mode=open - open : requests sent at a fixed rate, closed : each thread waits for its response.
+ * rates=100,200,500 - Requests per second of each step of an open loop sweep.
+ * threads=1,4,16 - Number of threads of each step of a closed loop sweep.
+ * workers=256 - Maximum number of requests in flight of the open loop.
+ * duration_s=30 - Duration of each step.
+ * warmup_s=10 - Duration of the warm up, which is not reported.
+ * users=1000 - Number of users created in the simulator before the run.
+ * sessions=100 - Number of tokens logged in before the run and shared by the requests.
+ * mix=login:1,checkToken:80,list:4,get:10,modify:5 - Workload mix.
+ * server_threads=200 - Size of the thread pool of the servlet container.
+ * report=target/loadgen-report.csv - Optional CSV copy of the report.
+ * simulator.latency=lognormal:5,0.5 - Any property of the KeyStone simulator, prefixed by simulator.
+ * auth.token.cache.enabled=false - Any property of auth_service.properties, prefixed by auth.
+ * </pre></blockquote>
+ *
+ * @author
+ * @version
+ */
+public class LoadGenConfig {
+
+    public static final String DEFAULT_PROPERTIES = "loadgen.properties";
+
+    private static final String SIMULATOR_PREFIX = "simulator.";
+
+    private static final String AUTH_PREFIX = "auth.";
+
+    private boolean openLoop = true;
+
+    private List<Integer> rates = new ArrayList<Integer>();
+
+    private List<Integer> threads = new ArrayList<Integer>();
+
+    private int workers = 256;
+
+    private long durationMs = 30000L;
+
+    private long warmupMs = 10000L;
+
+    private int users = 1000;
+
+    private int sessions = 100;
+
+    private WorkloadMix mix = WorkloadMix.parse("login:1,checkToken:80,list:4,get:10,modify:5");
+
+    private int serverThreads = 200;
+
+    private String reportFile;
+
+    private SimulatorConfig simulatorConfig = new SimulatorConfig();
+
+    private String latencySpec = "none";
+
+    private final Map<String, String> authProperties = new HashMap<String, String>();
+
+    /**
+     * Reads the configuration from properties, the missing properties keep their default value.
+     * <br/>
+     *
+     * @param properties : the properties.
+     * @return config : the configuration.
+     * @throws IllegalArgumentException if a property is invalid.
+     * @since
+     */
+    public static LoadGenConfig fromProperties(Properties properties) {
+
+        LoadGenConfig config = new LoadGenConfig();
+
+        String mode = properties.getProperty("mode", "open").trim();
+
+        if(!"open".equals(mode) && !"closed".equals(mode)) {
+            throw new IllegalArgumentException("Invalid mode : " + mode);
+        }
+
+        config.setOpenLoop("open".equals(mode));
+        config.setRates(parseList(properties.getProperty("rates", "100,200,500,1000")));
+        config.setThreads(parseList(properties.getProperty("threads", "1,4,16,64")));
+        config.setWorkers(Integer.parseInt(properties.getProperty("workers", String.valueOf(config.getWorkers()))));
+        config.setDurationMs(Long.parseLong(properties.getProperty("duration_s", "30")) * 1000L);
+        config.setWarmupMs(Long.parseLong(properties.getProperty("warmup_s", "10")) * 1000L);
+        config.setUsers(Integer.parseInt(properties.getProperty("users", String.valueOf(config.getUsers()))));
+        config.setSessions(Integer.parseInt(properties.getProperty("sessions", String.valueOf(config.getSessions()))));
+        config.setMix(WorkloadMix.parse(properties.getProperty("mix", config.getMix().toString())));
+        config.setServerThreads(
+                Integer.parseInt(properties.getProperty("server_threads", String.valueOf(config.getServerThreads()))));
+        config.setReportFile(properties.getProperty("report"));
+
+        Properties simulator = new Properties();
+
+        for(String name : properties.stringPropertyNames()) {
+            if(name.startsWith(SIMULATOR_PREFIX)) {
+                simulator.setProperty(name.substring(SIMULATOR_PREFIX.length()), properties.getProperty(name));
+            } else if(name.startsWith(AUTH_PREFIX)) {
+                config.authProperties.put(name.substring(AUTH_PREFIX.length()), properties.getProperty(name));
+            }
+        }
+
+        config.setSimulatorConfig(SimulatorConfig.fromProperties(simulator));
+        config.setLatencySpec(simulator.getProperty("latency", "none"));
+        config.getSimulatorConfig().setPort(0);
+
+        return config;
+    }
+
+    /**
+     * Loads the configuration from a file, or from <tt>loadgen.properties</tt> in the classpath.
+     * <br/>
+     *
+     * @param path : path of the properties file, <tt>null</tt> for the default configuration.
+     * @return config : the configuration.
+     * @throws IOException if the file can not be read.
+     * @since
+     */
+    public static LoadGenConfig load(String path) throws IOException {
+
+        Properties properties = new Properties();
+
+        InputStream in = null == path ? LoadGenConfig.class.getClassLoader().getResourceAsStream(DEFAULT_PROPERTIES)
+                : new FileInputStream(path);
+
+        if(null != in) {
+            try {
+                properties.load(in);
+            } finally {
+                in.close();
+            }
+        }
+        return fromProperties(properties);
+    }
+
+    private static List<Integer> parseList(String value) {
+
+        List<Integer> list = new ArrayList<Integer>();
+
+        for(String part : value.split(",")) {
+            if(!part.trim().isEmpty()) {
+                list.add(Integer.valueOf(part.trim()));
+            }
+        }
+        return list;
+    }
+
+    public boolean isOpenLoop() {
+        return openLoop;
+    }
+
+    public void setOpenLoop(boolean openLoop) {
+        this.openLoop = openLoop;
+    }
+
+    public List<Integer> getRates() {
+        return rates;
+    }
+
+    public void setRates(List<Integer> rates) {
+        this.rates = rates;
+    }
+
+    public List<Integer> getThreads() {
+        return threads;
+    }
+
+    public void setThreads(List<Integer> threads) {
+        this.threads = threads;
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    public void setWorkers(int workers) {
+        this.workers = workers;
+    }
+
+    public long getDurationMs() {
+        return durationMs;
+    }
+
+    public void setDurationMs(long durationMs) {
+        this.durationMs = durationMs;
+    }
+
+    public long getWarmupMs() {
+        return warmupMs;
+    }
+
+    public void setWarmupMs(long warmupMs) {
+        this.warmupMs = warmupMs;
+    }
+
+    public int getUsers() {
+        return users;
+    }
+
+    public void setUsers(int users) {
+        this.users = users;
+    }
+
+    public int getSessions() {
+        return sessions;
+    }
+
+    public void setSessions(int sessions) {
+        this.sessions = sessions;
+    }
+
+    public WorkloadMix getMix() {
+        return mix;
+    }
+
+    public void setMix(WorkloadMix mix) {
+        this.mix = mix;
+    }
+
+    public int getServerThreads() {
+        return serverThreads;
+    }
+
+    public void setServerThreads(int serverThreads) {
+        this.serverThreads = serverThreads;
+    }
+
+    public String getReportFile() {
+        return reportFile;
+    }
+
+    public void setReportFile(String reportFile) {
+        this.reportFile = reportFile;
+    }
+
+    public SimulatorConfig getSimulatorConfig() {
+        return simulatorConfig;
+    }
+
+    public void setSimulatorConfig(SimulatorConfig simulatorConfig) {
+        this.simulatorConfig = simulatorConfig;
+    }
+
+    public String getLatencySpec() {
+        return latencySpec;
+    }
+
+    public void setLatencySpec(String latencySpec) {
+        this.latencySpec = latencySpec;
+    }
+
+    public Map<String, String> getAuthProperties() {
+        return authProperties;
+    }
+
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.loadgen;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * <p>
+ * Runs the Auth Service in an embedded servlet container against the KeyStone simulator, drives
+ * it with a sweep of open or closed loop steps, and prints the throughput vs. latency report.
+ * </p>
+ * <blockquote><pre>
+ * Example :
+ * mvn -pl loadgen exec:java -Dexec.args=my-loadgen.properties
+ * </pre></blockquote>
+ * <p>
+ * See {@link LoadGenConfig} for the properties.
+ * </p>
+ *
+ * @author
+ * @version
+ */
+public class LoadGenerator {
+
+    private final LoadGenConfig config;
+
+    /**
+     * Constructor<br/>
+     * <p>
+     * </p>
+     *
+     * @param config : the configuration of the run.
+     * @since
+     */
+    public LoadGenerator(LoadGenConfig config) {
+        this.config = config;
+    }
+
+    /**
+     * Runs the warm up and the steps of the sweep.
+     * <br/>
+     *
+     * @return report : the report of the steps.
+     * @throws Exception if the simulator or the service fails to start.
+     * @since
+     */
+    public SloReport run() throws Exception {
+
+        LoadTestEnvironment environment = LoadTestEnvironment.start(config);
+
+        int maxConcurrency = config.isOpenLoop() ? config.getWorkers() : max(config.getThreads());
+
+        AuthApiClient client = new AuthApiClient(environment.getBaseURL(), maxConcurrency);
+
+        try {
+            AuthWorkload workload = new AuthWorkload(client, config.getMix(), environment.getUserNames(),
+                    environment.getUserIds(), LoadTestEnvironment.USER_PASSWORD);
+            workload.prepare(Math.min(config.getSessions(), environment.getUserNames().size()));
+
+            SloReport report = new SloReport((config.isOpenLoop() ? "open loop" : "closed loop") + ", mix "
+                    + config.getMix() + ", " + config.getDurationMs() / 1000 + " s per step, KeyStone latency "
+                    + config.getLatencySpec());
+
+            if(config.isOpenLoop()) {
+                runOpenLoop(workload, report);
+            } else {
+                runClosedLoop(workload, report);
+            }
+            return report;
+
+        } finally {
+            client.close();
+            environment.stop();
+        }
+    }
+
+    private void runOpenLoop(AuthWorkload workload, SloReport report) throws InterruptedException {
+
+        OpenLoopDriver driver = new OpenLoopDriver(workload, config.getWorkers());
+
+        if(config.getWarmupMs() > 0 && !config.getRates().isEmpty()) {
+            progress("warm up", driver.run(config.getRates().get(0), config.getWarmupMs()));
+        }
+
+        for(int rate : config.getRates()) {
+            StepResult step = driver.run(rate, config.getDurationMs());
+            progress(step.getLabel(), step);
+            report.add(step);
+        }
+    }
+
+    private void runClosedLoop(AuthWorkload workload, SloReport report) throws InterruptedException {
+
+        ClosedLoopDriver driver = new ClosedLoopDriver(workload);
+
+        if(config.getWarmupMs() > 0 && !config.getThreads().isEmpty()) {
+            progress("warm up", driver.run(config.getThreads().get(0), config.getWarmupMs()));
+        }
+
+        for(int threads : config.getThreads()) {
+            StepResult step = driver.run(threads, config.getDurationMs());
+            progress(step.getLabel(), step);
+            report.add(step);
+        }
+    }
+
+    private static int max(List<Integer> values) {
+        int max = 1;
+        for(int value : values) {
+            max = Math.max(max, value);
+        }
+        return max;
+    }
+
+    static void progress(String label, StepResult step) {
+        System.out.println(String.format(Locale.ROOT, "%s : %.1f requests/s, p99 %.2f ms", label,
+                step.getThroughput(), step.getTotal().getValueAtPercentile(99) / 1000.0));
+    }
+
+    /**
+     * Runs the load generator.
+     * <br/>
+     *
+     * @param args : optional path of the properties file, see {@link LoadGenConfig}.
+     * @throws Exception if the run fails.
+     * @since
+     */
+    public static void main(String[] args) throws Exception {
+
+        LoadGenConfig config = LoadGenConfig.load(args.length > 0 ? args[0] : null);
+
+        SloReport report = new LoadGenerator(config).run();
+
+        System.out.println();
+        report.print(System.out);
+
+        if(null != config.getReportFile()) {
+            writeCsv(report, new File(config.getReportFile()));
+        }
+    }
+
+    static void writeCsv(SloReport report, File file) throws IOException {
+
+        File parent = file.getAbsoluteFile().getParentFile();
+
+        if(null != parent && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Can not create " + parent);
+        }
+        report.writeCsv(file);
+        System.out.println("Report written to " + file.getAbsolutePath());
+    }
+
+}
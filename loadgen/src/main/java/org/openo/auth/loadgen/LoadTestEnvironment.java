@@ -0,0 +1,158 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.loadgen;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang3.StringUtils;
+import org.openo.auth.common.keystone.KeyStoneConfigInitializer;
+import org.openo.auth.simulator.KeystoneSimulator;
+import org.openo.auth.simulator.KeystoneState;
+
+/**
+ * <p>
+ * The Auth Service running in an embedded servlet container against the KeyStone simulator,
+ * with users created for the load.
+ * </p>
+ *
+ * @author
+ * @version
+ */
+public class LoadTestEnvironment {
+
+    public static final String USER_PASSWORD = "loadgen";
+
+    private static final String AUTH_OVERRIDE_PREFIX = "openo.auth.";
+
+    private final KeystoneSimulator keystone;
+
+    private final EmbeddedAuthServer server;
+
+    private final List<String> userNames;
+
+    private final List<String> userIds;
+
+    private LoadTestEnvironment(KeystoneSimulator keystone, EmbeddedAuthServer server, List<String> userNames,
+            List<String> userIds) {
+        this.keystone = keystone;
+        this.server = server;
+        this.userNames = Collections.unmodifiableList(userNames);
+        this.userIds = Collections.unmodifiableList(userIds);
+    }
+
+    /**
+     * Starts the simulator, creates the users and starts the Auth Service.
+     * <br/>
+     *
+     * @param config : the configuration of the run.
+     * @return environment : the started environment.
+     * @throws Exception if the simulator or the service fails to start.
+     * @since
+     */
+    public static LoadTestEnvironment start(LoadGenConfig config) throws Exception {
+
+        KeystoneSimulator keystone = new KeystoneSimulator(config.getSimulatorConfig());
+        keystone.start();
+
+        try {
+            // The service reads its configuration when its classes are loaded, so it is set first.
+            System.setProperty(AUTH_OVERRIDE_PREFIX + "IP", "127.0.0.1");
+            System.setProperty(AUTH_OVERRIDE_PREFIX + "PORT", String.valueOf(keystone.getPort()));
+
+            for(Map.Entry<String, String> entry : config.getAuthProperties().entrySet()) {
+                System.setProperty(AUTH_OVERRIDE_PREFIX + entry.getKey(), entry.getValue());
+            }
+
+            keystone.getConfig().setAdminToken(
+                    StringUtils.defaultString(KeyStoneConfigInitializer.getKeystoneConfiguration().getAdminToken()));
+
+            List<String> userNames = new ArrayList<String>();
+            List<String> userIds = new ArrayList<String>();
+
+            seedUsers(keystone.getState(), config.getUsers(), userNames, userIds);
+
+            EmbeddedAuthServer server = new EmbeddedAuthServer(0, config.getServerThreads());
+            server.start();
+
+            return new LoadTestEnvironment(keystone, server, userNames, userIds);
+        } catch(Exception e) {
+            keystone.stop();
+            throw e;
+        }
+    }
+
+    /**
+     * Stops the Auth Service and the simulator.
+     * <br/>
+     *
+     * @throws Exception if the service fails to stop.
+     * @since
+     */
+    public void stop() throws Exception {
+        try {
+            server.stop();
+        } finally {
+            keystone.stop();
+        }
+    }
+
+    private static void seedUsers(KeystoneState state, int count, List<String> userNames, List<String> userIds) {
+
+        for(int i = 0; i < count; i++) {
+
+            KeystoneState.User user = new KeystoneState.User();
+            user.setName("loadgen-user-" + i);
+            user.setPassword(USER_PASSWORD);
+            user.setEmail("loadgen-user-" + i + "@example.com");
+            user.setDefaultProjectId(KeystoneState.ADMIN_PROJECT_ID);
+
+            String userId = state.createUser(user);
+
+            if(null == userId) {
+                continue;
+            }
+            state.assignRole(KeystoneState.ADMIN_PROJECT_ID, userId, KeystoneState.MEMBER_ROLE_ID);
+
+            userNames.add(user.getName());
+            userIds.add(userId);
+        }
+
+        if(userIds.isEmpty()) {
+            throw new IllegalArgumentException("At least one user is needed");
+        }
+    }
+
+    public String getBaseURL() {
+        return server.getBaseURL();
+    }
+
+    public KeystoneSimulator getKeystone() {
+        return keystone;
+    }
+
+    public List<String> getUserNames() {
+        return userNames;
+    }
+
+    public List<String> getUserIds() {
+        return userIds;
+    }
+
+}
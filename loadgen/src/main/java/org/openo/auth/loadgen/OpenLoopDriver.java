@@ -0,0 +1,134 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.loadgen;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <p>
+ * Open loop driver : the requests are scheduled at a fixed rate, whatever the latency of the
+ * previous ones, like the requests of independent users.
+ * </p>
+ * <p>
+ * The request <tt>i</tt> is scheduled at <tt>start + i / rate</tt> and its latency is measured
+ * from that time. When all the workers are busy the next requests are sent late, and the delay
+ * is part of their latency, instead of being silently omitted as a closed loop would.
+ * </p>
+ * <p>
+ * When the service can not sustain the rate the step is stopped at twice its duration, the
+ * scheduled requests never sent are reported as missed.
+ * </p>
+ *
+ * @author
+ * @version
+ */
+public class OpenLoopDriver {
+
+    private final IWorkload workload;
+
+    private final int workers;
+
+    /**
+     * Constructor<br/>
+     * <p>
+     * </p>
+     *
+     * @param workload : the workload to run.
+     * @param workers : the maximum number of requests in flight.
+     * @since
+     */
+    public OpenLoopDriver(IWorkload workload, int workers) {
+        this.workload = workload;
+        this.workers = workers;
+    }
+
+    /**
+     * Runs the workload at a fixed rate.
+     * <br/>
+     *
+     * @param rate : the requests per second.
+     * @param durationMs : the duration of the run.
+     * @return result : the recorded latencies.
+     * @throws InterruptedException if the calling thread is interrupted.
+     * @since
+     */
+    public StepResult run(int rate, long durationMs) throws InterruptedException {
+
+        final StepResult result = new StepResult("rate=" + rate + "/s", rate);
+
+        final double intervalNanos = 1e9 / rate;
+
+        final long start = System.nanoTime();
+
+        final long end = start + durationMs * 1000000L;
+
+        final long deadline = start + 2 * durationMs * 1000000L;
+
+        final AtomicLong sequence = new AtomicLong();
+
+        List<Thread> threads = new ArrayList<Thread>();
+
+        for(int i = 0; i < workers; i++) {
+
+            Thread worker = new Thread(new Runnable() {
+
+                public void run() {
+
+                    while(true) {
+
+                        long intended = start + (long)(sequence.getAndIncrement() * intervalNanos);
+
+                        if(intended >= end) {
+                            return;
+                        }
+
+                        long now = System.nanoTime();
+
+                        if(now >= deadline) {
+                            result.recordMissed();
+                            continue;
+                        }
+
+                        while(now < intended) {
+                            LockSupport.parkNanos(intended - now);
+                            now = System.nanoTime();
+                        }
+
+                        Operation operation = workload.nextOperation();
+                        boolean success = workload.execute(operation);
+                        result.record(operation, System.nanoTime() - intended, success);
+                    }
+                }
+            }, "loadgen-open-" + i);
+
+            worker.setDaemon(true);
+            worker.start();
+            threads.add(worker);
+        }
+
+        for(Thread worker : threads) {
+            worker.join();
+        }
+
+        result.setElapsedNanos(System.nanoTime() - start);
+        return result;
+    }
+
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.loadgen;
+
+/**
+ * The operations of the Auth Service REST API driven by the load generator.
+ * <br/>
+ *
+ * @author
+ * @version
+ */
+public enum Operation {
+
+    /** POST /tokens */
+    LOGIN("login"),
+
+    /** DELETE /tokens */
+    LOGOUT("logout"),
+
+    /** HEAD /tokens */
+    CHECK_TOKEN("checkToken"),
+
+    /** GET /users */
+    LIST("list"),
+
+    /** GET /users/{userid} */
+    GET("get"),
+
+    /** PATCH /users/{userid} */
+    MODIFY("modify");
+
+    private final String name;
+
+    Operation(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Provides the operation of a name, as used in the workload mix.
+     * <br/>
+     *
+     * @param name : the name, such as <tt>checkToken</tt>.
+     * @return operation : the operation.
+     * @throws IllegalArgumentException if the name is unknown.
+     * @since
+     */
+    public static Operation fromName(String name) {
+        for(Operation operation : values()) {
+            if(operation.name.equalsIgnoreCase(name.trim())) {
+                return operation;
+            }
+        }
+        throw new IllegalArgumentException("Unknown operation : " + name);
+    }
+
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.loadgen;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.HdrHistogram.Histogram;
+
+/**
+ * <p>
+ * The report of a sweep : the throughput vs. latency curve of all the operations, and the
+ * p50/p99/p99.9 of each operation at each step, in milliseconds.
+ * </p>
+ *
+ * @author
+ * @version
+ */
+public class SloReport {
+
+    private static final String ALL = "all";
+
+    private final String title;
+
+    private final List<StepResult> steps = new ArrayList<StepResult>();
+
+    /**
+     * Constructor<br/>
+     * <p>
+     * </p>
+     *
+     * @param title : the title of the report, such as the mode and the workload mix.
+     * @since
+     */
+    public SloReport(String title) {
+        this.title = title;
+    }
+
+    public void add(StepResult step) {
+        steps.add(step);
+    }
+
+    public List<StepResult> getSteps() {
+        return steps;
+    }
+
+    /**
+     * Prints the report as text tables.
+     * <br/>
+     *
+     * @param out : the stream to print to.
+     * @since
+     */
+    public void print(PrintStream out) {
+
+        out.println("== " + title);
+        out.println();
+        out.println("Throughput vs. latency (ms)");
+        out.println(String.format(Locale.ROOT, "%-14s %10s %10s %8s %9s %9s %9s %9s", "step", "target/s",
+                "achieved/s", "missed", "p50", "p99", "p99.9", "max"));
+
+        for(StepResult step : steps) {
+            Histogram total = step.getTotal();
+            out.println(String.format(Locale.ROOT, "%-14s %10s %10.1f %8d %9.2f %9.2f %9.2f %9.2f", step.getLabel(),
+                    step.getTargetRate() > 0 ? String.valueOf(step.getTargetRate()) : "-", step.getThroughput(),
+                    step.getMissed(), millis(total, 50), millis(total, 99), millis(total, 99.9),
+                    total.getMaxValue() / 1000.0));
+        }
+
+        for(StepResult step : steps) {
+
+            out.println();
+            out.println("Per endpoint (ms) at " + step.getLabel());
+            out.println(String.format(Locale.ROOT, "%-12s %10s %8s %9s %9s %9s %9s", "operation", "count", "errors",
+                    "p50", "p99", "p99.9", "max"));
+
+            for(Operation operation : Operation.values()) {
+
+                Histogram histogram = step.getHistogram(operation);
+
+                if(histogram.getTotalCount() == 0) {
+                    continue;
+                }
+                out.println(String.format(Locale.ROOT, "%-12s %10d %8d %9.2f %9.2f %9.2f %9.2f",
+                        operation.getName(), histogram.getTotalCount(), step.getErrors(operation),
+                        millis(histogram, 50), millis(histogram, 99), millis(histogram, 99.9),
+                        histogram.getMaxValue() / 1000.0));
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Writes the report as CSV, one line per step and operation, plus one line per step for all
+     * the operations.
+     * <br/>
+     *
+     * @param file : the CSV file.
+     * @throws IOException if the file can not be written.
+     * @since
+     */
+    public void writeCsv(File file) throws IOException {
+
+        PrintWriter writer =
+                new PrintWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8));
+
+        try {
+            writer.println("step,target_rate,achieved_rate,operation,count,errors,missed,p50_ms,p99_ms,p999_ms,max_ms");
+
+            for(StepResult step : steps) {
+
+                writeCsvLine(writer, step, ALL, step.getTotal(), -1);
+
+                for(Operation operation : Operation.values()) {
+                    Histogram histogram = step.getHistogram(operation);
+                    if(histogram.getTotalCount() > 0) {
+                        writeCsvLine(writer, step, operation.getName(), histogram, step.getErrors(operation));
+                    }
+                }
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    private static void writeCsvLine(PrintWriter writer, StepResult step, String operation, Histogram histogram,
+            long errors) {
+
+        writer.println(String.format(Locale.ROOT, "%s,%d,%.1f,%s,%d,%s,%d,%.3f,%.3f,%.3f,%.3f", step.getLabel(),
+                step.getTargetRate(), step.getThroughput(), operation, histogram.getTotalCount(),
+                errors < 0 ? "" : String.valueOf(errors), step.getMissed(), millis(histogram, 50),
+                millis(histogram, 99), millis(histogram, 99.9), histogram.getMaxValue() / 1000.0));
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.loadgen;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * <p>
+ * The latencies recorded during one step of a sweep, one HDR histogram per operation, in
+ * microseconds.
+ * </p>
+ * <p>
+ * In the open loop the recorded latency starts at the time the request was scheduled to be
+ * sent, not at the time it was actually sent, so that the requests delayed by a slow response
+ * are accounted for (coordinated omission correction).
+ * </p>
+ *
+ * @author
+ * @version
+ */
+public class StepResult {
+
+    private static final long HIGHEST_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(10);
+
+    private final String label;
+
+    private final int targetRate;
+
+    private final Map<Operation, Histogram> histograms = new EnumMap<Operation, Histogram>(Operation.class);
+
+    private final Map<Operation, AtomicLong> errors = new EnumMap<Operation, AtomicLong>(Operation.class);
+
+    private final AtomicLong missed = new AtomicLong();
+
+    private volatile long elapsedNanos;
+
+    /**
+     * Constructor<br/>
+     * <p>
+     * </p>
+     *
+     * @param label : the label of the step, such as <tt>rate=500/s</tt>.
+     * @param targetRate : the requests per second of the open loop, 0 for the closed loop.
+     * @since
+     */
+    public StepResult(String label, int targetRate) {
+
+        this.label = label;
+        this.targetRate = targetRate;
+
+        for(Operation operation : Operation.values()) {
+            histograms.put(operation, new ConcurrentHistogram(HIGHEST_LATENCY_MICROS, 3));
+            errors.put(operation, new AtomicLong());
+        }
+    }
+
+    /**
+     * Records the latency of a completed operation, failed operations are counted as errors and
+     * recorded as well.
+     * <br/>
+     *
+     * @param operation : the operation.
+     * @param latencyNanos : the latency.
+     * @param success : whether the operation succeeded.
+     * @since
+     */
+    public void record(Operation operation, long latencyNanos, boolean success) {
+
+        long micros = Math.min(HIGHEST_LATENCY_MICROS, Math.max(0L, TimeUnit.NANOSECONDS.toMicros(latencyNanos)));
+
+        histograms.get(operation).recordValue(micros);
+
+        if(!success) {
+            errors.get(operation).incrementAndGet();
+        }
+    }
+
+    /**
+     * Counts a scheduled request which was never sent because the step ended.
+     * <br/>
+     *
+     * @since
+     */
+    public void recordMissed() {
+        missed.incrementAndGet();
+    }
+
+    /**
+     * Provides the histogram of all the operations.
+     * <br/>
+     *
+     * @return histogram : the merged histogram.
+     * @since
+     */
+    public Histogram getTotal() {
+
+        Histogram total = new Histogram(HIGHEST_LATENCY_MICROS, 3);
+
+        for(Histogram histogram : histograms.values()) {
+            total.add(histogram);
+        }
+        return total;
+    }
+
+    /**
+     * Provides the throughput achieved during the step.
+     * <br/>
+     *
+     * @return throughput : completed operations per second.
+     * @since
+     */
+    public double getThroughput() {
+        return elapsedNanos <= 0 ? 0 : getTotal().getTotalCount() * 1e9 / elapsedNanos;
+    }
+
+    public Histogram getHistogram(Operation operation) {
+        return histograms.get(operation);
+    }
+
+    public long getErrors(Operation operation) {
+        return errors.get(operation).get();
+    }
+
+    public long getMissed() {
+        return missed.get();
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public int getTargetRate() {
+        return targetRate;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public void setElapsedNanos(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+}
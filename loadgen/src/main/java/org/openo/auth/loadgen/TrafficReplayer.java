@@ -0,0 +1,348 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.loadgen;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+import org.openo.auth.common.capture.CapturedEndpoint;
+import org.openo.auth.common.capture.TrafficLogReader;
+import org.openo.auth.common.capture.TrafficRecord;
+
+/**
+ * <p>
+ * Replays a traffic capture log of the Auth Service against a local instance and the KeyStone
+ * simulator, from 1x to 50x the captured speed, and reports the latencies like the load
+ * generator does.
+ * </p>
+ * <p>
+ * Each captured token hash is bound to a session logged in before the replay, so the token reuse
+ * of the capture is kept, and each captured user hash to one of the created users. The requests
+ * are sent at their captured time divided by the speed, and their latency is measured from that
+ * time. The endpoints which create, delete or change the password of users are not replayed,
+ * their captured payloads are unknown.
+ * </p>
+ * <blockquote><pre>
+ * Example :
+ * mvn -pl loadgen exec:java -Dexec.mainClass=org.openo.auth.loadgen.TrafficReplayer
+ *     -Dexec.args="auth-capture.bin 10 [loadgen.properties]"
+ * </pre></blockquote>
+ *
+ * @author
+ * @version
+ */
+public class TrafficReplayer {
+
+    public static final double MIN_SPEED = 1;
+
+    public static final double MAX_SPEED = 50;
+
+    private static final int QUEUE_SIZE = 100000;
+
+    private final Path log;
+
+    private final double speed;
+
+    private final LoadGenConfig config;
+
+    private final AtomicLong skipped = new AtomicLong();
+
+    /**
+     * Constructor<br/>
+     * <p>
+     * </p>
+     *
+     * @param log : the traffic capture log.
+     * @param speed : the replay speed, from 1 (as captured) to 50.
+     * @param config : the configuration of the environment, the sweep properties are not used.
+     * @since
+     */
+    public TrafficReplayer(Path log, double speed, LoadGenConfig config) {
+
+        if(speed < MIN_SPEED || speed > MAX_SPEED) {
+            throw new IllegalArgumentException("The speed must be between 1 and 50 : " + speed);
+        }
+
+        this.log = log;
+        this.speed = speed;
+        this.config = config;
+    }
+
+    /**
+     * Replays the capture.
+     * <br/>
+     *
+     * @return report : the report of the replay.
+     * @throws Exception if the environment fails to start or the log can not be read.
+     * @since
+     */
+    public SloReport run() throws Exception {
+
+        Map<Long, Integer> slots = bindTokens();
+
+        LoadTestEnvironment environment = LoadTestEnvironment.start(config);
+
+        AuthApiClient client = new AuthApiClient(environment.getBaseURL(), config.getWorkers());
+
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(config.getWorkers(), config.getWorkers(), 0L,
+                TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(QUEUE_SIZE),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+
+        try {
+            Replay replay = new Replay(client, environment, login(client, environment, slots.size()), slots);
+
+            StepResult result = new StepResult(String.format(Locale.ROOT, "replay x%.1f", speed), 0);
+
+            long start = System.nanoTime();
+
+            long last = dispatch(replay, result, executor, start);
+
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.HOURS);
+
+            result.setElapsedNanos(System.nanoTime() - start);
+
+            SloReport report = new SloReport(String.format(Locale.ROOT,
+                    "replay of %s at %.1fx, %.1f s captured, %d requests not replayable, KeyStone latency %s",
+                    log.getFileName(), speed, last / 1e6, skipped.get(), config.getLatencySpec()));
+            report.add(result);
+            return report;
+
+        } finally {
+            executor.shutdownNow();
+            client.close();
+            environment.stop();
+        }
+    }
+
+    private long dispatch(final Replay replay, final StepResult result, ExecutorService executor, long start)
+            throws IOException {
+
+        TrafficLogReader reader = new TrafficLogReader(log);
+
+        long last = 0;
+
+        try {
+            for(TrafficRecord record = reader.next(); null != record; record = reader.next()) {
+
+                final Operation operation = toOperation(record.getEndpoint());
+
+                if(null == operation) {
+                    skipped.incrementAndGet();
+                    continue;
+                }
+
+                last = Math.max(last, record.getOffsetMicros());
+
+                final long intended = start + (long)(record.getOffsetMicros() * 1000L / speed);
+
+                long now = System.nanoTime();
+
+                while(now < intended) {
+                    LockSupport.parkNanos(intended - now);
+                    now = System.nanoTime();
+                }
+
+                final TrafficRecord request = record;
+
+                executor.execute(new Runnable() {
+
+                    public void run() {
+                        boolean success = replay.execute(operation, request);
+                        result.record(operation, System.nanoTime() - intended, success);
+                    }
+                });
+            }
+        } finally {
+            reader.close();
+        }
+        return last;
+    }
+
+    private Map<Long, Integer> bindTokens() throws IOException {
+
+        Map<Long, Integer> slots = new LinkedHashMap<Long, Integer>();
+
+        TrafficLogReader reader = new TrafficLogReader(log);
+
+        try {
+            for(TrafficRecord record = reader.next(); null != record; record = reader.next()) {
+                if(record.getTokenHash() != 0 && !slots.containsKey(record.getTokenHash())) {
+                    slots.put(record.getTokenHash(), slots.size() % config.getSessions());
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return slots;
+    }
+
+    private static AtomicReferenceArray<String> login(AuthApiClient client, LoadTestEnvironment environment,
+            int tokens) throws IOException {
+
+        List<String> userNames = environment.getUserNames();
+
+        AtomicReferenceArray<String> sessions = new AtomicReferenceArray<String>(Math.max(1, tokens));
+
+        for(int i = 0; i < sessions.length(); i++) {
+
+            String token = client.login(userNames.get(i % userNames.size()), LoadTestEnvironment.USER_PASSWORD);
+
+            if(null == token) {
+                throw new IOException("Login of " + userNames.get(i % userNames.size()) + " failed");
+            }
+            sessions.set(i, token);
+        }
+        return sessions;
+    }
+
+    private static Operation toOperation(CapturedEndpoint endpoint) {
+        switch(endpoint) {
+            case LOGIN:
+                return Operation.LOGIN;
+            case LOGOUT:
+                return Operation.LOGOUT;
+            case CHECK_TOKEN:
+                return Operation.CHECK_TOKEN;
+            case USER_LIST:
+                return Operation.LIST;
+            case USER_GET:
+                return Operation.GET;
+            case USER_MODIFY:
+                return Operation.MODIFY;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * The replay of the requests, bound to the sessions and users of the environment.
+     */
+    private static final class Replay {
+
+        private final AuthApiClient client;
+
+        private final LoadTestEnvironment environment;
+
+        private final AtomicReferenceArray<String> sessions;
+
+        private final Map<Long, Integer> slots;
+
+        Replay(AuthApiClient client, LoadTestEnvironment environment, AtomicReferenceArray<String> sessions,
+                Map<Long, Integer> slots) {
+            this.client = client;
+            this.environment = environment;
+            this.sessions = sessions;
+            this.slots = slots;
+        }
+
+        boolean execute(Operation operation, TrafficRecord record) {
+
+            int slot = slotOf(record.getTokenHash());
+
+            String token = sessions.get(slot);
+
+            try {
+                switch(operation) {
+                    case LOGIN:
+                        return null != client.login(userName(record.getOffsetMicros()),
+                                LoadTestEnvironment.USER_PASSWORD);
+
+                    case LOGOUT:
+                        // The next requests bound to the slot need a session again.
+                        String renewed = client.login(userName(slot), LoadTestEnvironment.USER_PASSWORD);
+                        if(null == renewed || !sessions.compareAndSet(slot, token, renewed)) {
+                            return false;
+                        }
+                        return client.logout(token);
+
+                    case CHECK_TOKEN:
+                        return client.checkToken(token);
+
+                    case LIST:
+                        return client.listUsers(token);
+
+                    case GET:
+                        return client.getUser(token, userId(record.getUserHash()));
+
+                    case MODIFY:
+                        return client.modifyUser(token, userId(record.getUserHash()), "replay");
+
+                    default:
+                        return false;
+                }
+            } catch(IOException e) {
+                return false;
+            }
+        }
+
+        private int slotOf(long tokenHash) {
+            Integer slot = slots.get(tokenHash);
+            return null == slot ? 0 : slot;
+        }
+
+        private String userName(long seed) {
+            List<String> userNames = environment.getUserNames();
+            return userNames.get((int)Math.floorMod(seed, (long)userNames.size()));
+        }
+
+        private String userId(long userHash) {
+            List<String> userIds = environment.getUserIds();
+            return userIds.get((int)Math.floorMod(userHash, (long)userIds.size()));
+        }
+    }
+
+    /**
+     * Runs the replayer.
+     * <br/>
+     *
+     * @param args : path of the capture log, speed, optional path of the properties file.
+     * @throws Exception if the replay fails.
+     * @since
+     */
+    public static void main(String[] args) throws Exception {
+
+        if(args.length < 2) {
+            System.err.println("Usage : TrafficReplayer <capture log> <speed 1-50> [loadgen.properties]");
+            System.exit(1);
+        }
+
+        LoadGenConfig config = LoadGenConfig.load(args.length > 2 ? args[2] : null);
+
+        SloReport report = new TrafficReplayer(new File(args[0]).toPath(), Double.parseDouble(args[1]), config).run();
+
+        System.out.println();
+        report.print(System.out);
+
+        if(null != config.getReportFile()) {
+            LoadGenerator.writeCsv(report, new File(config.getReportFile()));
+        }
+    }
+
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.loadgen;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * <p>
+ * The weighted mix of operations of a workload.
+ * </p>
+ * <blockquote><pre>
+ * Example :
+ * login:1,checkToken:80,list:4,get:10,modify:5
+ * </pre></blockquote>
+ *
+ * @author
+ * @version
+ */
+public class WorkloadMix {
+
+    private final Operation[] operations;
+
+    private final int[] cumulativeWeights;
+
+    private final int totalWeight;
+
+    private final Map<Operation, Integer> weights;
+
+    /**
+     * Constructor<br/>
+     * <p>
+     * </p>
+     *
+     * @param weights : the weight of each operation, the operations without weight are not run.
+     * @since
+     */
+    public WorkloadMix(Map<Operation, Integer> weights) {
+
+        this.weights = new EnumMap<Operation, Integer>(weights);
+
+        this.operations = new Operation[this.weights.size()];
+        this.cumulativeWeights = new int[this.weights.size()];
+
+        int total = 0;
+        int index = 0;
+
+        for(Map.Entry<Operation, Integer> entry : this.weights.entrySet()) {
+            if(entry.getValue() < 0) {
+                throw new IllegalArgumentException("Negative weight for " + entry.getKey().getName());
+            }
+            total += entry.getValue();
+            operations[index] = entry.getKey();
+            cumulativeWeights[index] = total;
+            index++;
+        }
+
+        if(total == 0) {
+            throw new IllegalArgumentException("The workload mix is empty");
+        }
+        this.totalWeight = total;
+    }
+
+    /**
+     * Parses a mix such as <tt>login:1,checkToken:80,get:19</tt>.
+     * <br/>
+     *
+     * @param spec : the mix.
+     * @return mix : the workload mix.
+     * @throws IllegalArgumentException if the mix is invalid.
+     * @since
+     */
+    public static WorkloadMix parse(String spec) {
+
+        Map<Operation, Integer> weights = new EnumMap<Operation, Integer>(Operation.class);
+
+        for(String part : spec.split(",")) {
+
+            String[] pair = part.split(":");
+
+            if(pair.length != 2) {
+                throw new IllegalArgumentException("Invalid workload mix : " + spec);
+            }
+            weights.put(Operation.fromName(pair[0]), Integer.valueOf(pair[1].trim()));
+        }
+        return new WorkloadMix(weights);
+    }
+
+    /**
+     * Picks the next operation according to the weights.
+     * <br/>
+     *
+     * @return operation : the operation to run.
+     * @since
+     */
+    public Operation next() {
+
+        int value = ThreadLocalRandom.current().nextInt(totalWeight);
+
+        for(int i = 0; i < cumulativeWeights.length; i++) {
+            if(value < cumulativeWeights[i]) {
+                return operations[i];
+            }
+        }
+        return operations[operations.length - 1];
+    }
+
+    public Operation[] getOperations() {
+        return operations.clone();
+    }
+
+    @Override
+    public String toString() {
+
+        StringBuilder builder = new StringBuilder();
+
+        for(Map.Entry<Operation, Integer> entry : weights.entrySet()) {
+            if(builder.length() > 0) {
+                builder.append(',');
+            }
+            builder.append(entry.getKey().getName()).append(':').append(entry.getValue());
+        }
+        return builder.toString();
+    }
+
+}
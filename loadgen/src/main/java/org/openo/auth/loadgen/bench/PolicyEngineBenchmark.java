@@ -0,0 +1,121 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.loadgen.bench;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openo.auth.service.policy.PolicyCredentials;
+import org.openo.auth.service.policy.PolicyEngine;
+import org.openo.auth.service.policy.PolicySet;
+
+/**
+ * <p>
+ * Measures the decisions per second of the compiled rules of the packaged policy file, on one
+ * thread, as answered by <tt>POST /authz/policy</tt> once the token and the roles are cached.
+ * </p>
+ * <blockquote><pre>
+ * Example :
+ * mvn -pl loadgen exec:exec -Dexec.executable=java
+ *     -Dexec.args="-cp %classpath org.openjdk.jmh.Main PolicyEngineBenchmark -t 1"
+ * </pre></blockquote>
+ *
+ * @author
+ * @version
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PolicyEngineBenchmark {
+
+    private PolicySet policies;
+
+    private PolicyCredentials admin;
+
+    private PolicyCredentials member;
+
+    private Map<String, String> ownTarget;
+
+    private Map<String, String> otherTarget;
+
+    /**
+     * Compiles the packaged policy file.
+     * <br/>
+     *
+     * @throws IOException when the policy file can not be read.
+     * @since
+     */
+    @Setup
+    public void setUp() throws IOException {
+
+        try(InputStream input = Thread.currentThread().getContextClassLoader()
+                .getResourceAsStream("auth_policy.json")) {
+            policies = PolicyEngine.read(input);
+        }
+
+        admin = new PolicyCredentials("u-admin", "p1", Collections.singleton("admin"));
+        member = new PolicyCredentials("u1", "p1", new HashSet<String>(Arrays.asList("r2", "member")));
+
+        ownTarget = new HashMap<String, String>();
+        ownTarget.put("user_id", "u1");
+        ownTarget.put("project_id", "p1");
+
+        otherTarget = new HashMap<String, String>();
+        otherTarget.put("user_id", "u2");
+        otherTarget.put("project_id", "p2");
+    }
+
+    @Benchmark
+    public boolean roleRule() {
+        return policies.isAllowed("identity:list_users", admin, otherTarget);
+    }
+
+    @Benchmark
+    public boolean adminOrOwner() {
+        return policies.isAllowed("identity:get_user", member, ownTarget);
+    }
+
+    @Benchmark
+    public boolean denied() {
+        return policies.isAllowed("identity:list_role_assignments", member, otherTarget);
+    }
+
+    @Benchmark
+    public boolean defaultRule() {
+        return policies.isAllowed("identity:undefined", member, ownTarget);
+    }
+
+}
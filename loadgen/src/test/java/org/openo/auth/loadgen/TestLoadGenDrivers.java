@@ -0,0 +1,99 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.loadgen;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestLoadGenDrivers {
+
+    private static final long SERVICE_TIME_MS = 10;
+
+    private final AtomicInteger executed = new AtomicInteger();
+
+    private final IWorkload slowWorkload = new IWorkload() {
+
+        public Operation nextOperation() {
+            return Operation.CHECK_TOKEN;
+        }
+
+        public boolean execute(Operation operation) {
+            executed.incrementAndGet();
+            try {
+                Thread.sleep(SERVICE_TIME_MS);
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return true;
+        }
+    };
+
+    @Test
+    public void testWorkloadMix() {
+
+        WorkloadMix mix = WorkloadMix.parse("login:0,checkToken:3,get:1");
+
+        int checks = 0;
+        for(int i = 0; i < 4000; i++) {
+            Operation operation = mix.next();
+            Assert.assertTrue(operation == Operation.CHECK_TOKEN || operation == Operation.GET);
+            if(operation == Operation.CHECK_TOKEN) {
+                checks++;
+            }
+        }
+        Assert.assertTrue(checks > 2700 && checks < 3300);
+        Assert.assertEquals("login:0,checkToken:3,get:1", mix.toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWorkloadMixUnknownOperation() {
+        WorkloadMix.parse("checkToken:1,delete:1");
+    }
+
+    @Test
+    public void testClosedLoop() throws InterruptedException {
+
+        StepResult result = new ClosedLoopDriver(slowWorkload).run(1, 1000);
+
+        Assert.assertEquals(executed.get(), result.getHistogram(Operation.CHECK_TOKEN).getTotalCount());
+        Assert.assertTrue(result.getTotal().getValueAtPercentile(99) < 100000);
+    }
+
+    @Test
+    public void testOpenLoopUnderCapacity() throws InterruptedException {
+
+        StepResult result = new OpenLoopDriver(slowWorkload, 4).run(20, 1000);
+
+        Assert.assertEquals(20, result.getTotal().getTotalCount());
+        Assert.assertEquals(0, result.getMissed());
+        Assert.assertTrue(result.getTotal().getValueAtPercentile(99) < 100000);
+    }
+
+    @Test
+    public void testOpenLoopCorrectsCoordinatedOmission() throws InterruptedException {
+
+        // One worker serves 100 requests per second at most, the requests queue behind it.
+        StepResult result = new OpenLoopDriver(slowWorkload, 1).run(200, 1000);
+
+        Assert.assertEquals(200, result.getTotal().getTotalCount() + result.getMissed());
+        Assert.assertTrue(result.getTotal().getValueAtPercentile(99) > 300000);
+        Assert.assertTrue(result.getThroughput() < 150);
+    }
+
+}
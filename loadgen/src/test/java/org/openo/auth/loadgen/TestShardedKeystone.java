@@ -0,0 +1,196 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.loadgen;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.httpclient.HttpClient;
+import org.apache.commons.httpclient.methods.GetMethod;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openo.auth.common.keystone.KeyStoneConfigInitializer;
+import org.openo.auth.constant.Constant;
+import org.openo.auth.simulator.KeystoneSimulator;
+import org.openo.auth.simulator.KeystoneState;
+import org.openo.auth.simulator.Route;
+import org.openo.auth.simulator.SimulatorConfig;
+
+public class TestShardedKeystone {
+
+    private static final int SHARDS = 3;
+
+    private static final int USERS_PER_SHARD = 5;
+
+    private static final List<KeystoneSimulator> KEYSTONES = new ArrayList<KeystoneSimulator>();
+
+    private static EmbeddedAuthServer server;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+
+        List<String> urls = new ArrayList<String>();
+
+        for(int shard = 0; shard < SHARDS; shard++) {
+
+            SimulatorConfig config = new SimulatorConfig();
+            config.setPort(0);
+
+            KeystoneSimulator keystone = new KeystoneSimulator(config);
+            keystone.start();
+
+            KEYSTONES.add(keystone);
+            urls.add(keystone.getBaseURL());
+
+            for(int i = 0; i < USERS_PER_SHARD; i++) {
+                KeystoneState.User user = new KeystoneState.User();
+                user.setName("shard-" + shard + "-user-" + i);
+                user.setPassword(LoadTestEnvironment.USER_PASSWORD);
+                user.setDefaultProjectId(KeystoneState.ADMIN_PROJECT_ID);
+                keystone.getState().createUser(user);
+            }
+        }
+
+        // The service reads its configuration when its classes are loaded, so it is set first.
+        System.setProperty("openo.auth.IP", "127.0.0.1");
+        System.setProperty("openo.auth.PORT", String.valueOf(KEYSTONES.get(0).getPort()));
+        System.setProperty("openo.auth." + Constant.KEYSTONE_SHARDS, StringUtils.join(urls, ","));
+        System.setProperty("openo.auth." + Constant.KEYSTONE_SHARDS_ADMIN_PROJECT, KeystoneState.ADMIN_PROJECT_ID);
+
+        for(KeystoneSimulator keystone : KEYSTONES) {
+            keystone.getConfig().setAdminToken(
+                    StringUtils.defaultString(KeyStoneConfigInitializer.getKeystoneConfiguration().getAdminToken()));
+        }
+
+        server = new EmbeddedAuthServer(0, 4);
+        server.start();
+    }
+
+    @AfterClass
+    public static void tearDown() throws Exception {
+        try {
+            if(null != server) {
+                server.stop();
+            }
+        } finally {
+            for(KeystoneSimulator keystone : KEYSTONES) {
+                keystone.stop();
+            }
+        }
+    }
+
+    @Test
+    public void testListUsersSpansShards() throws Exception {
+
+        String body = get("/users", loginAdmin());
+
+        for(int shard = 0; shard < SHARDS; shard++) {
+            for(int i = 0; i < USERS_PER_SHARD; i++) {
+                Assert.assertTrue(body.contains("\"shard-" + shard + "-user-" + i + "\""));
+            }
+        }
+    }
+
+    @Test
+    public void testExportSpansShards() throws Exception {
+
+        String export = get("/users/export", loginAdmin());
+
+        int lines = 0;
+        for(String line : export.split("\n")) {
+            if(line.contains("\"name\":\"shard-")) {
+                lines++;
+            }
+        }
+        Assert.assertEquals(SHARDS * USERS_PER_SHARD, lines);
+    }
+
+    @Test
+    public void testNonAdminNotFannedOut() throws Exception {
+
+        long before = countOtherShardUserLists();
+
+        String body = get("/users", login("shard-0-user-0", LoadTestEnvironment.USER_PASSWORD));
+
+        Assert.assertTrue(body.contains("\"shard-0-user-0\""));
+        Assert.assertFalse(body.contains("\"shard-1-user-0\""));
+
+        Assert.assertEquals(before, countOtherShardUserLists());
+    }
+
+    @Test
+    public void testRefusedTokenNotFannedOut() throws Exception {
+
+        long before = countOtherShardUserLists();
+
+        HttpClient client = new HttpClient();
+        GetMethod get = new GetMethod(server.getBaseURL() + "/users");
+        get.setRequestHeader(Constant.TOKEN_AUTH, "not-a-token");
+
+        try {
+            Assert.assertTrue(client.executeMethod(get) / 100 != 2);
+        } finally {
+            get.releaseConnection();
+        }
+
+        Assert.assertEquals(before, countOtherShardUserLists());
+    }
+
+    private static long countOtherShardUserLists() {
+
+        long lists = 0;
+        for(KeystoneSimulator keystone : KEYSTONES.subList(1, SHARDS)) {
+            lists += keystone.getStats().getRequests(Route.USER_LIST);
+        }
+        return lists;
+    }
+
+    private static String loginAdmin() throws Exception {
+        return login("admin", KEYSTONES.get(0).getConfig().getAdminPassword());
+    }
+
+    private static String login(String userName, String password) throws Exception {
+
+        AuthApiClient client = new AuthApiClient(server.getBaseURL(), 1);
+
+        try {
+            String token = client.login(userName, password);
+            Assert.assertNotNull(token);
+            return token;
+        } finally {
+            client.close();
+        }
+    }
+
+    private static String get(String path, String token) throws Exception {
+
+        HttpClient client = new HttpClient();
+        GetMethod get = new GetMethod(server.getBaseURL() + path);
+        get.setRequestHeader(Constant.TOKEN_AUTH, token);
+
+        try {
+            Assert.assertEquals(200, client.executeMethod(get));
+            return get.getResponseBodyAsString();
+        } finally {
+            get.releaseConnection();
+        }
+    }
+
+}
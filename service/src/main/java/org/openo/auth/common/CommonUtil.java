@@ -17,14 +17,20 @@
 package org.openo.auth.common;
 
 import java.io.IOException;
+import java.util.List;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import org.apache.commons.lang3.StringUtils;
 import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.type.TypeReference;
 import org.openo.auth.constant.ErrorCode;
+import org.openo.auth.entity.AuthzCheckUI;
+import org.openo.auth.entity.AuthzPolicyUI;
 import org.openo.auth.entity.ModifyPassword;
 import org.openo.auth.entity.ModifyUser;
+import org.openo.auth.entity.TokenScopeUI;
 import org.openo.auth.entity.UserCredentialUI;
 import org.openo.auth.entity.UserDetailsUI;
 import org.openo.auth.exception.AuthException;
@@ -159,4 +165,117 @@ public class CommonUtil {
         }
     }
 
+    /**
+     * This method will parse the JSON array of tokens of a batch validation.
+     * <br/>
+     * 
+     * @param request : HttpServletRequest
+     * @param response : HttpServletResponse
+     * @return tokens : the tokens to validate.
+     * @since  
+     */
+    public List<String> getTokenList(HttpServletRequest request, HttpServletResponse response) {
+
+        try {
+            ObjectMapper mapper = new ObjectMapper();
+
+            List<String> tokens = mapper.readValue(request.getInputStream(), new TypeReference<List<String>>() {
+            });
+
+            if(null == tokens) {
+                throw new IOException("no token array");
+            }
+            return tokens;
+
+        } catch(IOException ex) {
+            LOGGER.error("Exception caught, trace = " + ex);
+            throw new AuthException(HttpServletResponse.SC_BAD_REQUEST, ErrorCode.FAILURE_INFORMATION);
+        }
+    }
+
+    /**
+     * This method will parse the JSON of the project a token is scoped to, given by id or by name.
+     * <br/>
+     * 
+     * @param request : HttpServletRequest
+     * @param response : HttpServletResponse
+     * @return scope : Instance of <tt> TokenScopeUI </tt> class which contains the project.
+     * @since  
+     */
+    public TokenScopeUI getTokenScope(HttpServletRequest request, HttpServletResponse response) {
+
+        try {
+            ObjectMapper mapper = new ObjectMapper();
+
+            TokenScopeUI scope = mapper.readValue(request.getInputStream(), TokenScopeUI.class);
+
+            if(null == scope || (StringUtils.isEmpty(scope.getProjectId())
+                    && StringUtils.isEmpty(scope.getProjectName()))) {
+                throw new IOException("no project");
+            }
+            return scope;
+
+        } catch(IOException ex) {
+            LOGGER.error("Exception caught, trace = " + ex);
+            throw new AuthException(HttpServletResponse.SC_BAD_REQUEST, ErrorCode.FAILURE_INFORMATION);
+        }
+    }
+
+    /**
+     * This method will parse the JSON of an authorization check, the token, the project and the
+     * role are all needed.
+     * <br/>
+     * 
+     * @param request : HttpServletRequest
+     * @param response : HttpServletResponse
+     * @return check : Instance of <tt> AuthzCheckUI </tt> class which contains the check.
+     * @since  
+     */
+    public AuthzCheckUI getAuthzCheck(HttpServletRequest request, HttpServletResponse response) {
+
+        try {
+            ObjectMapper mapper = new ObjectMapper();
+
+            AuthzCheckUI check = mapper.readValue(request.getInputStream(), AuthzCheckUI.class);
+
+            if(null == check || StringUtils.isEmpty(check.getToken()) || StringUtils.isEmpty(check.getProjectId())
+                    || StringUtils.isEmpty(check.getRole())) {
+                throw new IOException("incomplete check");
+            }
+            return check;
+
+        } catch(IOException ex) {
+            LOGGER.error("Exception caught, trace = " + ex);
+            throw new AuthException(HttpServletResponse.SC_BAD_REQUEST, ErrorCode.FAILURE_INFORMATION);
+        }
+    }
+
+    /**
+     * This method will parse the JSON of a policy evaluation, the token and the rule are needed,
+     * the target is optional.
+     * <br/>
+     * 
+     * @param request : HttpServletRequest
+     * @param response : HttpServletResponse
+     * @return evaluation : Instance of <tt> AuthzPolicyUI </tt> class which contains the evaluation.
+     * @since  
+     */
+    public AuthzPolicyUI getAuthzPolicy(HttpServletRequest request, HttpServletResponse response) {
+
+        try {
+            ObjectMapper mapper = new ObjectMapper();
+
+            AuthzPolicyUI policy = mapper.readValue(request.getInputStream(), AuthzPolicyUI.class);
+
+            if(null == policy || StringUtils.isEmpty(policy.getToken()) || StringUtils.isEmpty(policy.getRule())) {
+                throw new IOException("incomplete evaluation");
+            }
+            return policy;
+
+        } catch(IOException ex) {
+            LOGGER.error("Exception caught, trace = " + ex);
+            throw new AuthException(HttpServletResponse.SC_BAD_REQUEST, ErrorCode.FAILURE_INFORMATION);
+        }
+    }
+
 }
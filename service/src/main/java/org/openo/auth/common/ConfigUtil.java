@@ -21,6 +21,8 @@ import java.util.Properties;
 
 import javax.servlet.http.HttpServletResponse;
 
+import org.openo.auth.common.keystone.DomainContext;
+import org.openo.auth.common.keystone.KeyStoneDomain;
 import org.openo.auth.constant.Constant;
 import org.openo.auth.constant.ErrorCode;
 import org.openo.auth.entity.Configuration;
@@ -42,6 +44,11 @@ import org.slf4j.LoggerFactory;
  * SERVICE=KeyStone - Installed Service
  * </blockquote></pre>
  * <b>Currently, Auth Service supports only KeyStone Service</b>
+ * <p>
+ * Any property can be overridden by a system property of the same name prefixed by
+ * <tt>openo.auth.</tt>, e.g. <tt>-Dopeno.auth.PORT=5000</tt>, so that the load generator and the
+ * tests point the service at a local KeyStone without editing the packaged file.
+ * </p>
  * 
  * @author
  * @version  
@@ -50,8 +57,14 @@ public class ConfigUtil {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ConfigUtil.class);
 
+    private static final String OVERRIDE_PREFIX = "openo.auth.";
+
     private static Configuration config;
 
+    private static Properties cachedProperties;
+
+    private static final ThreadLocal<String> THREAD_BASE_URL = new ThreadLocal<String>();
+
     static {
         loadConfigProperties();
     }
@@ -78,6 +91,29 @@ public class ConfigUtil {
 
         Configuration conf = new Configuration();
 
+        Properties properties = loadProperties();
+
+        conf.setIpAddr(properties.getProperty(Constant.AUTH_CONF_IP));
+
+        conf.setPortNo(properties.getProperty(Constant.AUTH_CONF_PORT));
+
+        conf.setService(properties.getProperty(Constant.AUTH_CONF_SERVICE));
+
+        LOGGER.info("Service Name = " + conf.getService());
+
+        return conf;
+    }
+
+    /**
+     * Loads the <tt>auth_service.properties</tt> file from the classpath.
+     * <br/>
+     * 
+     * @return properties : The properties configured by user in the
+     *         <tt>auth_service.properties</tt>.
+     * @since  
+     */
+    private static Properties loadProperties() {
+
         LOGGER.info("Loading... " + Constant.AUTH_CONF_PROPERTIES);
 
         ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
@@ -95,20 +131,98 @@ public class ConfigUtil {
 
         }
 
-        conf.setIpAddr(properties.getProperty(Constant.AUTH_CONF_IP));
+        for(String name : System.getProperties().stringPropertyNames()) {
+            if(name.startsWith(OVERRIDE_PREFIX)) {
+                properties.setProperty(name.substring(OVERRIDE_PREFIX.length()), System.getProperty(name));
+            }
+        }
 
-        conf.setPortNo(properties.getProperty(Constant.AUTH_CONF_PORT));
+        return properties;
+    }
 
-        conf.setService(properties.getProperty(Constant.AUTH_CONF_SERVICE));
+    /**
+     * Provides the value of an optional tuning property of the <tt>auth_service.properties</tt>.
+     * <br/>
+     * 
+     * @param key : Name of the property.
+     * @param defaultValue : Value used when the property is not configured.
+     * @return value : The configured value or the default value.
+     * @since  
+     */
+    public static String getProperty(String key, String defaultValue) {
 
-        LOGGER.info("Service Name = " + conf.getService());
+        if(null == cachedProperties) {
+            cachedProperties = loadProperties();
+        }
 
-        return conf;
+        String value = cachedProperties.getProperty(key);
+
+        if(null == value || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        return value.trim();
+    }
+
+    /**
+     * Provides the value of an optional numeric property of the <tt>auth_service.properties</tt>.
+     * <br/>
+     * 
+     * @param key : Name of the property.
+     * @param defaultValue : Value used when the property is not configured or not a number.
+     * @return value : The configured value or the default value.
+     * @since  
+     */
+    public static long getLongProperty(String key, long defaultValue) {
+
+        String value = getProperty(key, null);
+
+        if(null == value) {
+            return defaultValue;
+        }
+
+        try {
+            return Long.parseLong(value);
+        } catch(NumberFormatException e) {
+            LOGGER.warn("Invalid value for " + key + " = " + value + ", using " + defaultValue);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Provides the value of an optional numeric property of the <tt>auth_service.properties</tt>.
+     * <br/>
+     * 
+     * @param key : Name of the property.
+     * @param defaultValue : Value used when the property is not configured or not a number.
+     * @return value : The configured value or the default value.
+     * @since  
+     */
+    public static int getIntProperty(String key, int defaultValue) {
+        return (int)getLongProperty(key, defaultValue);
+    }
+
+    /**
+     * Provides the value of an optional flag of the <tt>auth_service.properties</tt>.
+     * <br/>
+     * 
+     * @param key : Name of the property.
+     * @param defaultValue : Value used when the property is not configured.
+     * @return value : The configured value or the default value.
+     * @since  
+     */
+    public static boolean getBooleanProperty(String key, boolean defaultValue) {
+
+        String value = getProperty(key, null);
+
+        if(null == value) {
+            return defaultValue;
+        }
+        return Boolean.parseBoolean(value);
     }
 
     /**
      * Provides the base url for the service which is to be communicate for the
-     * Authentication.
+     * Authentication, the one of the domain of the request when this domain has its own KeyStone.
      * <br/>
      * 
      * @return conf: Return the base url for the service which is to be communicate for the
@@ -117,6 +231,31 @@ public class ConfigUtil {
      */
     public static String getBaseURL() {
 
+        String threadBaseURL = THREAD_BASE_URL.get();
+
+        if(null != threadBaseURL) {
+            return threadBaseURL;
+        }
+
+        KeyStoneDomain domain = DomainContext.current();
+
+        if(null != domain && domain.hasOwnEndpoint()) {
+            return domain.getBaseURL();
+        }
+
+        return getConfiguredBaseURL();
+    }
+
+    /**
+     * Provides the base url of the service configured in the <tt>auth_service.properties</tt>,
+     * whatever the domain of the request.
+     * <br/>
+     * 
+     * @return baseURL : the base url of the configured service.
+     * @since  
+     */
+    public static String getConfiguredBaseURL() {
+
         if(null == config) {
             config = loadConfigProperties();
         }
@@ -124,6 +263,36 @@ public class ConfigUtil {
         return createBaseURL(config);
     }
 
+    /**
+     * Redirects the calls of the current thread to another service, such as the local stub of the
+     * warm-up, the other threads keep using the configured service.
+     * <br/>
+     * 
+     * @param baseURL : base url used by the current thread, <tt>null</tt> to use the configured one.
+     * @since  
+     */
+    public static void setThreadBaseURL(String baseURL) {
+
+        if(null == baseURL) {
+            THREAD_BASE_URL.remove();
+        } else {
+            THREAD_BASE_URL.set(baseURL);
+        }
+    }
+
+    /**
+     * Tells whether the calls of the current thread are redirected, such as during the warm-up.
+     * The work of such a thread is synthetic : it must stay in this process, neither sent to the
+     * other nodes of the cluster nor to the other KeyStone shards, and its INFO logs are dropped.
+     * <br/>
+     * 
+     * @return <tt>true</tt> if the current thread uses its own base url.
+     * @since  
+     */
+    public static boolean isThreadRedirected() {
+        return null != THREAD_BASE_URL.get();
+    }
+
     /**
      * Provides the Service which is to be used for Auth Service.
      * <br/>
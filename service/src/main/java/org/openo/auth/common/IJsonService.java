@@ -22,9 +22,11 @@ import org.codehaus.jackson.JsonParseException;
 import org.codehaus.jackson.map.JsonMappingException;
 import org.openo.auth.entity.ModifyPassword;
 import org.openo.auth.entity.ModifyUser;
+import org.openo.auth.entity.TokenScopeUI;
 import org.openo.auth.entity.UserCredentialUI;
 import org.openo.auth.entity.UserDetailsUI;
 import org.openo.auth.entity.keystone.req.KeyStoneConfiguration;
+import org.openo.auth.entity.keystone.resp.TokenWrapper;
 import org.openo.auth.entity.keystone.resp.UserCreateWrapper;
 
 /**
@@ -50,6 +52,28 @@ public interface IJsonService {
      * @since   
      */
     String getLoginJson(UserCredentialUI userInfo, KeyStoneConfiguration keyConf);
+
+    /**
+     * 
+     * <br/>
+     * 
+     * @param keyConf
+     * @return
+     * @since   
+     */
+    String getServiceLoginJson(KeyStoneConfiguration keyConf);
+
+    /**
+     * 
+     * <br/>
+     * 
+     * @param token
+     * @param scope
+     * @param keyConf
+     * @return
+     * @since   
+     */
+    String getTokenScopeJson(String token, TokenScopeUI scope, KeyStoneConfiguration keyConf);
     
     /**
      * 
@@ -126,4 +150,15 @@ public interface IJsonService {
      */
     String modifyUserJson(ModifyUser modifyUser);
 
+    /**
+     * 
+     * <br/>
+     * 
+     * @param inputJson
+     * @return
+     * @throws IOException
+     * @since   
+     */
+    TokenWrapper keyStoneRespToTokenObj(String inputJson) throws IOException;
+
 }
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.common.cache;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>
+ * A fixed size, thread safe Bloom filter over 64 bit fingerprints.
+ * </p>
+ * <p>
+ * The bit positions are derived from the fingerprint by double hashing, so that no further
+ * hashing of the token is needed.
+ * </p>
+ *
+ * @author
+ * @version
+ */
+public class BloomFilter {
+
+    private final AtomicLongArray bits;
+
+    private final long bitCount;
+
+    private final int hashCount;
+
+    /**
+     * Constructor<br/>
+     * <p>
+     * </p>
+     *
+     * @param expectedEntries : Number of entries the filter is sized for.
+     * @param bitsPerEntry : Number of bits per entry, 10 bits give about 1% false positives.
+     * @since
+     */
+    public BloomFilter(int expectedEntries, int bitsPerEntry) {
+
+        long words = Math.max(1L, ((long)expectedEntries * bitsPerEntry + 63) / 64);
+
+        this.bits = new AtomicLongArray((int)Math.min(words, Integer.MAX_VALUE));
+
+        this.bitCount = (long)bits.length() * 64;
+
+        this.hashCount = Math.max(1, (int)Math.round(bitsPerEntry * Math.log(2)));
+    }
+
+    /**
+     * Adds the fingerprint to the filter.
+     * <br/>
+     *
+     * @param fingerprint : 64 bit fingerprint.
+     * @since
+     */
+    public void put(long fingerprint) {
+
+        long hash1 = fingerprint;
+        long hash2 = mix(fingerprint);
+
+        for(int i = 0; i < hashCount; i++) {
+            long bit = index(hash1 + i * hash2);
+            int word = (int)(bit >>> 6);
+            long mask = 1L << bit;
+
+            long current;
+            do {
+                current = bits.get(word);
+            } while((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask));
+        }
+    }
+
+    /**
+     * Checks whether the fingerprint may have been added to the filter.
+     * <br/>
+     *
+     * @param fingerprint : 64 bit fingerprint.
+     * @return <tt>false</tt> if the fingerprint was never added, <tt>true</tt> if it probably was.
+     * @since
+     */
+    public boolean mightContain(long fingerprint) {
+
+        long hash1 = fingerprint;
+        long hash2 = mix(fingerprint);
+
+        for(int i = 0; i < hashCount; i++) {
+            long bit = index(hash1 + i * hash2);
+            if((bits.get((int)(bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Removes all the fingerprints of the filter.
+     * <br/>
+     *
+     * @since
+     */
+    public void clear() {
+        for(int i = 0; i < bits.length(); i++) {
+            bits.set(i, 0L);
+        }
+    }
+
+    private long index(long hash) {
+        return (hash & Long.MAX_VALUE) % bitCount;
+    }
+
+    private static long mix(long value) {
+        long hash = (value ^ (value >>> 33)) * 0xff51afd7ed558ccdL;
+        hash = (hash ^ (hash >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return (hash ^ (hash >>> 33)) | 1L;
+    }
+
+}
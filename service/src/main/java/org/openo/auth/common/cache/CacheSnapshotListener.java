@@ -0,0 +1,139 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.common.cache;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+
+import org.openo.auth.common.ConfigUtil;
+import org.openo.auth.constant.Constant;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * Restores the caches from the snapshot when the service starts, saves them periodically and
+ * once more when the service stops.
+ * </p>
+ * <p>
+ * Only the header of the snapshot is read at start up, the entries are restored in the background
+ * while the service already answers, the cache misses of this period go to the Service Client as
+ * usual. The periodic saves start after the restore, so that a snapshot is never replaced by the
+ * partially restored caches.
+ * </p>
+ *
+ * @author
+ * @version
+ */
+public class CacheSnapshotListener implements ServletContextListener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CacheSnapshotListener.class);
+
+    private ScheduledExecutorService executor;
+
+    private Path file;
+
+    /**
+     * Restores the caches and schedules the snapshots.
+     * <br/>
+     *
+     * @param event : the servlet context event.
+     * @since
+     */
+    public void contextInitialized(ServletContextEvent event) {
+
+        final CacheSnapshotManager manager = CacheSnapshotManager.getInstance();
+
+        file = manager.getSnapshotFile();
+
+        if(null == file) {
+            LOGGER.info("Cache snapshot is disabled.");
+            return;
+        }
+
+        final boolean restore = manager.prepareRestore(file);
+
+        executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "auth-cache-snapshot");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        if(restore) {
+            executor.execute(new Runnable() {
+
+                public void run() {
+                    manager.restore(file);
+                }
+            });
+        }
+
+        long interval = ConfigUtil.getLongProperty(Constant.CACHE_SNAPSHOT_INTERVAL, 30000L);
+
+        if(interval > 0) {
+            executor.scheduleWithFixedDelay(new Runnable() {
+
+                public void run() {
+                    save();
+                }
+            }, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Saves the caches a last time.
+     * <br/>
+     *
+     * @param event : the servlet context event.
+     * @since
+     */
+    public void contextDestroyed(ServletContextEvent event) {
+
+        if(null == executor) {
+            return;
+        }
+
+        executor.shutdown();
+
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        save();
+    }
+
+    private void save() {
+        try {
+            CacheSnapshotManager.getInstance().save(file);
+        } catch(IOException | RuntimeException e) {
+            LOGGER.error("Cache snapshot could not be saved : " + e);
+        }
+    }
+
+}
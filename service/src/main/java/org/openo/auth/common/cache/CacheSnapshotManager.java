@@ -0,0 +1,463 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.common.cache;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+import org.apache.commons.lang3.StringUtils;
+import org.openo.auth.common.ConfigUtil;
+import org.openo.auth.constant.Constant;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * Saves the caches to a snapshot file and restores them after a restart, so that the service
+ * does not start with empty caches and all the requests going to the Service Client.
+ * </p>
+ * <p>
+ * The snapshot is written to a temporary file which then replaces the previous snapshot, so a
+ * crash while writing never leaves a partial snapshot. It is read back through a memory map. The
+ * header and every section carry a CRC32 checksum, a section whose checksum does not match is
+ * skipped. The header also carries the salt of the token fingerprints, which is adopted before the
+ * sections are restored.
+ * </p>
+ * <blockquote><pre>
+ * Snapshot layout :
+ * magic, version, creation time, salt, section count, header checksum
+ * for each section : name, length, checksum, entries
+ * </pre></blockquote>
+ *
+ * @author
+ * @version
+ */
+public class CacheSnapshotManager {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CacheSnapshotManager.class);
+
+    private static final int MAGIC = 0x41555448;
+
+    private static final int VERSION = 1;
+
+    private static final String DEFAULT_FILE = "work" + File.separator + "auth-cache.snapshot";
+
+    private static CacheSnapshotManager instance = createInstance();
+
+    private final List<ISnapshotSection> sections = new CopyOnWriteArrayList<ISnapshotSection>();
+
+    CacheSnapshotManager() {
+    }
+
+    private static CacheSnapshotManager createInstance() {
+
+        CacheSnapshotManager manager = new CacheSnapshotManager();
+
+        ITokenCache tokenCache = TokenCacheFactory.getInstance().getTokenCache();
+
+        if(tokenCache instanceof ISnapshotSection) {
+            manager.register((ISnapshotSection)tokenCache);
+        }
+
+        manager.register(UserNameCache.getInstance());
+
+        return manager;
+    }
+
+    /**
+     * Singleton class, provides the instance of <tt>CacheSnapshotManager</tt> class.
+     * <br/>
+     *
+     * @return instance of <tt>CacheSnapshotManager</tt> class.
+     * @since
+     */
+    public static CacheSnapshotManager getInstance() {
+        return instance;
+    }
+
+    /**
+     * Adds a cache to the snapshot.
+     * <br/>
+     *
+     * @param section : the cache.
+     * @since
+     */
+    public void register(ISnapshotSection section) {
+        sections.add(section);
+    }
+
+    /**
+     * Provides the snapshot file configured in the <tt>auth_service.properties</tt> file, by
+     * default under the <tt>catalina.base</tt> directory, or <tt>null</tt> when the snapshot is
+     * disabled.
+     * <br/>
+     *
+     * @return file : the snapshot file.
+     * @since
+     */
+    public Path getSnapshotFile() {
+
+        if(!ConfigUtil.getBooleanProperty(Constant.CACHE_SNAPSHOT_ENABLED, true)) {
+            return null;
+        }
+
+        String file = ConfigUtil.getProperty(Constant.CACHE_SNAPSHOT_FILE, null);
+
+        if(StringUtils.isNotEmpty(file)) {
+            return new File(file).toPath();
+        }
+
+        String base = System.getProperty("catalina.base");
+
+        if(StringUtils.isEmpty(base)) {
+            return null;
+        }
+        return new File(base, DEFAULT_FILE).toPath();
+    }
+
+    /**
+     * Writes all the registered caches to the snapshot file.
+     * <br/>
+     *
+     * @param file : the snapshot file.
+     * @throws IOException
+     * @since
+     */
+    public synchronized void save(Path file) throws IOException {
+
+        long start = System.currentTimeMillis();
+
+        Path parent = file.toAbsolutePath().getParent();
+
+        if(null != parent) {
+            Files.createDirectories(parent);
+        }
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+
+        Files.deleteIfExists(temp);
+
+        createPrivateFile(temp);
+
+        try(FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+
+            DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+
+            out.write(header());
+
+            for(ISnapshotSection section : sections) {
+
+                out.writeUTF(section.getSectionName());
+                out.flush();
+
+                long lengthPosition = channel.position();
+
+                out.writeLong(0L);
+                out.writeLong(0L);
+                out.flush();
+
+                long sectionStart = channel.position();
+
+                CRC32 crc = new CRC32();
+
+                DataOutputStream sectionOut = new DataOutputStream(new CheckedOutputStream(out, crc));
+
+                section.save(sectionOut);
+                sectionOut.flush();
+
+                ByteBuffer trailer = ByteBuffer.allocate(16);
+                trailer.putLong(channel.position() - sectionStart);
+                trailer.putLong(crc.getValue());
+                trailer.flip();
+
+                while(trailer.hasRemaining()) {
+                    channel.write(trailer, lengthPosition + trailer.position());
+                }
+            }
+            out.flush();
+            channel.force(true);
+        }
+
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch(AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        LOGGER.info("Cache snapshot saved in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    /**
+     * Reads the header of the snapshot and adopts its fingerprint salt. Has to be called before
+     * any token is fingerprinted.
+     * <br/>
+     *
+     * @param file : the snapshot file.
+     * @return <tt>true</tt> if the sections of the snapshot can be restored.
+     * @since
+     */
+    public boolean prepareRestore(Path file) {
+
+        if(null == file || !Files.isRegularFile(file)) {
+            return false;
+        }
+
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(channel.size(), 1024));
+
+            byte[] salt = readHeader(buffer);
+
+            if(null == salt) {
+                LOGGER.warn("Cache snapshot header is invalid, snapshot ignored.");
+                return false;
+            }
+
+            if(!TokenFingerprint.adoptSalt(salt)) {
+                LOGGER.warn("Token fingerprints already in use, snapshot ignored.");
+                return false;
+            }
+            return true;
+
+        } catch(IOException e) {
+            LOGGER.warn("Cache snapshot could not be read : " + e);
+            return false;
+        }
+    }
+
+    /**
+     * Restores the registered caches from the snapshot, the sections with an invalid checksum and
+     * the unknown sections are skipped.
+     * <br/>
+     *
+     * @param file : the snapshot file.
+     * @return number of sections restored.
+     * @since
+     */
+    public int restore(Path file) {
+
+        long start = System.currentTimeMillis();
+
+        int restored = 0;
+
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+
+            if(channel.size() > Integer.MAX_VALUE) {
+                LOGGER.warn("Cache snapshot is too large, snapshot ignored.");
+                return 0;
+            }
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if(null == readHeader(buffer)) {
+                LOGGER.warn("Cache snapshot header is invalid, snapshot ignored.");
+                return 0;
+            }
+
+            DataInputStream in = new DataInputStream(new ByteBufferInputStream(buffer));
+
+            while(buffer.hasRemaining()) {
+
+                String name = in.readUTF();
+                long length = in.readLong();
+                long checksum = in.readLong();
+
+                if(length < 0 || length > buffer.remaining()) {
+                    LOGGER.warn("Cache snapshot section " + name + " is truncated, snapshot ignored.");
+                    break;
+                }
+
+                ByteBuffer data = buffer.slice();
+                data.limit((int)length);
+                buffer.position(buffer.position() + (int)length);
+
+                if(restoreSection(name, data, checksum)) {
+                    restored++;
+                }
+            }
+
+        } catch(IOException e) {
+            LOGGER.warn("Cache snapshot could not be read : " + e);
+        }
+
+        LOGGER.info("Cache snapshot restored " + restored + " sections in " + (System.currentTimeMillis() - start)
+                + " ms");
+        return restored;
+    }
+
+    private boolean restoreSection(String name, ByteBuffer data, long checksum) throws IOException {
+
+        CRC32 crc = new CRC32();
+        crc.update(data.duplicate());
+
+        if(crc.getValue() != checksum) {
+            LOGGER.warn("Cache snapshot section " + name + " has an invalid checksum, section ignored.");
+            return false;
+        }
+
+        for(ISnapshotSection section : sections) {
+            if(section.getSectionName().equals(name)) {
+                section.restore(new DataInputStream(new ByteBufferInputStream(data)));
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private byte[] header() throws IOException {
+
+        byte[] salt = TokenFingerprint.getSalt();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(System.currentTimeMillis());
+        out.writeShort(salt.length);
+        out.write(salt);
+        out.flush();
+
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+
+        out.writeLong(crc.getValue());
+        out.flush();
+
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Reads the header and leaves the buffer at the first section.
+     * <br/>
+     *
+     * @return salt : the fingerprint salt of the snapshot, <tt>null</tt> when the header is invalid.
+     * @since
+     */
+    private static byte[] readHeader(ByteBuffer buffer) {
+
+        int start = buffer.position();
+
+        if(buffer.remaining() < 18 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            return null;
+        }
+
+        buffer.getLong();
+
+        int saltLength = buffer.getShort();
+
+        if(saltLength < 0 || buffer.remaining() < saltLength + 8) {
+            return null;
+        }
+
+        byte[] salt = new byte[saltLength];
+        buffer.get(salt);
+
+        ByteBuffer headerBytes = buffer.duplicate();
+        headerBytes.limit(buffer.position());
+        headerBytes.position(start);
+
+        CRC32 crc = new CRC32();
+        crc.update(headerBytes);
+
+        return crc.getValue() == buffer.getLong() ? salt : null;
+    }
+
+    private static void createPrivateFile(Path file) throws IOException {
+        try {
+            Files.createFile(file, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        } catch(UnsupportedOperationException e) {
+            Files.createFile(file);
+        }
+    }
+
+    /**
+     * Writes a string which may be <tt>null</tt>.
+     * <br/>
+     *
+     * @param out : the output of the section.
+     * @param value : the string.
+     * @throws IOException
+     * @since
+     */
+    public static void writeString(DataOutput out, String value) throws IOException {
+        out.writeBoolean(null != value);
+        if(null != value) {
+            out.writeUTF(value);
+        }
+    }
+
+    /**
+     * Reads a string written by {@link #writeString(DataOutput, String)}.
+     * <br/>
+     *
+     * @param in : the input of the section.
+     * @return value : the string, may be <tt>null</tt>.
+     * @throws IOException
+     * @since
+     */
+    public static String readString(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static final class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if(!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+    }
+
+}
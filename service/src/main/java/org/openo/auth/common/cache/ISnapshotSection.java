@@ -0,0 +1,65 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.common.cache;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * <p>
+ * A cache which is saved in the cache snapshot and restored from it after a restart. Each cache
+ * owns a section of the snapshot, identified by its name.
+ * </p>
+ * <br/>
+ *
+ * @author
+ * @version
+ */
+public interface ISnapshotSection {
+
+    /**
+     * Provides the name of the section, unique in the snapshot.
+     * <br/>
+     *
+     * @return name : the name of the section.
+     * @since
+     */
+    String getSectionName();
+
+    /**
+     * Writes the live entries of the cache.
+     * <br/>
+     *
+     * @param out : the output of the section.
+     * @throws IOException
+     * @since
+     */
+    void save(DataOutput out) throws IOException;
+
+    /**
+     * Reads the entries written by {@link #save(DataOutput)}, the entries expired in the meantime
+     * are skipped.
+     * <br/>
+     *
+     * @param in : the input of the section, whose checksum is already verified.
+     * @throws IOException
+     * @since
+     */
+    void restore(DataInput in) throws IOException;
+
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.common.cache;
+
+import org.openo.auth.entity.TokenDetails;
+
+/**
+ * <p>
+ * A cache of the tokens validated by the Service Client, used on the token validation path.
+ * </p>
+ * <br/>
+ *
+ * @author
+ * @version
+ */
+public interface ITokenCache {
+
+    /**
+     * Provides the cached details of a valid token.
+     * <br/>
+     *
+     * @param token : Auth token.
+     * @return details : The cached details, or <tt>null</tt> when the token is not cached or its
+     *         entry has expired.
+     * @since
+     */
+    TokenDetails get(String token);
+
+    /**
+     * Caches the details of a token validated by the Service Client.
+     * <br/>
+     *
+     * @param token : Auth token.
+     * @param details : The details of the token.
+     * @since
+     */
+    void put(String token, TokenDetails details);
+
+    /**
+     * Removes the token from the cache.
+     * <br/>
+     *
+     * @param token : Auth token.
+     * @since
+     */
+    void remove(String token);
+
+    /**
+     * Removes the token of the fingerprint from the cache, for a token revoked on another node.
+     * <br/>
+     *
+     * @param fingerprint : the fingerprint of the token, see <tt>TokenFingerprint</tt>.
+     * @since
+     */
+    void removeFingerprint(long fingerprint);
+
+    /**
+     * Removes all the tokens of the user from the cache, once KeyStone revoked them.
+     * <br/>
+     *
+     * @param userId : id of the user.
+     * @since
+     */
+    void removeUser(String userId);
+
+    /**
+     * Removes all the tokens from the cache.
+     * <br/>
+     *
+     * @since
+     */
+    void clear();
+
+    /**
+     * Provides the number of cached tokens.
+     * <br/>
+     *
+     * @return size : number of cached tokens.
+     * @since
+     */
+    long size();
+
+}
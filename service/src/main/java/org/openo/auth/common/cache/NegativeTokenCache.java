@@ -0,0 +1,256 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.common.cache;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.lang3.StringUtils;
+import org.openo.auth.common.ConfigUtil;
+import org.openo.auth.constant.Constant;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * A short lived cache of the tokens recently rejected by the Service Client, so that repeated
+ * garbage or expired tokens are answered without a call to the Service Client. Only a
+ * <tt>404 Not Found</tt> rejects the token itself : a <tt>401 Unauthorized</tt> is about the
+ * credential of the caller, and is not remembered against the token.
+ * </p>
+ * <p>
+ * A Bloom filter sits in front of the cache : a token which is not in the filter was surely not
+ * rejected and goes to the normal path without any map lookup. A token which is in the filter is
+ * rejected only when the map confirms it, so a false positive of the filter only costs the map
+ * lookup and never rejects a valid token. The filter has two generations rotated every time to
+ * live, which keeps its memory fixed and forgets the expired tokens.
+ * </p>
+ *
+ * @author
+ * @version
+ */
+public class NegativeTokenCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NegativeTokenCache.class);
+
+    private static final int BITS_PER_ENTRY = 10;
+
+    private static NegativeTokenCache instance = new NegativeTokenCache(
+            ConfigUtil.getBooleanProperty(Constant.TOKEN_NEGATIVE_CACHE_ENABLED, true),
+            ConfigUtil.getLongProperty(Constant.TOKEN_NEGATIVE_CACHE_TTL, 10000L),
+            ConfigUtil.getIntProperty(Constant.TOKEN_NEGATIVE_CACHE_MAX_ENTRIES, 100000));
+
+    private final boolean enabled;
+
+    private final long ttl;
+
+    private final int maxEntries;
+
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<Long, Entry>();
+
+    private volatile BloomFilter current;
+
+    private volatile BloomFilter previous;
+
+    private volatile long rotateAt;
+
+    private volatile long lastPurge;
+
+    /**
+     * Constructor<br/>
+     * <p>
+     * </p>
+     *
+     * @param enabled : whether the rejected tokens are cached.
+     * @param ttl : Time to live in milliseconds of a rejected token.
+     * @param maxEntries : Maximum number of rejected tokens remembered.
+     * @since
+     */
+    NegativeTokenCache(boolean enabled, long ttl, int maxEntries) {
+
+        this.enabled = enabled && ttl > 0 && maxEntries > 0;
+
+        this.ttl = ttl;
+
+        this.maxEntries = maxEntries;
+
+        this.current = new BloomFilter(Math.max(1, maxEntries), BITS_PER_ENTRY);
+
+        this.previous = new BloomFilter(Math.max(1, maxEntries), BITS_PER_ENTRY);
+
+        this.rotateAt = System.currentTimeMillis() + ttl;
+
+        LOGGER.info("Negative token cache enabled = " + this.enabled + ", ttl = " + ttl);
+    }
+
+    /**
+     * Singleton class, provides the instance of <tt>NegativeTokenCache</tt> class.
+     * <br/>
+     *
+     * @return instance of <tt>NegativeTokenCache</tt> class.
+     * @since
+     */
+    public static NegativeTokenCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * Provides the status with which the token was recently rejected.
+     * <br/>
+     *
+     * @param token : Auth token.
+     * @return status : The status of the rejection, or <tt>null</tt> when the token has to be
+     *         validated by the Service Client.
+     * @since
+     */
+    public Integer getRejectedStatus(String token) {
+
+        if(!enabled || StringUtils.isEmpty(token)) {
+            return null;
+        }
+
+        long now = System.currentTimeMillis();
+
+        rotateIfNeeded(now);
+
+        long fingerprint = TokenFingerprint.of(token);
+
+        if(!current.mightContain(fingerprint) && !previous.mightContain(fingerprint)) {
+            return null;
+        }
+
+        Entry entry = entries.get(fingerprint);
+
+        if(null == entry) {
+            return null;
+        }
+
+        if(entry.expiry < now) {
+            entries.remove(fingerprint);
+            return null;
+        }
+        return entry.status;
+    }
+
+    /**
+     * Remembers the token when the Service Client did not find it, any other status is ignored.
+     * <br/>
+     *
+     * @param token : Auth token.
+     * @param status : The status returned by the Service Client.
+     * @since
+     */
+    public void putIfRejected(String token, int status) {
+
+        if(!enabled || StringUtils.isEmpty(token) || !isRejection(status)) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+
+        rotateIfNeeded(now);
+
+        if(entries.size() >= maxEntries && !purgeExpired(now)) {
+            return;
+        }
+
+        long fingerprint = TokenFingerprint.of(token);
+
+        entries.put(fingerprint, new Entry(status, now + ttl));
+
+        current.put(fingerprint);
+    }
+
+    /**
+     * Forgets all the rejected tokens.
+     * <br/>
+     *
+     * @since
+     */
+    public synchronized void clear() {
+        entries.clear();
+        current.clear();
+        previous.clear();
+    }
+
+    /**
+     * Provides the number of rejected tokens remembered.
+     * <br/>
+     *
+     * @return size : number of rejected tokens remembered.
+     * @since
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    private static boolean isRejection(int status) {
+        return status == HttpServletResponse.SC_NOT_FOUND;
+    }
+
+    private void rotateIfNeeded(long now) {
+
+        if(now < rotateAt) {
+            return;
+        }
+
+        synchronized(this) {
+            if(now < rotateAt) {
+                return;
+            }
+            BloomFilter oldest = previous;
+            oldest.clear();
+            previous = current;
+            current = oldest;
+            rotateAt = now + ttl;
+        }
+    }
+
+    private boolean purgeExpired(long now) {
+
+        // Under a flood of distinct tokens the cache stays full, scan it at most a few times per ttl.
+        if(now - lastPurge < ttl / 4) {
+            return false;
+        }
+        lastPurge = now;
+
+        Iterator<Entry> iterator = entries.values().iterator();
+
+        while(iterator.hasNext()) {
+            if(iterator.next().expiry < now) {
+                iterator.remove();
+            }
+        }
+        return entries.size() < maxEntries;
+    }
+
+    private static final class Entry {
+
+        private final int status;
+
+        private final long expiry;
+
+        Entry(int status, long expiry) {
+            this.status = status;
+            this.expiry = expiry;
+        }
+    }
+
+}
@@ -0,0 +1,587 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.common.cache;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang3.StringUtils;
+import org.openo.auth.entity.TokenDetails;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * A token cache held in direct memory, so that millions of cached tokens neither grow the heap
+ * nor lengthen the garbage collections.
+ * </p>
+ * <p>
+ * The key of an entry is the 64 bit fingerprint of the token and the value is packed in fixed
+ * width fields. The table is open addressed with buckets of 8 slots, a fingerprint can only live
+ * in the slots of its bucket, and a full bucket evicts with the clock algorithm : a slot read
+ * since the last sweep gets a second chance. The user and project ids are references to a table
+ * of strings, taken by an entry when it is stored and given back when it is evicted or removed.
+ * </p>
+ * <blockquote><pre>
+ * Slot layout (32 bytes) :
+ * 0  - fingerprint (0 means empty)
+ * 8  - expiry, in milliseconds
+ * 16 - user id reference
+ * 20 - project id reference
+ * 24 - flags
+ * </pre></blockquote>
+ *
+ * @author
+ * @version
+ */
+public class OffHeapTokenCache implements ITokenCache, ISnapshotSection {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OffHeapTokenCache.class);
+
+    static final int SLOT_SIZE = 32;
+
+    static final int BUCKET_SLOTS = 8;
+
+    private static final int BUCKET_SIZE = SLOT_SIZE * BUCKET_SLOTS;
+
+    private static final int BUCKETS_PER_BUFFER = 1 << 22;
+
+    private static final int LOCK_STRIPES = 256;
+
+    private static final int OFFSET_EXPIRY = 8;
+
+    private static final int OFFSET_USER = 16;
+
+    private static final int OFFSET_PROJECT = 20;
+
+    private static final int OFFSET_FLAGS = 24;
+
+    private static final int FLAG_REFERENCED = 1;
+
+    private static final String SECTION_NAME = "token.cache";
+
+    private final boolean enabled;
+
+    private final long ttl;
+
+    private final ByteBuffer[] buffers;
+
+    private final int bucketMask;
+
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    private final StringRefTable refs;
+
+    private final AtomicLong size = new AtomicLong();
+
+    private final AtomicInteger clockHand = new AtomicInteger();
+
+    private volatile Set<Long> removedWhileRestoring;
+
+    /**
+     * Constructor<br/>
+     * <p>
+     * </p>
+     *
+     * @param maxEntries : Number of entries the cache holds, rounded up to a power of two. A value
+     *            of 0 disables the cache.
+     * @param ttl : Time to live in milliseconds of a token.
+     * @param maxRefs : Maximum number of distinct user and project ids cached at the same time.
+     * @since
+     */
+    public OffHeapTokenCache(int maxEntries, long ttl, int maxRefs) {
+
+        this.enabled = maxEntries > 0 && ttl > 0;
+
+        this.ttl = ttl;
+
+        int buckets = enabled ? Integer.highestOneBit(Math.max(1, (maxEntries + BUCKET_SLOTS - 1) / BUCKET_SLOTS)) : 1;
+
+        if(buckets * BUCKET_SLOTS < maxEntries) {
+            buckets <<= 1;
+        }
+
+        this.bucketMask = buckets - 1;
+
+        int bufferCount = (buckets + BUCKETS_PER_BUFFER - 1) / BUCKETS_PER_BUFFER;
+
+        this.buffers = new ByteBuffer[bufferCount];
+
+        for(int i = 0; i < bufferCount; i++) {
+            int bucketsInBuffer = Math.min(BUCKETS_PER_BUFFER, buckets - i * BUCKETS_PER_BUFFER);
+            buffers[i] = ByteBuffer.allocateDirect(enabled ? bucketsInBuffer * BUCKET_SIZE : 0);
+        }
+
+        for(int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+
+        this.refs = new StringRefTable(enabled ? maxRefs : 0);
+
+        LOGGER.info("Off-heap token cache enabled = " + enabled + ", slots = " + (long)buckets * BUCKET_SLOTS
+                + ", ttl = " + ttl);
+    }
+
+    /**
+     * Provides the cached details of a valid token.
+     * <br/>
+     *
+     * @param token : Auth token.
+     * @return details : The cached details, or <tt>null</tt>.
+     * @since
+     */
+    public TokenDetails get(String token) {
+
+        if(!enabled || StringUtils.isEmpty(token)) {
+            return null;
+        }
+
+        long fingerprint = fingerprint(token);
+
+        int bucket = bucketOf(fingerprint);
+
+        ByteBuffer buffer = bufferOf(bucket);
+
+        int base = offsetOf(bucket);
+
+        long now = System.currentTimeMillis();
+
+        synchronized(lockOf(bucket)) {
+
+            for(int slot = base; slot < base + BUCKET_SIZE; slot += SLOT_SIZE) {
+
+                if(buffer.getLong(slot) != fingerprint) {
+                    continue;
+                }
+
+                long expiry = buffer.getLong(slot + OFFSET_EXPIRY);
+
+                if(expiry < now) {
+                    clearSlot(buffer, slot);
+                    return null;
+                }
+
+                buffer.putInt(slot + OFFSET_FLAGS, buffer.getInt(slot + OFFSET_FLAGS) | FLAG_REFERENCED);
+
+                TokenDetails details = new TokenDetails();
+                details.setUserId(refs.get(buffer.getInt(slot + OFFSET_USER)));
+                details.setProjectId(refs.get(buffer.getInt(slot + OFFSET_PROJECT)));
+                details.setExpiresAt(expiry);
+                return details;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Caches the details of a token validated by the Service Client. The entry expires at the
+     * expiry of the token or after the time to live, whichever comes first.
+     * <br/>
+     *
+     * @param token : Auth token.
+     * @param details : The details of the token.
+     * @since
+     */
+    public void put(String token, TokenDetails details) {
+
+        if(!enabled || StringUtils.isEmpty(token) || null == details) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+
+        long expiry = now + ttl;
+
+        if(details.getExpiresAt() > 0) {
+            expiry = Math.min(expiry, details.getExpiresAt());
+        }
+
+        if(expiry <= now) {
+            return;
+        }
+
+        store(fingerprint(token), expiry, details.getUserId(), details.getProjectId(), now, null);
+    }
+
+    private void store(long fingerprint, long expiry, String userId, String projectId, long now,
+            Set<Long> removed) {
+
+        int userRef = refs.intern(userId);
+
+        int projectRef = refs.intern(projectId);
+
+        if(userRef == StringRefTable.FULL || projectRef == StringRefTable.FULL) {
+            refs.release(userRef);
+            refs.release(projectRef);
+            LOGGER.warn("Token cache references are exhausted, token is not cached.");
+            return;
+        }
+
+        int bucket = bucketOf(fingerprint);
+
+        ByteBuffer buffer = bufferOf(bucket);
+
+        int base = offsetOf(bucket);
+
+        synchronized(lockOf(bucket)) {
+
+            // A token logged out while the snapshot is restored must not come back.
+            if(null != removed && removed.contains(fingerprint)) {
+                refs.release(userRef);
+                refs.release(projectRef);
+                return;
+            }
+
+            int slot = findSlot(buffer, base, fingerprint, now);
+
+            if(buffer.getLong(slot) == 0) {
+                size.incrementAndGet();
+            } else {
+                refs.release(buffer.getInt(slot + OFFSET_USER));
+                refs.release(buffer.getInt(slot + OFFSET_PROJECT));
+            }
+
+            buffer.putLong(slot, fingerprint);
+            buffer.putLong(slot + OFFSET_EXPIRY, expiry);
+            buffer.putInt(slot + OFFSET_USER, userRef);
+            buffer.putInt(slot + OFFSET_PROJECT, projectRef);
+            buffer.putInt(slot + OFFSET_FLAGS, 0);
+        }
+    }
+
+    /**
+     * Removes the token from the cache.
+     * <br/>
+     *
+     * @param token : Auth token.
+     * @since
+     */
+    public void remove(String token) {
+
+        if(!enabled || StringUtils.isEmpty(token)) {
+            return;
+        }
+
+        removeFingerprint(TokenFingerprint.of(token));
+    }
+
+    /**
+     * Removes the token of the fingerprint from the cache.
+     * <br/>
+     *
+     * @param fingerprint : the fingerprint of the token.
+     * @since
+     */
+    public void removeFingerprint(long fingerprint) {
+
+        if(!enabled) {
+            return;
+        }
+
+        long key = slotKey(fingerprint);
+
+        int bucket = bucketOf(key);
+
+        ByteBuffer buffer = bufferOf(bucket);
+
+        int base = offsetOf(bucket);
+
+        synchronized(lockOf(bucket)) {
+
+            Set<Long> removed = removedWhileRestoring;
+            if(null != removed) {
+                removed.add(key);
+            }
+
+            for(int slot = base; slot < base + BUCKET_SIZE; slot += SLOT_SIZE) {
+                if(buffer.getLong(slot) == key) {
+                    clearSlot(buffer, slot);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes all the tokens of the user, by a sweep of the whole cache : the revocations of the
+     * tokens of a user are rare, the lookups of the tokens are not slowed down by an index.
+     * <br/>
+     *
+     * @param userId : id of the user.
+     * @since
+     */
+    public void removeUser(String userId) {
+
+        int userRef = enabled ? refs.find(userId) : StringRefTable.NULL_REF;
+
+        if(userRef == StringRefTable.NULL_REF) {
+            return;
+        }
+
+        int removed = 0;
+
+        for(int bucket = 0; bucket <= bucketMask; bucket++) {
+
+            ByteBuffer buffer = bufferOf(bucket);
+
+            int base = offsetOf(bucket);
+
+            synchronized(lockOf(bucket)) {
+                for(int slot = base; slot < base + BUCKET_SIZE; slot += SLOT_SIZE) {
+                    if(buffer.getLong(slot) != 0 && buffer.getInt(slot + OFFSET_USER) == userRef) {
+                        clearSlot(buffer, slot);
+                        removed++;
+                    }
+                }
+            }
+        }
+        LOGGER.info(removed + " cached tokens of user " + userId + " removed");
+    }
+
+    /**
+     * Removes all the tokens from the cache.
+     * <br/>
+     *
+     * @since
+     */
+    public void clear() {
+
+        if(!enabled) {
+            return;
+        }
+
+        for(int bucket = 0; bucket <= bucketMask; bucket++) {
+
+            ByteBuffer buffer = bufferOf(bucket);
+
+            int base = offsetOf(bucket);
+
+            synchronized(lockOf(bucket)) {
+                for(int slot = base; slot < base + BUCKET_SIZE; slot += SLOT_SIZE) {
+                    if(buffer.getLong(slot) != 0) {
+                        clearSlot(buffer, slot);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Provides the number of cached tokens, including the expired ones not yet evicted.
+     * <br/>
+     *
+     * @return size : number of cached tokens.
+     * @since
+     */
+    public long size() {
+        return size.get();
+    }
+
+    /**
+     * Provides the name of the section of the token cache in the cache snapshot.
+     * <br/>
+     *
+     * @return name : the name of the section.
+     * @since
+     */
+    public String getSectionName() {
+        return SECTION_NAME;
+    }
+
+    /**
+     * Writes the live entries, a bucket at a time, followed by an empty fingerprint.
+     * <br/>
+     *
+     * @param out : the output of the section.
+     * @throws IOException
+     * @since
+     */
+    public void save(DataOutput out) throws IOException {
+
+        long now = System.currentTimeMillis();
+
+        long[] fingerprints = new long[BUCKET_SLOTS];
+        long[] expiries = new long[BUCKET_SLOTS];
+        String[] userIds = new String[BUCKET_SLOTS];
+        String[] projectIds = new String[BUCKET_SLOTS];
+
+        for(int bucket = 0; enabled && bucket <= bucketMask; bucket++) {
+
+            ByteBuffer buffer = bufferOf(bucket);
+
+            int base = offsetOf(bucket);
+
+            int count = 0;
+
+            // Copy the bucket under its lock, the output is written without holding it. The ids are
+            // read under the lock too, a reference given back may be reused by another id.
+            synchronized(lockOf(bucket)) {
+                for(int slot = base; slot < base + BUCKET_SIZE; slot += SLOT_SIZE) {
+                    long fingerprint = buffer.getLong(slot);
+                    long expiry = buffer.getLong(slot + OFFSET_EXPIRY);
+                    if(fingerprint != 0 && expiry >= now) {
+                        fingerprints[count] = fingerprint;
+                        expiries[count] = expiry;
+                        userIds[count] = refs.get(buffer.getInt(slot + OFFSET_USER));
+                        projectIds[count] = refs.get(buffer.getInt(slot + OFFSET_PROJECT));
+                        count++;
+                    }
+                }
+            }
+
+            for(int i = 0; i < count; i++) {
+                out.writeLong(fingerprints[i]);
+                out.writeLong(expiries[i]);
+                CacheSnapshotManager.writeString(out, userIds[i]);
+                CacheSnapshotManager.writeString(out, projectIds[i]);
+            }
+        }
+        out.writeLong(0L);
+    }
+
+    /**
+     * Reads the entries written by {@link #save(DataOutput)}, skipping the expired ones.
+     * <br/>
+     *
+     * @param in : the input of the section.
+     * @throws IOException
+     * @since
+     */
+    public void restore(DataInput in) throws IOException {
+
+        long now = System.currentTimeMillis();
+
+        int restored = 0;
+
+        Set<Long> removed = ConcurrentHashMap.newKeySet();
+
+        removedWhileRestoring = removed;
+
+        try {
+            for(long fingerprint = in.readLong(); fingerprint != 0; fingerprint = in.readLong()) {
+
+                long expiry = in.readLong();
+                String userId = CacheSnapshotManager.readString(in);
+                String projectId = CacheSnapshotManager.readString(in);
+
+                if(enabled && expiry >= now) {
+                    store(fingerprint, expiry, userId, projectId, now, removed);
+                    restored++;
+                }
+            }
+        } finally {
+            removedWhileRestoring = null;
+        }
+        LOGGER.info("Token cache restored " + restored + " entries.");
+    }
+
+    /**
+     * Finds the slot for the fingerprint : its current slot, else an empty or expired slot, else
+     * the victim chosen by the clock.
+     * <br/>
+     *
+     * @since
+     */
+    private int findSlot(ByteBuffer buffer, int base, long fingerprint, long now) {
+
+        int free = -1;
+
+        for(int slot = base; slot < base + BUCKET_SIZE; slot += SLOT_SIZE) {
+
+            long current = buffer.getLong(slot);
+
+            if(current == fingerprint) {
+                return slot;
+            }
+
+            if(free < 0 && current == 0) {
+                free = slot;
+            } else if(free < 0 && buffer.getLong(slot + OFFSET_EXPIRY) < now) {
+                clearSlot(buffer, slot);
+                free = slot;
+            }
+        }
+
+        if(free >= 0) {
+            return free;
+        }
+
+        int start = clockHand.getAndIncrement() & (BUCKET_SLOTS - 1);
+
+        for(int i = 0; i < 2 * BUCKET_SLOTS; i++) {
+
+            int slot = base + ((start + i) & (BUCKET_SLOTS - 1)) * SLOT_SIZE;
+
+            int flags = buffer.getInt(slot + OFFSET_FLAGS);
+
+            if((flags & FLAG_REFERENCED) == 0) {
+                clearSlot(buffer, slot);
+                return slot;
+            }
+
+            buffer.putInt(slot + OFFSET_FLAGS, flags & ~FLAG_REFERENCED);
+        }
+
+        // Unreachable, the first sweep clears every referenced flag.
+        clearSlot(buffer, base);
+        return base;
+    }
+
+    private void clearSlot(ByteBuffer buffer, int slot) {
+        if(buffer.getLong(slot) != 0) {
+            refs.release(buffer.getInt(slot + OFFSET_USER));
+            refs.release(buffer.getInt(slot + OFFSET_PROJECT));
+        }
+        buffer.putLong(slot, 0L);
+        buffer.putLong(slot + OFFSET_EXPIRY, 0L);
+        buffer.putLong(slot + OFFSET_USER, 0L);
+        buffer.putLong(slot + OFFSET_FLAGS, 0L);
+        size.decrementAndGet();
+    }
+
+    private static long fingerprint(String token) {
+        return slotKey(TokenFingerprint.of(token));
+    }
+
+    private static long slotKey(long fingerprint) {
+        // Zero marks an empty slot.
+        return fingerprint == 0 ? 1 : fingerprint;
+    }
+
+    private int bucketOf(long fingerprint) {
+        return (int)(fingerprint >>> 32) & bucketMask;
+    }
+
+    private ByteBuffer bufferOf(int bucket) {
+        return buffers[bucket / BUCKETS_PER_BUFFER];
+    }
+
+    private static int offsetOf(int bucket) {
+        return (bucket % BUCKETS_PER_BUFFER) * BUCKET_SIZE;
+    }
+
+    private Object lockOf(int bucket) {
+        return locks[bucket & (LOCK_STRIPES - 1)];
+    }
+
+}
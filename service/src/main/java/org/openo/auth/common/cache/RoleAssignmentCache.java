@@ -0,0 +1,342 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.common.cache;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang3.StringUtils;
+import org.openo.auth.common.ConfigUtil;
+import org.openo.auth.constant.Constant;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * Caches the effective role assignments of the users, per project, so that an authorization
+ * decision is a local lookup.
+ * </p>
+ * <p>
+ * The assignments of a user are replaced as a whole when they are read again from the Service
+ * Client. A role assigned or a user deleted through the service changes the cache at once, and a
+ * read of the Service Client started before such a change is not cached, so that it can not undo
+ * the change. Stale role assignments are answered while they are read again, but not past the
+ * maximum staleness : a role revoked in KeyStone is then no longer granted. The synthetic
+ * assignments of a thread redirected to the stub of the warm-up are never cached.
+ * </p>
+ *
+ * @author
+ * @version
+ */
+public class RoleAssignmentCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RoleAssignmentCache.class);
+
+    private static RoleAssignmentCache instance = new RoleAssignmentCache(
+            ConfigUtil.getBooleanProperty(Constant.AUTHZ_ROLE_CACHE_ENABLED, true),
+            ConfigUtil.getLongProperty(Constant.AUTHZ_ROLE_CACHE_TTL, 60000L),
+            ConfigUtil.getLongProperty(Constant.AUTHZ_ROLE_CACHE_MAX_STALE, -1L),
+            ConfigUtil.getIntProperty(Constant.AUTHZ_ROLE_CACHE_MAX_ENTRIES, 100000));
+
+    private final boolean enabled;
+
+    private final long ttl;
+
+    private final long maxStale;
+
+    private final int maxEntries;
+
+    private final Map<String, RoleAssignments> entries = new ConcurrentHashMap<String, RoleAssignments>();
+
+    private final AtomicLong changes = new AtomicLong();
+
+    /**
+     * Constructor<br/>
+     * <p>
+     * </p>
+     *
+     * @param enabled : whether the role assignments are cached.
+     * @param ttl : Time in milliseconds after which the role assignments of a user are read again.
+     * @param maxStale : Time in milliseconds after which the role assignments of a user are no
+     *            longer used, twice the time to live when negative, at least the time to live.
+     * @param maxEntries : Maximum number of users whose role assignments are cached.
+     * @since
+     */
+    RoleAssignmentCache(boolean enabled, long ttl, long maxStale, int maxEntries) {
+
+        this.enabled = enabled && ttl > 0 && maxEntries > 0;
+
+        this.ttl = ttl;
+
+        this.maxStale = maxStale < 0 ? 2 * ttl : Math.max(ttl, maxStale);
+
+        this.maxEntries = maxEntries;
+
+        LOGGER.info("Role assignment cache enabled = " + this.enabled + ", ttl = " + ttl + ", max stale = "
+                + this.maxStale);
+    }
+
+    /**
+     * Singleton class, provides the instance of <tt>RoleAssignmentCache</tt> class.
+     * <br/>
+     *
+     * @return instance of <tt>RoleAssignmentCache</tt> class.
+     * @since
+     */
+    public static RoleAssignmentCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * Provides the role assignments of the user, even when they are stale.
+     * <br/>
+     *
+     * @param userId : id of the user.
+     * @return assignments : the role assignments of the user, <tt>null</tt> when they have to be
+     *         read from the Service Client.
+     * @since
+     */
+    public RoleAssignments get(String userId) {
+
+        if(!enabled || StringUtils.isEmpty(userId) || ConfigUtil.isThreadRedirected()) {
+            return null;
+        }
+        return entries.get(userId);
+    }
+
+    /**
+     * Checks whether the role assignments have to be read again from the Service Client.
+     * <br/>
+     *
+     * @param assignments : role assignments given by the cache.
+     * @return <tt>true</tt> if the role assignments are older than the time to live.
+     * @since
+     */
+    public boolean isStale(RoleAssignments assignments) {
+        return System.currentTimeMillis() - assignments.loadedAt > ttl;
+    }
+
+    /**
+     * Checks whether the role assignments are too old to be used, even while they are read again.
+     * <br/>
+     *
+     * @param assignments : role assignments given by the cache.
+     * @return <tt>true</tt> if the role assignments are older than the maximum staleness.
+     * @since
+     */
+    public boolean isExpired(RoleAssignments assignments) {
+        return System.currentTimeMillis() - assignments.loadedAt > maxStale;
+    }
+
+    /**
+     * Provides the counter of the changes made through the service, to be read before the role
+     * assignments are read from the Service Client.
+     * <br/>
+     *
+     * @return changes : the counter of the changes.
+     * @since
+     */
+    public long getChanges() {
+        return changes.get();
+    }
+
+    /**
+     * Caches the role assignments of the user read from the Service Client, unless a change was
+     * made through the service since the read started.
+     * <br/>
+     *
+     * @param userId : id of the user.
+     * @param assignments : the role assignments of the user.
+     * @param readChanges : the counter of the changes read before the read started.
+     * @since
+     */
+    public void put(String userId, RoleAssignments assignments, long readChanges) {
+
+        if(!enabled || StringUtils.isEmpty(userId) || null == assignments || ConfigUtil.isThreadRedirected()) {
+            return;
+        }
+
+        if(entries.size() >= maxEntries && !entries.containsKey(userId) && !purgeStale()) {
+            return;
+        }
+
+        entries.put(userId, assignments);
+
+        if(changes.get() != readChanges) {
+            entries.remove(userId);
+        }
+    }
+
+    /**
+     * Adds a role assigned to the user through the service.
+     * <br/>
+     *
+     * @param userId : id of the user.
+     * @param projectId : id of the project.
+     * @param roleId : id of the role.
+     * @since
+     */
+    public void addRole(String userId, String projectId, String roleId) {
+
+        if(null == userId || ConfigUtil.isThreadRedirected()) {
+            return;
+        }
+
+        changes.incrementAndGet();
+
+        RoleAssignments current = entries.get(userId);
+
+        while(null != current && !entries.replace(userId, current, current.withRole(projectId, roleId))) {
+            current = entries.get(userId);
+        }
+    }
+
+    /**
+     * Forgets the role assignments of the user, once deleted.
+     * <br/>
+     *
+     * @param userId : id of the user.
+     * @since
+     */
+    public void remove(String userId) {
+
+        if(null == userId) {
+            return;
+        }
+
+        changes.incrementAndGet();
+
+        entries.remove(userId);
+    }
+
+    /**
+     * Forgets all the role assignments.
+     * <br/>
+     *
+     * @since
+     */
+    public void clear() {
+        changes.incrementAndGet();
+        entries.clear();
+    }
+
+    /**
+     * Provides the number of users whose role assignments are cached.
+     * <br/>
+     *
+     * @return size : number of users whose role assignments are cached.
+     * @since
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    private boolean purgeStale() {
+
+        Iterator<RoleAssignments> iterator = entries.values().iterator();
+
+        while(iterator.hasNext()) {
+            if(isStale(iterator.next())) {
+                iterator.remove();
+            }
+        }
+        return entries.size() < maxEntries;
+    }
+
+    /**
+     * The role assignments of a user, by project, the roles are known by id and by name.
+     * <br/>
+     *
+     * @author
+     * @version
+     */
+    public static final class RoleAssignments {
+
+        private final Map<String, Set<String>> roles;
+
+        private final long loadedAt;
+
+        /**
+         * Constructor<br/>
+         * <p>
+         * </p>
+         *
+         * @param roles : the ids and names of the roles, by project id.
+         * @since
+         */
+        public RoleAssignments(Map<String, Set<String>> roles) {
+            this(roles, System.currentTimeMillis());
+        }
+
+        RoleAssignments(Map<String, Set<String>> roles, long loadedAt) {
+            this.roles = roles;
+            this.loadedAt = loadedAt;
+        }
+
+        /**
+         * Checks whether the user holds the role on the project.
+         * <br/>
+         *
+         * @param projectId : id of the project.
+         * @param role : id or name of the role.
+         * @return <tt>true</tt> if the role is assigned to the user on the project.
+         * @since
+         */
+        public boolean hasRole(String projectId, String role) {
+
+            Set<String> projectRoles = roles.get(projectId);
+
+            return null != projectRoles && projectRoles.contains(role);
+        }
+
+        /**
+         * Provides the roles of the user on the project.
+         * <br/>
+         *
+         * @param projectId : id of the project.
+         * @return roles : the ids and names of the roles, empty when the user has no role on it.
+         * @since
+         */
+        public Set<String> getRoles(String projectId) {
+
+            Set<String> projectRoles = null == projectId ? null : roles.get(projectId);
+
+            return null == projectRoles ? Collections.<String> emptySet() : projectRoles;
+        }
+
+        RoleAssignments withRole(String projectId, String roleId) {
+
+            Map<String, Set<String>> copy = new HashMap<String, Set<String>>(roles);
+
+            Set<String> projectRoles = copy.get(projectId);
+
+            Set<String> newRoles = null == projectRoles ? new HashSet<String>() : new HashSet<String>(projectRoles);
+            newRoles.add(roleId);
+
+            copy.put(projectId, Collections.unmodifiableSet(newRoles));
+
+            return new RoleAssignments(copy, loadedAt);
+        }
+    }
+
+}
@@ -0,0 +1,307 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.common.cache;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.commons.lang3.StringUtils;
+import org.openo.auth.common.ConfigUtil;
+import org.openo.auth.constant.Constant;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * Caches the project scoped tokens obtained in exchange of a token, per token and project, so
+ * that a repeated scope request is answered without KeyStone.
+ * </p>
+ * <p>
+ * A scoped token is kept until shortly before it expires, which is the expiry of the token it
+ * was obtained with. The tokens are kept by their fingerprint, the scoped tokens of a token are
+ * dropped together at its logout, those of a user when the tokens of the user are revoked, and
+ * the least recently used tokens are evicted beyond <tt>maxEntries</tt>.
+ * </p>
+ *
+ * @author
+ * @version
+ */
+public class ScopedTokenCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScopedTokenCache.class);
+
+    private static final int MAX_SCOPES_PER_TOKEN = 64;
+
+    private static ScopedTokenCache instance = new ScopedTokenCache(
+            ConfigUtil.getBooleanProperty(Constant.TOKEN_SCOPE_CACHE_ENABLED, true),
+            ConfigUtil.getLongProperty(Constant.TOKEN_SCOPE_CACHE_MIN_REMAINING, 60000L),
+            ConfigUtil.getIntProperty(Constant.TOKEN_SCOPE_CACHE_MAX_ENTRIES, 10000));
+
+    private final boolean enabled;
+
+    private final long minRemaining;
+
+    private final Map<Long, Map<String, ScopedToken>> entries;
+
+    /**
+     * Constructor<br/>
+     * <p>
+     * </p>
+     *
+     * @param enabled : whether the scoped tokens are cached.
+     * @param minRemaining : Time in milliseconds before its expiry at which a scoped token is no
+     *            longer given from the cache.
+     * @param maxEntries : Maximum number of tokens for which scoped tokens are cached.
+     * @since
+     */
+    ScopedTokenCache(boolean enabled, long minRemaining, final int maxEntries) {
+
+        this.enabled = enabled && maxEntries > 0;
+
+        this.minRemaining = Math.max(0L, minRemaining);
+
+        this.entries = new LinkedHashMap<Long, Map<String, ScopedToken>>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Map<String, ScopedToken>> eldest) {
+                return size() > maxEntries;
+            }
+        };
+
+        LOGGER.info("Scoped token cache enabled = " + this.enabled + ", min remaining = " + minRemaining);
+    }
+
+    /**
+     * Singleton class, provides the instance of <tt>ScopedTokenCache</tt> class.
+     * <br/>
+     *
+     * @return instance of <tt>ScopedTokenCache</tt> class.
+     * @since
+     */
+    public static ScopedTokenCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * Provides the scoped token obtained with the token for the scope.
+     * <br/>
+     *
+     * @param token : Auth token the scoped token was obtained with.
+     * @param scope : key of the project of the scoped token.
+     * @return scopedToken : the scoped token, <tt>null</tt> when it has to be obtained from the
+     *         Service Client.
+     * @since
+     */
+    public ScopedToken get(String token, String scope) {
+
+        if(!enabled || StringUtils.isEmpty(token)) {
+            return null;
+        }
+
+        Long fingerprint = TokenFingerprint.of(token);
+
+        synchronized(entries) {
+
+            Map<String, ScopedToken> scopes = entries.get(fingerprint);
+
+            ScopedToken scopedToken = null == scopes ? null : scopes.get(scope);
+
+            if(null == scopedToken) {
+                return null;
+            }
+
+            if(scopedToken.expiresAt - minRemaining < System.currentTimeMillis()) {
+                scopes.remove(scope);
+                return null;
+            }
+            return scopedToken;
+        }
+    }
+
+    /**
+     * Caches the scoped token obtained with the token for the scope.
+     * <br/>
+     *
+     * @param token : Auth token the scoped token was obtained with.
+     * @param scope : key of the project of the scoped token.
+     * @param scopedToken : the scoped token.
+     * @since
+     */
+    public void put(String token, String scope, ScopedToken scopedToken) {
+
+        if(!enabled || StringUtils.isEmpty(token) || null == scopedToken
+                || scopedToken.expiresAt - minRemaining < System.currentTimeMillis()) {
+            return;
+        }
+
+        Long fingerprint = TokenFingerprint.of(token);
+
+        synchronized(entries) {
+
+            Map<String, ScopedToken> scopes = entries.get(fingerprint);
+
+            if(null == scopes) {
+                scopes = new HashMap<String, ScopedToken>();
+                entries.put(fingerprint, scopes);
+            }
+
+            if(scopes.size() < MAX_SCOPES_PER_TOKEN || scopes.containsKey(scope)) {
+                scopes.put(scope, scopedToken);
+            }
+        }
+    }
+
+    /**
+     * Forgets the scoped tokens obtained with the token, once it is revoked.
+     * <br/>
+     *
+     * @param token : Auth token.
+     * @since
+     */
+    public void remove(String token) {
+
+        if(StringUtils.isEmpty(token)) {
+            return;
+        }
+
+        removeFingerprint(TokenFingerprint.of(token));
+    }
+
+    /**
+     * Forgets the scoped tokens obtained with the token of the fingerprint, revoked on another node.
+     * <br/>
+     *
+     * @param fingerprint : the fingerprint of the token.
+     * @since
+     */
+    public void removeFingerprint(long fingerprint) {
+        synchronized(entries) {
+            entries.remove(fingerprint);
+        }
+    }
+
+    /**
+     * Forgets the scoped tokens of the user, once the tokens of the user are revoked by a password
+     * change or the deletion of the user.
+     * <br/>
+     *
+     * @param userId : id of the user.
+     * @since
+     */
+    public void removeUser(String userId) {
+
+        if(StringUtils.isEmpty(userId)) {
+            return;
+        }
+
+        synchronized(entries) {
+
+            Iterator<Map<String, ScopedToken>> iterator = entries.values().iterator();
+
+            while(iterator.hasNext()) {
+                for(ScopedToken scopedToken : iterator.next().values()) {
+                    if(userId.equals(scopedToken.userId)) {
+                        iterator.remove();
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Forgets all the scoped tokens.
+     * <br/>
+     *
+     * @since
+     */
+    public void clear() {
+        synchronized(entries) {
+            entries.clear();
+        }
+    }
+
+    /**
+     * Provides the number of tokens for which scoped tokens are cached.
+     * <br/>
+     *
+     * @return size : number of tokens for which scoped tokens are cached.
+     * @since
+     */
+    public int size() {
+        synchronized(entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * A scoped token, with the body given to the client.
+     * <br/>
+     *
+     * @author
+     * @version
+     */
+    public static final class ScopedToken {
+
+        private final String token;
+
+        private final String userId;
+
+        private final String body;
+
+        private final long expiresAt;
+
+        /**
+         * Constructor<br/>
+         * <p>
+         * </p>
+         *
+         * @param token : the scoped token.
+         * @param userId : id of the user of the scoped token.
+         * @param body : the body given to the client with the scoped token.
+         * @param expiresAt : the expiry of the scoped token in milliseconds.
+         * @since
+         */
+        public ScopedToken(String token, String userId, String body, long expiresAt) {
+            this.token = token;
+            this.userId = userId;
+            this.body = body;
+            this.expiresAt = expiresAt;
+        }
+
+        public String getToken() {
+            return token;
+        }
+
+        public String getUserId() {
+            return userId;
+        }
+
+        public String getBody() {
+            return body;
+        }
+
+        public long getExpiresAt() {
+            return expiresAt;
+        }
+    }
+
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.common.cache;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * <p>
+ * Interns the user and project ids referenced by the off-heap token cache, so that a cache entry
+ * holds a fixed width reference instead of the string.
+ * </p>
+ * <p>
+ * A reference is counted : each entry of the cache holding it takes it with
+ * {@link #intern(String)} and gives it back with {@link #release(int)} once evicted or removed.
+ * The reference of a string no entry holds any more is reused for the next new string, so the
+ * table bounds the distinct ids cached at the same time, not the ids seen since the start.
+ * </p>
+ *
+ * @author
+ * @version
+ */
+class StringRefTable {
+
+    static final int NULL_REF = -1;
+
+    static final int FULL = -2;
+
+    private final ConcurrentMap<String, Integer> refs = new ConcurrentHashMap<String, Integer>();
+
+    private final AtomicReferenceArray<String> values;
+
+    private final int[] counts;
+
+    private final int[] freeRefs;
+
+    private int freeCount;
+
+    private int next;
+
+    private volatile int size;
+
+    /**
+     * Constructor<br/>
+     * <p>
+     * </p>
+     *
+     * @param capacity : Maximum number of distinct strings referenced at the same time.
+     * @since
+     */
+    StringRefTable(int capacity) {
+        this.values = new AtomicReferenceArray<String>(Math.max(0, capacity));
+        this.counts = new int[Math.max(0, capacity)];
+        this.freeRefs = new int[Math.max(0, capacity)];
+    }
+
+    /**
+     * Takes a reference of the string, adding it to the table when needed. Each reference taken
+     * is given back by {@link #release(int)}.
+     * <br/>
+     *
+     * @param value : The string to reference.
+     * @return ref : the reference, <tt>NULL_REF</tt> for <tt>null</tt> or <tt>FULL</tt> when the
+     *         table has no room left.
+     * @since
+     */
+    synchronized int intern(String value) {
+
+        if(null == value) {
+            return NULL_REF;
+        }
+
+        Integer ref = refs.get(value);
+
+        if(null != ref) {
+            counts[ref]++;
+            return ref;
+        }
+
+        int newRef;
+
+        if(freeCount > 0) {
+            newRef = freeRefs[--freeCount];
+        } else if(next < values.length()) {
+            newRef = next++;
+        } else {
+            return FULL;
+        }
+
+        values.set(newRef, value);
+        refs.put(value, newRef);
+        counts[newRef] = 1;
+        size++;
+
+        return newRef;
+    }
+
+    /**
+     * Gives back a reference taken by {@link #intern(String)}, the string leaves the table with
+     * its last reference.
+     * <br/>
+     *
+     * @param ref : The reference.
+     * @since
+     */
+    synchronized void release(int ref) {
+
+        if(ref < 0 || ref >= values.length() || counts[ref] == 0) {
+            return;
+        }
+
+        if(--counts[ref] == 0) {
+            refs.remove(values.get(ref));
+            values.set(ref, null);
+            freeRefs[freeCount++] = ref;
+            size--;
+        }
+    }
+
+    /**
+     * Provides the reference of the string, without taking it.
+     * <br/>
+     *
+     * @param value : The string.
+     * @return ref : the reference, <tt>NULL_REF</tt> when the string is not in the table.
+     * @since
+     */
+    int find(String value) {
+
+        Integer ref = null == value ? null : refs.get(value);
+
+        return null == ref ? NULL_REF : ref;
+    }
+
+    /**
+     * Provides the string of a reference held by the caller.
+     * <br/>
+     *
+     * @param ref : The reference.
+     * @return value : the string or <tt>null</tt>.
+     * @since
+     */
+    String get(int ref) {
+        if(ref < 0 || ref >= values.length()) {
+            return null;
+        }
+        return values.get(ref);
+    }
+
+    /**
+     * Provides the number of strings in the table.
+     * <br/>
+     *
+     * @return size : the number of strings referenced.
+     * @since
+     */
+    int size() {
+        return size;
+    }
+
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.common.cache;
+
+import org.openo.auth.common.ConfigUtil;
+import org.openo.auth.constant.Constant;
+
+/**
+ * This class <tt>TokenCacheFactory</tt> provides the token cache configured in the
+ * <tt>auth_service.properties</tt> file.
+ * <br/>
+ *
+ * @author
+ * @version
+ */
+public class TokenCacheFactory {
+
+    private static TokenCacheFactory instance = new TokenCacheFactory();
+
+    private final ITokenCache tokenCache;
+
+    private TokenCacheFactory() {
+
+        boolean enabled = ConfigUtil.getBooleanProperty(Constant.TOKEN_CACHE_ENABLED, true);
+
+        long ttl = ConfigUtil.getLongProperty(Constant.TOKEN_CACHE_TTL, 60000L);
+
+        int maxEntries = enabled ? ConfigUtil.getIntProperty(Constant.TOKEN_CACHE_MAX_ENTRIES, 1 << 20) : 0;
+
+        int maxRefs = ConfigUtil.getIntProperty(Constant.TOKEN_CACHE_MAX_REFS, 1 << 20);
+
+        tokenCache = new OffHeapTokenCache(maxEntries, ttl, maxRefs);
+    }
+
+    /**
+     * Singleton class, provides the instance of the <tt>TokenCacheFactory</tt>
+     * <br/>
+     *
+     * @return instance : provides the instance of the <tt>TokenCacheFactory</tt>
+     * @since
+     */
+    public static TokenCacheFactory getInstance() {
+        return instance;
+    }
+
+    /**
+     * Provides the token cache of the validation path.
+     * <br/>
+     *
+     * @return tokenCache : the token cache.
+     * @since
+     */
+    public ITokenCache getTokenCache() {
+        return tokenCache;
+    }
+
+}
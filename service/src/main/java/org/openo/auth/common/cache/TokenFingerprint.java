@@ -0,0 +1,160 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.common.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+import org.openo.auth.common.ConfigUtil;
+import org.openo.auth.common.cluster.ClusterSecret;
+import org.openo.auth.common.keystone.DomainContext;
+import org.openo.auth.common.keystone.KeyStoneDomain;
+
+/**
+ * <p>
+ * Provides the 64 bit fingerprint of a token, which is used as the key of the token caches
+ * instead of the token itself.
+ * </p>
+ * <p>
+ * The fingerprint is a salted SHA-256 digest, the salt is random per process so that a forged
+ * token can not be crafted to collide with the fingerprint of a valid one. A process restoring a
+ * cache snapshot adopts the salt of the snapshot, before any fingerprint is computed. The nodes of
+ * a cluster derive the salt from the cluster secret instead, so that a fingerprint sent by a node
+ * designates the same token on the others.
+ * </p>
+ * <p>
+ * The fingerprints of the requests of a domain served by its own KeyStone include this KeyStone,
+ * so that a token validated by a KeyStone is never taken as valid for another one. In the same way
+ * the fingerprints of a thread redirected to the stub of the warm-up include the stub, so that its
+ * synthetic tokens are never taken as valid for the requests.
+ * </p>
+ *
+ * @author
+ * @version
+ */
+public final class TokenFingerprint {
+
+    private static final int SALT_LENGTH = 16;
+
+    private static volatile byte[] salt = ClusterSecret.isConfigured()
+            ? ClusterSecret.derive("token-fingerprint", SALT_LENGTH) : newSalt();
+
+    private static volatile boolean used;
+
+    private static final ThreadLocal<MessageDigest> DIGEST = new ThreadLocal<MessageDigest>() {
+
+        @Override
+        protected MessageDigest initialValue() {
+            try {
+                return MessageDigest.getInstance("SHA-256");
+            } catch(NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    };
+
+    private TokenFingerprint() {
+    }
+
+    /**
+     * Provides the fingerprint of the token.
+     * <br/>
+     *
+     * @param token : Auth token.
+     * @return fingerprint : the 64 bit fingerprint of the token.
+     * @since
+     */
+    public static long of(String token) {
+
+        if(!used) {
+            used = true;
+        }
+
+        MessageDigest digest = DIGEST.get();
+
+        digest.reset();
+        digest.update(salt);
+
+        // A token of a domain with its own KeyStone, or of the warm-up, is cached apart from the
+        // same token elsewhere.
+        KeyStoneDomain domain = DomainContext.current();
+
+        if(ConfigUtil.isThreadRedirected()) {
+            digest.update(ConfigUtil.getBaseURL().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte)0);
+        } else if(null != domain && domain.hasOwnEndpoint()) {
+            digest.update(domain.getBaseURL().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte)0);
+        }
+
+        byte[] hash = digest.digest(token.getBytes(StandardCharsets.UTF_8));
+
+        long fingerprint = 0;
+        for(int i = 0; i < 8; i++) {
+            fingerprint = (fingerprint << 8) | (hash[i] & 0xFF);
+        }
+        return fingerprint;
+    }
+
+    /**
+     * Provides a copy of the salt of the fingerprints.
+     * <br/>
+     *
+     * @return salt : the salt of the fingerprints.
+     * @since
+     */
+    public static byte[] getSalt() {
+        return salt.clone();
+    }
+
+    /**
+     * Adopts the salt of a restored snapshot, so that the restored fingerprints match the tokens.
+     * The salt can only be changed before the first fingerprint is computed.
+     * <br/>
+     *
+     * @param newSalt : the salt of the snapshot.
+     * @return <tt>true</tt> if the fingerprints now use the given salt.
+     * @since
+     */
+    public static synchronized boolean adoptSalt(byte[] newSalt) {
+
+        if(null == newSalt || newSalt.length != SALT_LENGTH) {
+            return false;
+        }
+
+        if(Arrays.equals(salt, newSalt)) {
+            return true;
+        }
+
+        if(used) {
+            return false;
+        }
+
+        salt = newSalt.clone();
+        return true;
+    }
+
+    private static byte[] newSalt() {
+        byte[] bytes = new byte[SALT_LENGTH];
+        new SecureRandom().nextBytes(bytes);
+        return bytes;
+    }
+
+}
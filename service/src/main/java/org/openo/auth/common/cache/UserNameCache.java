@@ -0,0 +1,288 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.openo.auth.common.cache;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.commons.lang3.StringUtils;
+import org.openo.auth.common.ConfigUtil;
+import org.openo.auth.constant.Constant;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * A bounded cache of the user names by user id, so that a password change can check the password
+ * rules against the user name without fetching the user from the Service Client first.
+ * </p>
+ * <p>
+ * The names are learnt from the users created, read and listed and from the tokens issued, the
+ * least recently used ones are evicted beyond the maximum size. A user modified or deleted is
+ * forgotten. The cache is saved in the cache snapshot.
+ * </p>
+ *
+ * @author
+ * @version
+ */
+public class UserNameCache implements ISnapshotSection {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UserNameCache.class);
+
+    private static final String SECTION_NAME = "user-names";
+
+    private static UserNameCache instance = new UserNameCache(
+            ConfigUtil.getBooleanProperty(Constant.USER_NAME_CACHE_ENABLED, true),
+            ConfigUtil.getLongProperty(Constant.USER_NAME_CACHE_TTL, 3600000L),
+            ConfigUtil.getIntProperty(Constant.USER_NAME_CACHE_MAX_ENTRIES, 100000));
+
+    private final boolean enabled;
+
+    private final long ttl;
+
+    private final Map<String, Entry> entries;
+
+    /**
+     * Constructor<br/>
+     * <p>
+     * </p>
+     *
+     * @param enabled : whether the user names are cached.
+     * @param ttl : Time to live in milliseconds of a user name.
+     * @param maxEntries : Maximum number of user names cached.
+     * @since
+     */
+    UserNameCache(boolean enabled, long ttl, final int maxEntries) {
+
+        this.enabled = enabled && ttl > 0 && maxEntries > 0;
+
+        this.ttl = ttl;
+
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+
+        LOGGER.info("User name cache enabled = " + this.enabled + ", ttl = " + ttl);
+    }
+
+    /**
+     * Singleton class, provides the instance of <tt>UserNameCache</tt> class.
+     * <br/>
+     *
+     * @return instance of <tt>UserNameCache</tt> class.
+     * @since
+     */
+    public static UserNameCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * Provides the name of the user.
+     * <br/>
+     *
+     * @param userId : id of the user.
+     * @return name : the name of the user, <tt>null</tt> when it is not known.
+     * @since
+     */
+    public String get(String userId) {
+
+        if(!enabled || StringUtils.isEmpty(userId)) {
+            return null;
+        }
+
+        synchronized(entries) {
+
+            Entry entry = entries.get(userId);
+
+            if(null == entry) {
+                return null;
+            }
+
+            if(entry.expiry < System.currentTimeMillis()) {
+                entries.remove(userId);
+                return null;
+            }
+            return entry.name;
+        }
+    }
+
+    /**
+     * Remembers the name of the user.
+     * <br/>
+     *
+     * @param userId : id of the user.
+     * @param name : name of the user.
+     * @since
+     */
+    public void put(String userId, String name) {
+
+        if(!enabled || StringUtils.isEmpty(userId) || StringUtils.isEmpty(name)) {
+            return;
+        }
+
+        synchronized(entries) {
+            entries.put(userId, new Entry(name, System.currentTimeMillis() + ttl));
+        }
+    }
+
+    /**
+     * Forgets the name of the user, once modified or deleted.
+     * <br/>
+     *
+     * @param userId : id of the user.
+     * @since
+     */
+    public void remove(String userId) {
+
+        if(null == userId) {
+            return;
+        }
+
+        synchronized(entries) {
+            entries.remove(userId);
+        }
+    }
+
+    /**
+     * Forgets all the user names.
+     * <br/>
+     *
+     * @since
+     */
+    public void clear() {
+        synchronized(entries) {
+            entries.clear();
+        }
+    }
+
+    /**
+     * Provides the number of user names cached.
+     * <br/>
+     *
+     * @return size : number of user names cached.
+     * @since
+     */
+    public int size() {
+        synchronized(entries) {
+            return entries.size();
+        }
+    }
+
+    public String getSectionName() {
+        return SECTION_NAME;
+    }
+
+    /**
+     * Writes the live user names, from the least to the most recently used.
+     * <br/>
+     *
+     * @param out : the output of the section.
+     * @throws IOException
+     * @since
+     */
+    public void save(DataOutput out) throws IOException {
+
+        String[] userIds;
+        Entry[] live;
+
+        // Copy the entries under the lock, the output is written without holding it.
+        synchronized(entries) {
+            userIds = entries.keySet().toArray(new String[entries.size()]);
+            live = entries.values().toArray(new Entry[entries.size()]);
+        }
+
+        long now = System.currentTimeMillis();
+
+        int count = 0;
+        for(Entry entry : live) {
+            if(entry.expiry >= now) {
+                count++;
+            }
+        }
+
+        out.writeInt(count);
+
+        for(int i = 0; i < live.length; i++) {
+            if(live[i].expiry >= now) {
+                out.writeUTF(userIds[i]);
+                out.writeUTF(live[i].name);
+                out.writeLong(live[i].expiry);
+            }
+        }
+    }
+
+    /**
+     * Reads the user names written by {@link #save(DataOutput)}, skipping the expired ones. The
+     * names learnt since the start are kept.
+     * <br/>
+     *
+     * @param in : the input of the section.
+     * @throws IOException
+     * @since
+     */
+    public void restore(DataInput in) throws IOException {
+
+        long now = System.currentTimeMillis();
+
+        int count = in.readInt();
+
+        int restored = 0;
+
+        for(int i = 0; i < count; i++) {
+
+            String userId = in.readUTF();
+            String name = in.readUTF();
+            long expiry = in.readLong();
+
+            if(!enabled || expiry < now) {
+                continue;
+            }
+
+            synchronized(entries) {
+                if(!entries.containsKey(userId)) {
+                    entries.put(userId, new Entry(name, expiry));
+                    restored++;
+                }
+            }
+        }
+
+        LOGGER.info("User name cache restored " + restored + " of " + count + " entries.");
+    }
+
+    private static final class Entry {
+
+        private final String name;
+
+        private final long expiry;
+
+        Entry(String name, long expiry) {
+            this.name = name;
+            this.expiry = expiry;
+        }
+    }
+
+}
@@ -0,0 +1,379 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.openo.auth.common.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang3.StringUtils;
+import org.openo.auth.common.ConfigUtil;
+import org.openo.auth.constant.Constant;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * Holds the users given to the UI with their entity tag, so that a conditional request is answered
+ * <tt>304 Not Modified</tt> without mapping nor sending the users again.
+ * </p>
+ * <p>
+ * The entity tag is the digest of the mapped users, it only changes when the users given to the UI
+ * change. A KeyStone response equal to the cached one is not mapped again. A cached entity tag is
+ * only confirmed to the tokens KeyStone already gave the same users to, and the entries are
+ * dropped on every write of the users.
+ * </p>
+ *
+ * @author
+ * @version
+ */
+public class UserResponseCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UserResponseCache.class);
+
+    /**
+     * Key of the list of all the users.
+     */
+    public static final String ALL_USERS = "";
+
+    /**
+     * Key of the list of all the users of all the shards, given to the administrators only.
+     */
+    public static final String ALL_SHARDS_USERS = "*";
+
+    private static final int MAX_READERS = 64;
+
+    private static final int ETAG_BYTES = 16;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private static UserResponseCache instance = new UserResponseCache(
+            ConfigUtil.getBooleanProperty(Constant.USER_ETAG_CACHE_ENABLED, true),
+            ConfigUtil.getLongProperty(Constant.USER_ETAG_CACHE_TTL, 30000L),
+            ConfigUtil.getIntProperty(Constant.USER_ETAG_CACHE_MAX_ENTRIES, 10000));
+
+    private static final ThreadLocal<MessageDigest> DIGEST = new ThreadLocal<MessageDigest>() {
+
+        @Override
+        protected MessageDigest initialValue() {
+            try {
+                return MessageDigest.getInstance("SHA-256");
+            } catch(NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    };
+
+    private final boolean enabled;
+
+    private final long ttl;
+
+    private final int maxEntries;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * Maps the body given by KeyStone to the users given to the UI.
+     */
+    public interface Mapper {
+
+        /**
+         * Maps the body given by KeyStone.
+         * <br/>
+         *
+         * @param body : the body given by KeyStone.
+         * @return users : the users given to the UI.
+         * @since
+         */
+        String map(String body);
+    }
+
+    /**
+     * Constructor<br/>
+     * <p>
+     * </p>
+     *
+     * @param enabled : whether the users are cached.
+     * @param ttl : Time to live in milliseconds of the cached users.
+     * @param maxEntries : Maximum number of resources cached.
+     * @since
+     */
+    UserResponseCache(boolean enabled, long ttl, int maxEntries) {
+
+        this.enabled = enabled && ttl > 0 && maxEntries > 0;
+
+        this.ttl = ttl;
+
+        this.maxEntries = maxEntries;
+
+        LOGGER.info("User response cache enabled = " + this.enabled + ", ttl = " + ttl);
+    }
+
+    /**
+     * Singleton class, provides the instance of <tt>UserResponseCache</tt> class.
+     * <br/>
+     *
+     * @return instance of <tt>UserResponseCache</tt> class.
+     * @since
+     */
+    public static UserResponseCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * Provides the cached entity tag of the users when it matches the <tt>If-None-Match</tt> header
+     * and the token was already given these users by KeyStone.
+     * <br/>
+     *
+     * @param key : the user id, or <tt>ALL_USERS</tt>.
+     * @param authToken : Auth token.
+     * @param ifNoneMatch : the <tt>If-None-Match</tt> header of the request.
+     * @return etag : the entity tag, <tt>null</tt> when the request has to go to KeyStone.
+     * @since
+     */
+    public String getMatchingETag(String key, String authToken, String ifNoneMatch) {
+
+        if(!enabled || StringUtils.isEmpty(authToken) || StringUtils.isEmpty(ifNoneMatch)) {
+            return null;
+        }
+
+        Entry entry = entries.get(key);
+
+        if(null == entry) {
+            return null;
+        }
+
+        if(entry.expiry < System.currentTimeMillis()) {
+            entries.remove(key, entry);
+            return null;
+        }
+
+        String etag = entry.representation.getETag();
+
+        if(!entry.readers.contains(TokenFingerprint.of(authToken)) || !matches(ifNoneMatch, etag)) {
+            return null;
+        }
+        return etag;
+    }
+
+    /**
+     * Provides the generation of the cache, which changes on every write of the users. It is read
+     * before reading the users from KeyStone, so that users read before a write are not cached.
+     * <br/>
+     *
+     * @return generation : the generation of the cache.
+     * @since
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * Provides the users given to the UI for the body given by KeyStone to the token, mapping the
+     * body only when it changed.
+     * <br/>
+     *
+     * @param key : the user id, or <tt>ALL_USERS</tt>.
+     * @param authToken : Auth token.
+     * @param body : the successful body given by KeyStone.
+     * @param readGeneration : the generation of the cache read before reading the body.
+     * @param mapper : maps the body to the users given to the UI.
+     * @return representation : the users given to the UI and their entity tag.
+     * @since
+     */
+    public Representation update(String key, String authToken, String body, long readGeneration, Mapper mapper) {
+
+        byte[] bodyDigest = digest(body);
+
+        long now = System.currentTimeMillis();
+
+        boolean current = enabled && readGeneration == generation.get();
+
+        Entry entry = current ? entries.get(key) : null;
+
+        if(null != entry && Arrays.equals(entry.bodyDigest, bodyDigest)) {
+            entry.expiry = now + ttl;
+        } else {
+            String users = mapper.map(body);
+            entry = new Entry(bodyDigest, new Representation(toETag(digest(users)), users), now + ttl);
+
+            if(current && (entries.size() < maxEntries || entries.containsKey(key) || purgeExpired(now))) {
+                entries.put(key, entry);
+
+                // A write which raced with the put drops it again.
+                if(readGeneration != generation.get()) {
+                    entries.remove(key, entry);
+                }
+            }
+        }
+
+        if(StringUtils.isNotEmpty(authToken) && entry.readers.size() < MAX_READERS) {
+            entry.readers.add(TokenFingerprint.of(authToken));
+        }
+        return entry.representation;
+    }
+
+    /**
+     * Drops the cached user, and the lists of all the users.
+     * <br/>
+     *
+     * @param userId : id of the user written.
+     * @since
+     */
+    public void invalidate(String userId) {
+        generation.incrementAndGet();
+        if(null != userId) {
+            entries.remove(userId);
+        }
+        entries.remove(ALL_USERS);
+        entries.remove(ALL_SHARDS_USERS);
+    }
+
+    /**
+     * Drops all the cached users.
+     * <br/>
+     *
+     * @since
+     */
+    public void clear() {
+        generation.incrementAndGet();
+        entries.clear();
+    }
+
+    /**
+     * Provides the number of resources cached.
+     * <br/>
+     *
+     * @return size : number of resources cached.
+     * @since
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Tells whether the <tt>If-None-Match</tt> header matches the entity tag, with the weak
+     * comparison the header requires.
+     * <br/>
+     *
+     * @param ifNoneMatch : the <tt>If-None-Match</tt> header of the request.
+     * @param etag : the current entity tag.
+     * @return <tt>true</tt> if the client holds the current representation.
+     * @since
+     */
+    public static boolean matches(String ifNoneMatch, String etag) {
+
+        if(StringUtils.isEmpty(ifNoneMatch) || null == etag) {
+            return false;
+        }
+
+        for(String tag : ifNoneMatch.split(",")) {
+
+            String value = tag.trim();
+
+            if("*".equals(value)) {
+                return true;
+            }
+
+            if(value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+
+            if(value.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static byte[] digest(String value) {
+        MessageDigest digest = DIGEST.get();
+        digest.reset();
+        return digest.digest(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String toETag(byte[] hash) {
+        StringBuilder etag = new StringBuilder(ETAG_BYTES * 2 + 2).append('"');
+        for(int i = 0; i < ETAG_BYTES; i++) {
+            etag.append(HEX[(hash[i] >> 4) & 0xF]).append(HEX[hash[i] & 0xF]);
+        }
+        return etag.append('"').toString();
+    }
+
+    private boolean purgeExpired(long now) {
+
+        Iterator<Entry> iterator = entries.values().iterator();
+
+        while(iterator.hasNext()) {
+            if(iterator.next().expiry < now) {
+                iterator.remove();
+            }
+        }
+        return entries.size() < maxEntries;
+    }
+
+    /**
+     * The users given to the UI and their entity tag.
+     */
+    public static final class Representation {
+
+        private final String etag;
+
+        private final String body;
+
+        Representation(String etag, String body) {
+            this.etag = etag;
+            this.body = body;
+        }
+
+        public String getETag() {
+            return etag;
+        }
+
+        public String getBody() {
+            return body;
+        }
+    }
+
+    private static final class Entry {
+
+        private final byte[] bodyDigest;
+
+        private final Representation representation;
+
+        private final Set<Long> readers = Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+
+        private volatile long expiry;
+
+        Entry(byte[] bodyDigest, Representation representation, long expiry) {
+            this.bodyDigest = bodyDigest;
+            this.representation = representation;
+            this.expiry = expiry;
+        }
+    }
+
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.common.capture;
+
+/**
+ * The endpoints of the Auth Service recognized by the traffic capture, with their code in the
+ * capture log.
+ * <br/>
+ *
+ * @author
+ * @version
+ */
+public enum CapturedEndpoint {
+
+    OTHER(0),
+
+    LOGIN(1),
+
+    LOGOUT(2),
+
+    CHECK_TOKEN(3),
+
+    USER_CREATE(4),
+
+    USER_LIST(5),
+
+    USER_GET(6),
+
+    USER_MODIFY(7),
+
+    USER_DELETE(8),
+
+    USER_PASSWORD(9),
+
+    USER_DIRECTORY(10);
+
+    private static final String TOKENS = "tokens";
+
+    private static final String USERS = "users";
+
+    private static final String DIRECTORY = "directory";
+
+    private static final CapturedEndpoint[] BY_CODE = new CapturedEndpoint[values().length];
+
+    static {
+        for(CapturedEndpoint endpoint : values()) {
+            BY_CODE[endpoint.code] = endpoint;
+        }
+    }
+
+    private final int code;
+
+    CapturedEndpoint(int code) {
+        this.code = code;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    /**
+     * Provides the endpoint of a code of the capture log.
+     * <br/>
+     *
+     * @param code : the code.
+     * @return endpoint : the endpoint, <tt>OTHER</tt> for an unknown code.
+     * @since
+     */
+    public static CapturedEndpoint fromCode(int code) {
+        return code >= 0 && code < BY_CODE.length ? BY_CODE[code] : OTHER;
+    }
+
+    /**
+     * Recognizes the endpoint of a request.
+     * <br/>
+     *
+     * @param method : the HTTP method.
+     * @param path : the path of the request relative to the REST API, such as <tt>users/{id}</tt>.
+     * @return endpoint : the endpoint.
+     * @since
+     */
+    public static CapturedEndpoint of(String method, String path) {
+
+        String[] segments = split(path);
+
+        if(segments.length == 1 && TOKENS.equals(segments[0])) {
+            return ofTokens(method);
+        }
+
+        if(segments.length == 0 || !USERS.equals(segments[0])) {
+            return OTHER;
+        }
+
+        if(segments.length == 1) {
+            return "POST".equals(method) ? USER_CREATE : "GET".equals(method) ? USER_LIST : OTHER;
+        }
+
+        if(segments.length == 2 && DIRECTORY.equals(segments[1])) {
+            return "GET".equals(method) ? USER_DIRECTORY : OTHER;
+        }
+
+        if(segments.length == 2) {
+            return "GET".equals(method) ? USER_GET
+                    : "PATCH".equals(method) ? USER_MODIFY : "DELETE".equals(method) ? USER_DELETE : OTHER;
+        }
+
+        if(segments.length == 3 && "password".equals(segments[2]) && "POST".equals(method)) {
+            return USER_PASSWORD;
+        }
+        return OTHER;
+    }
+
+    /**
+     * Provides the user id of the path of a request.
+     * <br/>
+     *
+     * @param path : the path of the request relative to the REST API.
+     * @return userId : the user id, <tt>null</tt> if the path is not the one of a user.
+     * @since
+     */
+    public static String userIdOf(String path) {
+
+        String[] segments = split(path);
+
+        if(segments.length >= 2 && USERS.equals(segments[0]) && !DIRECTORY.equals(segments[1])) {
+            return segments[1];
+        }
+        return null;
+    }
+
+    private static CapturedEndpoint ofTokens(String method) {
+        if("POST".equals(method)) {
+            return LOGIN;
+        } else if("DELETE".equals(method)) {
+            return LOGOUT;
+        } else if("HEAD".equals(method)) {
+            return CHECK_TOKEN;
+        }
+        return OTHER;
+    }
+
+    private static String[] split(String path) {
+
+        if(null == path) {
+            return new String[0];
+        }
+
+        String trimmed = path;
+
+        while(trimmed.startsWith("/")) {
+            trimmed = trimmed.substring(1);
+        }
+
+        while(trimmed.endsWith("/")) {
+            trimmed = trimmed.substring(0, trimmed.length() - 1);
+        }
+        return trimmed.isEmpty() ? new String[0] : trimmed.split("/");
+    }
+
+}
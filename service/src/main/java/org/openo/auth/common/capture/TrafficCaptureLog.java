@@ -0,0 +1,424 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.common.capture;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+
+import org.apache.commons.lang3.StringUtils;
+import org.openo.auth.common.ConfigUtil;
+import org.openo.auth.constant.Constant;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * Writes the shape of the requests served by the Auth Service to a compact binary log, which
+ * the replayer of the load generator plays back against a local instance.
+ * </p>
+ * <p>
+ * The log starts with a header (magic, version, start time in epoch milliseconds) followed by
+ * fixed size records : offset of the request in microseconds, endpoint code, token hash, user
+ * hash, status, request size, response size and duration in microseconds. The tokens and the
+ * user ids are hashed with a random salt which is not written, so the log can not be matched
+ * against real tokens, not even those of another capture.
+ * </p>
+ * <p>
+ * The records are buffered and handed to a writer thread when the buffer is full, or at most one
+ * second after being recorded even when the service is idle, so that the request threads never
+ * write to the file. A request thread only waits when the writer is still busy with the previous
+ * buffer. The capture stops when the file reaches its maximum size.
+ * </p>
+ *
+ * @author
+ * @version
+ */
+public class TrafficCaptureLog {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TrafficCaptureLog.class);
+
+    public static final int MAGIC = 0x41545243;
+
+    public static final short VERSION = 1;
+
+    public static final int HEADER_SIZE = 4 + 2 + 8;
+
+    public static final int RECORD_SIZE = 8 + 1 + 8 + 8 + 2 + 4 + 4 + 4;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final long FLUSH_INTERVAL_MILLIS = 1000L;
+
+    private static final String DEFAULT_DIRECTORY = "logs";
+
+    private static TrafficCaptureLog instance = createInstance();
+
+    private final FileChannel channel;
+
+    private ByteBuffer active = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    private ByteBuffer spare = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    private ByteBuffer pending;
+
+    private long pendingBytes;
+
+    private final Thread writer;
+
+    private final long startNanos;
+
+    private final long maxBytes;
+
+    private final byte[] salt = new byte[16];
+
+    private final ThreadLocal<MessageDigest> digest = new ThreadLocal<MessageDigest>() {
+
+        @Override
+        protected MessageDigest initialValue() {
+            try {
+                return MessageDigest.getInstance("SHA-256");
+            } catch(NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    };
+
+    private volatile boolean enabled;
+
+    private long written;
+
+    /**
+     * Constructor<br/>
+     * <p>
+     * </p>
+     *
+     * @param file : the capture log, replaced if it exists.
+     * @param maxBytes : the maximum size of the capture log.
+     * @throws IOException if the file can not be created.
+     * @since
+     */
+    TrafficCaptureLog(Path file, long maxBytes) throws IOException {
+
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+
+        this.startNanos = System.nanoTime();
+        this.maxBytes = maxBytes;
+
+        new SecureRandom().nextBytes(salt);
+
+        active.putInt(MAGIC);
+        active.putShort(VERSION);
+        active.putLong(System.currentTimeMillis());
+
+        this.enabled = true;
+
+        this.writer = new Thread("traffic-capture-writer") {
+
+            @Override
+            public void run() {
+                writeLoop();
+            }
+        };
+        writer.setDaemon(true);
+        writer.start();
+
+        LOGGER.info("Capturing the traffic to " + file);
+    }
+
+    private TrafficCaptureLog() {
+        this.channel = null;
+        this.startNanos = 0;
+        this.maxBytes = 0;
+        this.enabled = false;
+        this.writer = null;
+    }
+
+    /**
+     * Singleton class, provides the instance of <tt>TrafficCaptureLog</tt> class.
+     * <br/>
+     *
+     * @return instance of <tt>TrafficCaptureLog</tt> class.
+     * @since
+     */
+    public static TrafficCaptureLog getInstance() {
+        return instance;
+    }
+
+    private static TrafficCaptureLog createInstance() {
+
+        if(!ConfigUtil.getBooleanProperty(Constant.CAPTURE_ENABLED, false)) {
+            return new TrafficCaptureLog();
+        }
+
+        String file = ConfigUtil.getProperty(Constant.CAPTURE_FILE, null);
+
+        if(StringUtils.isEmpty(file)) {
+            String base = System.getProperty("catalina.base", ".");
+            file = new File(new File(base, DEFAULT_DIRECTORY), "auth-capture-" + System.currentTimeMillis() + ".bin")
+                    .getPath();
+        }
+
+        try {
+            final TrafficCaptureLog log = new TrafficCaptureLog(new File(file).toPath(),
+                    ConfigUtil.getLongProperty(Constant.CAPTURE_MAX_MB, 512L) * 1024L * 1024L);
+
+            Runtime.getRuntime().addShutdownHook(new Thread("traffic-capture-close") {
+
+                @Override
+                public void run() {
+                    log.close();
+                }
+            });
+            return log;
+        } catch(IOException e) {
+            LOGGER.error("Traffic capture disabled, can not create " + file + " : " + e);
+            return new TrafficCaptureLog();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Records a served request.
+     * <br/>
+     *
+     * @param endpoint : the endpoint.
+     * @param token : the token of the request, may be <tt>null</tt>.
+     * @param userId : the user id of the path of the request, may be <tt>null</tt>.
+     * @param status : the status of the response.
+     * @param requestSize : the size of the request body, -1 if unknown.
+     * @param responseSize : the size of the response body, -1 if unknown.
+     * @param receivedNanos : the {@link System#nanoTime()} at which the request was received.
+     * @param durationNanos : the time taken to answer the request.
+     * @since
+     */
+    public void record(CapturedEndpoint endpoint, String token, String userId, int status, long requestSize,
+            long responseSize, long receivedNanos, long durationNanos) {
+
+        if(!enabled) {
+            return;
+        }
+
+        long tokenHash = anonymize(token);
+        long userHash = anonymize(userId);
+
+        synchronized(this) {
+
+            if(!enabled) {
+                return;
+            }
+
+            if(written + pendingBytes + active.position() + RECORD_SIZE > maxBytes) {
+                LOGGER.warn("Traffic capture stopped, the log reached " + maxBytes + " bytes");
+                enabled = false;
+                notifyAll();
+            } else {
+                if(active.remaining() < RECORD_SIZE && !awaitHandOff()) {
+                    return;
+                }
+
+                active.putLong(Math.max(0L, (receivedNanos - startNanos) / 1000L));
+                active.put((byte)endpoint.getCode());
+                active.putLong(tokenHash);
+                active.putLong(userHash);
+                active.putShort((short)status);
+                active.putInt(clamp(requestSize));
+                active.putInt(clamp(responseSize));
+                active.putInt(clamp(durationNanos / 1000L));
+                return;
+            }
+        }
+
+        // The capture is full, the writer is waited for outside of the lock it needs.
+        close();
+    }
+
+    /**
+     * Writes the buffered records and closes the log, nothing is recorded afterwards.
+     * <br/>
+     *
+     * @since
+     */
+    public void close() {
+
+        if(null == writer) {
+            return;
+        }
+
+        synchronized(this) {
+            enabled = false;
+            notifyAll();
+        }
+
+        if(Thread.currentThread() == writer) {
+            return;
+        }
+
+        try {
+            writer.join();
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Provides the anonymized form of a token or a user id.
+     * <br/>
+     *
+     * @param value : the value to anonymize.
+     * @return hash : the 64 bit salted hash, 0 for an empty value.
+     * @since
+     */
+    long anonymize(String value) {
+
+        if(StringUtils.isEmpty(value)) {
+            return 0L;
+        }
+
+        MessageDigest sha = digest.get();
+
+        sha.reset();
+        sha.update(salt);
+
+        byte[] hash = sha.digest(value.getBytes(StandardCharsets.UTF_8));
+
+        long result = 0;
+        for(int i = 0; i < 8; i++) {
+            result = (result << 8) | (hash[i] & 0xFF);
+        }
+        return 0L == result ? 1L : result;
+    }
+
+    /**
+     * Hands the active buffer to the writer, waiting while the writer is busy with the previous
+     * one. Called holding the lock of the log.
+     * <br/>
+     *
+     * @return <tt>true</tt> if the active buffer is empty again, <tt>false</tt> if the capture
+     *         stopped meanwhile.
+     * @since
+     */
+    private boolean awaitHandOff() {
+
+        while(enabled && null != pending) {
+            try {
+                wait();
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        if(!enabled) {
+            return false;
+        }
+        handOff();
+        return true;
+    }
+
+    private void handOff() {
+        active.flip();
+        pending = active;
+        pendingBytes = active.remaining();
+        active = spare;
+        spare = null;
+        notifyAll();
+    }
+
+    private void writeLoop() {
+
+        while(true) {
+
+            ByteBuffer toWrite;
+
+            synchronized(this) {
+
+                if(enabled && null == pending) {
+                    try {
+                        wait(FLUSH_INTERVAL_MILLIS);
+                    } catch(InterruptedException e) {
+                        enabled = false;
+                    }
+                }
+
+                if(null == pending && active.position() > 0) {
+                    handOff();
+                }
+
+                if(null == pending) {
+                    if(enabled) {
+                        continue;
+                    }
+                    break;
+                }
+                toWrite = pending;
+            }
+
+            boolean success = write(toWrite);
+
+            synchronized(this) {
+                written += success ? pendingBytes : 0L;
+                toWrite.clear();
+                spare = toWrite;
+                pending = null;
+                pendingBytes = 0L;
+                if(!success) {
+                    enabled = false;
+                    active.clear();
+                }
+                notifyAll();
+            }
+        }
+        closeChannel();
+    }
+
+    private boolean write(ByteBuffer buffer) {
+        try {
+            while(buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            return true;
+        } catch(IOException e) {
+            LOGGER.error("Traffic capture stopped : " + e);
+            return false;
+        }
+    }
+
+    private void closeChannel() {
+        try {
+            channel.close();
+        } catch(IOException e) {
+            LOGGER.error("Exception Caught : " + e);
+        }
+    }
+
+    private static int clamp(long value) {
+        return (int)Math.max(-1L, Math.min(Integer.MAX_VALUE, value));
+    }
+
+}
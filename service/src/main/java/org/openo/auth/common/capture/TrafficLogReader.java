@@ -0,0 +1,129 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.common.capture;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads the records of a traffic capture log written by {@link TrafficCaptureLog}, in the
+ * order they were written.
+ * <br/>
+ *
+ * @author
+ * @version
+ */
+public class TrafficLogReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    private final long startMillis;
+
+    /**
+     * Constructor<br/>
+     * <p>
+     * </p>
+     *
+     * @param file : the capture log.
+     * @throws IOException if the file can not be read or is not a capture log.
+     * @since
+     */
+    public TrafficLogReader(Path file) throws IOException {
+
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+
+        buffer.flip();
+
+        try {
+            if(!fill(TrafficCaptureLog.HEADER_SIZE) || buffer.getInt() != TrafficCaptureLog.MAGIC) {
+                throw new IOException(file + " is not a traffic capture log");
+            }
+
+            short version = buffer.getShort();
+
+            if(version != TrafficCaptureLog.VERSION) {
+                throw new IOException("Unsupported traffic capture log version " + version);
+            }
+            this.startMillis = buffer.getLong();
+        } catch(IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Provides the time the capture started.
+     * <br/>
+     *
+     * @return time : epoch time in milliseconds.
+     * @since
+     */
+    public long getStartMillis() {
+        return startMillis;
+    }
+
+    /**
+     * Reads the next record.
+     * <br/>
+     *
+     * @return record : the next record, <tt>null</tt> at the end of the log.
+     * @throws IOException if the file can not be read.
+     * @since
+     */
+    public TrafficRecord next() throws IOException {
+
+        if(!fill(TrafficCaptureLog.RECORD_SIZE)) {
+            return null;
+        }
+
+        return new TrafficRecord(buffer.getLong(), CapturedEndpoint.fromCode(buffer.get()), buffer.getLong(),
+                buffer.getLong(), buffer.getShort() & 0xFFFF, buffer.getInt(), buffer.getInt(), buffer.getInt());
+    }
+
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private boolean fill(int size) throws IOException {
+
+        if(buffer.remaining() >= size) {
+            return true;
+        }
+
+        buffer.compact();
+
+        try {
+            while(buffer.position() < size) {
+                if(channel.read(buffer) < 0) {
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            buffer.flip();
+        }
+    }
+
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.common.capture;
+
+/**
+ * <p>
+ * One request of the traffic capture log. The token and the user id are only kept as salted
+ * hashes, which tell the requests of a same token or user apart without revealing them.
+ * </p>
+ *
+ * @author
+ * @version
+ */
+public class TrafficRecord {
+
+    private final long offsetMicros;
+
+    private final CapturedEndpoint endpoint;
+
+    private final long tokenHash;
+
+    private final long userHash;
+
+    private final int status;
+
+    private final int requestSize;
+
+    private final int responseSize;
+
+    private final int durationMicros;
+
+    /**
+     * Constructor<br/>
+     * <p>
+     * </p>
+     *
+     * @param offsetMicros : time the request was received, since the start of the capture.
+     * @param endpoint : the endpoint.
+     * @param tokenHash : hash of the token of the request, 0 if none.
+     * @param userHash : hash of the user id of the path of the request, 0 if none.
+     * @param status : the status of the response.
+     * @param requestSize : the size of the request body, -1 if unknown.
+     * @param responseSize : the size of the response body, -1 if unknown.
+     * @param durationMicros : the time taken to answer the request.
+     * @since
+     */
+    public TrafficRecord(long offsetMicros, CapturedEndpoint endpoint, long tokenHash, long userHash, int status,
+            int requestSize, int responseSize, int durationMicros) {
+        this.offsetMicros = offsetMicros;
+        this.endpoint = endpoint;
+        this.tokenHash = tokenHash;
+        this.userHash = userHash;
+        this.status = status;
+        this.requestSize = requestSize;
+        this.responseSize = responseSize;
+        this.durationMicros = durationMicros;
+    }
+
+    public long getOffsetMicros() {
+        return offsetMicros;
+    }
+
+    public CapturedEndpoint getEndpoint() {
+        return endpoint;
+    }
+
+    public long getTokenHash() {
+        return tokenHash;
+    }
+
+    public long getUserHash() {
+        return userHash;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public int getRequestSize() {
+        return requestSize;
+    }
+
+    public int getResponseSize() {
+        return responseSize;
+    }
+
+    public int getDurationMicros() {
+        return durationMicros;
+    }
+
+}
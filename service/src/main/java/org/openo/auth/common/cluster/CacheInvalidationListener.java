@@ -0,0 +1,65 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.common.cluster;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * Joins the invalidation bus of the cluster when the service starts, and sends the last queued
+ * invalidations and releases the connections to the other nodes when it stops.
+ * </p>
+ *
+ * @author
+ * @version
+ */
+public class CacheInvalidationListener implements ServletContextListener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CacheInvalidationListener.class);
+
+    /**
+     * Starts the invalidation bus.
+     * <br/>
+     *
+     * @param event : the servlet context event.
+     * @since
+     */
+    public void contextInitialized(ServletContextEvent event) {
+        try {
+            CacheInvalidator.getInstance().start();
+        } catch(RuntimeException e) {
+            LOGGER.error("Invalidation bus could not be started, the caches are only invalidated locally : " + e);
+        }
+    }
+
+    /**
+     * Stops the invalidation bus and the connections to the other nodes.
+     * <br/>
+     *
+     * @param event : the servlet context event.
+     * @since
+     */
+    public void contextDestroyed(ServletContextEvent event) {
+        CacheInvalidator.getInstance().stop();
+        PeerTokenCache.getInstance().stop();
+    }
+
+}
@@ -0,0 +1,500 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.common.cluster;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.StringUtils;
+import org.openo.auth.common.ConfigUtil;
+import org.openo.auth.common.cache.RoleAssignmentCache;
+import org.openo.auth.common.cache.ScopedTokenCache;
+import org.openo.auth.common.cache.TokenCacheFactory;
+import org.openo.auth.common.cache.TokenFingerprint;
+import org.openo.auth.common.cache.UserNameCache;
+import org.openo.auth.common.cache.UserResponseCache;
+import org.openo.auth.constant.Constant;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * Invalidates the caches of this node on logout and on the changes of the users, and sends the
+ * same invalidations to the other nodes of the cluster through the configured bus.
+ * </p>
+ * <p>
+ * The events are not sent one by one : they are queued for the batch delay and sent together, an
+ * event already queued, or covered by a queued revocation of the same user, is dropped. The
+ * events received from the other nodes are applied to the caches of this node only.
+ * </p>
+ * <p>
+ * The changes made by a thread redirected to the warm up stub are neither applied nor sent, they
+ * are about synthetic users and tokens.
+ * </p>
+ *
+ * @author
+ * @version
+ */
+public class CacheInvalidator implements IInvalidationListener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CacheInvalidator.class);
+
+    private static CacheInvalidator instance = new CacheInvalidator(
+            ConfigUtil.getProperty(Constant.CLUSTER_NODE_ID, UUID.randomUUID().toString()),
+            ConfigUtil.getLongProperty(Constant.CACHE_INVALIDATION_BATCH_MS, 20L),
+            ConfigUtil.getIntProperty(Constant.CACHE_INVALIDATION_MAX_BATCH, 500));
+
+    private final String nodeId;
+
+    private final long batchDelay;
+
+    private final int maxBatch;
+
+    private final Set<InvalidationEvent> pending = new LinkedHashSet<InvalidationEvent>();
+
+    private long pendingSince;
+
+    private long sequence;
+
+    private volatile IInvalidationBus bus;
+
+    private ScheduledExecutorService flusher;
+
+    /**
+     * Constructor<br/>
+     * <p>
+     * </p>
+     *
+     * @param nodeId : the id of this node in the batches.
+     * @param batchDelay : the time in milliseconds the events are queued, 0 to send them at once.
+     * @param maxBatch : the maximum number of events of a batch.
+     * @since
+     */
+    CacheInvalidator(String nodeId, long batchDelay, int maxBatch) {
+        this.nodeId = nodeId;
+        this.batchDelay = Math.max(0L, batchDelay);
+        this.maxBatch = Math.max(1, maxBatch);
+    }
+
+    /**
+     * Singleton class, provides the instance of <tt>CacheInvalidator</tt> class.
+     * <br/>
+     *
+     * @return instance of <tt>CacheInvalidator</tt> class.
+     * @since
+     */
+    public static CacheInvalidator getInstance() {
+        return instance;
+    }
+
+    /**
+     * Starts the bus configured in the <tt>auth_service.properties</tt> file, if any.
+     * <br/>
+     *
+     * @since
+     */
+    public void start() {
+
+        IInvalidationBus configured = createBus(ConfigUtil.getProperty(Constant.CACHE_INVALIDATION_BUS, "none"));
+
+        if(null == configured) {
+            LOGGER.info("No invalidation bus, the caches of this node are only invalidated locally.");
+            return;
+        }
+
+        try {
+            start(configured);
+        } catch(IOException e) {
+            LOGGER.error("Invalidation bus not started, the caches are only invalidated locally : " + e);
+        }
+    }
+
+    /**
+     * Starts to send the invalidations on the bus and to apply those of the other nodes.
+     * <br/>
+     *
+     * @param newBus : the bus.
+     * @throws IOException if the bus can not be opened.
+     * @since
+     */
+    public synchronized void start(IInvalidationBus newBus) throws IOException {
+
+        if(null != bus) {
+            return;
+        }
+
+        newBus.start(this);
+
+        bus = newBus;
+
+        if(batchDelay > 0) {
+            flusher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "auth-invalidation-flusher");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+            flusher.scheduleWithFixedDelay(new Runnable() {
+
+                public void run() {
+                    flush();
+                }
+            }, batchDelay, batchDelay, TimeUnit.MILLISECONDS);
+        }
+
+        LOGGER.info("Invalidation bus started, node = " + nodeId);
+    }
+
+    /**
+     * Sends the queued events and stops the bus.
+     * <br/>
+     *
+     * @since
+     */
+    public synchronized void stop() {
+
+        if(null == bus) {
+            return;
+        }
+
+        if(null != flusher) {
+            flusher.shutdownNow();
+            flusher = null;
+        }
+
+        flush();
+
+        bus.stop();
+        bus = null;
+    }
+
+    /**
+     * Drops the token revoked at its logout, also from the cache of its owner when the tokens are
+     * cached once in the cluster.
+     * <br/>
+     *
+     * @param token : Auth token.
+     * @since
+     */
+    public void tokenRevoked(String token) {
+
+        if(StringUtils.isEmpty(token)) {
+            return;
+        }
+        // The fingerprint is computed in the domain of the request, like the keys of the caches.
+        invalidate(InvalidationEvent.token(TokenFingerprint.of(token)));
+
+        PeerTokenCache.getInstance().forget(token);
+    }
+
+    /**
+     * Drops the cached representations and name of the user modified.
+     * <br/>
+     *
+     * @param userId : id of the user.
+     * @since
+     */
+    public void userModified(String userId) {
+        invalidate(new InvalidationEvent(InvalidationEvent.Type.USER, userId));
+    }
+
+    /**
+     * Drops everything cached about the user deleted or whose password changed, its tokens which
+     * KeyStone revoked included.
+     * <br/>
+     *
+     * @param userId : id of the user.
+     * @since
+     */
+    public void userRevoked(String userId) {
+        invalidate(new InvalidationEvent(InvalidationEvent.Type.USER_REVOKED, userId));
+    }
+
+    /**
+     * Drops the cached list of the users, once a user is created.
+     * <br/>
+     *
+     * @since
+     */
+    public void usersChanged() {
+        invalidate(new InvalidationEvent(InvalidationEvent.Type.USERS, null));
+    }
+
+    /**
+     * Tells the other nodes that roles were assigned to the user, the role cache of this node is
+     * updated in place by the caller.
+     * <br/>
+     *
+     * @param userId : id of the user.
+     * @since
+     */
+    public void rolesChanged(String userId) {
+        publish(new InvalidationEvent(InvalidationEvent.Type.ROLES, userId));
+    }
+
+    /**
+     * Applies the batch of another node to the caches of this node.
+     * <br/>
+     *
+     * @param batch : the batch received.
+     * @since
+     */
+    public void received(InvalidationBatch batch) {
+
+        if(nodeId.equals(batch.getOrigin())) {
+            return;
+        }
+
+        for(InvalidationEvent event : batch.getEvents()) {
+            apply(event);
+        }
+
+        InvalidationMetrics.getInstance().batchReceived(batch.getEvents().size(),
+                System.currentTimeMillis() - batch.getCreatedAt());
+    }
+
+    /**
+     * Sends the queued events.
+     * <br/>
+     *
+     * @since
+     */
+    void flush() {
+
+        IInvalidationBus current = bus;
+
+        List<InvalidationEvent> events;
+        long createdAt;
+        long first;
+
+        synchronized(pending) {
+
+            if(pending.isEmpty() || null == current) {
+                return;
+            }
+
+            events = new ArrayList<InvalidationEvent>(pending);
+            createdAt = pendingSince;
+            pending.clear();
+
+            first = sequence + 1;
+            sequence += (events.size() + maxBatch - 1) / maxBatch;
+        }
+
+        for(int from = 0; from < events.size(); from += maxBatch) {
+
+            InvalidationBatch batch = new InvalidationBatch(nodeId, first + from / maxBatch, createdAt,
+                    events.subList(from, Math.min(events.size(), from + maxBatch)));
+            try {
+                current.publish(batch);
+                InvalidationMetrics.getInstance().batchSent(true);
+            } catch(IOException | RuntimeException e) {
+                // The caches of the other nodes stay stale until their time to live.
+                InvalidationMetrics.getInstance().batchSent(false);
+                LOGGER.warn("Invalidation batch " + batch + " not sent : " + e);
+            }
+        }
+    }
+
+    String getNodeId() {
+        return nodeId;
+    }
+
+    private void invalidate(InvalidationEvent event) {
+
+        if(ConfigUtil.isThreadRedirected()) {
+            return;
+        }
+
+        apply(event);
+        publish(event);
+    }
+
+    private void publish(InvalidationEvent event) {
+
+        if(null == bus || ConfigUtil.isThreadRedirected()) {
+            return;
+        }
+
+        boolean full;
+
+        synchronized(pending) {
+
+            boolean coalesced = pending.contains(event);
+
+            if(!coalesced && (event.getType() == InvalidationEvent.Type.USER
+                    || event.getType() == InvalidationEvent.Type.ROLES)) {
+                // A queued revocation of the user drops its roles as well.
+                coalesced = pending.contains(
+                        new InvalidationEvent(InvalidationEvent.Type.USER_REVOKED, event.getKey()));
+            }
+
+            if(!coalesced && event.getType() == InvalidationEvent.Type.USER_REVOKED) {
+                coalesce(new InvalidationEvent(InvalidationEvent.Type.USER, event.getKey()));
+                coalesce(new InvalidationEvent(InvalidationEvent.Type.ROLES, event.getKey()));
+            }
+
+            if(!coalesced) {
+                if(pending.isEmpty()) {
+                    pendingSince = System.currentTimeMillis();
+                }
+                pending.add(event);
+            }
+
+            InvalidationMetrics.getInstance().eventPublished(coalesced);
+
+            full = pending.size() >= maxBatch || batchDelay == 0;
+        }
+
+        if(full) {
+            flush();
+        }
+    }
+
+    private void coalesce(InvalidationEvent covered) {
+        if(pending.remove(covered)) {
+            InvalidationMetrics.getInstance().eventPublished(true);
+        }
+    }
+
+    private static void apply(InvalidationEvent event) {
+
+        String key = event.getKey();
+
+        switch(event.getType()) {
+            case TOKEN:
+                long fingerprint;
+                try {
+                    fingerprint = event.getFingerprint();
+                } catch(NumberFormatException e) {
+                    // Skipped alone, the other events of the batch still apply.
+                    LOGGER.warn("Invalid token invalidation skipped : " + key);
+                    break;
+                }
+                TokenCacheFactory.getInstance().getTokenCache().removeFingerprint(fingerprint);
+                ScopedTokenCache.getInstance().removeFingerprint(fingerprint);
+                break;
+            case USER:
+                UserResponseCache.getInstance().invalidate(key);
+                UserNameCache.getInstance().remove(key);
+                break;
+            case USER_REVOKED:
+                UserResponseCache.getInstance().invalidate(key);
+                UserNameCache.getInstance().remove(key);
+                RoleAssignmentCache.getInstance().remove(key);
+                TokenCacheFactory.getInstance().getTokenCache().removeUser(key);
+                ScopedTokenCache.getInstance().removeUser(key);
+                break;
+            case ROLES:
+                RoleAssignmentCache.getInstance().remove(key);
+                break;
+            case USERS:
+                UserResponseCache.getInstance().invalidate(null);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Creates the bus of the <tt>cache.invalidation.bus</tt> property.
+     * <br/>
+     *
+     * @param type : none, local, udp or the class name of an <tt>IInvalidationBus</tt>.
+     * @return bus : the bus, <tt>null</tt> when there is none or it can not be created.
+     * @since
+     */
+    static IInvalidationBus createBus(String type) {
+
+        String name = StringUtils.trimToEmpty(type);
+
+        if(name.isEmpty() || "none".equalsIgnoreCase(name)) {
+            return null;
+        }
+
+        if("local".equalsIgnoreCase(name)) {
+            return new LocalInvalidationBus();
+        }
+
+        if("udp".equalsIgnoreCase(name)) {
+
+            if(!ClusterSecret.isConfigured()) {
+                LOGGER.error("The udp invalidation bus requires " + Constant.CLUSTER_SECRET);
+                return null;
+            }
+            return new UdpInvalidationBus(ConfigUtil.getIntProperty(Constant.CACHE_INVALIDATION_PORT, 7950),
+                    parsePeers(ConfigUtil.getProperty(Constant.CACHE_INVALIDATION_PEERS, "")),
+                    ConfigUtil.getLongProperty(Constant.CACHE_INVALIDATION_MAX_AGE_MS, 60000L),
+                    ClusterSecret.derive("cache-invalidation", 32));
+        }
+
+        try {
+            return (IInvalidationBus)Class.forName(name).newInstance();
+        } catch(ReflectiveOperationException | ClassCastException e) {
+            LOGGER.error("Invalidation bus " + name + " could not be created : " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Reads the peers, <tt>host:port</tt> separated by commas.
+     * <br/>
+     *
+     * @param peers : the peers.
+     * @return addresses : the addresses of the peers, the invalid ones are skipped.
+     * @since
+     */
+    static List<InetSocketAddress> parsePeers(String peers) {
+
+        List<InetSocketAddress> addresses = new ArrayList<InetSocketAddress>();
+
+        for(String peer : StringUtils.split(StringUtils.defaultString(peers), ',')) {
+
+            String address = peer.trim();
+
+            if(address.isEmpty()) {
+                continue;
+            }
+
+            int colon = address.lastIndexOf(':');
+
+            try {
+                if(colon <= 0) {
+                    throw new IllegalArgumentException("host:port is expected");
+                }
+                addresses.add(new InetSocketAddress(address.substring(0, colon),
+                        Integer.parseInt(address.substring(colon + 1))));
+            } catch(IllegalArgumentException e) {
+                LOGGER.warn("Peer " + address + " ignored : " + e.getMessage());
+            }
+        }
+        return addresses;
+    }
+
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.common.cluster;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.apache.commons.lang3.StringUtils;
+import org.openo.auth.common.ConfigUtil;
+import org.openo.auth.constant.Constant;
+
+/**
+ * <p>
+ * The secret shared by the nodes of the cluster, configured by <tt>cluster.secret</tt> in the
+ * <tt>auth_service.properties</tt> file. A key is derived from it for each use, so that the
+ * signature of a message of one use can never be taken for another.
+ * </p>
+ *
+ * @author
+ * @version
+ */
+public final class ClusterSecret {
+
+    private static final String HMAC = "HmacSHA256";
+
+    private static final byte[] SECRET = StringUtils.defaultString(ConfigUtil.getProperty(Constant.CLUSTER_SECRET, ""))
+            .getBytes(StandardCharsets.UTF_8);
+
+    private ClusterSecret() {
+    }
+
+    public static boolean isConfigured() {
+        return SECRET.length > 0;
+    }
+
+    /**
+     * Derives a key of the secret.
+     * <br/>
+     *
+     * @param purpose : the use of the key.
+     * @param length : the length of the key, at most 32 bytes.
+     * @return key : the key of the purpose.
+     * @since
+     */
+    public static byte[] derive(String purpose, int length) {
+
+        if(!isConfigured()) {
+            throw new IllegalStateException(Constant.CLUSTER_SECRET + " is not configured");
+        }
+
+        try {
+            Mac mac = Mac.getInstance(HMAC);
+            mac.init(new SecretKeySpec(SECRET, HMAC));
+            return Arrays.copyOf(mac.doFinal(purpose.getBytes(StandardCharsets.UTF_8)), length);
+        } catch(GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Provides a new HMAC-SHA256 keyed with the key of the purpose, a <tt>Mac</tt> is not thread
+     * safe.
+     * <br/>
+     *
+     * @param purpose : the use of the signatures.
+     * @return mac : the keyed mac.
+     * @since
+     */
+    public static Mac newMac(String purpose) {
+        return newMac(derive(purpose, 32));
+    }
+
+    /**
+     * Provides a new HMAC-SHA256 keyed with the key.
+     * <br/>
+     *
+     * @param key : the key of the signatures.
+     * @return mac : the keyed mac.
+     * @since
+     */
+    public static Mac newMac(byte[] key) {
+
+        try {
+            Mac mac = Mac.getInstance(HMAC);
+            mac.init(new SecretKeySpec(key, HMAC));
+            return mac;
+        } catch(GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
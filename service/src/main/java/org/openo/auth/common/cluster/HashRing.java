@@ -0,0 +1,146 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.openo.auth.common.cluster;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * <p>
+ * A consistent hash ring, each node holds a number of points named after it on the ring and a key
+ * belongs to the node of the first point at or after the hash of the key. Adding a node only
+ * moves the keys the new node takes over, and every process building the ring of the same names
+ * agrees on the node of a key.
+ * </p>
+ *
+ * @param <T> the type of the nodes.
+ * @author
+ * @version
+ */
+public final class HashRing<T> {
+
+    private final long[] hashes;
+
+    private final Object[] nodes;
+
+    /**
+     * Constructor<br/>
+     * <p>
+     * </p>
+     *
+     * @param names : the names of the nodes, which place them on the ring.
+     * @param values : the nodes, in the order of their names.
+     * @param virtualNodes : number of points of each node on the ring.
+     * @since
+     */
+    public HashRing(List<String> names, List<T> values, int virtualNodes) {
+
+        TreeMap<Long, T> ring = new TreeMap<Long, T>();
+
+        for(int i = 0; i < names.size(); i++) {
+            for(int node = 0; node < Math.max(1, virtualNodes); node++) {
+                ring.put(hash(names.get(i) + "#" + node), values.get(i));
+            }
+        }
+
+        this.hashes = new long[ring.size()];
+        this.nodes = new Object[ring.size()];
+
+        int index = 0;
+        for(Map.Entry<Long, T> point : ring.entrySet()) {
+            hashes[index] = point.getKey();
+            nodes[index] = point.getValue();
+            index++;
+        }
+    }
+
+    public boolean isEmpty() {
+        return hashes.length == 0;
+    }
+
+    /**
+     * Provides the node of a key.
+     * <br/>
+     *
+     * @param key : the key.
+     * @return node : the node of the key, <tt>null</tt> when the ring is empty.
+     * @since
+     */
+    public T get(String key) {
+        return get(hash(key));
+    }
+
+    /**
+     * Provides the node of a key already hashed, such as a token fingerprint.
+     * <br/>
+     *
+     * @param keyHash : the 64 bit hash of the key.
+     * @return node : the node of the key, <tt>null</tt> when the ring is empty.
+     * @since
+     */
+    @SuppressWarnings("unchecked")
+    public T get(long keyHash) {
+
+        if(hashes.length == 0) {
+            return null;
+        }
+
+        int low = 0;
+        int high = hashes.length;
+
+        // The first point of the ring at or after the hash of the key, wrapping around.
+        while(low < high) {
+            int middle = (low + high) >>> 1;
+            if(hashes[middle] < keyHash) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return (T)nodes[low == hashes.length ? 0 : low];
+    }
+
+    /**
+     * Provides the 64 bit hash of a key on the ring.
+     * <br/>
+     *
+     * @param key : the key.
+     * @return hash : the first 64 bits of the MD5 digest of the key.
+     * @since
+     */
+    public static long hash(String key) {
+
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(key.getBytes(StandardCharsets.UTF_8));
+
+            long hash = 0;
+            for(int i = 0; i < 8; i++) {
+                hash = (hash << 8) | (digest[i] & 0xFF);
+            }
+            return hash;
+
+        } catch(NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
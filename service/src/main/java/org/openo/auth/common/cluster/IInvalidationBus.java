@@ -0,0 +1,61 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.common.cluster;
+
+import java.io.IOException;
+
+/**
+ * <p>
+ * Carries the invalidations of the caches between the nodes of the cluster, configured by
+ * <tt>cache.invalidation.bus</tt> in the <tt>auth_service.properties</tt> file. A bus delivers
+ * the batches at most once, the lost ones only leave the caches stale until their time to live.
+ * </p>
+ *
+ * @author
+ * @version
+ */
+public interface IInvalidationBus {
+
+    /**
+     * Starts to receive the batches of the other nodes.
+     * <br/>
+     *
+     * @param listener : the receiver of the batches of the other nodes.
+     * @throws IOException if the bus can not be opened.
+     * @since
+     */
+    void start(IInvalidationListener listener) throws IOException;
+
+    /**
+     * Sends a batch to the other nodes, without waiting for them.
+     * <br/>
+     *
+     * @param batch : the batch.
+     * @throws IOException if the batch could not be sent.
+     * @since
+     */
+    void publish(InvalidationBatch batch) throws IOException;
+
+    /**
+     * Stops the bus.
+     * <br/>
+     *
+     * @since
+     */
+    void stop();
+
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.common.cluster;
+
+/**
+ * <p>
+ * Receives the invalidations sent by the other nodes.
+ * </p>
+ *
+ * @author
+ * @version
+ */
+public interface IInvalidationListener {
+
+    /**
+     * Applies the batch of another node.
+     * <br/>
+     *
+     * @param batch : the batch received.
+     * @since
+     */
+    void received(InvalidationBatch batch);
+
+}
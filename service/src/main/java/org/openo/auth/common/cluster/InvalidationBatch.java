@@ -0,0 +1,137 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.common.cluster;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <p>
+ * The events a node sends at once to the other nodes, stamped with the time its oldest event
+ * occurred so that the receivers measure the propagation lag, batching delay included.
+ * </p>
+ *
+ * @author
+ * @version
+ */
+public final class InvalidationBatch {
+
+    private final String origin;
+
+    private final long sequence;
+
+    private final long createdAt;
+
+    private final List<InvalidationEvent> events;
+
+    /**
+     * Constructor<br/>
+     * <p>
+     * </p>
+     *
+     * @param origin : the id of the node sending the events.
+     * @param sequence : the number of the batch on this node.
+     * @param createdAt : the time in milliseconds the oldest event occurred.
+     * @param events : the events.
+     * @since
+     */
+    public InvalidationBatch(String origin, long sequence, long createdAt, List<InvalidationEvent> events) {
+        this.origin = origin;
+        this.sequence = sequence;
+        this.createdAt = createdAt;
+        this.events = Collections.unmodifiableList(new ArrayList<InvalidationEvent>(events));
+    }
+
+    public String getOrigin() {
+        return origin;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public List<InvalidationEvent> getEvents() {
+        return events;
+    }
+
+    /**
+     * Writes the batch.
+     * <br/>
+     *
+     * @param out : the output.
+     * @throws IOException if the output fails.
+     * @since
+     */
+    public void write(DataOutput out) throws IOException {
+        out.writeUTF(origin);
+        out.writeLong(sequence);
+        out.writeLong(createdAt);
+        out.writeInt(events.size());
+        for(InvalidationEvent event : events) {
+            out.writeByte(event.getType().ordinal());
+            out.writeUTF(event.getKey());
+        }
+    }
+
+    /**
+     * Reads a batch written by <tt>write</tt>.
+     * <br/>
+     *
+     * @param in : the input.
+     * @param maxEvents : the maximum number of events accepted.
+     * @return batch : the batch read.
+     * @throws IOException if the input fails or does not hold a batch.
+     * @since
+     */
+    public static InvalidationBatch read(DataInput in, int maxEvents) throws IOException {
+
+        String origin = in.readUTF();
+        long sequence = in.readLong();
+        long createdAt = in.readLong();
+        int count = in.readInt();
+
+        if(count < 0 || count > maxEvents) {
+            throw new IOException("Invalid number of invalidation events " + count);
+        }
+
+        List<InvalidationEvent> events = new ArrayList<InvalidationEvent>(count);
+
+        try {
+            for(int i = 0; i < count; i++) {
+                InvalidationEvent.Type type = InvalidationEvent.Type.of(in.readUnsignedByte());
+                events.add(new InvalidationEvent(type, in.readUTF()));
+            }
+        } catch(IllegalArgumentException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+        return new InvalidationBatch(origin, sequence, createdAt, events);
+    }
+
+    @Override
+    public String toString() {
+        return origin + "#" + sequence + " " + events;
+    }
+
+}
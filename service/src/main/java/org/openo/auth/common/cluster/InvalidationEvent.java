@@ -0,0 +1,127 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.common.cluster;
+
+/**
+ * <p>
+ * A change which makes the caches of the other nodes stale : a token revoked, a user modified, a
+ * user whose tokens were revoked, the roles of a user, or the list of the users.
+ * </p>
+ *
+ * @author
+ * @version
+ */
+public final class InvalidationEvent {
+
+    /**
+     * The kind of the change, the key of the event depends on it.
+     */
+    public enum Type {
+
+        /**
+         * A token revoked at its logout, the key is its fingerprint.
+         */
+        TOKEN,
+
+        /**
+         * A user modified, the key is the user id.
+         */
+        USER,
+
+        /**
+         * A user deleted or whose password changed, which revokes its tokens, the key is the user id.
+         */
+        USER_REVOKED,
+
+        /**
+         * Roles assigned to a user, the key is the user id.
+         */
+        ROLES,
+
+        /**
+         * A user created, which changes the list of the users, without key.
+         */
+        USERS;
+
+        private static final Type[] TYPES = values();
+
+        static Type of(int ordinal) {
+            if(ordinal < 0 || ordinal >= TYPES.length) {
+                throw new IllegalArgumentException("Unknown invalidation type " + ordinal);
+            }
+            return TYPES[ordinal];
+        }
+    }
+
+    private final Type type;
+
+    private final String key;
+
+    /**
+     * Constructor<br/>
+     * <p>
+     * </p>
+     *
+     * @param type : the kind of the change.
+     * @param key : the key of the change, empty for the list of the users.
+     * @since
+     */
+    public InvalidationEvent(Type type, String key) {
+        this.type = type;
+        this.key = null == key ? "" : key;
+    }
+
+    public static InvalidationEvent token(long fingerprint) {
+        return new InvalidationEvent(Type.TOKEN, Long.toString(fingerprint));
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public long getFingerprint() {
+        return Long.parseLong(key);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+
+        if(this == obj) {
+            return true;
+        }
+        if(!(obj instanceof InvalidationEvent)) {
+            return false;
+        }
+        InvalidationEvent other = (InvalidationEvent)obj;
+        return type == other.type && key.equals(other.key);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * type.hashCode() + key.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return type + (key.isEmpty() ? "" : " " + key);
+    }
+
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.common.cluster;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * Counts the invalidations of the caches sent and received by this node, and measures their
+ * propagation lag. The counters are registered in the platform MBean server as
+ * <tt>org.openo.auth:type=InvalidationMetrics</tt>.
+ * </p>
+ * <p>
+ * The lag spans two hosts : it is the time of this node when a batch is applied minus the time of
+ * the sending node when its oldest event occurred. The difference of the clocks of the two nodes
+ * is therefore part of it, a lag below this difference is only meaningful with synchronized clocks
+ * and a negative lag, a receiving clock behind the sending one, is counted as 0.
+ * </p>
+ *
+ * @author
+ * @version
+ */
+public class InvalidationMetrics implements InvalidationMetricsMBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(InvalidationMetrics.class);
+
+    /**
+     * Name of the MBean.
+     */
+    public static final String OBJECT_NAME = "org.openo.auth:type=InvalidationMetrics";
+
+    private static InvalidationMetrics instance = register(new InvalidationMetrics());
+
+    private final AtomicLong eventsPublished = new AtomicLong();
+
+    private final AtomicLong eventsCoalesced = new AtomicLong();
+
+    private final AtomicLong batchesSent = new AtomicLong();
+
+    private final AtomicLong sendFailures = new AtomicLong();
+
+    private final AtomicLong batchesReceived = new AtomicLong();
+
+    private final AtomicLong eventsReceived = new AtomicLong();
+
+    private final AtomicLong batchesRejected = new AtomicLong();
+
+    private final AtomicLong lastLag = new AtomicLong();
+
+    private final AtomicLong maxLag = new AtomicLong();
+
+    private final AtomicLong totalLag = new AtomicLong();
+
+    InvalidationMetrics() {
+    }
+
+    /**
+     * Singleton class, provides the instance of <tt>InvalidationMetrics</tt> class.
+     * <br/>
+     *
+     * @return instance of <tt>InvalidationMetrics</tt> class.
+     * @since
+     */
+    public static InvalidationMetrics getInstance() {
+        return instance;
+    }
+
+    private static InvalidationMetrics register(InvalidationMetrics metrics) {
+
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if(!server.isRegistered(name)) {
+                server.registerMBean(metrics, name);
+            }
+        } catch(JMException e) {
+            LOGGER.warn("Invalidation metrics not registered : " + e);
+        }
+        return metrics;
+    }
+
+    void eventPublished(boolean coalesced) {
+        eventsPublished.incrementAndGet();
+        if(coalesced) {
+            eventsCoalesced.incrementAndGet();
+        }
+    }
+
+    void batchSent(boolean sent) {
+        (sent ? batchesSent : sendFailures).incrementAndGet();
+    }
+
+    void batchRejected() {
+        batchesRejected.incrementAndGet();
+    }
+
+    /**
+     * Records a batch of another node, once applied.
+     * <br/>
+     *
+     * @param events : the number of events of the batch.
+     * @param lag : the time in milliseconds since its oldest event occurred, measured on the clock
+     *            of this node against the clock of the sending node.
+     * @since
+     */
+    void batchReceived(int events, long lag) {
+
+        long positiveLag = Math.max(0, lag);
+
+        batchesReceived.incrementAndGet();
+        eventsReceived.addAndGet(events);
+        lastLag.set(positiveLag);
+        totalLag.addAndGet(positiveLag);
+
+        long max = maxLag.get();
+        while(positiveLag > max && !maxLag.compareAndSet(max, positiveLag)) {
+            max = maxLag.get();
+        }
+    }
+
+    public long getEventsPublished() {
+        return eventsPublished.get();
+    }
+
+    public long getEventsCoalesced() {
+        return eventsCoalesced.get();
+    }
+
+    public long getBatchesSent() {
+        return batchesSent.get();
+    }
+
+    public long getSendFailures() {
+        return sendFailures.get();
+    }
+
+    public long getBatchesReceived() {
+        return batchesReceived.get();
+    }
+
+    public long getEventsReceived() {
+        return eventsReceived.get();
+    }
+
+    public long getBatchesRejected() {
+        return batchesRejected.get();
+    }
+
+    public long getLastLagMillis() {
+        return lastLag.get();
+    }
+
+    public long getMaxLagMillis() {
+        return maxLag.get();
+    }
+
+    public long getMeanLagMillis() {
+        long batches = batchesReceived.get();
+        return batches == 0 ? 0 : totalLag.get() / batches;
+    }
+
+    public void reset() {
+        eventsPublished.set(0);
+        eventsCoalesced.set(0);
+        batchesSent.set(0);
+        sendFailures.set(0);
+        batchesReceived.set(0);
+        eventsReceived.set(0);
+        batchesRejected.set(0);
+        lastLag.set(0);
+        maxLag.set(0);
+        totalLag.set(0);
+    }
+
+}
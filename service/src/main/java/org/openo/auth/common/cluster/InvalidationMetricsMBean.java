@@ -0,0 +1,88 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.common.cluster;
+
+/**
+ * <p>
+ * The invalidations of the caches between the nodes, as seen through JMX : the events this node
+ * sent, and the batches it received with their propagation lag. The lag compares the clock of
+ * the sending node with the clock of this node, so the difference of the two clocks is part of it.
+ * </p>
+ *
+ * @author
+ * @version
+ */
+public interface InvalidationMetricsMBean {
+
+    /**
+     * @return the number of events queued to be sent.
+     */
+    long getEventsPublished();
+
+    /**
+     * @return the number of events dropped because a queued event already covered them.
+     */
+    long getEventsCoalesced();
+
+    /**
+     * @return the number of batches sent.
+     */
+    long getBatchesSent();
+
+    /**
+     * @return the number of batches which could not be sent.
+     */
+    long getSendFailures();
+
+    /**
+     * @return the number of batches received from the other nodes and applied.
+     */
+    long getBatchesReceived();
+
+    /**
+     * @return the number of events received from the other nodes and applied.
+     */
+    long getEventsReceived();
+
+    /**
+     * @return the number of batches dropped, unsigned, unreadable or too old.
+     */
+    long getBatchesRejected();
+
+    /**
+     * @return the lag in milliseconds between the oldest event of the last batch received, on the
+     *         clock of the sending node, and its application, on the clock of this node : the
+     *         difference of the clocks is included, a negative lag is counted as 0.
+     */
+    long getLastLagMillis();
+
+    /**
+     * @return the highest lag in milliseconds since the last reset, clock differences included.
+     */
+    long getMaxLagMillis();
+
+    /**
+     * @return the mean lag in milliseconds since the last reset, clock differences included.
+     */
+    long getMeanLagMillis();
+
+    /**
+     * Resets the counters.
+     */
+    void reset();
+
+}
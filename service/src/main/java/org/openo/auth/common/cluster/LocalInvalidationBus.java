@@ -0,0 +1,109 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.common.cluster;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * <p>
+ * A bus between the nodes running in the same process, such as the nodes of a test : a batch is
+ * delivered, in the thread publishing it, to the other buses of the same channel.
+ * </p>
+ *
+ * @author
+ * @version
+ */
+public class LocalInvalidationBus implements IInvalidationBus {
+
+    private static final ConcurrentMap<String, List<LocalInvalidationBus>> CHANNELS =
+            new ConcurrentHashMap<String, List<LocalInvalidationBus>>();
+
+    private final String channel;
+
+    private volatile IInvalidationListener listener;
+
+    /**
+     * Constructor<br/>
+     * <p>
+     * </p>
+     *
+     * @since
+     */
+    public LocalInvalidationBus() {
+        this("default");
+    }
+
+    /**
+     * Constructor<br/>
+     * <p>
+     * </p>
+     *
+     * @param channel : the name of the channel shared with the other nodes.
+     * @since
+     */
+    public LocalInvalidationBus(String channel) {
+        this.channel = channel;
+    }
+
+    public void start(IInvalidationListener receiver) {
+
+        this.listener = receiver;
+
+        List<LocalInvalidationBus> buses = CHANNELS.get(channel);
+
+        if(null == buses) {
+            buses = new CopyOnWriteArrayList<LocalInvalidationBus>();
+            List<LocalInvalidationBus> existing = CHANNELS.putIfAbsent(channel, buses);
+            if(null != existing) {
+                buses = existing;
+            }
+        }
+        buses.add(this);
+    }
+
+    public void publish(InvalidationBatch batch) {
+
+        List<LocalInvalidationBus> buses = CHANNELS.get(channel);
+
+        if(null == buses) {
+            return;
+        }
+
+        for(LocalInvalidationBus bus : buses) {
+
+            IInvalidationListener receiver = bus.listener;
+
+            if(bus != this && null != receiver) {
+                receiver.received(batch);
+            }
+        }
+    }
+
+    public void stop() {
+
+        List<LocalInvalidationBus> buses = CHANNELS.get(channel);
+
+        if(null != buses) {
+            buses.remove(this);
+        }
+        listener = null;
+    }
+
+}
@@ -0,0 +1,489 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.openo.auth.common.cluster;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.crypto.Mac;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.httpclient.Header;
+import org.apache.commons.httpclient.HttpClient;
+import org.apache.commons.httpclient.HttpMethodBase;
+import org.apache.commons.httpclient.MultiThreadedHttpConnectionManager;
+import org.apache.commons.httpclient.methods.DeleteMethod;
+import org.apache.commons.httpclient.methods.GetMethod;
+import org.apache.commons.httpclient.params.HttpConnectionManagerParams;
+import org.apache.commons.lang3.StringUtils;
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.openo.auth.common.ConfigUtil;
+import org.openo.auth.common.cache.TokenFingerprint;
+import org.openo.auth.common.keystone.DomainContext;
+import org.openo.auth.common.keystone.KeyStoneDomain;
+import org.openo.auth.constant.Constant;
+import org.openo.auth.entity.TokenValidationResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * Shares the token validations cached by the nodes of the cluster, configured by
+ * <tt>token.peer_cache</tt> in the <tt>auth_service.properties</tt> file. Each token is owned by
+ * the node its fingerprint falls on, on a consistent hash ring of the nodes : the owner alone
+ * caches the token, the other nodes ask it over pooled connections before going to the Service
+ * Client. A token is then cached once in the cluster and validated about once by KeyStone,
+ * whichever node it is presented to.
+ * </p>
+ * <p>
+ * The nodes are the base urls of their REST service, listed by <tt>token.peer_cache.peers</tt> or
+ * read from the <tt>nodes</tt> of a microservice registration file such as <tt>auth_rest.json</tt>.
+ * The requests and the answers between the nodes are signed with a key derived from
+ * <tt>cluster.secret</tt>, which this mode requires. An owner which does not answer is skipped for
+ * a while, its tokens are then validated and cached locally as without this mode. A thread
+ * redirected to the warm up stub never calls the other nodes, its tokens are synthetic.
+ * </p>
+ *
+ * @author
+ * @version
+ */
+public class PeerTokenCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PeerTokenCache.class);
+
+    private static final String SERVICE_PATH = "/openoapi/auth/v1";
+
+    private static final String PEER_PATH = "/tokens/peer";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static PeerTokenCache instance = fromConfig();
+
+    private final String self;
+
+    private final HashRing<String> ring;
+
+    private final byte[] key;
+
+    private final long maxAge;
+
+    private final long retryDelay;
+
+    private final Map<String, Long> skippedUntil = new ConcurrentHashMap<String, Long>();
+
+    private final MultiThreadedHttpConnectionManager connections;
+
+    private final HttpClient client;
+
+    /**
+     * Constructor<br/>
+     * <p>
+     * </p>
+     *
+     * @param self : the base url of this node, one of the nodes.
+     * @param nodes : the base urls of all the nodes of the cluster.
+     * @param virtualNodes : number of points of each node on the hash ring.
+     * @param maxConnections : maximum number of pooled connections to each node.
+     * @param timeout : connect and read timeout in milliseconds of a request to a node.
+     * @param retryDelay : how long an owner which did not answer is skipped, in milliseconds.
+     * @param maxAge : maximum age in milliseconds of a signed request.
+     * @param key : the key of the signatures, <tt>null</tt> to disable the mode.
+     * @since
+     */
+    PeerTokenCache(String self, List<String> nodes, int virtualNodes, int maxConnections, int timeout,
+            long retryDelay, long maxAge, byte[] key) {
+
+        boolean enabled = null != key && null != self && nodes.contains(self) && nodes.size() > 1;
+
+        this.self = self;
+        this.ring = new HashRing<String>(enabled ? nodes : Collections.<String> emptyList(),
+                enabled ? nodes : Collections.<String> emptyList(), virtualNodes);
+        this.key = enabled ? key.clone() : null;
+        this.maxAge = maxAge;
+        this.retryDelay = retryDelay;
+
+        if(enabled) {
+            connections = new MultiThreadedHttpConnectionManager();
+
+            HttpConnectionManagerParams params = connections.getParams();
+            params.setDefaultMaxConnectionsPerHost(Math.max(1, maxConnections));
+            params.setMaxTotalConnections(Math.max(1, maxConnections) * nodes.size());
+            params.setConnectionTimeout(timeout);
+            params.setSoTimeout(timeout);
+            params.setStaleCheckingEnabled(true);
+
+            client = new HttpClient(connections);
+            client.getParams().setConnectionManagerTimeout(timeout);
+        } else {
+            connections = null;
+            client = null;
+        }
+
+        LOGGER.info("Peer token cache enabled = " + enabled + ", self = " + self + ", nodes = " + nodes);
+    }
+
+    /**
+     * Singleton class, provides the instance of <tt>PeerTokenCache</tt> class.
+     * <br/>
+     *
+     * @return instance of <tt>PeerTokenCache</tt> class.
+     * @since
+     */
+    public static PeerTokenCache getInstance() {
+        return instance;
+    }
+
+    public boolean isEnabled() {
+        return null != key;
+    }
+
+    /**
+     * Provides the node to ask for the token, in the domain of the request.
+     * <br/>
+     *
+     * @param token : Auth token.
+     * @return owner : the base url of the owner of the token, <tt>null</tt> when this node owns it,
+     *         when the mode is disabled, when the owner is skipped after a failure or when the
+     *         thread is redirected to the warm up stub.
+     * @since
+     */
+    public String ownerOf(String token) {
+
+        if(!isEnabled() || StringUtils.isEmpty(token) || ConfigUtil.isThreadRedirected()) {
+            return null;
+        }
+
+        String owner = ring.get(TokenFingerprint.of(token));
+
+        if(self.equals(owner)) {
+            return null;
+        }
+
+        Long until = skippedUntil.get(owner);
+
+        if(null != until) {
+            if(until > System.currentTimeMillis()) {
+                return null;
+            }
+            skippedUntil.remove(owner);
+        }
+        return owner;
+    }
+
+    /**
+     * Asks the owner of the token to validate it, from its cache or else from the Service Client.
+     * <br/>
+     *
+     * @param owner : the base url of the owner of the token.
+     * @param token : Auth token.
+     * @return result : the validation of the owner, <tt>null</tt> when the owner did not answer or
+     *         its answer is not signed, the token is then validated locally.
+     * @since
+     */
+    public TokenValidationResult ask(String owner, String token) {
+
+        GetMethod method = new GetMethod(owner + PEER_PATH);
+
+        try {
+            String signature = signRequest(method, token);
+
+            int status = client.executeMethod(method);
+
+            String body = method.getResponseBodyAsString();
+
+            Header answerSignature = method.getResponseHeader(Constant.PEER_SIGNATURE);
+
+            if(status != HttpServletResponse.SC_OK || null == body || null == answerSignature
+                    || !verify(signature + "\n" + body, answerSignature.getValue())) {
+                LOGGER.warn("Peer " + owner + " gave no signed answer, status : " + status);
+                return null;
+            }
+            return MAPPER.readValue(body, TokenValidationResult.class);
+
+        } catch(IOException | IllegalArgumentException e) {
+            skip(owner, e);
+            return null;
+        } finally {
+            method.releaseConnection();
+        }
+    }
+
+    /**
+     * Tells the owner of the token to drop it, when the token is revoked on this node.
+     * <br/>
+     *
+     * @param token : Auth token.
+     * @since
+     */
+    public void forget(String token) {
+
+        String owner = ownerOf(token);
+
+        if(null == owner) {
+            return;
+        }
+
+        DeleteMethod method = new DeleteMethod(owner + PEER_PATH);
+
+        try {
+            signRequest(method, token);
+
+            int status = client.executeMethod(method);
+
+            if(status != HttpServletResponse.SC_NO_CONTENT) {
+                LOGGER.warn("Peer " + owner + " did not drop the revoked token, status : " + status);
+            }
+        } catch(IOException | IllegalArgumentException e) {
+            skip(owner, e);
+        } finally {
+            method.releaseConnection();
+        }
+    }
+
+    /**
+     * Verifies the signature of a request of another node.
+     * <br/>
+     *
+     * @param method : the method of the request.
+     * @param time : the time of the request, in milliseconds.
+     * @param domain : the domain of the request, <tt>null</tt> for the configured one.
+     * @param token : the token of the request.
+     * @param signature : the signature of the request.
+     * @return <tt>true</tt> when the request was signed by a node of the cluster not long ago.
+     * @since
+     */
+    public boolean verifyRequest(String method, String time, String domain, String token, String signature) {
+
+        if(!isEnabled() || StringUtils.isEmpty(token) || !StringUtils.isNumeric(time)) {
+            return false;
+        }
+
+        try {
+            if(Math.abs(System.currentTimeMillis() - Long.parseLong(time)) > maxAge) {
+                return false;
+            }
+        } catch(NumberFormatException e) {
+            return false;
+        }
+        return verify(requestContent(method, time, domain, token), signature);
+    }
+
+    /**
+     * Signs the answer to a request of another node.
+     * <br/>
+     *
+     * @param requestSignature : the signature of the request answered.
+     * @param body : the body of the answer.
+     * @return signature : the signature of the answer.
+     * @since
+     */
+    public String signAnswer(String requestSignature, String body) {
+        return sign(requestSignature + "\n" + body);
+    }
+
+    /**
+     * Releases the connections to the other nodes.
+     * <br/>
+     *
+     * @since
+     */
+    public void stop() {
+        if(null != connections) {
+            connections.shutdown();
+        }
+    }
+
+    private String signRequest(HttpMethodBase method, String token) {
+
+        String time = String.valueOf(System.currentTimeMillis());
+
+        KeyStoneDomain domain = DomainContext.current();
+
+        String domainName = null == domain ? null : domain.getName();
+
+        String signature = sign(requestContent(method.getName(), time, domainName, token));
+
+        method.setRequestHeader(Constant.TOKEN_SUBJECT, token);
+        method.setRequestHeader(Constant.PEER_TIME, time);
+        method.setRequestHeader(Constant.PEER_SIGNATURE, signature);
+
+        // The owner validates the token in the same domain, with the same KeyStone.
+        if(null != domainName) {
+            method.setRequestHeader(Constant.AUTH_DOMAIN, domainName);
+        }
+        return signature;
+    }
+
+    private static String requestContent(String method, String time, String domain, String token) {
+        return method + "\n" + time + "\n" + StringUtils.defaultString(domain) + "\n" + token;
+    }
+
+    private String sign(String content) {
+
+        Mac mac = ClusterSecret.newMac(key);
+
+        return Base64.getEncoder().encodeToString(mac.doFinal(content.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private boolean verify(String content, String signature) {
+
+        if(StringUtils.isEmpty(signature)) {
+            return false;
+        }
+        return MessageDigest.isEqual(sign(content).getBytes(StandardCharsets.UTF_8),
+                signature.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void skip(String owner, Exception e) {
+        LOGGER.warn("Peer " + owner + " unreachable, its tokens are validated locally for " + retryDelay + " ms : "
+                + e);
+        skippedUntil.put(owner, System.currentTimeMillis() + retryDelay);
+    }
+
+    private static PeerTokenCache fromConfig() {
+
+        int virtualNodes = ConfigUtil.getIntProperty(Constant.TOKEN_PEER_CACHE_VIRTUAL_NODES, 128);
+        int maxConnections = ConfigUtil.getIntProperty(Constant.TOKEN_PEER_CACHE_MAX_CONNECTIONS, 20);
+        int timeout = ConfigUtil.getIntProperty(Constant.TOKEN_PEER_CACHE_TIMEOUT_MS, 500);
+        long retryDelay = ConfigUtil.getLongProperty(Constant.TOKEN_PEER_CACHE_RETRY_MS, 5000L);
+        long maxAge = ConfigUtil.getLongProperty(Constant.TOKEN_PEER_CACHE_MAX_AGE_MS, 30000L);
+
+        if(!ConfigUtil.getBooleanProperty(Constant.TOKEN_PEER_CACHE_ENABLED, false)) {
+            return new PeerTokenCache(null, Collections.<String> emptyList(), virtualNodes, maxConnections, timeout,
+                    retryDelay, maxAge, null);
+        }
+
+        List<String> nodes = parseNodes(ConfigUtil.getProperty(Constant.TOKEN_PEER_CACHE_PEERS, ""));
+
+        String nodesFile = ConfigUtil.getProperty(Constant.TOKEN_PEER_CACHE_NODES_FILE, "");
+
+        if(nodes.isEmpty() && StringUtils.isNotBlank(nodesFile)) {
+            nodes = readNodesFile(nodesFile.trim());
+        }
+
+        List<String> self = parseNodes(ConfigUtil.getProperty(Constant.TOKEN_PEER_CACHE_SELF, ""));
+
+        byte[] key = null;
+
+        if(!ClusterSecret.isConfigured()) {
+            LOGGER.error("Peer token cache requires " + Constant.CLUSTER_SECRET + ", the tokens are cached locally.");
+        } else if(self.isEmpty() || !nodes.contains(self.get(0))) {
+            LOGGER.error("Peer token cache requires " + Constant.TOKEN_PEER_CACHE_SELF
+                    + " among the nodes, the tokens are cached locally.");
+        } else {
+            key = ClusterSecret.derive("peer-token-cache", 32);
+        }
+
+        if("none".equals(ConfigUtil.getProperty(Constant.CACHE_INVALIDATION_BUS, "none"))) {
+            LOGGER.warn("Without an invalidation bus, the tokens of a revoked user stay valid at their owners"
+                    + " until they expire from the cache.");
+        }
+
+        return new PeerTokenCache(self.isEmpty() ? null : self.get(0), nodes, virtualNodes, maxConnections, timeout,
+                retryDelay, maxAge, key);
+    }
+
+    /**
+     * Reads the nodes separated by commas, each one is a base url or a <tt>host:port</tt> of the
+     * REST service.
+     * <br/>
+     *
+     * @param nodes : the nodes.
+     * @return urls : the distinct base urls of the nodes.
+     * @since
+     */
+    static List<String> parseNodes(String nodes) {
+
+        Set<String> urls = new LinkedHashSet<String>();
+
+        for(String node : StringUtils.split(StringUtils.defaultString(nodes), ',')) {
+            if(StringUtils.isBlank(node)) {
+                continue;
+            }
+            String url = node.trim();
+            urls.add(url.contains("://") ? StringUtils.stripEnd(url, "/") : "http://" + url + SERVICE_PATH);
+        }
+        return new ArrayList<String>(urls);
+    }
+
+    /**
+     * Reads the nodes of a microservice registration file, its <tt>url</tt> served by the
+     * <tt>ip</tt> and <tt>port</tt> of each of its <tt>nodes</tt>.
+     * <br/>
+     *
+     * @param file : the path or the resource name of the file.
+     * @return urls : the distinct base urls of the nodes, empty when the file can not be read.
+     * @since
+     */
+    static List<String> readNodesFile(String file) {
+
+        Set<String> urls = new LinkedHashSet<String>();
+
+        try(InputStream input = open(file)) {
+
+            if(null == input) {
+                LOGGER.error("No nodes file " + file + ", the tokens are cached locally.");
+                return Collections.emptyList();
+            }
+
+            JsonNode root = MAPPER.readTree(input);
+
+            String path = StringUtils.stripEnd(StringUtils.defaultIfEmpty(root.path("url").getTextValue(),
+                    SERVICE_PATH), "/");
+
+            for(JsonNode node : root.path("nodes")) {
+
+                String ip = node.path("ip").getTextValue();
+                String port = node.path("port").asText();
+
+                if(StringUtils.isNotBlank(ip) && StringUtils.isNotBlank(port)) {
+                    urls.add("http://" + ip.trim() + ":" + port.trim() + path);
+                }
+            }
+        } catch(IOException e) {
+            LOGGER.error("Nodes file " + file + " could not be read, the tokens are cached locally : " + e);
+            return Collections.emptyList();
+        }
+        return new ArrayList<String>(urls);
+    }
+
+    private static InputStream open(String file) throws IOException {
+
+        Path path = Paths.get(file);
+
+        if(Files.isRegularFile(path)) {
+            return Files.newInputStream(path);
+        }
+        return Thread.currentThread().getContextClassLoader().getResourceAsStream(file);
+    }
+
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.common.cluster;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.crypto.Mac;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * A bus sending each batch in a datagram to every peer, without any broker : the nodes only need
+ * to know each other. A datagram is signed with a key of the cluster secret, the datagrams not
+ * signed by a node of the cluster, or older than the maximum age, are dropped.
+ * </p>
+ * <blockquote><pre>
+ * Datagram : magic (4 bytes), batch, HMAC-SHA256 of the magic and the batch (32 bytes)
+ * </pre></blockquote>
+ *
+ * @author
+ * @version
+ */
+public class UdpInvalidationBus implements IInvalidationBus {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UdpInvalidationBus.class);
+
+    private static final int MAGIC = 0x41555449;
+
+    private static final int MAX_DATAGRAM = 65507;
+
+    private static final int MAC_LENGTH = 32;
+
+    // An event takes at least 3 bytes.
+    private static final int MAX_EVENTS = MAX_DATAGRAM / 3;
+
+    private final int port;
+
+    private final List<InetSocketAddress> peers;
+
+    private final long maxAge;
+
+    private final Mac sendMac;
+
+    private final Mac receiveMac;
+
+    private volatile DatagramSocket socket;
+
+    /**
+     * Constructor<br/>
+     * <p>
+     * </p>
+     *
+     * @param port : the port the bus listens on, 0 for any port.
+     * @param peers : the buses of the other nodes.
+     * @param maxAge : the age in milliseconds beyond which a batch is dropped.
+     * @param key : the key signing the datagrams, shared by the nodes.
+     * @since
+     */
+    public UdpInvalidationBus(int port, List<InetSocketAddress> peers, long maxAge, byte[] key) {
+        this.port = port;
+        this.peers = new ArrayList<InetSocketAddress>(peers);
+        this.maxAge = maxAge;
+        this.sendMac = ClusterSecret.newMac(key);
+        this.receiveMac = ClusterSecret.newMac(key);
+    }
+
+    public synchronized void start(final IInvalidationListener listener) throws IOException {
+
+        if(null != socket) {
+            return;
+        }
+
+        final DatagramSocket opened = new DatagramSocket(port);
+
+        socket = opened;
+
+        Thread receiver = new Thread(new Runnable() {
+
+            public void run() {
+                receive(opened, listener);
+            }
+        }, "auth-invalidation-receiver");
+
+        receiver.setDaemon(true);
+        receiver.start();
+
+        LOGGER.info("Invalidation bus listening on port " + opened.getLocalPort() + ", peers = " + peers);
+    }
+
+    public void publish(InvalidationBatch batch) throws IOException {
+
+        DatagramSocket current = socket;
+
+        if(null == current) {
+            throw new IOException("Invalidation bus is not started");
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        batch.write(out);
+
+        synchronized(sendMac) {
+            out.write(sendMac.doFinal(bytes.toByteArray()));
+        }
+        out.flush();
+
+        if(bytes.size() > MAX_DATAGRAM) {
+            throw new IOException("Invalidation batch of " + bytes.size() + " bytes exceeds a datagram");
+        }
+
+        byte[] data = bytes.toByteArray();
+
+        IOException failure = null;
+
+        for(InetSocketAddress peer : peers) {
+            try {
+                current.send(new DatagramPacket(data, data.length, peer));
+            } catch(IOException e) {
+                // The other peers still get the batch.
+                failure = e;
+            }
+        }
+
+        if(null != failure) {
+            throw failure;
+        }
+    }
+
+    public synchronized void stop() {
+        if(null != socket) {
+            socket.close();
+            socket = null;
+        }
+    }
+
+    /**
+     * Provides the port the bus listens on.
+     * <br/>
+     *
+     * @return port : the local port, -1 when the bus is not started.
+     * @since
+     */
+    public int getLocalPort() {
+        DatagramSocket current = socket;
+        return null == current ? -1 : current.getLocalPort();
+    }
+
+    private void receive(DatagramSocket opened, IInvalidationListener listener) {
+
+        byte[] buffer = new byte[MAX_DATAGRAM];
+
+        while(!opened.isClosed()) {
+
+            DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+
+            try {
+                opened.receive(packet);
+            } catch(SocketException e) {
+                // Closed by stop.
+                return;
+            } catch(IOException e) {
+                LOGGER.warn("Invalidation datagram not received : " + e);
+                continue;
+            }
+
+            InvalidationBatch batch = decode(packet.getData(), packet.getLength());
+
+            if(null == batch) {
+                InvalidationMetrics.getInstance().batchRejected();
+                continue;
+            }
+
+            try {
+                listener.received(batch);
+            } catch(RuntimeException e) {
+                LOGGER.error("Invalidation batch " + batch + " not applied : " + e);
+            }
+        }
+    }
+
+    private InvalidationBatch decode(byte[] data, int length) {
+
+        if(length <= 4 + MAC_LENGTH) {
+            return null;
+        }
+
+        int signed = length - MAC_LENGTH;
+
+        receiveMac.update(data, 0, signed);
+
+        if(!MessageDigest.isEqual(receiveMac.doFinal(), Arrays.copyOfRange(data, signed, length))) {
+            LOGGER.warn("Invalidation datagram with an invalid signature dropped");
+            return null;
+        }
+
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(data, 0, signed));
+
+            if(in.readInt() != MAGIC) {
+                return null;
+            }
+
+            InvalidationBatch batch = InvalidationBatch.read(in, MAX_EVENTS);
+
+            // A replayed batch is harmless, yet only the recent ones are applied.
+            if(Math.abs(System.currentTimeMillis() - batch.getCreatedAt()) > maxAge) {
+                LOGGER.warn("Invalidation batch " + batch.getOrigin() + "#" + batch.getSequence()
+                        + " too old, dropped");
+                return null;
+            }
+            return batch;
+
+        } catch(IOException e) {
+            LOGGER.warn("Invalidation datagram not readable : " + e);
+            return null;
+        }
+    }
+
+}
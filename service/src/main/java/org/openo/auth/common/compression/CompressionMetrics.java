@@ -0,0 +1,219 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.openo.auth.common.compression;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * Counts the bytes saved by the compression of the HTTP bodies, and the CPU time it costs. The
+ * counters are registered in the platform MBean server as
+ * <tt>org.openo.auth:type=CompressionMetrics</tt>.
+ * </p>
+ * <p>
+ * The CPU time is the one of the current thread when the JVM measures it, the elapsed time
+ * otherwise.
+ * </p>
+ *
+ * @author
+ * @version
+ */
+public class CompressionMetrics implements CompressionMetricsMBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CompressionMetrics.class);
+
+    /**
+     * Name of the MBean.
+     */
+    public static final String OBJECT_NAME = "org.openo.auth:type=CompressionMetrics";
+
+    private static CompressionMetrics instance = register(new CompressionMetrics());
+
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+    private final boolean cpuTimeSupported = threads.isCurrentThreadCpuTimeSupported();
+
+    private final AtomicLong responsesCompressed = new AtomicLong();
+
+    private final AtomicLong responseBytesIn = new AtomicLong();
+
+    private final AtomicLong responseBytesOut = new AtomicLong();
+
+    private final AtomicLong responseCpuNanos = new AtomicLong();
+
+    private final AtomicLong deflatersCreated = new AtomicLong();
+
+    private final AtomicLong clientResponsesDecompressed = new AtomicLong();
+
+    private final AtomicLong clientBytesReceived = new AtomicLong();
+
+    private final AtomicLong clientBytesDecompressed = new AtomicLong();
+
+    private final AtomicLong clientCpuNanos = new AtomicLong();
+
+    CompressionMetrics() {
+    }
+
+    /**
+     * Singleton class, provides the instance of <tt>CompressionMetrics</tt> class.
+     * <br/>
+     *
+     * @return instance of <tt>CompressionMetrics</tt> class.
+     * @since
+     */
+    public static CompressionMetrics getInstance() {
+        return instance;
+    }
+
+    private static CompressionMetrics register(CompressionMetrics metrics) {
+
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if(!server.isRegistered(name)) {
+                server.registerMBean(metrics, name);
+            }
+        } catch(JMException e) {
+            LOGGER.warn("Compression metrics not registered : " + e);
+        }
+        return metrics;
+    }
+
+    /**
+     * Provides the CPU time of the current thread, to measure the time of a compression.
+     * <br/>
+     *
+     * @return time : a time in nanoseconds, only meaningful relative to another one.
+     * @since
+     */
+    public long cpuTime() {
+        return cpuTimeSupported ? threads.getCurrentThreadCpuTime() : System.nanoTime();
+    }
+
+    /**
+     * Records a response compressed by the service.
+     * <br/>
+     *
+     * @param bytesIn : the size of the response.
+     * @param bytesOut : the size of the compressed response.
+     * @param cpuNanos : the CPU time spent writing the compressed response.
+     * @since
+     */
+    public void responseCompressed(long bytesIn, long bytesOut, long cpuNanos) {
+        responsesCompressed.incrementAndGet();
+        responseBytesIn.addAndGet(bytesIn);
+        responseBytesOut.addAndGet(bytesOut);
+        responseCpuNanos.addAndGet(cpuNanos);
+    }
+
+    void deflaterCreated() {
+        deflatersCreated.incrementAndGet();
+    }
+
+    /**
+     * Records a response of the Service Client received compressed.
+     * <br/>
+     *
+     * @since
+     */
+    public void clientResponseDecompressed() {
+        clientResponsesDecompressed.incrementAndGet();
+    }
+
+    /**
+     * Records a part of a response of the Service Client, as it is decompressed.
+     * <br/>
+     *
+     * @param bytesReceived : the size of the part as received.
+     * @param bytesDecompressed : the size of the part once decompressed.
+     * @param cpuNanos : the CPU time spent decompressing the part.
+     * @since
+     */
+    public void clientBytes(long bytesReceived, long bytesDecompressed, long cpuNanos) {
+        clientBytesReceived.addAndGet(bytesReceived);
+        clientBytesDecompressed.addAndGet(bytesDecompressed);
+        clientCpuNanos.addAndGet(cpuNanos);
+    }
+
+    public long getResponsesCompressed() {
+        return responsesCompressed.get();
+    }
+
+    public long getResponseBytesIn() {
+        return responseBytesIn.get();
+    }
+
+    public long getResponseBytesOut() {
+        return responseBytesOut.get();
+    }
+
+    public long getResponseBytesSaved() {
+        return responseBytesIn.get() - responseBytesOut.get();
+    }
+
+    public long getResponseCpuMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(responseCpuNanos.get());
+    }
+
+    public long getDeflatersCreated() {
+        return deflatersCreated.get();
+    }
+
+    public long getClientResponsesDecompressed() {
+        return clientResponsesDecompressed.get();
+    }
+
+    public long getClientBytesReceived() {
+        return clientBytesReceived.get();
+    }
+
+    public long getClientBytesDecompressed() {
+        return clientBytesDecompressed.get();
+    }
+
+    public long getClientBytesSaved() {
+        return clientBytesDecompressed.get() - clientBytesReceived.get();
+    }
+
+    public long getClientCpuMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(clientCpuNanos.get());
+    }
+
+    public void reset() {
+        responsesCompressed.set(0);
+        responseBytesIn.set(0);
+        responseBytesOut.set(0);
+        responseCpuNanos.set(0);
+        deflatersCreated.set(0);
+        clientResponsesDecompressed.set(0);
+        clientBytesReceived.set(0);
+        clientBytesDecompressed.set(0);
+        clientCpuNanos.set(0);
+    }
+
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.openo.auth.common.compression;
+
+/**
+ * <p>
+ * The compression of the HTTP bodies, as seen through JMX : the responses of the REST API
+ * compressed by the service, and the responses of the Service Client received compressed.
+ * </p>
+ *
+ * @author
+ * @version
+ */
+public interface CompressionMetricsMBean {
+
+    /**
+     * @return the number of responses compressed.
+     */
+    long getResponsesCompressed();
+
+    /**
+     * @return the size of the responses before their compression.
+     */
+    long getResponseBytesIn();
+
+    /**
+     * @return the size of the responses sent compressed.
+     */
+    long getResponseBytesOut();
+
+    /**
+     * @return the bytes not sent thanks to the compression.
+     */
+    long getResponseBytesSaved();
+
+    /**
+     * @return the CPU time in milliseconds spent writing the compressed responses.
+     */
+    long getResponseCpuMillis();
+
+    /**
+     * @return the number of <tt>Deflater</tt> created, beyond those reused from the pool.
+     */
+    long getDeflatersCreated();
+
+    /**
+     * @return the number of Service Client responses received compressed.
+     */
+    long getClientResponsesDecompressed();
+
+    /**
+     * @return the size of the Service Client responses as received.
+     */
+    long getClientBytesReceived();
+
+    /**
+     * @return the size of the Service Client responses once decompressed.
+     */
+    long getClientBytesDecompressed();
+
+    /**
+     * @return the bytes not received thanks to the compression.
+     */
+    long getClientBytesSaved();
+
+    /**
+     * @return the CPU time in milliseconds spent decompressing the Service Client responses.
+     */
+    long getClientCpuMillis();
+
+    /**
+     * Resets all the counters.
+     */
+    void reset();
+
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.openo.auth.common.compression;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * <p>
+ * Decompresses a gzip or deflate body while it is read, and counts its bytes in the
+ * <tt>CompressionMetrics</tt>.
+ * </p>
+ * <p>
+ * The decoder is only created on the first read, so that an empty body, as the one of a
+ * <tt>HEAD</tt> request, is read as empty and not as a corrupt stream.
+ * </p>
+ *
+ * @author
+ * @version
+ */
+public class DecodingInputStream extends InputStream {
+
+    private final CountingInputStream encoded;
+
+    private final boolean gzip;
+
+    private InputStream decoded;
+
+    /**
+     * Constructor<br/>
+     * <p>
+     * </p>
+     *
+     * @param encoded : the body as received.
+     * @param gzip : <tt>true</tt> for the gzip format, <tt>false</tt> for the zlib format.
+     * @since
+     */
+    public DecodingInputStream(InputStream encoded, boolean gzip) {
+        this.encoded = new CountingInputStream(encoded);
+        this.gzip = gzip;
+    }
+
+    /**
+     * Tells whether the content coding is decoded by this stream.
+     * <br/>
+     *
+     * @param encoding : the <tt>Content-Encoding</tt> header.
+     * @return <tt>true</tt> for gzip and deflate.
+     * @since
+     */
+    public static boolean isSupported(String encoding) {
+        return isGzip(encoding) || "deflate".equalsIgnoreCase(encoding);
+    }
+
+    /**
+     * Tells whether the content coding is gzip.
+     * <br/>
+     *
+     * @param encoding : the <tt>Content-Encoding</tt> header.
+     * @return <tt>true</tt> for gzip.
+     * @since
+     */
+    public static boolean isGzip(String encoding) {
+        return "gzip".equalsIgnoreCase(encoding) || "x-gzip".equalsIgnoreCase(encoding);
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        int read = read(single, 0, 1);
+        return read < 0 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+
+        if(length == 0) {
+            return 0;
+        }
+
+        CompressionMetrics metrics = CompressionMetrics.getInstance();
+
+        long start = metrics.cpuTime();
+
+        long before = encoded.count;
+
+        int read = getDecoded().read(bytes, offset, length);
+
+        metrics.clientBytes(encoded.count - before, Math.max(0, read), metrics.cpuTime() - start);
+
+        return read;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return null == decoded ? 0 : decoded.available();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if(null == decoded) {
+            encoded.close();
+        } else {
+            decoded.close();
+        }
+    }
+
+    private InputStream getDecoded() throws IOException {
+
+        if(null != decoded) {
+            return decoded;
+        }
+
+        if(!encoded.hasMore()) {
+            decoded = encoded;
+        } else {
+            CompressionMetrics.getInstance().clientResponseDecompressed();
+            decoded = gzip ? new GZIPInputStream(encoded) : new InflaterInputStream(encoded);
+        }
+        return decoded;
+    }
+
+    /**
+     * Counts the bytes read from the body as received.
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+
+        private long count;
+
+        private int pending = -1;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        boolean hasMore() throws IOException {
+            pending = in.read();
+            return pending >= 0;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            int read = read(single, 0, 1);
+            return read < 0 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+
+            if(length == 0) {
+                return 0;
+            }
+
+            if(pending >= 0) {
+                bytes[offset] = (byte)pending;
+                pending = -1;
+                count++;
+                return 1;
+            }
+
+            int read = in.read(bytes, offset, length);
+            if(read > 0) {
+                count += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            return 0;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+
+}
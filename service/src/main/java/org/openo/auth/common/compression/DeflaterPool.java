@@ -0,0 +1,106 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.openo.auth.common.compression;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.Deflater;
+
+/**
+ * <p>
+ * A bounded pool of <tt>Deflater</tt>, so that compressing a response does not allocate and free
+ * the native memory of a new <tt>Deflater</tt> every time.
+ * </p>
+ * <p>
+ * A borrowed <tt>Deflater</tt> is reset when it is given back, the ones given back while the pool
+ * is full are ended.
+ * </p>
+ *
+ * @author
+ * @version
+ */
+public class DeflaterPool {
+
+    private final int level;
+
+    private final boolean nowrap;
+
+    private final BlockingQueue<Deflater> idle;
+
+    /**
+     * Constructor<br/>
+     * <p>
+     * </p>
+     *
+     * @param level : the compression level of the <tt>Deflater</tt>.
+     * @param nowrap : <tt>true</tt> for raw deflate data, as in gzip, <tt>false</tt> for zlib data.
+     * @param maxIdle : the maximum number of <tt>Deflater</tt> kept between two uses.
+     * @since
+     */
+    public DeflaterPool(int level, boolean nowrap, int maxIdle) {
+        this.level = level;
+        this.nowrap = nowrap;
+        this.idle = new ArrayBlockingQueue<Deflater>(Math.max(1, maxIdle));
+    }
+
+    /**
+     * Provides an idle <tt>Deflater</tt>, or a new one when none is idle.
+     * <br/>
+     *
+     * @return deflater : a <tt>Deflater</tt> ready for a new stream.
+     * @since
+     */
+    public Deflater borrow() {
+
+        Deflater deflater = idle.poll();
+
+        if(null == deflater) {
+            CompressionMetrics.getInstance().deflaterCreated();
+            deflater = new Deflater(level, nowrap);
+        }
+        return deflater;
+    }
+
+    /**
+     * Gives back a borrowed <tt>Deflater</tt>.
+     * <br/>
+     *
+     * @param deflater : the borrowed <tt>Deflater</tt>.
+     * @since
+     */
+    public void release(Deflater deflater) {
+
+        deflater.reset();
+
+        if(!idle.offer(deflater)) {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Provides the number of idle <tt>Deflater</tt>.
+     * <br/>
+     *
+     * @return size : number of idle <tt>Deflater</tt>.
+     * @since
+     */
+    public int getIdle() {
+        return idle.size();
+    }
+
+}
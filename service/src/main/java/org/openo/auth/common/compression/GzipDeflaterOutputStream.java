@@ -0,0 +1,107 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.openo.auth.common.compression;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * <p>
+ * Writes the gzip format with a given raw <tt>Deflater</tt>, which <tt>GZIPOutputStream</tt> can not
+ * use as it always creates its own.
+ * </p>
+ * <p>
+ * The <tt>Deflater</tt> belongs to the caller : it is neither reset nor ended by this stream.
+ * </p>
+ *
+ * @author
+ * @version
+ */
+public class GzipDeflaterOutputStream extends DeflaterOutputStream {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final byte[] HEADER = {
+            0x1f, (byte)0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0};
+
+    private static final int TRAILER_SIZE = 8;
+
+    private final CRC32 crc = new CRC32();
+
+    private boolean finished;
+
+    /**
+     * Constructor<br/>
+     * <p>
+     * Writes the gzip header.
+     * </p>
+     *
+     * @param out : the stream the gzip data is written to.
+     * @param deflater : a <tt>Deflater</tt> created with <tt>nowrap</tt>.
+     * @throws IOException if the header can not be written.
+     * @since
+     */
+    public GzipDeflaterOutputStream(OutputStream out, Deflater deflater) throws IOException {
+        super(out, deflater, BUFFER_SIZE);
+        out.write(HEADER);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        super.write(bytes, offset, length);
+        crc.update(bytes, offset, length);
+    }
+
+    @Override
+    public void finish() throws IOException {
+
+        if(finished) {
+            return;
+        }
+        finished = true;
+
+        super.finish();
+
+        byte[] trailer = new byte[TRAILER_SIZE];
+        writeInt(trailer, 0, crc.getValue());
+        writeInt(trailer, 4, def.getBytesRead());
+        out.write(trailer);
+    }
+
+    /**
+     * Provides the number of bytes written, with the gzip header and trailer.
+     * <br/>
+     *
+     * @return size : the size of the gzip data.
+     * @since
+     */
+    public long getBytesWritten() {
+        return HEADER.length + def.getBytesWritten() + (finished ? TRAILER_SIZE : 0);
+    }
+
+    private static void writeInt(byte[] bytes, int offset, long value) {
+        bytes[offset] = (byte)value;
+        bytes[offset + 1] = (byte)(value >> 8);
+        bytes[offset + 2] = (byte)(value >> 16);
+        bytes[offset + 3] = (byte)(value >> 24);
+    }
+
+}
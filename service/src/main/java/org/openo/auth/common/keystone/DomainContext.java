@@ -0,0 +1,137 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.common.keystone;
+
+import java.util.concurrent.Callable;
+
+/**
+ * <p>
+ * The domain of the request being served by the current thread. While a domain is entered, the
+ * KeyStone configuration, the KeyStone called and the service token are the ones of this domain.
+ * </p>
+ * <p>
+ * The work handed to another thread has to carry the domain along, with {@link #wrap(Callable)}
+ * or by entering the domain captured while serving the request.
+ * </p>
+ *
+ * @author
+ * @version
+ */
+public final class DomainContext {
+
+    private static final ThreadLocal<KeyStoneDomain> CURRENT = new ThreadLocal<KeyStoneDomain>();
+
+    private DomainContext() {
+    }
+
+    /**
+     * Provides the domain of the current thread.
+     * <br/>
+     *
+     * @return domain : the domain entered, <tt>null</tt> for the configured domain.
+     * @since
+     */
+    public static KeyStoneDomain current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Enters a domain on the current thread.
+     * <br/>
+     *
+     * @param domain : the domain, <tt>null</tt> for the configured domain.
+     * @return previous : the domain entered before, to be restored.
+     * @since
+     */
+    public static KeyStoneDomain enter(KeyStoneDomain domain) {
+
+        KeyStoneDomain previous = CURRENT.get();
+
+        restore(domain);
+
+        return previous;
+    }
+
+    /**
+     * Restores the domain entered before.
+     * <br/>
+     *
+     * @param previous : the domain returned by {@link #enter(KeyStoneDomain)}.
+     * @since
+     */
+    public static void restore(KeyStoneDomain previous) {
+
+        if(null == previous) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * Binds a task to the domain of the current thread, so that it runs in this domain on any
+     * thread.
+     * <br/>
+     *
+     * @param task : the task.
+     * @return task : the task running in the domain of the current thread.
+     * @since
+     */
+    public static <T> Callable<T> wrap(final Callable<T> task) {
+
+        final KeyStoneDomain domain = CURRENT.get();
+
+        return new Callable<T>() {
+
+            public T call() throws Exception {
+                KeyStoneDomain previous = enter(domain);
+                try {
+                    return task.call();
+                } finally {
+                    restore(previous);
+                }
+            }
+        };
+    }
+
+    /**
+     * Binds a task to the domain of the current thread, so that it runs in this domain on any
+     * thread.
+     * <br/>
+     *
+     * @param task : the task.
+     * @return task : the task running in the domain of the current thread.
+     * @since
+     */
+    public static Runnable wrap(final Runnable task) {
+
+        final KeyStoneDomain domain = CURRENT.get();
+
+        return new Runnable() {
+
+            public void run() {
+                KeyStoneDomain previous = enter(domain);
+                try {
+                    task.run();
+                } finally {
+                    restore(previous);
+                }
+            }
+        };
+    }
+
+}
@@ -0,0 +1,254 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.common.keystone;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.commons.lang3.StringUtils;
+import org.openo.auth.common.ConfigUtil;
+import org.openo.auth.constant.Constant;
+import org.openo.auth.entity.keystone.req.KeyStoneConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * The domains served by the Auth Service besides the one of the
+ * <tt>keystone_config.properties</tt> file, loaded from the domains file configured in the
+ * <tt>auth_service.properties</tt> file.
+ * </p>
+ * <blockquote><pre>
+ * Example :
+ * acme.domain_id=4f1d9c... - id of the domain, required.
+ * acme.domain_name=Acme - name of the domain, the name of the entry by default.
+ * acme.project_name=acme-admin - any key of keystone_config.properties, inherited when not set.
+ * acme.endpoint=http://10.0.0.5:5000 - KeyStone of the domain, the configured one by default.
+ * </pre></blockquote>
+ * <p>
+ * When the KeyStone is sharded, a domain without an endpoint goes to the shard its domain id hashes
+ * to, the <tt>endpoint</tt> keys are the explicit mapping of the domains to the shards.
+ * </p>
+ * <p>
+ * A request selects a domain by its name or its id, in the <tt>X-Auth-Domain</tt> header or in
+ * front of its path : <tt>/openoapi/auth/v1/domains/acme/tokens</tt>.
+ * </p>
+ *
+ * @author
+ * @version
+ */
+public class DomainRegistry {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DomainRegistry.class);
+
+    private static DomainRegistry instance = new DomainRegistry(
+            load(ConfigUtil.getProperty(Constant.KEYSTONE_DOMAINS_FILE, "keystone_domains.properties")));
+
+    private final Map<String, KeyStoneDomain> byName;
+
+    private final Map<String, KeyStoneDomain> byId;
+
+    /**
+     * Constructor<br/>
+     * <p>
+     * </p>
+     *
+     * @param properties : the content of the domains file.
+     * @since
+     */
+    DomainRegistry(Properties properties) {
+        this(properties, ShardRouter.getInstance());
+    }
+
+    /**
+     * Constructor<br/>
+     * <p>
+     * </p>
+     *
+     * @param properties : the content of the domains file.
+     * @param shardRouter : the shards of the KeyStone the domains without endpoint are placed on.
+     * @since
+     */
+    DomainRegistry(Properties properties, ShardRouter shardRouter) {
+
+        Map<String, KeyStoneDomain> names = new LinkedHashMap<String, KeyStoneDomain>();
+        Map<String, KeyStoneDomain> ids = new HashMap<String, KeyStoneDomain>();
+
+        for(Map.Entry<String, Properties> entry : groupByDomain(properties).entrySet()) {
+
+            KeyStoneDomain domain = toDomain(entry.getKey(), entry.getValue(), shardRouter);
+
+            if(null == domain) {
+                continue;
+            }
+            if(ids.containsKey(domain.getDomainId())) {
+                LOGGER.error("domain " + entry.getKey() + " ignored, its domain_id is already registered");
+                continue;
+            }
+            names.put(domain.getName(), domain);
+            ids.put(domain.getDomainId(), domain);
+        }
+
+        this.byName = Collections.unmodifiableMap(names);
+        this.byId = Collections.unmodifiableMap(ids);
+
+        LOGGER.info("domains registered = " + names.values());
+    }
+
+    /**
+     * Singleton class, provides the instance of <tt>DomainRegistry</tt> class.
+     * <br/>
+     *
+     * @return instance of <tt>DomainRegistry</tt> class.
+     * @since
+     */
+    public static DomainRegistry getInstance() {
+        return instance;
+    }
+
+    /**
+     * Provides a domain by its name in the registry, or by its domain id.
+     * <br/>
+     *
+     * @param nameOrId : the name or the domain id.
+     * @return domain : the domain, <tt>null</tt> when it is not registered.
+     * @since
+     */
+    public KeyStoneDomain get(String nameOrId) {
+
+        if(null == nameOrId) {
+            return null;
+        }
+
+        KeyStoneDomain domain = byName.get(nameOrId);
+
+        return null == domain ? byId.get(nameOrId) : domain;
+    }
+
+    public Collection<KeyStoneDomain> getDomains() {
+        return byName.values();
+    }
+
+    public int size() {
+        return byName.size();
+    }
+
+    private static Map<String, Properties> groupByDomain(Properties properties) {
+
+        Map<String, Properties> domains = new LinkedHashMap<String, Properties>();
+
+        for(String key : properties.stringPropertyNames()) {
+
+            int dot = key.indexOf('.');
+
+            if(dot <= 0 || dot == key.length() - 1) {
+                LOGGER.warn("domain property " + key + " ignored, <domain>.<key> is expected");
+                continue;
+            }
+
+            String name = key.substring(0, dot);
+
+            Properties domain = domains.get(name);
+            if(null == domain) {
+                domain = new Properties();
+                domains.put(name, domain);
+            }
+            domain.setProperty(key.substring(dot + 1), properties.getProperty(key).trim());
+        }
+        return domains;
+    }
+
+    private static KeyStoneDomain toDomain(String name, Properties properties, ShardRouter shardRouter) {
+
+        String domainId = properties.getProperty(Constant.KEYSTONE_CONF_DOMAIN_ID);
+
+        if(StringUtils.isEmpty(domainId)) {
+            LOGGER.error("domain " + name + " ignored, its domain_id is not set");
+            return null;
+        }
+
+        String endpoint = StringUtils.stripEnd(properties.getProperty(Constant.KEYSTONE_CONF_ENDPOINT), "/");
+
+        if(StringUtils.isNotEmpty(endpoint) && !endpoint.startsWith("http://") && !endpoint.startsWith("https://")) {
+            LOGGER.error("domain " + name + " ignored, its endpoint is not an http url : " + endpoint);
+            return null;
+        }
+
+        if(StringUtils.isEmpty(endpoint) && shardRouter.isEnabled()) {
+            // Null for the shard of the configured KeyStone, which is reached as usual.
+            endpoint = shardRouter.shardOf(domainId).getBaseURL();
+        }
+
+        // Whatever the domain does not set is inherited from keystone_config.properties.
+        KeyStoneConfiguration keyConf = KeyStoneConfigInitializer.getDefaultConfiguration();
+
+        keyConf.setDomainId(domainId);
+        keyConf.setDomainName(properties.getProperty(Constant.KEYSTONE_CONF_DOMAIN_NAME, name));
+        keyConf.setProjectName(properties.getProperty(Constant.KEYSTONE_CONF_PROJECT_NAME, keyConf.getProjectName()));
+        keyConf.setProjectId(properties.getProperty(Constant.KEYSTONE_CONF_PROJECT_ID, keyConf.getProjectId()));
+        keyConf.setRoleId(properties.getProperty(Constant.KEYSTONE_CONF_ROLE_ID, keyConf.getRoleId()));
+        keyConf.setAdminToken(properties.getProperty(Constant.ADMIN_TOKEN, keyConf.getAdminToken()));
+        keyConf.setAdminName(properties.getProperty(Constant.ADMIN_NAME, keyConf.getAdminName()));
+
+        String serviceUserName = properties.getProperty(Constant.SERVICE_USER_NAME);
+
+        if(null != serviceUserName) {
+            keyConf.setServiceUserName(serviceUserName);
+            keyConf.setServiceUserPassword(properties.getProperty(Constant.SERVICE_USER_PASSWORD));
+        }
+
+        return new KeyStoneDomain(name, keyConf, StringUtils.defaultIfEmpty(endpoint, null), null != serviceUserName);
+    }
+
+    private static Properties load(String file) {
+
+        Properties properties = new Properties();
+
+        try(InputStream input = open(file)) {
+
+            if(null == input) {
+                LOGGER.info("No domains file " + file + ", only the configured domain is served.");
+            } else {
+                properties.load(input);
+            }
+        } catch(IOException | IllegalArgumentException e) {
+            LOGGER.error("Domains file " + file + " could not be loaded, only the configured domain is served : " + e);
+            properties.clear();
+        }
+        return properties;
+    }
+
+    private static InputStream open(String file) throws IOException {
+
+        Path path = Paths.get(file);
+
+        if(Files.isRegularFile(path)) {
+            return Files.newInputStream(path);
+        }
+        return Thread.currentThread().getContextClassLoader().getResourceAsStream(file);
+    }
+
+}
@@ -55,6 +55,10 @@ public class KeyStoneConfigInitializer {
     
     private static String adminName;
 
+    private static String serviceUserName;
+
+    private static String serviceUserPassword;
+
     /**
      * Constructor<br/>
      * <p>
@@ -100,11 +104,16 @@ public class KeyStoneConfigInitializer {
         
         adminName = properties.getProperty(Constant.ADMIN_NAME);
 
+        serviceUserName = properties.getProperty(Constant.SERVICE_USER_NAME);
+
+        serviceUserPassword = properties.getProperty(Constant.SERVICE_USER_PASSWORD);
+
         LOGGER.info("roleId = " + roleId);
     }
 
     /**
-     * Provides the basic configuration values for the KeyStone.
+     * Provides the basic configuration values for the KeyStone, the ones of the domain of the
+     * request when a domain of the <tt>DomainRegistry</tt> was selected.
      * <br/>
      * 
      * @return keyConf : A <tt>KeyStoneConfiguration</tt> object which has the basic properties
@@ -113,6 +122,24 @@ public class KeyStoneConfigInitializer {
      */
     public static KeyStoneConfiguration getKeystoneConfiguration() {
 
+        KeyStoneDomain domain = DomainContext.current();
+
+        if(null != domain) {
+            return domain.getConfiguration();
+        }
+        return getDefaultConfiguration();
+    }
+
+    /**
+     * Provides the configuration values of the <tt>keystone_config.properties</tt> file, whatever
+     * the domain of the request.
+     * <br/>
+     * 
+     * @return keyConf : the configured values.
+     * @since  
+     */
+    static KeyStoneConfiguration getDefaultConfiguration() {
+
         loadConfigProperties();
 
         KeyStoneConfiguration keyConf = new KeyStoneConfiguration();
@@ -131,6 +158,10 @@ public class KeyStoneConfigInitializer {
         
         keyConf.setAdminName(adminName);
 
+        keyConf.setServiceUserName(serviceUserName);
+
+        keyConf.setServiceUserPassword(serviceUserPassword);
+
         return keyConf;
 
     }
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.common.keystone;
+
+import org.openo.auth.entity.keystone.req.KeyStoneConfiguration;
+
+/**
+ * <p>
+ * A domain served by the Auth Service : its KeyStone configuration and, when it is not the
+ * configured KeyStone, the KeyStone serving it.
+ * </p>
+ * <p>
+ * A domain only holds its configuration, the domains sharing a KeyStone share its connections and
+ * its caches. A domain with its own KeyStone gets its own connections, and its tokens are cached
+ * apart from the tokens of any other KeyStone.
+ * </p>
+ *
+ * @author
+ * @version
+ */
+public final class KeyStoneDomain {
+
+    private final String name;
+
+    private final KeyStoneConfiguration configuration;
+
+    private final String baseURL;
+
+    private final boolean ownServiceUser;
+
+    /**
+     * Constructor<br/>
+     * <p>
+     * </p>
+     *
+     * @param name : name of the domain in the registry.
+     * @param configuration : the KeyStone configuration of the domain.
+     * @param baseURL : base url of the KeyStone of the domain, <tt>null</tt> for the configured one.
+     * @param ownServiceUser : whether the domain has its own service user.
+     * @since
+     */
+    public KeyStoneDomain(String name, KeyStoneConfiguration configuration, String baseURL, boolean ownServiceUser) {
+        this.name = name;
+        this.configuration = copy(configuration);
+        this.baseURL = baseURL;
+        this.ownServiceUser = ownServiceUser;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDomainId() {
+        return configuration.getDomainId();
+    }
+
+    /**
+     * Provides the base url of the KeyStone of the domain.
+     * <br/>
+     *
+     * @return baseURL : the base url, <tt>null</tt> when the domain uses the configured KeyStone.
+     * @since
+     */
+    public String getBaseURL() {
+        return baseURL;
+    }
+
+    /**
+     * Checks whether the domain is served by its own KeyStone, whose tokens are cached apart.
+     * <br/>
+     *
+     * @return <tt>true</tt> if the domain has its own KeyStone.
+     * @since
+     */
+    public boolean hasOwnEndpoint() {
+        return null != baseURL;
+    }
+
+    /**
+     * Checks whether the calls of the Auth Service for the domain need their own service token.
+     * <br/>
+     *
+     * @return <tt>true</tt> if the domain has its own KeyStone or its own service user.
+     * @since
+     */
+    public boolean needsOwnServiceToken() {
+        return hasOwnEndpoint() || ownServiceUser;
+    }
+
+    /**
+     * Provides the KeyStone configuration of the domain.
+     * <br/>
+     *
+     * @return keyConf : a copy of the configuration, which the caller may change.
+     * @since
+     */
+    public KeyStoneConfiguration getConfiguration() {
+        return copy(configuration);
+    }
+
+    static KeyStoneConfiguration copy(KeyStoneConfiguration source) {
+
+        KeyStoneConfiguration keyConf = new KeyStoneConfiguration();
+
+        keyConf.setDomainId(source.getDomainId());
+        keyConf.setDomainName(source.getDomainName());
+        keyConf.setProjectName(source.getProjectName());
+        keyConf.setProjectId(source.getProjectId());
+        keyConf.setRoleId(source.getRoleId());
+        keyConf.setAdminToken(source.getAdminToken());
+        keyConf.setAdminName(source.getAdminName());
+        keyConf.setServiceUserName(source.getServiceUserName());
+        keyConf.setServiceUserPassword(source.getServiceUserPassword());
+
+        return keyConf;
+    }
+
+    @Override
+    public String toString() {
+        return name + (hasOwnEndpoint() ? " (" + baseURL + ")" : "");
+    }
+
+}
@@ -25,11 +25,13 @@ import java.util.Set;
 import javax.servlet.http.HttpServletResponse;
 
 import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.node.ObjectNode;
 import org.openo.auth.common.IJsonService;
 import org.openo.auth.constant.Constant;
 import org.openo.auth.constant.ErrorCode;
 import org.openo.auth.entity.ModifyPassword;
 import org.openo.auth.entity.ModifyUser;
+import org.openo.auth.entity.TokenScopeUI;
 import org.openo.auth.entity.UserCredentialUI;
 import org.openo.auth.entity.UserDetailsUI;
 import org.openo.auth.entity.UserResponse;
@@ -47,6 +49,7 @@ import org.openo.auth.entity.keystone.req.Scope;
 import org.openo.auth.entity.keystone.req.User;
 import org.openo.auth.entity.keystone.req.UserLoginInfo;
 import org.openo.auth.entity.keystone.req.UserWrapper;
+import org.openo.auth.entity.keystone.resp.TokenWrapper;
 import org.openo.auth.entity.keystone.resp.UserCreate;
 import org.openo.auth.entity.keystone.resp.UserCreateWrapper;
 import org.openo.auth.entity.keystone.resp.UserModifyWrapper;
@@ -97,6 +100,77 @@ public class KeyStoneServiceJson implements IJsonService {
      * @since  
      */
     public String getLoginJson(UserCredentialUI userInfo, KeyStoneConfiguration keyConf) {
+        return toLoginJson(userInfo, keyConf, false);
+    }
+
+    /**
+     * Provides the JSON for KeyStone to log the service user in, the token is always scoped to the
+     * configured project.
+     * <br/>
+     * 
+     * @param keyConf : Default values/configuration set for the KeyStone Service.
+     * @return jsonInString : Provides the JSON for KeyStone to log the service user in.
+     * @since  
+     */
+    public String getServiceLoginJson(KeyStoneConfiguration keyConf) {
+
+        UserCredentialUI serviceUser = new UserCredentialUI();
+
+        if(null != keyConf) {
+            serviceUser.setUserName(keyConf.getServiceUserName());
+            serviceUser.setPassword(keyConf.getServiceUserPassword());
+        }
+        return toLoginJson(serviceUser, keyConf, true);
+    }
+
+    /**
+     * Provides the JSON for KeyStone to exchange a token for a token scoped to a project, with the
+     * <tt>token</tt> method, so that the password is not verified again.
+     * <br/>
+     * 
+     * @param token : Auth token to exchange.
+     * @param scope : the project, by id or by name, the new token is scoped to.
+     * @param keyConf : Default values/configuration set for the KeyStone Service, the configured
+     *            domain is the domain of a project given by name without domain.
+     * @return jsonInString : Provides the JSON for KeyStone to scope the token.
+     * @since  
+     */
+    public String getTokenScopeJson(String token, TokenScopeUI scope, KeyStoneConfiguration keyConf) {
+
+        if(null == token || null == scope || null == keyConf) {
+            throw new AuthException(HttpServletResponse.SC_BAD_REQUEST, ErrorCode.FAILURE_INFORMATION);
+        }
+
+        ObjectMapper mapper = new ObjectMapper();
+
+        ObjectNode auth = mapper.createObjectNode();
+
+        ObjectNode identity = auth.putObject("identity");
+        identity.putArray("methods").add(Constant.KEYSTONE_METHOD_TOKEN);
+        identity.putObject(Constant.KEYSTONE_METHOD_TOKEN).put("id", token);
+
+        ObjectNode project = auth.putObject("scope").putObject("project");
+
+        if(null != scope.getProjectId() && !scope.getProjectId().isEmpty()) {
+            project.put("id", scope.getProjectId());
+        } else {
+            project.put("name", scope.getProjectName());
+            project.putObject("domain").put("name",
+                    null == scope.getDomainName() ? keyConf.getDomainName() : scope.getDomainName());
+        }
+
+        ObjectNode wrapper = mapper.createObjectNode();
+        wrapper.put("auth", auth);
+
+        try {
+            return mapper.writeValueAsString(wrapper);
+        } catch(IOException e) {
+            LOGGER.error("Exception Caught : " + e);
+            throw new AuthException(HttpServletResponse.SC_BAD_REQUEST, ErrorCode.FAILURE_INFORMATION);
+        }
+    }
+
+    private String toLoginJson(UserCredentialUI userInfo, KeyStoneConfiguration keyConf, boolean scoped) {
 
         AuthWrapper obj = new AuthWrapper();
 
@@ -131,7 +205,7 @@ public class KeyStoneServiceJson implements IJsonService {
             user.setName(userInfo.getUserName());
             user.setPassword(userInfo.getPassword());
 
-            if(userInfo.getUserName().equals(keyConf.getAdminName())) {
+            if(scoped || userInfo.getUserName().equals(keyConf.getAdminName())) {
                 auth = new Auth();
                 scope.setProject(project);
                 ((Auth)auth).setScope(scope);
@@ -448,4 +522,18 @@ public class KeyStoneServiceJson implements IJsonService {
 
     }
 
+    /**
+     * Converts KeyStone Response of the token validation to Token Object
+     * <br/>
+     * 
+     * @param inputJson : Contains the response provided by the KeyStone
+     * @return TokenWrapper : An Object containing the JSON values provided by KeyStone
+     * @throws IOException, JsonParseException, JsonMappingException
+     * @since  
+     */
+    public TokenWrapper keyStoneRespToTokenObj(String inputJson) throws IOException {
+        ObjectMapper mapperRead = new ObjectMapper();
+        return mapperRead.readValue(inputJson, TokenWrapper.class);
+    }
+
 }
@@ -0,0 +1,213 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.common.keystone;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.lang3.StringUtils;
+import org.openo.auth.common.ConfigUtil;
+import org.openo.auth.common.cluster.HashRing;
+import org.openo.auth.constant.Constant;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * The KeyStone clusters the users and the tokens are sharded across, configured by
+ * <tt>keystone.shards</tt> in the <tt>auth_service.properties</tt> file.
+ * </p>
+ * <p>
+ * The shard key is the domain, so that a user stays with its domain : a domain of the
+ * <tt>DomainRegistry</tt> goes to the <tt>endpoint</tt> set for it, the explicit mapping, or else
+ * to the shard its domain id hashes to on a consistent hash ring, so that adding a shard only
+ * moves the domains the new shard takes over. The operations spanning all the shards, such as
+ * listing all the users, call the shards in parallel on a bounded pool.
+ * </p>
+ *
+ * @author
+ * @version
+ */
+public class ShardRouter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ShardRouter.class);
+
+    private static ShardRouter instance = new ShardRouter(ConfigUtil.getProperty(Constant.KEYSTONE_SHARDS, ""),
+            ConfigUtil.getIntProperty(Constant.KEYSTONE_SHARDS_VIRTUAL_NODES, 128),
+            ConfigUtil.getIntProperty(Constant.KEYSTONE_SHARDS_FANOUT_THREADS, 4));
+
+    private final List<KeyStoneDomain> shards;
+
+    private final HashRing<KeyStoneDomain> ring;
+
+    private final int fanoutThreads;
+
+    private volatile ThreadPoolExecutor fanoutExecutor;
+
+    /**
+     * Constructor<br/>
+     * <p>
+     * </p>
+     *
+     * @param shardURLs : the base urls of the shards, separated by commas, empty when not sharded.
+     * @param virtualNodes : number of points of each shard on the hash ring.
+     * @param fanoutThreads : maximum number of shards called at the same time.
+     * @since
+     */
+    ShardRouter(String shardURLs, int virtualNodes, int fanoutThreads) {
+
+        Set<String> distinct = new LinkedHashSet<String>();
+
+        for(String url : StringUtils.split(StringUtils.defaultString(shardURLs), ',')) {
+            if(StringUtils.isNotBlank(url)) {
+                distinct.add(StringUtils.stripEnd(url.trim(), "/"));
+            }
+        }
+
+        List<String> urls = new ArrayList<String>(distinct);
+
+        List<KeyStoneDomain> list = new ArrayList<KeyStoneDomain>();
+
+        String configuredURL = urls.isEmpty() ? null : ConfigUtil.getConfiguredBaseURL();
+
+        for(String url : urls) {
+            // The configured KeyStone is reached as usual, the other shards as domains of their own.
+            list.add(new KeyStoneDomain("shard-" + list.size(), KeyStoneConfigInitializer.getDefaultConfiguration(),
+                    url.equals(configuredURL) ? null : url, false));
+        }
+
+        this.shards = Collections.unmodifiableList(list);
+
+        this.ring = new HashRing<KeyStoneDomain>(urls, list, virtualNodes);
+
+        this.fanoutThreads = Math.max(1, fanoutThreads);
+
+        LOGGER.info("KeyStone shards = " + urls);
+    }
+
+    /**
+     * Singleton class, provides the instance of <tt>ShardRouter</tt> class.
+     * <br/>
+     *
+     * @return instance of <tt>ShardRouter</tt> class.
+     * @since
+     */
+    public static ShardRouter getInstance() {
+        return instance;
+    }
+
+    public boolean isEnabled() {
+        return !shards.isEmpty();
+    }
+
+    /**
+     * Provides the shards, the configured KeyStone is the shard without its own endpoint.
+     * <br/>
+     *
+     * @return shards : the shards, empty when not sharded.
+     * @since
+     */
+    public List<KeyStoneDomain> getShards() {
+        return shards;
+    }
+
+    /**
+     * Provides the shard of a key on the hash ring.
+     * <br/>
+     *
+     * @param key : the shard key, such as a domain id.
+     * @return shard : the shard of the key, <tt>null</tt> when not sharded.
+     * @since
+     */
+    public KeyStoneDomain shardOf(String key) {
+        return ring.get(key);
+    }
+
+    /**
+     * Provides how long a request spanning the shards waits for their answers.
+     * <br/>
+     *
+     * @return timeout : the timeout in milliseconds.
+     * @since
+     */
+    public long getTimeout() {
+        return Math.max(1L, ConfigUtil.getLongProperty(Constant.KEYSTONE_SHARDS_TIMEOUT_MS, 10000L));
+    }
+
+    /**
+     * Runs a task on the bounded pool of the shard calls, in the domain of the shard.
+     * <br/>
+     *
+     * @param shard : the shard the task calls.
+     * @param task : the task.
+     * @return future : the result of the task.
+     * @since
+     */
+    public <T> Future<T> submit(final KeyStoneDomain shard, final Callable<T> task) {
+
+        return getFanoutExecutor().submit(new Callable<T>() {
+
+            public T call() throws Exception {
+                KeyStoneDomain previous = DomainContext.enter(shard);
+                try {
+                    return task.call();
+                } finally {
+                    DomainContext.restore(previous);
+                }
+            }
+        });
+    }
+
+    private ThreadPoolExecutor getFanoutExecutor() {
+
+        ThreadPoolExecutor executor = fanoutExecutor;
+
+        if(null != executor) {
+            return executor;
+        }
+
+        synchronized(this) {
+            if(null == fanoutExecutor) {
+
+                final AtomicInteger count = new AtomicInteger();
+
+                fanoutExecutor = new ThreadPoolExecutor(fanoutThreads, fanoutThreads, 60L, TimeUnit.SECONDS,
+                        new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+
+                            public Thread newThread(Runnable runnable) {
+                                Thread thread = new Thread(runnable, "auth-shard-fanout-" + count.incrementAndGet());
+                                thread.setDaemon(true);
+                                return thread;
+                            }
+                        });
+                fanoutExecutor.allowCoreThreadTimeOut(true);
+            }
+            return fanoutExecutor;
+        }
+    }
+
+}
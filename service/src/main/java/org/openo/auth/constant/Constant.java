@@ -51,8 +51,16 @@ public final class Constant {
 
     public static final String TOKEN_SUBJECT = "X-Subject-Token";
 
+    public static final String AUTH_DOMAIN = "X-Auth-Domain";
+
+    public static final String PEER_TIME = "X-Auth-Peer-Time";
+
+    public static final String PEER_SIGNATURE = "X-Auth-Peer-Signature";
+
     public static final String MEDIA_TYPE_JSON = "application/json";
 
+    public static final String MEDIA_TYPE_NDJSON = "application/x-ndjson";
+
     public static final String SERVICE_KEYSTONE = "Keystone";
 
     public static final String KEYSTONE_CONF_PROPERTIES = "keystone_config.properties";
@@ -71,14 +79,24 @@ public final class Constant {
 
     public static final String ADMIN_NAME = "admin_name";
 
+    public static final String SERVICE_USER_NAME = "service_user_name";
+
+    public static final String SERVICE_USER_PASSWORD = "service_user_password";
+
+    public static final String KEYSTONE_CONF_ENDPOINT = "endpoint";
+
     public static final String KEYSTONE_METHOD_PASSWORD = "password";
 
+    public static final String KEYSTONE_METHOD_TOKEN = "token";
+
     public static final String KEYSTONE_IDENTITY_TOKEN = "/v3/auth/tokens";
 
     public static final String KEYSTONE_IDENTITY_USER = "/v3/users";
 
     public static final String KEYSTONE_IDENTITY_PROJECTS = "/v3/projects";
 
+    public static final String KEYSTONE_ROLE_ASSIGNMENTS = "/v3/role_assignments";
+
     public static final String USERS = "/users";
 
     public static final String ROLES = "/roles";
@@ -89,6 +107,166 @@ public final class Constant {
 
     public static final String ROLEID = "{role_id}";
 
+    public static final String TOKEN_NEGATIVE_CACHE_ENABLED = "token.negative_cache.enabled";
+
+    public static final String TOKEN_NEGATIVE_CACHE_TTL = "token.negative_cache.ttl_ms";
+
+    public static final String TOKEN_NEGATIVE_CACHE_MAX_ENTRIES = "token.negative_cache.max_entries";
+
+    public static final String TOKEN_CACHE_ENABLED = "token.cache.enabled";
+
+    public static final String TOKEN_CACHE_TTL = "token.cache.ttl_ms";
+
+    public static final String TOKEN_CACHE_MAX_ENTRIES = "token.cache.max_entries";
+
+    public static final String TOKEN_CACHE_MAX_REFS = "token.cache.max_refs";
+
+    public static final String CACHE_SNAPSHOT_ENABLED = "cache.snapshot.enabled";
+
+    public static final String CACHE_SNAPSHOT_FILE = "cache.snapshot.file";
+
+    public static final String CACHE_SNAPSHOT_INTERVAL = "cache.snapshot.interval_ms";
+
+    public static final String CLUSTER_SECRET = "cluster.secret";
+
+    public static final String CLUSTER_NODE_ID = "cluster.node_id";
+
+    public static final String CACHE_INVALIDATION_BUS = "cache.invalidation.bus";
+
+    public static final String CACHE_INVALIDATION_PORT = "cache.invalidation.port";
+
+    public static final String CACHE_INVALIDATION_PEERS = "cache.invalidation.peers";
+
+    public static final String CACHE_INVALIDATION_BATCH_MS = "cache.invalidation.batch_ms";
+
+    public static final String CACHE_INVALIDATION_MAX_BATCH = "cache.invalidation.max_batch";
+
+    public static final String CACHE_INVALIDATION_MAX_AGE_MS = "cache.invalidation.max_age_ms";
+
+    public static final String TOKEN_PEER_CACHE_ENABLED = "token.peer_cache.enabled";
+
+    public static final String TOKEN_PEER_CACHE_PEERS = "token.peer_cache.peers";
+
+    public static final String TOKEN_PEER_CACHE_NODES_FILE = "token.peer_cache.nodes_file";
+
+    public static final String TOKEN_PEER_CACHE_SELF = "token.peer_cache.self";
+
+    public static final String TOKEN_PEER_CACHE_VIRTUAL_NODES = "token.peer_cache.virtual_nodes";
+
+    public static final String TOKEN_PEER_CACHE_MAX_CONNECTIONS = "token.peer_cache.max_connections";
+
+    public static final String TOKEN_PEER_CACHE_TIMEOUT_MS = "token.peer_cache.timeout_ms";
+
+    public static final String TOKEN_PEER_CACHE_RETRY_MS = "token.peer_cache.retry_ms";
+
+    public static final String TOKEN_PEER_CACHE_MAX_AGE_MS = "token.peer_cache.max_age_ms";
+
+    public static final String KEYSTONE_DB_PROPERTIES = "keystone_db.properties";
+
+    public static final String KEYSTONE_DB_ENABLED = "keystone.db.enabled";
+
+    public static final String KEYSTONE_DB_DRIVER = "keystone.db.driver";
+
+    public static final String KEYSTONE_DB_URL = "keystone.db.url";
+
+    public static final String KEYSTONE_DB_USERNAME = "keystone.db.username";
+
+    public static final String KEYSTONE_DB_PASSWORD = "keystone.db.password";
+
+    public static final String KEYSTONE_DB_POOL_SIZE = "keystone.db.pool_size";
+
+    public static final String KEYSTONE_DB_ADMIN_ROLE = "keystone.db.admin_role";
+
+    public static final String KEYSTONE_DB_MAX_PAGE_SIZE = "keystone.db.max_page_size";
+
+    public static final String CAPTURE_ENABLED = "capture.enabled";
+
+    public static final String CAPTURE_FILE = "capture.file";
+
+    public static final String CAPTURE_MAX_MB = "capture.max_mb";
+
+    public static final String WARMUP_ENABLED = "warmup.enabled";
+
+    public static final String WARMUP_MAX_MS = "warmup.max_ms";
+
+    public static final String WARMUP_BATCH_SIZE = "warmup.batch_size";
+
+    public static final String WARMUP_STABLE_BATCHES = "warmup.stable_batches";
+
+    public static final String WARMUP_STABLE_COMPILE_MS = "warmup.stable_compile_ms";
+
+    public static final String TOKEN_BATCH_MAX_SIZE = "token.batch.max_size";
+
+    public static final String TOKEN_BATCH_THREADS = "token.batch.threads";
+
+    public static final String TOKEN_BATCH_TIMEOUT_MS = "token.batch.timeout_ms";
+
+    public static final String TOKEN_SCOPE_CACHE_ENABLED = "token.scope_cache.enabled";
+
+    public static final String TOKEN_SCOPE_CACHE_MIN_REMAINING = "token.scope_cache.min_remaining_ms";
+
+    public static final String TOKEN_SCOPE_CACHE_MAX_ENTRIES = "token.scope_cache.max_entries";
+
+    public static final String AUTHZ_ROLE_CACHE_ENABLED = "authz.role_cache.enabled";
+
+    public static final String AUTHZ_ROLE_CACHE_TTL = "authz.role_cache.ttl_ms";
+
+    public static final String AUTHZ_ROLE_CACHE_MAX_STALE = "authz.role_cache.max_stale_ms";
+
+    public static final String AUTHZ_ROLE_CACHE_MAX_ENTRIES = "authz.role_cache.max_entries";
+
+    public static final String AUTHZ_ROLE_REFRESH_THREADS = "authz.role_cache.refresh_threads";
+
+    public static final String POLICY_FILE = "policy.file";
+
+    public static final String KEYSTONE_DOMAINS_FILE = "keystone.domains.file";
+
+    public static final String KEYSTONE_SHARDS = "keystone.shards";
+
+    public static final String KEYSTONE_SHARDS_VIRTUAL_NODES = "keystone.shards.virtual_nodes";
+
+    public static final String KEYSTONE_SHARDS_FANOUT_THREADS = "keystone.shards.fanout_threads";
+
+    public static final String KEYSTONE_SHARDS_TIMEOUT_MS = "keystone.shards.timeout_ms";
+
+    public static final String KEYSTONE_SHARDS_ADMIN_PROJECT = "keystone.shards.admin_project_id";
+
+    public static final String KEYSTONE_SHARDS_ADMIN_ROLE = "keystone.shards.admin_role";
+
+    public static final String USER_BULK_MAX_RECORDS = "user.bulk.max_records";
+
+    public static final String USER_BULK_THREADS = "user.bulk.threads";
+
+    public static final String USER_EXPORT_PAGE_SIZE = "user.export.page_size";
+
+    public static final String USER_EXPORT_GZIP = "user.export.gzip";
+
+    public static final String USER_ETAG_CACHE_ENABLED = "user.etag_cache.enabled";
+
+    public static final String USER_ETAG_CACHE_TTL = "user.etag_cache.ttl_ms";
+
+    public static final String USER_ETAG_CACHE_MAX_ENTRIES = "user.etag_cache.max_entries";
+
+    public static final String USER_NAME_CACHE_ENABLED = "user.name_cache.enabled";
+
+    public static final String USER_NAME_CACHE_TTL = "user.name_cache.ttl_ms";
+
+    public static final String USER_NAME_CACHE_MAX_ENTRIES = "user.name_cache.max_entries";
+
+    public static final String SERVICE_TOKEN_REFRESH_MARGIN = "keystone.service_token.refresh_margin_ms";
+
+    public static final String SERVICE_TOKEN_RETRY_DELAY = "keystone.service_token.retry_ms";
+
+    public static final String HTTP_COMPRESSION_ENABLED = "http.compression.enabled";
+
+    public static final String HTTP_COMPRESSION_MIN_BYTES = "http.compression.min_bytes";
+
+    public static final String HTTP_COMPRESSION_LEVEL = "http.compression.level";
+
+    public static final String HTTP_COMPRESSION_POOL_SIZE = "http.compression.pool_size";
+
+    public static final String KEYSTONE_COMPRESSION_ENABLED = "keystone.compression.enabled";
+
     private Constant() {
     }
 }
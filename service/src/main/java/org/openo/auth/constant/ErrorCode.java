@@ -34,6 +34,16 @@ public final class ErrorCode {
 
     public static final String AUTH_LOAD_FAILED = "auth_load_failed";
 
+    public static final String DIRECTORY_DISABLED = "directory_disabled";
+
+    public static final String ACCESS_DENIED = "access_denied";
+
+    public static final String BATCH_TOO_LARGE = "batch_too_large";
+
+    public static final String DUPLICATE_USER = "duplicate_user";
+
+    public static final String UNKNOWN_DOMAIN = "unknown_domain";
+
     private ErrorCode() {
     }
 }
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.dao;
+
+import java.util.List;
+
+import org.apache.ibatis.annotations.Param;
+import org.openo.auth.entity.keystone.db.UserRecord;
+
+/**
+ * <p>
+ * MyBatis mapper of the read only queries on the KeyStone database, the statements are in
+ * <tt>IUserDirectoryMapper.xml</tt>.
+ * </p>
+ * <br/>
+ *
+ * @author
+ * @version
+ */
+public interface IUserDirectoryMapper {
+
+    /**
+     * Lists the users ordered by id, starting after the marker.
+     * <br/>
+     *
+     * @param marker : id of the last user of the previous page, <tt>null</tt> for the first page.
+     * @param name : <tt>LIKE</tt> pattern of the user name, escaped with <tt>!</tt>, may be
+     *            <tt>null</tt>.
+     * @param limit : maximum number of users.
+     * @return users : the users of the page.
+     * @since
+     */
+    List<UserRecord> listUsers(@Param("marker") String marker, @Param("name") String name, @Param("limit") int limit);
+
+    /**
+     * Counts the assignments of the role to the user, on any project or domain.
+     * <br/>
+     *
+     * @param userId : id of the user.
+     * @param roleName : name of the role.
+     * @return count : number of assignments.
+     * @since
+     */
+    int countRoleAssignments(@Param("userId") String userId, @Param("roleName") String roleName);
+
+}
@@ -0,0 +1,254 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.dao;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.openo.auth.constant.Constant;
+import org.openo.auth.entity.UserDirectoryPage;
+import org.openo.auth.entity.UserResponse;
+import org.openo.auth.entity.keystone.db.UserRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * Read only access to the users of the KeyStone database, for the listing and the search of large
+ * sets of users which are slow and not paginated through the KeyStone API.
+ * </p>
+ * <p>
+ * The backend is optional and configured in the <tt>keystone_db.properties</tt> file. The
+ * sessions reuse their prepared statements and the pages are read with keyset pagination.
+ * </p>
+ *
+ * @author
+ * @version
+ */
+public class UserDirectoryDao {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UserDirectoryDao.class);
+
+    private static UserDirectoryDao instance = new UserDirectoryDao(loadProperties());
+
+    private final SqlSessionFactory sessionFactory;
+
+    private final String adminRole;
+
+    private final int maxPageSize;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    /**
+     * Constructor<br/>
+     * <p>
+     * </p>
+     *
+     * @param properties : the properties of the <tt>keystone_db.properties</tt> file.
+     * @since
+     */
+    UserDirectoryDao(Properties properties) {
+
+        this.adminRole = properties.getProperty(Constant.KEYSTONE_DB_ADMIN_ROLE, "admin");
+
+        this.maxPageSize = Integer.parseInt(properties.getProperty(Constant.KEYSTONE_DB_MAX_PAGE_SIZE, "500"));
+
+        if(!Boolean.parseBoolean(properties.getProperty(Constant.KEYSTONE_DB_ENABLED))) {
+            LOGGER.info("KeyStone database backend is disabled.");
+            this.sessionFactory = null;
+            return;
+        }
+
+        PooledDataSource dataSource = new PooledDataSource(properties.getProperty(Constant.KEYSTONE_DB_DRIVER),
+                properties.getProperty(Constant.KEYSTONE_DB_URL), properties.getProperty(Constant.KEYSTONE_DB_USERNAME),
+                properties.getProperty(Constant.KEYSTONE_DB_PASSWORD));
+
+        dataSource.setPoolMaximumActiveConnections(
+                Integer.parseInt(properties.getProperty(Constant.KEYSTONE_DB_POOL_SIZE, "10")));
+        dataSource.setPoolMaximumIdleConnections(dataSource.getPoolMaximumActiveConnections());
+        dataSource.setPoolPingEnabled(true);
+        dataSource.setPoolPingQuery("SELECT 1");
+
+        Configuration configuration = new Configuration(
+                new Environment("keystone", new JdbcTransactionFactory(), dataSource));
+        configuration.setDefaultExecutorType(ExecutorType.REUSE);
+        configuration.addMapper(IUserDirectoryMapper.class);
+
+        this.sessionFactory = new SqlSessionFactoryBuilder().build(configuration);
+
+        LOGGER.info("KeyStone database backend is enabled.");
+    }
+
+    /**
+     * Singleton class, provides the instance of <tt>UserDirectoryDao</tt> class.
+     * <br/>
+     *
+     * @return instance of <tt>UserDirectoryDao</tt> class.
+     * @since
+     */
+    public static UserDirectoryDao getInstance() {
+        return instance;
+    }
+
+    private static Properties loadProperties() {
+
+        LOGGER.info("Loading... " + Constant.KEYSTONE_DB_PROPERTIES);
+
+        Properties properties = new Properties();
+
+        InputStream in = Thread.currentThread().getContextClassLoader()
+                .getResourceAsStream(Constant.KEYSTONE_DB_PROPERTIES);
+
+        if(null == in) {
+            return properties;
+        }
+
+        try {
+            properties.load(in);
+        } catch(IOException e) {
+            LOGGER.error("Exception Caught : " + e);
+        } finally {
+            try {
+                in.close();
+            } catch(IOException e) {
+                LOGGER.error("Exception Caught : " + e);
+            }
+        }
+        return properties;
+    }
+
+    /**
+     * Tells whether the KeyStone database backend is configured.
+     * <br/>
+     *
+     * @return <tt>true</tt> if the backend is enabled.
+     * @since
+     */
+    public boolean isEnabled() {
+        return null != sessionFactory;
+    }
+
+    /**
+     * Provides a page of the users, ordered by id.
+     * <br/>
+     *
+     * @param marker : id of the last user of the previous page, <tt>null</tt> for the first page.
+     * @param namePrefix : prefix of the user names, <tt>null</tt> for all the users.
+     * @param limit : maximum number of users of the page, bounded by the configured page size.
+     * @return page : the users and the marker of the next page, <tt>null</tt> on the last page.
+     * @since
+     */
+    public UserDirectoryPage listUsers(String marker, String namePrefix, int limit) {
+
+        int pageSize = Math.max(1, Math.min(limit, maxPageSize));
+
+        String name = StringUtils.isEmpty(namePrefix) ? null : escapeLike(namePrefix) + "%";
+
+        List<UserRecord> records;
+
+        SqlSession session = sessionFactory.openSession(ExecutorType.REUSE, true);
+        try {
+            records = session.getMapper(IUserDirectoryMapper.class)
+                    .listUsers(StringUtils.isEmpty(marker) ? null : marker, name, pageSize + 1);
+        } finally {
+            session.close();
+        }
+
+        UserDirectoryPage page = new UserDirectoryPage();
+
+        List<UserResponse> users = new ArrayList<UserResponse>();
+
+        for(int i = 0; i < records.size() && i < pageSize; i++) {
+            users.add(toUserResponse(records.get(i)));
+        }
+
+        page.setUsers(users);
+
+        if(records.size() > pageSize) {
+            page.setNextMarker(users.get(pageSize - 1).getId());
+        }
+        return page;
+    }
+
+    /**
+     * Tells whether the user has the administrator role, configured in the
+     * <tt>keystone_db.properties</tt> file, on any project or domain.
+     * <br/>
+     *
+     * @param userId : id of the user.
+     * @return <tt>true</tt> if the user is an administrator.
+     * @since
+     */
+    public boolean isAdmin(String userId) {
+
+        SqlSession session = sessionFactory.openSession(ExecutorType.REUSE, true);
+        try {
+            return session.getMapper(IUserDirectoryMapper.class).countRoleAssignments(userId, adminRole) > 0;
+        } finally {
+            session.close();
+        }
+    }
+
+    /**
+     * Converts a row to the user given to the UI, the email and the description are stored in the
+     * <tt>extra</tt> JSON column by KeyStone.
+     * <br/>
+     *
+     * @since
+     */
+    private UserResponse toUserResponse(UserRecord record) {
+
+        UserResponse user = new UserResponse();
+        user.setId(record.getId());
+        user.setName(record.getName());
+
+        if(StringUtils.isNotEmpty(record.getExtra())) {
+            try {
+                JsonNode extra = mapper.readTree(record.getExtra());
+                user.setEmail(getText(extra, "email"));
+                user.setDescription(getText(extra, "description"));
+            } catch(IOException e) {
+                LOGGER.warn("Invalid extra of the user " + record.getId() + " : " + e);
+            }
+        }
+        return user;
+    }
+
+    private static String getText(JsonNode node, String field) {
+        JsonNode value = null == node ? null : node.get(field);
+        return null == value || value.isNull() ? null : value.getTextValue();
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+    }
+
+}
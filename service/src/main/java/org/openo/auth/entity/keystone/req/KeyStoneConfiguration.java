@@ -38,6 +38,10 @@ public class KeyStoneConfiguration {
     private String adminToken;
     
     private String adminName;
+
+    private String serviceUserName;
+
+    private String serviceUserPassword;
     
     public String getAdminName() {
         return adminName;
@@ -47,6 +51,22 @@ public class KeyStoneConfiguration {
         this.adminName = adminName;
     }
 
+    public String getServiceUserName() {
+        return serviceUserName;
+    }
+
+    public void setServiceUserName(String serviceUserName) {
+        this.serviceUserName = serviceUserName;
+    }
+
+    public String getServiceUserPassword() {
+        return serviceUserPassword;
+    }
+
+    public void setServiceUserPassword(String serviceUserPassword) {
+        this.serviceUserPassword = serviceUserPassword;
+    }
+
     public String getProjectId() {
         return projectId;
     }
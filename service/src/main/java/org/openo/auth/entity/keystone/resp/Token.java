@@ -0,0 +1,86 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.entity.keystone.resp;
+
+import java.util.List;
+
+import org.codehaus.jackson.annotate.JsonIgnoreProperties;
+import org.codehaus.jackson.annotate.JsonProperty;
+
+/**
+ * A POJO class
+ * <br/>
+ * 
+ * @author
+ * @version  
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class Token {
+
+    @JsonProperty("expires_at")
+    private String expiresAt;
+
+    @JsonProperty("issued_at")
+    private String issuedAt;
+
+    private IdentityRef user;
+
+    private IdentityRef project;
+
+    private List<IdentityRef> roles;
+
+    public String getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(String expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    public String getIssuedAt() {
+        return issuedAt;
+    }
+
+    public void setIssuedAt(String issuedAt) {
+        this.issuedAt = issuedAt;
+    }
+
+    public IdentityRef getUser() {
+        return user;
+    }
+
+    public void setUser(IdentityRef user) {
+        this.user = user;
+    }
+
+    public IdentityRef getProject() {
+        return project;
+    }
+
+    public void setProject(IdentityRef project) {
+        this.project = project;
+    }
+
+    public List<IdentityRef> getRoles() {
+        return roles;
+    }
+
+    public void setRoles(List<IdentityRef> roles) {
+        this.roles = roles;
+    }
+
+}
@@ -51,6 +51,8 @@ public class ClientCommunicationUtil {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ClientCommunicationUtil.class);
 
+    private static final DecompressingInInterceptor DECOMPRESSING_INTERCEPTOR = new DecompressingInInterceptor();
+
     private static ClientCommunicationUtil instance = new ClientCommunicationUtil();
 
     /**
@@ -108,15 +110,11 @@ public class ClientCommunicationUtil {
 
                 } else if(type.equals(Constant.TYPE_DELETE)) {
 
-                    client.header(Constant.TOKEN_AUTH, keyConf.getAdminToken());
-                    client.header(Constant.TOKEN_SUBJECT, input);
-                    userResponse = client.delete();
+                    userResponse = getResponseAsService(client, keyConf, input, true);
 
                 } else if(type.equals(Constant.TYPE_HEAD)) {
 
-                    client.header(Constant.TOKEN_AUTH, keyConf.getAdminToken());
-                    client.header(Constant.TOKEN_SUBJECT, input);
-                    userResponse = client.get();
+                    userResponse = getResponseAsService(client, keyConf, input, false);
 
                 }
             } catch(Exception e) {
@@ -133,6 +131,35 @@ public class ClientCommunicationUtil {
         return userResponse;
     }
 
+    /**
+     * Performs a token call authorized by the token of the Auth Service, which is renewed when
+     * KeyStone rejects it.
+     * <br/>
+     * 
+     * @param client : the client of the Service Client.
+     * @param keyConf : Default values/configuration set for the KeyStone Service.
+     * @param subjectToken : the token the call is about.
+     * @param delete : <tt>true</tt> to revoke the token, <tt>false</tt> to validate it.
+     * @return userResponse : the response of the Service Client.
+     * @since  
+     */
+    private Response getResponseAsService(WebClient client, KeyStoneConfiguration keyConf, String subjectToken,
+            boolean delete) {
+
+        String serviceToken = ServiceTokenManager.getInstance().getToken(keyConf);
+
+        client.header(Constant.TOKEN_AUTH, serviceToken);
+        client.header(Constant.TOKEN_SUBJECT, subjectToken);
+
+        Response response = delete ? client.delete() : client.get();
+
+        // KeyStone answers 404 for an invalid subject token, 401 is about the token of the service.
+        if(null != response && response.getStatus() == HttpServletResponse.SC_UNAUTHORIZED) {
+            ServiceTokenManager.getInstance().rejected(serviceToken);
+        }
+        return response;
+    }
+
     /**
      * API for connecting the client and providing the result for the requested api service.
      * <br/>
@@ -243,7 +270,24 @@ public class ClientCommunicationUtil {
 
         LOGGER.info("Connecting Client ...");
 
-        return WebClient.create(baseURL, providers);
+        return acceptCompressed(WebClient.create(baseURL, providers));
+    }
+
+    /**
+     * Asks the Service Client for compressed responses, which are decompressed while they are
+     * read, unless disabled in the <tt>auth_service.properties</tt> file.
+     * <br/>
+     * @param client : the client of the Service Client.
+     * @return client : the same client.
+     * @since
+     */
+    public WebClient acceptCompressed(WebClient client) {
+
+        if(null != client && ConfigUtil.getBooleanProperty(Constant.KEYSTONE_COMPRESSION_ENABLED, true)) {
+            client.acceptEncoding("gzip", "deflate");
+            WebClient.getConfig(client).getInInterceptors().add(DECOMPRESSING_INTERCEPTOR);
+        }
+        return client;
     }
 
     /**
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.openo.auth.rest.client;
+
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+
+import javax.ws.rs.core.HttpHeaders;
+
+import org.apache.cxf.helpers.CastUtils;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.phase.AbstractPhaseInterceptor;
+import org.apache.cxf.phase.Phase;
+import org.openo.auth.common.compression.DecodingInputStream;
+
+/**
+ * <p>
+ * Decompresses the gzip or deflate responses of the Service Client while they are read, so that
+ * the clients can ask for compressed responses without holding the whole body.
+ * </p>
+ *
+ * @author
+ * @version
+ */
+public class DecompressingInInterceptor extends AbstractPhaseInterceptor<Message> {
+
+    /**
+     * Constructor<br/>
+     * <p>
+     * </p>
+     *
+     * @since
+     */
+    public DecompressingInInterceptor() {
+        super(Phase.RECEIVE);
+    }
+
+    /**
+     * Replaces the body of a compressed response by its decompressed stream.
+     * <br/>
+     *
+     * @param message : the response.
+     * @since
+     */
+    public void handleMessage(Message message) {
+
+        Map<String, List<String>> headers = CastUtils.cast((Map<?, ?>)message.get(Message.PROTOCOL_HEADERS));
+
+        if(null == headers) {
+            return;
+        }
+
+        List<String> encodings = headers.get(HttpHeaders.CONTENT_ENCODING);
+
+        String encoding = null == encodings || encodings.isEmpty() ? null : encodings.get(0).trim();
+
+        InputStream body = message.getContent(InputStream.class);
+
+        if(null == body || !DecodingInputStream.isSupported(encoding)) {
+            return;
+        }
+
+        message.setContent(InputStream.class, new DecodingInputStream(body, DecodingInputStream.isGzip(encoding)));
+
+        headers.remove(HttpHeaders.CONTENT_ENCODING);
+        headers.remove(HttpHeaders.CONTENT_LENGTH);
+    }
+
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.rest.client;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * Obtains the token of the service user in the background when the service starts, so that it is
+ * usually available before the first request, and stops its renewal when the service stops.
+ * </p>
+ *
+ * @author
+ * @version
+ */
+public class ServiceTokenListener implements ServletContextListener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ServiceTokenListener.class);
+
+    /**
+     * Starts obtaining the token of the service user.
+     * <br/>
+     *
+     * @param event : the servlet context event.
+     * @since
+     */
+    public void contextInitialized(ServletContextEvent event) {
+        try {
+            ServiceTokenManager.getInstance().start();
+        } catch(RuntimeException e) {
+            LOGGER.error("Service token could not be started, the admin_token is used : " + e);
+        }
+    }
+
+    /**
+     * Stops the renewal of the tokens of the service users.
+     * <br/>
+     *
+     * @param event : the servlet context event.
+     * @since
+     */
+    public void contextDestroyed(ServletContextEvent event) {
+        ServiceTokenManager.stopAll();
+    }
+
+}
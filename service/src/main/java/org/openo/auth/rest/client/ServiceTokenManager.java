@@ -0,0 +1,414 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.rest.client;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.servlet.http.HttpServletResponse;
+import javax.ws.rs.core.Response;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.cxf.helpers.IOUtils;
+import org.openo.auth.common.ConfigUtil;
+import org.openo.auth.common.IJsonService;
+import org.openo.auth.common.JsonFactory;
+import org.openo.auth.common.keystone.DomainContext;
+import org.openo.auth.common.keystone.KeyStoneConfigInitializer;
+import org.openo.auth.common.keystone.KeyStoneDomain;
+import org.openo.auth.constant.Constant;
+import org.openo.auth.constant.ErrorCode;
+import org.openo.auth.entity.keystone.req.KeyStoneConfiguration;
+import org.openo.auth.entity.keystone.resp.Token;
+import org.openo.auth.entity.keystone.resp.TokenWrapper;
+import org.openo.auth.exception.AuthException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * Provides the token with which the Auth Service itself calls KeyStone, in place of the static
+ * <tt>admin_token</tt>, when a service user is configured in the
+ * <tt>keystone_config.properties</tt> file.
+ * </p>
+ * <p>
+ * The service user logs in once and its scoped token is kept. A single background thread renews
+ * it some time before it expires and swaps the new token in while the old one is still valid, so
+ * that the requests never see a gap. The requests only read the current token : they never wait
+ * for KeyStone, while no valid token is available they get the <tt>admin_token</tt> and a renewal
+ * is started in the background, at most one at a time.
+ * </p>
+ * <p>
+ * A domain of the <tt>DomainRegistry</tt> with its own KeyStone or its own service user gets its
+ * own token, renewed the same way once the domain is first used.
+ * </p>
+ *
+ * @author
+ * @version
+ */
+public class ServiceTokenManager {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ServiceTokenManager.class);
+
+    private static ServiceTokenManager instance = new ServiceTokenManager(null);
+
+    private static final ConcurrentMap<KeyStoneDomain, ServiceTokenManager> DOMAINS =
+            new ConcurrentHashMap<KeyStoneDomain, ServiceTokenManager>();
+
+    private final KeyStoneDomain domain;
+
+    private final long refreshMargin;
+
+    private final long retryDelay;
+
+    private final AtomicReference<ServiceToken> current = new AtomicReference<ServiceToken>();
+
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+
+    private ScheduledExecutorService executor;
+
+    private ScheduledFuture<?> nextRefresh;
+
+    /**
+     * Constructor<br/>
+     * <p>
+     * </p>
+     *
+     * @param refreshMargin : Time in milliseconds before the expiry at which the token is renewed.
+     * @param retryDelay : Time in milliseconds between two attempts while KeyStone fails.
+     * @since
+     */
+    ServiceTokenManager(long refreshMargin, long retryDelay) {
+        this(null, refreshMargin, retryDelay);
+    }
+
+    private ServiceTokenManager(KeyStoneDomain domain) {
+        this(domain, ConfigUtil.getLongProperty(Constant.SERVICE_TOKEN_REFRESH_MARGIN, 300000L),
+                ConfigUtil.getLongProperty(Constant.SERVICE_TOKEN_RETRY_DELAY, 5000L));
+    }
+
+    private ServiceTokenManager(KeyStoneDomain domain, long refreshMargin, long retryDelay) {
+        this.domain = domain;
+        this.refreshMargin = Math.max(0L, refreshMargin);
+        this.retryDelay = Math.max(100L, retryDelay);
+    }
+
+    /**
+     * Singleton class, provides the instance of <tt>ServiceTokenManager</tt> class, the one of
+     * the domain of the request when this domain needs its own service token.
+     * <br/>
+     *
+     * @return instance of <tt>ServiceTokenManager</tt> class.
+     * @since
+     */
+    public static ServiceTokenManager getInstance() {
+
+        KeyStoneDomain current = DomainContext.current();
+
+        if(null == current || !current.needsOwnServiceToken()) {
+            return instance;
+        }
+
+        ServiceTokenManager manager = DOMAINS.get(current);
+
+        if(null == manager) {
+            manager = new ServiceTokenManager(current);
+            ServiceTokenManager existing = DOMAINS.putIfAbsent(current, manager);
+            if(null != existing) {
+                manager = existing;
+            }
+        }
+        return manager;
+    }
+
+    /**
+     * Stops the renewal of the tokens of the configured domain and of all the other domains.
+     * <br/>
+     *
+     * @since
+     */
+    public static void stopAll() {
+
+        instance.stop();
+
+        for(ServiceTokenManager manager : DOMAINS.values()) {
+            manager.stop();
+        }
+    }
+
+    /**
+     * Obtains the first token in the background, when a service user is configured.
+     * <br/>
+     *
+     * @since
+     */
+    public void start() {
+
+        if(!isServiceUserConfigured(KeyStoneConfigInitializer.getKeystoneConfiguration())) {
+            LOGGER.info("No service user configured, the admin_token is used.");
+            return;
+        }
+        requestRefresh();
+    }
+
+    /**
+     * Stops the renewal of the token.
+     * <br/>
+     *
+     * @since
+     */
+    public synchronized void stop() {
+
+        if(null != executor) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        nextRefresh = null;
+    }
+
+    /**
+     * Provides the token to authorize the calls of the Auth Service to KeyStone, without ever
+     * waiting for KeyStone.
+     * <br/>
+     *
+     * @param keyConf : Default values/configuration set for the KeyStone Service.
+     * @return token : the token of the service user, or the <tt>admin_token</tt> when no service
+     *         user is configured or its token is not available yet.
+     * @since
+     */
+    public String getToken(KeyStoneConfiguration keyConf) {
+
+        if(!isServiceUserConfigured(keyConf)) {
+            return keyConf.getAdminToken();
+        }
+
+        ServiceToken token = current.get();
+
+        if(null != token && token.expiresAt > System.currentTimeMillis()) {
+            return token.value;
+        }
+
+        requestRefresh();
+
+        LOGGER.warn("Service token not available yet, the admin_token is used.");
+        return keyConf.getAdminToken();
+    }
+
+    /**
+     * Renews the token in the background when KeyStone rejected it, for instance after it was
+     * revoked. The token is kept meanwhile, and a token just obtained is not renewed again, so that
+     * a rejection due to the token of the request can not make the service log in repeatedly.
+     * <br/>
+     *
+     * @param token : the token rejected by KeyStone.
+     * @since
+     */
+    public void rejected(String token) {
+
+        ServiceToken rejected = current.get();
+
+        if(null != rejected && rejected.value.equals(token)
+                && System.currentTimeMillis() - rejected.obtainedAt >= retryDelay) {
+            LOGGER.warn("Service token rejected by KeyStone, renewing it.");
+            requestRefresh();
+        }
+    }
+
+    /**
+     * Logs the service user in and installs its new token, in place of the current one.
+     * <br/>
+     *
+     * @return delay : Time in milliseconds after which the token has to be renewed again.
+     * @since
+     */
+    long refresh() {
+
+        KeyStoneDomain previous = DomainContext.enter(domain);
+
+        try {
+            ServiceToken token = login(KeyStoneConfigInitializer.getKeystoneConfiguration());
+
+            current.set(token);
+
+            LOGGER.info("Service token renewed, expires at " + Instant.ofEpochMilli(token.expiresAt));
+
+            return refreshDelay(token.obtainedAt, token.expiresAt, refreshMargin);
+
+        } catch(AuthException | IOException | DateTimeParseException e) {
+            LOGGER.error("Service token could not be renewed, retrying in " + retryDelay + " ms : " + e);
+            return retryDelay;
+
+        } finally {
+            DomainContext.restore(previous);
+        }
+    }
+
+    /**
+     * Provides the delay after which a token is renewed : <tt>refreshMargin</tt> before it expires,
+     * and at most half way through its remaining lifetime, so that a short lived token is renewed
+     * before it expires too.
+     * <br/>
+     *
+     * @param now : the current time in milliseconds.
+     * @param expiresAt : the expiry of the token in milliseconds.
+     * @param refreshMargin : Time in milliseconds before the expiry at which the token is renewed.
+     * @return delay : Time in milliseconds after which the token has to be renewed.
+     * @since
+     */
+    static long refreshDelay(long now, long expiresAt, long refreshMargin) {
+
+        long lifetime = expiresAt - now;
+
+        if(lifetime <= 0) {
+            return 0L;
+        }
+        return lifetime - Math.min(refreshMargin, lifetime / 2);
+    }
+
+    /**
+     * Provides the current token of the service user.
+     * <br/>
+     *
+     * @return token : the current token, <tt>null</tt> if none was obtained.
+     * @since
+     */
+    String getCurrentToken() {
+        ServiceToken token = current.get();
+        return null == token ? null : token.value;
+    }
+
+    private static boolean isServiceUserConfigured(KeyStoneConfiguration keyConf) {
+        return null != keyConf && StringUtils.isNotEmpty(keyConf.getServiceUserName());
+    }
+
+    private void requestRefresh() {
+
+        if(!refreshing.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            getExecutor().execute(new Runnable() {
+
+                public void run() {
+                    long delay;
+                    try {
+                        delay = refresh();
+                    } finally {
+                        refreshing.set(false);
+                    }
+                    schedule(delay);
+                }
+            });
+        } catch(RuntimeException e) {
+            refreshing.set(false);
+            LOGGER.error("Service token renewal could not be started : " + e);
+        }
+    }
+
+    private synchronized void schedule(long delay) {
+
+        if(null == executor) {
+            return;
+        }
+
+        // Only one renewal is ever pending, a renewal started by a request replaces the planned one.
+        if(null != nextRefresh) {
+            nextRefresh.cancel(false);
+        }
+
+        nextRefresh = executor.schedule(new Runnable() {
+
+            public void run() {
+                requestRefresh();
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized ScheduledExecutorService getExecutor() {
+
+        if(null == executor) {
+            executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable,
+                            null == domain ? "auth-service-token" : "auth-service-token-" + domain.getName());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return executor;
+    }
+
+    private ServiceToken login(KeyStoneConfiguration keyConf) throws IOException {
+
+        IJsonService jsonService = JsonFactory.getInstance().getJsonService();
+
+        if(null == jsonService || !isServiceUserConfigured(keyConf)) {
+            throw new AuthException(HttpServletResponse.SC_REQUEST_TIMEOUT, ErrorCode.AUTH_LOAD_FAILED);
+        }
+
+        Response response = ClientCommunicationUtil.getInstance().getResponseFromService(
+                Constant.KEYSTONE_IDENTITY_TOKEN, jsonService.getServiceLoginJson(keyConf), Constant.TYPE_POST);
+
+        String value = response.getHeaderString(Constant.TOKEN_SUBJECT);
+
+        if(response.getStatus() != HttpServletResponse.SC_CREATED || StringUtils.isEmpty(value)
+                || !response.hasEntity()) {
+            throw new AuthException(response.getStatus(), ErrorCode.FAILURE_INFORMATION);
+        }
+
+        TokenWrapper wrapper = jsonService.keyStoneRespToTokenObj(IOUtils.toString((InputStream)response
+                .getEntity()));
+
+        Token token = null == wrapper ? null : wrapper.getToken();
+
+        if(null == token || null == token.getExpiresAt()) {
+            throw new AuthException(HttpServletResponse.SC_BAD_GATEWAY, ErrorCode.FAILURE_INFORMATION);
+        }
+
+        return new ServiceToken(value, Instant.parse(token.getExpiresAt()).toEpochMilli());
+    }
+
+    private static final class ServiceToken {
+
+        private final String value;
+
+        private final long expiresAt;
+
+        private final long obtainedAt;
+
+        ServiceToken(String value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+            this.obtainedAt = System.currentTimeMillis();
+        }
+    }
+
+}
@@ -16,8 +16,12 @@
 
 package org.openo.auth.rest.client;
 
+import java.io.IOException;
+import java.io.InputStream;
+
 import javax.ws.rs.core.Response;
 
+import org.apache.cxf.helpers.IOUtils;
 import org.openo.auth.constant.Constant;
 import org.openo.auth.entity.ClientResponse;
 import org.slf4j.Logger;
@@ -87,6 +91,35 @@ public class TokenServiceClient {
 
         response.setStatus(userResponse.getStatus());
 
+        response.setBody(readBody(userResponse));
+
+        return response;
+    }
+
+    /**
+     * Exchanges a token for a token scoped to a project.
+     * <br/>
+     * 
+     * @param json : Request Body Input, to perform the operation.
+     * @return response : An Object which has status header and body, for which the value is set
+     *         according to the response given by the Service Client, the header is the scoped
+     *         token.
+     * @since  
+     */
+    public ClientResponse doScope(String json) {
+
+        Response userResponse = ClientCommunicationUtil.getInstance()
+                .getResponseFromService(Constant.KEYSTONE_IDENTITY_TOKEN, json, Constant.TYPE_POST);
+        LOGGER.info("Response status = " + userResponse.getStatus());
+
+        ClientResponse response = new ClientResponse();
+
+        response.setHeader(userResponse.getHeaderString(Constant.TOKEN_SUBJECT));
+
+        response.setStatus(userResponse.getStatus());
+
+        response.setBody(readBody(userResponse));
+
         return response;
     }
 
@@ -134,4 +167,42 @@ public class TokenServiceClient {
         return userResponse.getStatus();
     }
 
+    /**
+     * Validates the token and provides the body of the validation, which has the user, the
+     * project and the expiry of the token.
+     * <br/>
+     * 
+     * @param token : Auth token, which represents the current session.
+     * @return response : An Object which has status and body, for which the value is set
+     *         according to the response given by the Service Client.
+     * @since  
+     */
+    public ClientResponse validateToken(String token) {
+
+        Response userResponse = ClientCommunicationUtil.getInstance()
+                .getResponseFromService(Constant.KEYSTONE_IDENTITY_TOKEN, token, Constant.TYPE_HEAD);
+
+        LOGGER.info("Response Staus= " + userResponse.getStatus());
+
+        ClientResponse response = new ClientResponse();
+
+        response.setStatus(userResponse.getStatus());
+
+        response.setBody(readBody(userResponse));
+
+        return response;
+    }
+
+    private String readBody(Response userResponse) {
+
+        if(userResponse.hasEntity() && userResponse.getEntity() instanceof InputStream) {
+            try {
+                return IOUtils.toString((InputStream)userResponse.getEntity());
+            } catch(IOException e) {
+                LOGGER.error("Exception caught : " + e);
+            }
+        }
+        return null;
+    }
+
 }
@@ -19,15 +19,32 @@ package org.openo.auth.rest.client;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import javax.servlet.http.HttpServletResponse;
 import javax.ws.rs.core.Response;
 
 import org.apache.cxf.helpers.IOUtils;
 import org.apache.cxf.jaxrs.client.WebClient;
+import org.codehaus.jackson.JsonNode;
 import org.codehaus.jackson.jaxrs.JacksonJsonProvider;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.node.ArrayNode;
+import org.codehaus.jackson.node.ObjectNode;
 import org.openo.auth.common.ConfigUtil;
+import org.openo.auth.common.cache.RoleAssignmentCache;
+import org.openo.auth.common.cluster.CacheInvalidator;
+import org.openo.auth.common.keystone.DomainContext;
+import org.openo.auth.common.keystone.KeyStoneConfigInitializer;
+import org.openo.auth.common.keystone.KeyStoneDomain;
+import org.openo.auth.common.keystone.ShardRouter;
 import org.openo.auth.constant.Constant;
 import org.openo.auth.constant.ErrorCode;
 import org.openo.auth.entity.ClientResponse;
@@ -59,6 +76,8 @@ public class UserServiceClient {
 
     private static UserServiceClient instance = new UserServiceClient();
 
+    private final ObjectMapper mapper = new ObjectMapper();
+
     private UserServiceClient() {
         // Default Private Constructor
     }
@@ -147,7 +166,6 @@ public class UserServiceClient {
      * Fetches the user details of all users.
      * <br/>
      * 
-     * @param userId : user id for which user details need to be fetched.
      * @param authToken : Auth Token, representing the current session.
      * @return response : An Object which has status header and body, for which the value is set
      *         according to the response given by the Service Client.
@@ -162,6 +180,230 @@ public class UserServiceClient {
         return makeResponse(userResponse);
     }
 
+    /**
+     * Fetches the user details of all users of all the shards : the users of the other shards are
+     * added, read with the token of the Auth Service, once the configured KeyStone accepted the
+     * token. The caller checks that the user of the token may read the users of every shard.
+     * <br/>
+     * 
+     * @param authToken : Auth Token, representing the current session.
+     * @return response : An Object which has status header and body, for which the value is set
+     *         according to the response given by the Service Client.
+     * @since  
+     */
+    public ClientResponse getUsersOfAllShards(String authToken) {
+
+        ClientResponse response = getUserDetails(authToken);
+
+        if(!isSpanningShards() || response.getStatus() / 100 != 2) {
+            return response;
+        }
+
+        List<Future<ClientResponse>> shardUsers = new ArrayList<Future<ClientResponse>>();
+
+        for(KeyStoneDomain shard : getOtherShards()) {
+            shardUsers.add(ShardRouter.getInstance().submit(shard, new Callable<ClientResponse>() {
+
+                public ClientResponse call() {
+                    return makeResponse(ClientCommunicationUtil.getInstance().getResponseFromService(
+                            Constant.KEYSTONE_IDENTITY_USER, getServiceToken(), "", Constant.TYPE_GET));
+                }
+            }));
+        }
+
+        return mergeUsers(response, shardUsers);
+    }
+
+    /**
+     * Fetches the first page of the users of each shard but the configured KeyStone, in parallel,
+     * with the token of the Auth Service. The caller checks that the user of the request may read
+     * the users of every shard.
+     * <br/>
+     *
+     * @return firstPages : the first page of each shard, in the order of the shards, empty when
+     *         the request does not span the shards.
+     * @since
+     */
+    public Map<KeyStoneDomain, Future<Response>> listUsersOfOtherShards() {
+
+        Map<KeyStoneDomain, Future<Response>> firstPages = new LinkedHashMap<KeyStoneDomain, Future<Response>>();
+
+        if(!isSpanningShards()) {
+            return firstPages;
+        }
+
+        for(KeyStoneDomain shard : getOtherShards()) {
+            firstPages.put(shard, ShardRouter.getInstance().submit(shard, new Callable<Response>() {
+
+                public Response call() {
+                    return listUsers(null, getServiceToken());
+                }
+            }));
+        }
+        return firstPages;
+    }
+
+    /**
+     * Provides the token the Auth Service calls the KeyStone of the current domain with.
+     * <br/>
+     *
+     * @return serviceToken : the service token of the current domain.
+     * @since
+     */
+    public String getServiceToken() {
+        return ServiceTokenManager.getInstance().getToken(KeyStoneConfigInitializer.getKeystoneConfiguration());
+    }
+
+    /**
+     * Checks whether the request is about all the users of a sharded KeyStone : the requests of a
+     * domain stay on the shard of the domain, and the synthetic requests of the warm up on the
+     * stub they are redirected to.
+     * <br/>
+     *
+     * @return <tt>true</tt> if the users of the other shards may be added.
+     * @since
+     */
+    public boolean isSpanningShards() {
+        return ShardRouter.getInstance().isEnabled() && null == DomainContext.current()
+                && !ConfigUtil.isThreadRedirected();
+    }
+
+    private static List<KeyStoneDomain> getOtherShards() {
+
+        List<KeyStoneDomain> shards = new ArrayList<KeyStoneDomain>();
+
+        for(KeyStoneDomain shard : ShardRouter.getInstance().getShards()) {
+            if(shard.hasOwnEndpoint()) {
+                shards.add(shard);
+            }
+        }
+        return shards;
+    }
+
+    /**
+     * Adds the users of the other shards to the users of the configured KeyStone. A shard which
+     * fails or does not answer in time fails the whole list, rather than silently missing users.
+     * <br/>
+     *
+     * @since
+     */
+    private ClientResponse mergeUsers(ClientResponse response, List<Future<ClientResponse>> shardUsers) {
+
+        long deadline = System.currentTimeMillis() + ShardRouter.getInstance().getTimeout();
+
+        try {
+            ArrayNode users = mapper.createArrayNode();
+
+            addUsers(users, response);
+
+            for(Future<ClientResponse> future : shardUsers) {
+
+                ClientResponse shardResponse = future.get(Math.max(0, deadline - System.currentTimeMillis()),
+                        TimeUnit.MILLISECONDS);
+
+                if(shardResponse.getStatus() / 100 != 2) {
+                    LOGGER.error("user list of a shard failed with status " + shardResponse.getStatus());
+                    throw new AuthException(HttpServletResponse.SC_BAD_GATEWAY, ErrorCode.COMMUNICATION_ERROR);
+                }
+                addUsers(users, shardResponse);
+            }
+
+            ObjectNode merged = mapper.createObjectNode();
+            merged.put("users", users);
+
+            response.setBody(mapper.writeValueAsString(merged));
+            return response;
+
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AuthException(HttpServletResponse.SC_BAD_GATEWAY, ErrorCode.COMMUNICATION_ERROR);
+        } catch(ExecutionException | TimeoutException | IOException e) {
+            LOGGER.error("Exception Caught while listing the users of the shards : " + e);
+            throw new AuthException(HttpServletResponse.SC_BAD_GATEWAY, ErrorCode.COMMUNICATION_ERROR);
+        } finally {
+            for(Future<ClientResponse> future : shardUsers) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    private void addUsers(ArrayNode users, ClientResponse response) throws IOException {
+
+        JsonNode shardUsers = mapper.readTree(response.getBody()).get("users");
+
+        if(null != shardUsers && shardUsers.isArray()) {
+            users.addAll((ArrayNode)shardUsers);
+        }
+    }
+
+    /**
+     * Fetches a page of the users, without reading the body, so that the caller can parse it as it
+     * is received.
+     * <br/>
+     *
+     * @param pageURL : URL of the page given by the previous page, <tt>null</tt> for the first page.
+     * @param authToken : Auth Token, representing the current session.
+     * @return response : The response of the Service Client, the entity is the body stream.
+     * @since
+     */
+    public Response listUsers(String pageURL, String authToken) {
+
+        final List<Object> providerList = new ArrayList<Object>();
+
+        providerList.add(new JacksonJsonProvider());
+
+        WebClient webClient = null == pageURL ? WebClient.create(ConfigUtil.getBaseURL(), providerList)
+                .path(Constant.KEYSTONE_IDENTITY_USER) : WebClient.create(pageURL, providerList);
+
+        ClientCommunicationUtil.getInstance().acceptCompressed(webClient);
+
+        webClient.accept(Constant.MEDIA_TYPE_JSON);
+        webClient.header(Constant.TOKEN_AUTH, authToken);
+
+        try {
+            LOGGER.info("The URL is : " + webClient.getCurrentURI());
+            return webClient.get();
+        } catch(Exception e) {
+            LOGGER.error("Exceptions " + e);
+            throw new AuthException(HttpServletResponse.SC_BAD_REQUEST, ErrorCode.COMMUNICATION_ERROR);
+        }
+    }
+
+    /**
+     * Fetches the effective role assignments of the user, with the names of the roles.
+     * <br/>
+     *
+     * @param userId : user id for which the role assignments need to be fetched.
+     * @param authToken : Auth Token, allowed to list the role assignments.
+     * @return response : An Object which has status header and body, for which the value is set
+     *         according to the response given by the Service Client.
+     * @since
+     */
+    public ClientResponse listRoleAssignments(String userId, String authToken) {
+
+        final List<Object> providerList = new ArrayList<Object>();
+
+        providerList.add(new JacksonJsonProvider());
+
+        WebClient webClient = ClientCommunicationUtil.getInstance()
+                .acceptCompressed(WebClient.create(ConfigUtil.getBaseURL(), providerList));
+
+        webClient.accept(Constant.MEDIA_TYPE_JSON);
+        webClient.header(Constant.TOKEN_AUTH, authToken);
+        webClient.path(Constant.KEYSTONE_ROLE_ASSIGNMENTS);
+        webClient.query("user.id", userId);
+        webClient.query("effective", "true");
+        webClient.query("include_names", "true");
+
+        try {
+            LOGGER.info("The URL is : " + webClient.getCurrentURI());
+            return makeResponse(webClient.get());
+        } catch(Exception e) {
+            LOGGER.error("Exceptions " + e);
+            throw new AuthException(HttpServletResponse.SC_BAD_REQUEST, ErrorCode.COMMUNICATION_ERROR);
+        }
+    }
+
     /**
      * Perform the Modify User operation for Auth Service.
      * <br/>
@@ -247,6 +489,10 @@ public class UserServiceClient {
             try {
                 LOGGER.info("The URL is : " + webClient.getCurrentURI());
                 userResponse = webClient.put(null);
+                if(userResponse.getStatus() / 100 == 2) {
+                    RoleAssignmentCache.getInstance().addRole(userId, projectId, roleId);
+                    CacheInvalidator.getInstance().rolesChanged(userId);
+                }
                 return userResponse.getStatus();
             } catch(Exception e) {
                 LOGGER.error("Exceptions " + e);
@@ -0,0 +1,303 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.openo.auth.rest.filter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import javax.servlet.http.HttpServletResponse;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.Provider;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+
+import org.apache.commons.lang3.StringUtils;
+import org.openo.auth.common.ConfigUtil;
+import org.openo.auth.common.compression.CompressionMetrics;
+import org.openo.auth.common.compression.DeflaterPool;
+import org.openo.auth.common.compression.GzipDeflaterOutputStream;
+import org.openo.auth.constant.Constant;
+
+/**
+ * <p>
+ * Compresses the responses of the REST API with gzip or deflate, as accepted by the client, when
+ * their body is at least <tt>http.compression.min_bytes</tt> long once encoded in UTF-8.
+ * </p>
+ * <p>
+ * The entity tag of a compressed response is made weak, since the compressed bytes are not the
+ * bytes the strong tag of the service stands for. A <tt>304 Not Modified</tt> answers with the
+ * weak tag when the client holds the compressed response.
+ * </p>
+ * <p>
+ * Only the bodies of a known size are compressed, the streamed bodies are left as written by the
+ * service, as well as the bodies which already have a content coding. The <tt>Deflater</tt> come
+ * from a pool, so that no native memory is allocated per response.
+ * </p>
+ *
+ * @author
+ * @version
+ */
+@Provider
+public class CompressionFilter implements ContainerResponseFilter, WriterInterceptor {
+
+    private static final String ENCODING = CompressionFilter.class.getName() + ".encoding";
+
+    private static final String GZIP = "gzip";
+
+    private static final String DEFLATE = "deflate";
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final boolean enabled = ConfigUtil.getBooleanProperty(Constant.HTTP_COMPRESSION_ENABLED, true);
+
+    private final int minBytes = ConfigUtil.getIntProperty(Constant.HTTP_COMPRESSION_MIN_BYTES, 1024);
+
+    private final DeflaterPool gzipPool;
+
+    private final DeflaterPool deflatePool;
+
+    /**
+     * Constructor<br/>
+     * <p>
+     * </p>
+     *
+     * @since
+     */
+    public CompressionFilter() {
+
+        int level = ConfigUtil.getIntProperty(Constant.HTTP_COMPRESSION_LEVEL, 6);
+
+        int poolSize = ConfigUtil.getIntProperty(Constant.HTTP_COMPRESSION_POOL_SIZE, 32);
+
+        this.gzipPool = new DeflaterPool(level, true, poolSize);
+
+        this.deflatePool = new DeflaterPool(level, false, poolSize);
+    }
+
+    /**
+     * Chooses the content coding of the response.
+     * <br/>
+     *
+     * @param request : the request.
+     * @param response : the response.
+     * @throws IOException never.
+     * @since
+     */
+    public void filter(ContainerRequestContext request, ContainerResponseContext response) throws IOException {
+
+        MultivaluedMap<String, Object> headers = response.getHeaders();
+
+        if(!enabled || headers.containsKey(HttpHeaders.CONTENT_ENCODING)) {
+            return;
+        }
+
+        if(response.getStatus() == HttpServletResponse.SC_NOT_MODIFIED) {
+            answerHeldTag(request, headers);
+            return;
+        }
+
+        long size = sizeOf(response.getEntity());
+
+        if(size < 0) {
+            return;
+        }
+
+        headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+
+        String encoding = size < minBytes ? null : negotiate(request.getHeaderString(HttpHeaders.ACCEPT_ENCODING));
+
+        if(null != encoding) {
+            headers.putSingle(HttpHeaders.CONTENT_ENCODING, encoding);
+            request.setProperty(ENCODING, encoding);
+
+            Object etag = headers.getFirst(HttpHeaders.ETAG);
+            if(null != etag) {
+                headers.putSingle(HttpHeaders.ETAG, weaken(etag.toString()));
+            }
+        }
+    }
+
+    private static void answerHeldTag(ContainerRequestContext request, MultivaluedMap<String, Object> headers) {
+
+        Object etag = headers.getFirst(HttpHeaders.ETAG);
+
+        String ifNoneMatch = request.getHeaderString(HttpHeaders.IF_NONE_MATCH);
+
+        if(null == etag || null == ifNoneMatch) {
+            return;
+        }
+
+        String weak = weaken(etag.toString());
+
+        for(String tag : ifNoneMatch.split(",")) {
+            if(weak.equals(tag.trim())) {
+                headers.putSingle(HttpHeaders.ETAG, weak);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Provides the weak form of an entity tag.
+     * <br/>
+     *
+     * @param etag : the entity tag.
+     * @return etag : the weak entity tag.
+     * @since
+     */
+    static String weaken(String etag) {
+        return etag.startsWith("W/") ? etag : "W/" + etag;
+    }
+
+    /**
+     * Writes the response through the compression chosen by the filter.
+     * <br/>
+     *
+     * @param context : the context of the writing.
+     * @throws IOException if the response can not be written.
+     * @since
+     */
+    public void aroundWriteTo(WriterInterceptorContext context) throws IOException {
+
+        Object encoding = context.getProperty(ENCODING);
+
+        if(null == encoding) {
+            context.proceed();
+            return;
+        }
+
+        context.getHeaders().remove(HttpHeaders.CONTENT_LENGTH);
+
+        boolean gzip = GZIP.equals(encoding);
+
+        DeflaterPool pool = gzip ? gzipPool : deflatePool;
+
+        Deflater deflater = pool.borrow();
+
+        OutputStream output = context.getOutputStream();
+
+        CompressionMetrics metrics = CompressionMetrics.getInstance();
+
+        long start = metrics.cpuTime();
+
+        try {
+            DeflaterOutputStream compressed = gzip ? new GzipDeflaterOutputStream(output, deflater)
+                    : new DeflaterOutputStream(output, deflater, BUFFER_SIZE);
+
+            context.setOutputStream(compressed);
+            context.proceed();
+            compressed.finish();
+
+            long bytesOut = gzip ? ((GzipDeflaterOutputStream)compressed).getBytesWritten()
+                    : deflater.getBytesWritten();
+
+            metrics.responseCompressed(deflater.getBytesRead(), bytesOut, metrics.cpuTime() - start);
+
+        } finally {
+            context.setOutputStream(output);
+            pool.release(deflater);
+        }
+    }
+
+    /**
+     * Provides the size of the body once written, a <tt>String</tt> being written in UTF-8.
+     * <br/>
+     *
+     * @param entity : the entity of the response.
+     * @return size : the size in bytes, -1 when the size is not known before writing.
+     * @since
+     */
+    static long sizeOf(Object entity) {
+
+        if(entity instanceof String) {
+            return utf8Length((String)entity);
+        }
+
+        if(entity instanceof byte[]) {
+            return ((byte[])entity).length;
+        }
+        return -1;
+    }
+
+    private static long utf8Length(String value) {
+
+        long length = 0;
+
+        for(int i = 0; i < value.length(); i++) {
+
+            char c = value.charAt(i);
+
+            if(c < 0x80) {
+                length++;
+            } else if(c < 0x800) {
+                length += 2;
+            } else if(Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Chooses gzip, then deflate, among the codings accepted by the client.
+     * <br/>
+     *
+     * @param accepted : the <tt>Accept-Encoding</tt> header.
+     * @return encoding : the coding of the response, <tt>null</tt> to send it uncompressed.
+     * @since
+     */
+    static String negotiate(String accepted) {
+
+        if(StringUtils.isEmpty(accepted)) {
+            return null;
+        }
+
+        boolean deflate = false;
+
+        for(String coding : accepted.split(",")) {
+
+            String[] parts = coding.trim().split(";");
+
+            String name = parts[0].trim();
+
+            boolean refused = parts.length > 1 && parts[1].trim().matches("q=0(\\.0*)?");
+
+            if(refused) {
+                continue;
+            }
+
+            if(GZIP.equalsIgnoreCase(name) || "*".equals(name)) {
+                return GZIP;
+            }
+
+            deflate |= DEFLATE.equalsIgnoreCase(name);
+        }
+        return deflate ? DEFLATE : null;
+    }
+
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.rest.filter;
+
+import java.io.IOException;
+import java.net.URI;
+
+import javax.servlet.http.HttpServletResponse;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.container.PreMatching;
+import javax.ws.rs.core.UriBuilder;
+import javax.ws.rs.ext.Provider;
+
+import org.openo.auth.common.keystone.DomainContext;
+import org.openo.auth.common.keystone.DomainRegistry;
+import org.openo.auth.common.keystone.KeyStoneDomain;
+import org.openo.auth.constant.Constant;
+import org.openo.auth.constant.ErrorCode;
+import org.openo.auth.exception.AuthException;
+
+/**
+ * <p>
+ * Selects the domain of a request, by its name or id in the <tt>X-Auth-Domain</tt> header or in
+ * front of the path : <tt>/openoapi/auth/v1/domains/acme/tokens</tt> is served as
+ * <tt>/openoapi/auth/v1/tokens</tt> in the domain <tt>acme</tt>. A request without a domain is
+ * served in the domain of the <tt>keystone_config.properties</tt> file, an unknown domain is
+ * answered 404, and a header naming another domain than the path 400.
+ * </p>
+ *
+ * @author
+ * @version
+ */
+@Provider
+@PreMatching
+public class DomainFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+    private static final String DOMAINS_PATH = "domains/";
+
+    /**
+     * Enters the domain of the request.
+     * <br/>
+     *
+     * @param request : the request.
+     * @throws IOException never.
+     * @since
+     */
+    public void filter(ContainerRequestContext request) throws IOException {
+
+        // A thread only serves one request at a time, nothing of a previous request is kept.
+        DomainContext.restore(null);
+
+        String name = request.getHeaderString(Constant.AUTH_DOMAIN);
+
+        String[] fromPath = splitDomainPath(request.getUriInfo().getPath(false));
+
+        if(null != fromPath) {
+            if(null != name && !name.equals(fromPath[0])) {
+                abort(request, HttpServletResponse.SC_BAD_REQUEST);
+                return;
+            }
+            name = fromPath[0];
+
+            URI uri = request.getUriInfo().getRequestUri();
+            request.setRequestUri(request.getUriInfo().getBaseUri(),
+                    UriBuilder.fromUri(uri).replacePath(request.getUriInfo().getBaseUri().getRawPath())
+                            .path(fromPath[1]).build());
+        }
+
+        if(null == name || name.isEmpty()) {
+            return;
+        }
+
+        KeyStoneDomain domain = DomainRegistry.getInstance().get(name);
+
+        if(null == domain) {
+            abort(request, HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        DomainContext.enter(domain);
+    }
+
+    /**
+     * Leaves the domain of the request, once answered.
+     * <br/>
+     *
+     * @param request : the request.
+     * @param response : the response.
+     * @throws IOException never.
+     * @since
+     */
+    public void filter(ContainerRequestContext request, ContainerResponseContext response) throws IOException {
+        DomainContext.restore(null);
+    }
+
+    /**
+     * Splits a path starting with <tt>domains/{domain}</tt>.
+     * <br/>
+     *
+     * @param path : the path of the request, relative to the base of the REST API.
+     * @return split : the domain and the rest of the path, <tt>null</tt> when the path does not
+     *         start with a domain.
+     * @since
+     */
+    static String[] splitDomainPath(String path) {
+
+        String relative = null == path ? "" : path.startsWith("/") ? path.substring(1) : path;
+
+        if(!relative.startsWith(DOMAINS_PATH)) {
+            return null;
+        }
+
+        int end = relative.indexOf('/', DOMAINS_PATH.length());
+
+        String domain = end < 0 ? relative.substring(DOMAINS_PATH.length())
+                : relative.substring(DOMAINS_PATH.length(), end);
+
+        if(domain.isEmpty()) {
+            return null;
+        }
+        return new String[] {domain, end < 0 ? "" : relative.substring(end + 1)};
+    }
+
+    private static void abort(ContainerRequestContext request, int status) {
+        request.abortWith(new AuthException(status, ErrorCode.UNKNOWN_DOMAIN).getResponse());
+    }
+
+}
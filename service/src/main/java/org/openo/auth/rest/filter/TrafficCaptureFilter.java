@@ -0,0 +1,96 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.rest.filter;
+
+import java.io.IOException;
+
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.ext.Provider;
+
+import org.openo.auth.common.capture.CapturedEndpoint;
+import org.openo.auth.common.capture.TrafficCaptureLog;
+import org.openo.auth.constant.Constant;
+
+/**
+ * <p>
+ * Records every request of the REST API to the traffic capture log, when the capture is
+ * enabled. The request itself is never altered.
+ * </p>
+ *
+ * @author
+ * @version
+ */
+@Provider
+public class TrafficCaptureFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+    private static final String RECEIVED = TrafficCaptureFilter.class.getName() + ".received";
+
+    /**
+     * Notes the time the request was received.
+     * <br/>
+     *
+     * @param request : the request.
+     * @throws IOException never.
+     * @since
+     */
+    public void filter(ContainerRequestContext request) throws IOException {
+        if(TrafficCaptureLog.getInstance().isEnabled()) {
+            request.setProperty(RECEIVED, System.nanoTime());
+        }
+    }
+
+    /**
+     * Records the request once answered.
+     * <br/>
+     *
+     * @param request : the request.
+     * @param response : the response.
+     * @throws IOException never.
+     * @since
+     */
+    public void filter(ContainerRequestContext request, ContainerResponseContext response) throws IOException {
+
+        Object received = request.getProperty(RECEIVED);
+
+        if(!(received instanceof Long)) {
+            return;
+        }
+
+        long receivedNanos = (Long)received;
+
+        String path = request.getUriInfo().getPath();
+
+        TrafficCaptureLog.getInstance().record(CapturedEndpoint.of(request.getMethod(), path),
+                request.getHeaderString(Constant.TOKEN_AUTH), CapturedEndpoint.userIdOf(path), response.getStatus(),
+                request.getLength(), responseSize(response), receivedNanos, System.nanoTime() - receivedNanos);
+    }
+
+    private static long responseSize(ContainerResponseContext response) {
+
+        if(response.getLength() >= 0) {
+            return response.getLength();
+        }
+
+        Object entity = response.getEntity();
+
+        return entity instanceof String ? ((String)entity).length() : -1;
+    }
+
+}
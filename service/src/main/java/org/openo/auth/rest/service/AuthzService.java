@@ -0,0 +1,89 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.rest.service;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.Response;
+
+import org.openo.auth.service.inf.IAuthzDelegate;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * <p>
+ * This class is the entry point for the authorization decisions.
+ * </p>
+ * <br/>
+ * 
+ * @author
+ * @version  
+ */
+@Path("/authz")
+public class AuthzService {
+
+    @Autowired
+    IAuthzDelegate authzDelegate;
+
+    public IAuthzDelegate getAuthzDelegate() {
+        return authzDelegate;
+    }
+
+    public void setAuthzDelegate(IAuthzDelegate authzDelegate) {
+        this.authzDelegate = authzDelegate;
+    }
+
+    /**
+     * Perform Authorization check Operation, whether the user of a token holds a role on a
+     * project.
+     * <br/>
+     * 
+     * @param request : HttpServletRequest Object
+     * @param response : HttpServletResponse Object
+     * @return response with the decision.
+     * @since  
+     */
+    @POST
+    @Path("/check")
+    @Produces("application/json")
+    @Consumes({"application/json"})
+    public Response checkRole(@Context HttpServletRequest request, @Context HttpServletResponse response) {
+        return authzDelegate.checkRole(request, response);
+    }
+
+    /**
+     * Perform Policy evaluation Operation, whether a rule of the policy file allows the user of a
+     * token to act on a target.
+     * <br/>
+     * 
+     * @param request : HttpServletRequest Object
+     * @param response : HttpServletResponse Object
+     * @return response with the decision.
+     * @since  
+     */
+    @POST
+    @Path("/policy")
+    @Produces("application/json")
+    @Consumes({"application/json"})
+    public Response evaluatePolicy(@Context HttpServletRequest request, @Context HttpServletResponse response) {
+        return authzDelegate.evaluatePolicy(request, response);
+    }
+}
@@ -20,6 +20,7 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
+import javax.ws.rs.GET;
 import javax.ws.rs.HEAD;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
@@ -96,4 +97,71 @@ public class TokenService {
     public int checkToken(@Context HttpServletRequest request, @Context HttpServletResponse response) {
         return tokenDelegate.checkToken(request, response);
     }
+
+    /**
+     * Perform Validate tokens Operation, for a batch of tokens.
+     * <br/>
+     * 
+     * @param request : HttpServletRequest Object
+     * @param response : HttpServletResponse Object
+     * @return response with the result of each token.
+     * @since  
+     */
+    @POST
+    @Path("/validate")
+    @Produces("application/json")
+    @Consumes({"application/json"})
+    public Response validateTokens(@Context HttpServletRequest request, @Context HttpServletResponse response) {
+        return tokenDelegate.validateTokens(request, response);
+    }
+
+    /**
+     * Perform Scope token Operation, exchanging the token for a token scoped to a project.
+     * <br/>
+     * 
+     * @param request : HttpServletRequest Object
+     * @param response : HttpServletResponse Object
+     * @return response with the scoped token.
+     * @since  
+     */
+    @POST
+    @Path("/scope")
+    @Produces("application/json")
+    @Consumes({"application/json"})
+    public Response scopeToken(@Context HttpServletRequest request, @Context HttpServletResponse response) {
+        return tokenDelegate.scopeToken(request, response);
+    }
+
+    /**
+     * Perform Validate token Operation for another node of the cluster, which asks this node as
+     * the owner of the token.
+     * <br/>
+     * 
+     * @param request : HttpServletRequest Object
+     * @param response : HttpServletResponse Object
+     * @return response with the signed result of the token.
+     * @since  
+     */
+    @GET
+    @Path("/peer")
+    @Produces("application/json")
+    public Response checkTokenForPeer(@Context HttpServletRequest request, @Context HttpServletResponse response) {
+        return tokenDelegate.checkTokenForPeer(request, response);
+    }
+
+    /**
+     * Perform Forget token Operation for another node of the cluster, on which the token was
+     * revoked.
+     * <br/>
+     * 
+     * @param request : HttpServletRequest Object
+     * @param response : HttpServletResponse Object
+     * @return response without content.
+     * @since  
+     */
+    @DELETE
+    @Path("/peer")
+    public Response forgetTokenForPeer(@Context HttpServletRequest request, @Context HttpServletResponse response) {
+        return tokenDelegate.forgetTokenForPeer(request, response);
+    }
 }
@@ -22,11 +22,13 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.Response;
 
@@ -73,6 +75,23 @@ public class UserService {
         return userDelegate.createUser(request, response);
     }
 
+    /**
+     * Perform Create users Operation, for a bulk of users.
+     * <br/>
+     * 
+     * @param request : HttpServletRequest Object
+     * @param response : HttpServletResponse Object
+     * @return response streaming the result of each user.
+     * @since  
+     */
+    @POST
+    @Path("/bulk")
+    @Produces({"application/x-ndjson", "application/json"})
+    @Consumes({"application/json", "application/x-ndjson"})
+    public Response createUsers(@Context HttpServletRequest request, @Context HttpServletResponse response) {
+        return userDelegate.createUsers(request, response);
+    }
+
     /**
      * Perform Modify user Operation.
      * <br/>
@@ -166,4 +185,41 @@ public class UserService {
         return userDelegate.modifyPasword(request, response, userId);
     }
 
+    /**
+     * Lists the users from the KeyStone database, a page at a time.
+     * <br/>
+     * 
+     * @param request : HttpServletRequest Object
+     * @param response : HttpServletRequest Object
+     * @param marker : id of the last user of the previous page
+     * @param limit : maximum number of users of the page
+     * @param name : prefix of the user names
+     * @return response for the user directory operation
+     * @since  
+     */
+    @GET
+    @Path("/directory")
+    @Produces("application/json")
+    public Response getUserDirectory(@Context HttpServletRequest request, @Context HttpServletResponse response,
+            @QueryParam("marker") String marker, @QueryParam("limit") @DefaultValue("100") int limit,
+            @QueryParam("name") String name) {
+        return userDelegate.getUserDirectory(request, response, marker, limit, name);
+    }
+
+    /**
+     * Exports all the users, one user per line.
+     * <br/>
+     * 
+     * @param request : HttpServletRequest Object
+     * @param response : HttpServletResponse Object
+     * @return response streaming the users.
+     * @since  
+     */
+    @GET
+    @Path("/export")
+    @Produces({"application/x-ndjson", "application/json"})
+    public Response exportUsers(@Context HttpServletRequest request, @Context HttpServletResponse response) {
+        return userDelegate.exportUsers(request, response);
+    }
+
 }
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.service.impl;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Set;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.ws.rs.core.Response;
+
+import org.codehaus.jackson.map.ObjectMapper;
+import org.openo.auth.common.CommonUtil;
+import org.openo.auth.constant.ErrorCode;
+import org.openo.auth.entity.AuthzCheckUI;
+import org.openo.auth.entity.AuthzDecision;
+import org.openo.auth.entity.AuthzPolicyUI;
+import org.openo.auth.entity.TokenDetails;
+import org.openo.auth.exception.AuthException;
+import org.openo.auth.service.inf.IAuthzDelegate;
+import org.openo.auth.service.policy.PolicyCredentials;
+import org.openo.auth.service.policy.PolicyEngine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An Implementation Class of authorization service delegate.
+ * <br/>
+ * 
+ * @author 
+ * @version  
+ */
+public class AuthzServiceImpl implements IAuthzDelegate {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AuthzServiceImpl.class);
+
+    /**
+     * Perform Authorization check Operation, whether the user of a token holds a role on a
+     * project. The token is validated by the token caches and the role by the role assignments
+     * cache, the Service Client is only called for what these caches do not know.
+     * <br/>
+     * 
+     * @param request : HttpServletRequest Object
+     * @param response : HttpServletResponse Object
+     * @return response with the decision, 401 when the token is not valid.
+     * @since  
+     */
+    public Response checkRole(HttpServletRequest request, HttpServletResponse response) {
+
+        AuthzCheckUI check = CommonUtil.getInstance().getAuthzCheck(request, response);
+
+        AuthzDecision decision = new AuthzDecision();
+        decision.setProjectId(check.getProjectId());
+        decision.setRole(check.getRole());
+
+        int status = HttpServletResponse.SC_OK;
+
+        TokenDetails details = TokenValidator.getInstance().getTokenDetails(check.getToken());
+
+        if(null == details) {
+            status = HttpServletResponse.SC_UNAUTHORIZED;
+        } else {
+            decision.setUserId(details.getUserId());
+            decision.setAllowed(RoleAssignmentResolver.getInstance().hasRole(details.getUserId(),
+                    check.getProjectId(), check.getRole()));
+        }
+
+        LOGGER.info("authorization of " + decision.getUserId() + " as " + check.getRole() + " on "
+                + check.getProjectId() + " : " + decision.isAllowed());
+
+        return makeResponse(status, decision, response);
+    }
+
+    /**
+     * Perform Policy evaluation Operation, whether a rule of the policy file allows the user of a
+     * token to act on a target. The credentials of the rule are the user and the project of the
+     * token, and the roles of the user on this project, all given by the local caches. The rule is
+     * evaluated locally, compiled when the service started.
+     * <br/>
+     * 
+     * @param request : HttpServletRequest Object
+     * @param response : HttpServletResponse Object
+     * @return response with the decision, 401 when the token is not valid.
+     * @since  
+     */
+    public Response evaluatePolicy(HttpServletRequest request, HttpServletResponse response) {
+
+        AuthzPolicyUI policy = CommonUtil.getInstance().getAuthzPolicy(request, response);
+
+        AuthzDecision decision = new AuthzDecision();
+        decision.setRule(policy.getRule());
+
+        int status = HttpServletResponse.SC_OK;
+
+        TokenDetails details = TokenValidator.getInstance().getTokenDetails(policy.getToken());
+
+        if(null == details) {
+            status = HttpServletResponse.SC_UNAUTHORIZED;
+        } else {
+            decision.setUserId(details.getUserId());
+            decision.setProjectId(details.getProjectId());
+
+            Set<String> roles = null == details.getProjectId() ? Collections.<String> emptySet()
+                    : RoleAssignmentResolver.getInstance().getRoles(details.getUserId(), details.getProjectId());
+
+            PolicyCredentials credentials = new PolicyCredentials(details.getUserId(), details.getProjectId(), roles);
+
+            decision.setAllowed(PolicyEngine.getInstance().getPolicies().isAllowed(policy.getRule(), credentials,
+                    policy.getTarget()));
+        }
+
+        LOGGER.info("policy " + policy.getRule() + " for " + decision.getUserId() + " : " + decision.isAllowed());
+
+        return makeResponse(status, decision, response);
+    }
+
+    private Response makeResponse(int status, AuthzDecision decision, HttpServletResponse response) {
+
+        try {
+            response.setStatus(status);
+
+            return Response.status(status).entity(new ObjectMapper().writeValueAsString(decision)).build();
+
+        } catch(IOException e) {
+            LOGGER.error("Exception Caught " + e);
+            throw new AuthException(HttpServletResponse.SC_BAD_REQUEST, ErrorCode.COMMUNICATION_ERROR);
+        }
+    }
+
+}
@@ -0,0 +1,368 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.service.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.http.HttpServletResponse;
+import javax.ws.rs.core.StreamingOutput;
+
+import org.codehaus.jackson.JsonParseException;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.openo.auth.common.ConfigUtil;
+import org.openo.auth.common.IJsonService;
+import org.openo.auth.common.cache.UserNameCache;
+import org.openo.auth.common.cluster.CacheInvalidator;
+import org.openo.auth.common.keystone.DomainContext;
+import org.openo.auth.common.keystone.KeyStoneDomain;
+import org.openo.auth.constant.Constant;
+import org.openo.auth.constant.ErrorCode;
+import org.openo.auth.entity.BulkUserResult;
+import org.openo.auth.entity.ClientResponse;
+import org.openo.auth.entity.UserDetailsUI;
+import org.openo.auth.entity.keystone.req.KeyStoneConfiguration;
+import org.openo.auth.entity.keystone.resp.UserCreateWrapper;
+import org.openo.auth.exception.AuthException;
+import org.openo.auth.rest.client.UserServiceClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * Provisions the users of a bulk request : reads the records as a JSON array or as NDJSON,
+ * validates all of them before creating any, then creates each user and assigns it the default
+ * role and project.
+ * </p>
+ * <p>
+ * The users are created on a pool shared by all the bulk requests, which bounds the concurrent
+ * calls to the Service Client, and the result of each record is written as soon as it completes,
+ * one JSON object per line.
+ * </p>
+ *
+ * @author
+ * @version
+ */
+public class BulkUserProvisioner {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BulkUserProvisioner.class);
+
+    private static BulkUserProvisioner instance = new BulkUserProvisioner();
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private volatile ThreadPoolExecutor executor;
+
+    private BulkUserProvisioner() {
+    }
+
+    /**
+     * Singleton class, provides the instance of <tt>BulkUserProvisioner</tt> class.
+     * <br/>
+     *
+     * @return instance of <tt>BulkUserProvisioner</tt> class.
+     * @since
+     */
+    public static BulkUserProvisioner getInstance() {
+        return instance;
+    }
+
+    /**
+     * Reads the user records, either a JSON array of users or one user per line.
+     * <br/>
+     *
+     * @param input : the body of the request.
+     * @return records : the user records, in the order of the body.
+     * @throws IOException if the body is not a JSON array or a sequence of users.
+     * @since
+     */
+    public List<UserDetailsUI> readRecords(InputStream input) throws IOException {
+
+        int maxRecords = ConfigUtil.getIntProperty(Constant.USER_BULK_MAX_RECORDS, 10000);
+
+        List<UserDetailsUI> records = new ArrayList<UserDetailsUI>();
+
+        JsonParser parser = mapper.getJsonFactory().createJsonParser(input);
+
+        try {
+            JsonToken token = parser.nextToken();
+
+            if(token == JsonToken.START_ARRAY) {
+                token = parser.nextToken();
+            }
+
+            // An NDJSON body is a sequence of root level objects, which the parser reads as such.
+            while(null != token && token != JsonToken.END_ARRAY) {
+
+                if(token != JsonToken.START_OBJECT) {
+                    throw new JsonParseException("A user object is expected", parser.getCurrentLocation());
+                }
+
+                if(records.size() >= maxRecords) {
+                    LOGGER.error("bulk request larger than " + maxRecords + " records");
+                    throw new AuthException(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE, ErrorCode.BATCH_TOO_LARGE);
+                }
+
+                records.add(mapper.readValue(parser, UserDetailsUI.class));
+
+                token = parser.nextToken();
+            }
+        } finally {
+            parser.close();
+        }
+        return records;
+    }
+
+    /**
+     * Validates all the records against the user name and password rules, and rejects the user
+     * names given twice.
+     * <br/>
+     *
+     * @param records : the user records.
+     * @return invalid : the result of each invalid record, empty when all the records are valid.
+     * @since
+     */
+    public List<BulkUserResult> validate(List<UserDetailsUI> records) {
+
+        List<BulkUserResult> invalid = new ArrayList<BulkUserResult>();
+
+        Set<String> names = new HashSet<String>();
+
+        for(int i = 0; i < records.size(); i++) {
+
+            UserDetailsUI record = records.get(i);
+
+            String error = null;
+
+            if(null == record.getUserName() || null == record.getPassword()) {
+                error = ErrorCode.FAILURE_INFORMATION;
+            } else if(!names.add(record.getUserName())) {
+                error = ErrorCode.DUPLICATE_USER;
+            } else {
+                try {
+                    CheckUserInfoRule.checkInfo(record);
+                } catch(AuthException e) {
+                    error = String.valueOf(e.getResponse().getEntity());
+                }
+            }
+
+            if(null != error) {
+                BulkUserResult result = newResult(i, record);
+                result.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                result.setError(error);
+                invalid.add(result);
+            }
+        }
+        return invalid;
+    }
+
+    /**
+     * Provides the body of the response, which creates the users when it is written.
+     * <br/>
+     *
+     * @param records : the validated user records.
+     * @param authToken : Auth Token, representing the current session.
+     * @param keyConf : Default KeyStone configuration.
+     * @param jsonService : the JSON service of the Service Client.
+     * @return output : the NDJSON results, in the order of completion.
+     * @since
+     */
+    public StreamingOutput provision(final List<UserDetailsUI> records, final String authToken,
+            final KeyStoneConfiguration keyConf, final IJsonService jsonService) {
+
+        // The results are written once the request is served, in the domain of the request.
+        final KeyStoneDomain domain = DomainContext.current();
+
+        return new StreamingOutput() {
+
+            public void write(OutputStream output) throws IOException {
+
+                KeyStoneDomain previous = DomainContext.enter(domain);
+
+                try {
+                    writeResults(records, authToken, keyConf, jsonService, output);
+                } finally {
+                    DomainContext.restore(previous);
+                }
+            }
+        };
+    }
+
+    private void writeResults(final List<UserDetailsUI> records, final String authToken,
+            final KeyStoneConfiguration keyConf, final IJsonService jsonService, OutputStream output)
+            throws IOException {
+
+        long start = System.currentTimeMillis();
+
+        CompletionService<BulkUserResult> completion = new ExecutorCompletionService<BulkUserResult>(
+                getExecutor());
+
+        List<Future<BulkUserResult>> futures = new ArrayList<Future<BulkUserResult>>(records.size());
+
+        for(int i = 0; i < records.size(); i++) {
+
+            final int index = i;
+
+            futures.add(completion.submit(DomainContext.wrap(new Callable<BulkUserResult>() {
+
+                public BulkUserResult call() {
+                    return createUser(index, records.get(index), authToken, keyConf, jsonService);
+                }
+            })));
+        }
+
+        int created = 0;
+
+        try {
+            for(int i = 0; i < records.size(); i++) {
+
+                BulkUserResult result = completion.take().get();
+
+                if(null != result.getId()) {
+                    created++;
+                }
+
+                output.write(mapper.writeValueAsBytes(result));
+                output.write('\n');
+                output.flush();
+            }
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch(ExecutionException e) {
+            throw new IOException(e.getCause());
+        } finally {
+            // The records not started yet are dropped when the client goes away.
+            for(Future<BulkUserResult> future : futures) {
+                future.cancel(false);
+            }
+            LOGGER.info("bulk request of " + records.size() + " users, " + created + " created in "
+                    + (System.currentTimeMillis() - start) + " ms");
+        }
+    }
+
+    private BulkUserResult createUser(int index, UserDetailsUI record, String authToken,
+            KeyStoneConfiguration keyConf, IJsonService jsonService) {
+
+        BulkUserResult result = newResult(index, record);
+
+        try {
+            String json = jsonService.createUserJson(record, keyConf);
+
+            ClientResponse resp = UserServiceClient.getInstance().createUser(json, authToken);
+
+            int status = resp.getStatus();
+
+            result.setStatus(0 == status ? HttpServletResponse.SC_BAD_GATEWAY : status);
+
+            if(status / 100 == 2) {
+
+                UserCreateWrapper user = jsonService.keyStoneRespToCreateUserObj(resp.getBody());
+
+                String userId = user.getUser().getId();
+
+                CacheInvalidator.getInstance().usersChanged();
+
+                UserNameCache.getInstance().put(userId, record.getUserName());
+
+                result.setId(userId);
+                result.setRoleStatus(assignRolesToUser(authToken, keyConf, userId));
+            }
+        } catch(AuthException e) {
+            result.setStatus(e.getResponse().getStatus());
+            result.setError(String.valueOf(e.getResponse().getEntity()));
+        } catch(IOException | RuntimeException e) {
+            LOGGER.error("Exception Caught while creating user " + record.getUserName() + " ... " + e);
+            result.setStatus(HttpServletResponse.SC_BAD_GATEWAY);
+            result.setError(ErrorCode.COMMUNICATION_ERROR);
+        }
+        return result;
+    }
+
+    /**
+     * Assigning Default Role and Default Project to the users created.
+     * <br/>
+     *
+     * @param authToken : Auth Token, representing the current session.
+     * @param keyConf : Default KeyStone configuration
+     * @param userId : userId for which roles need to be assigned.
+     * @return Return the status for the operation.
+     * @since
+     */
+    private int assignRolesToUser(String authToken, KeyStoneConfiguration keyConf, String userId) {
+
+        String projectId = keyConf.getProjectId();
+
+        String roleId = keyConf.getRoleId();
+
+        return UserServiceClient.getInstance().assignRolesToUser(authToken, projectId, userId, roleId);
+    }
+
+    private static BulkUserResult newResult(int index, UserDetailsUI record) {
+        BulkUserResult result = new BulkUserResult();
+        result.setIndex(index);
+        result.setName(record.getUserName());
+        return result;
+    }
+
+    private ThreadPoolExecutor getExecutor() {
+
+        ThreadPoolExecutor current = executor;
+
+        if(null != current) {
+            return current;
+        }
+
+        synchronized(this) {
+            if(null == executor) {
+                int threads = Math.max(1, ConfigUtil.getIntProperty(Constant.USER_BULK_THREADS, 8));
+
+                final AtomicInteger count = new AtomicInteger();
+
+                executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                        new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+
+                            public Thread newThread(Runnable runnable) {
+                                Thread thread = new Thread(runnable, "auth-user-bulk-" + count.incrementAndGet());
+                                thread.setDaemon(true);
+                                return thread;
+                            }
+                        });
+                executor.allowCoreThreadTimeOut(true);
+            }
+            return executor;
+        }
+    }
+
+}
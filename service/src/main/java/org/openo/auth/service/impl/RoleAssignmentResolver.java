@@ -0,0 +1,265 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.service.impl;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.openo.auth.common.ConfigUtil;
+import org.openo.auth.common.cache.RoleAssignmentCache;
+import org.openo.auth.common.cache.RoleAssignmentCache.RoleAssignments;
+import org.openo.auth.common.keystone.DomainContext;
+import org.openo.auth.common.keystone.KeyStoneConfigInitializer;
+import org.openo.auth.constant.Constant;
+import org.openo.auth.constant.ErrorCode;
+import org.openo.auth.entity.ClientResponse;
+import org.openo.auth.exception.AuthException;
+import org.openo.auth.rest.client.ServiceTokenManager;
+import org.openo.auth.rest.client.UserServiceClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * Decides whether a user holds a role on a project, from the role assignments cache.
+ * </p>
+ * <p>
+ * The effective role assignments of a user are read from the Service Client with the token of the
+ * service at the first decision about the user. Later decisions are local : once stale, the
+ * assignments are still used while a single read per user refreshes them in the background. Past
+ * the maximum staleness they are read again before the decision, which fails rather than use them
+ * when the Service Client can not be read.
+ * </p>
+ *
+ * @author
+ * @version
+ */
+public class RoleAssignmentResolver {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RoleAssignmentResolver.class);
+
+    private static RoleAssignmentResolver instance = new RoleAssignmentResolver();
+
+    private final Set<String> refreshing = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    private volatile ThreadPoolExecutor refreshExecutor;
+
+    private RoleAssignmentResolver() {
+    }
+
+    /**
+     * Singleton class, provides the instance of <tt>RoleAssignmentResolver</tt> class.
+     * <br/>
+     *
+     * @return instance of <tt>RoleAssignmentResolver</tt> class.
+     * @since
+     */
+    public static RoleAssignmentResolver getInstance() {
+        return instance;
+    }
+
+    /**
+     * Checks whether the user holds the role on the project.
+     * <br/>
+     *
+     * @param userId : id of the user.
+     * @param projectId : id of the project.
+     * @param role : id or name of the role.
+     * @return <tt>true</tt> if the role is assigned to the user on the project, directly, through
+     *         a group or by inheritance.
+     * @throws AuthException : 502 when the role assignments are not known, or too old, and can not
+     *             be read from the Service Client.
+     * @since
+     */
+    public boolean hasRole(String userId, String projectId, String role) {
+        return getAssignments(userId).hasRole(projectId, role);
+    }
+
+    /**
+     * Provides the roles of the user on the project.
+     * <br/>
+     *
+     * @param userId : id of the user.
+     * @param projectId : id of the project.
+     * @return roles : the ids and names of the roles assigned to the user on the project.
+     * @since
+     */
+    public Set<String> getRoles(String userId, String projectId) {
+        return getAssignments(userId).getRoles(projectId);
+    }
+
+    private RoleAssignments getAssignments(String userId) {
+
+        RoleAssignmentCache cache = RoleAssignmentCache.getInstance();
+
+        RoleAssignments assignments = cache.get(userId);
+
+        if(null == assignments || cache.isExpired(assignments)) {
+            assignments = load(userId);
+        } else if(cache.isStale(assignments)) {
+            refresh(userId);
+        }
+        return assignments;
+    }
+
+    private RoleAssignments load(String userId) {
+
+        RoleAssignmentCache cache = RoleAssignmentCache.getInstance();
+
+        long changes = cache.getChanges();
+
+        String serviceToken = ServiceTokenManager.getInstance()
+                .getToken(KeyStoneConfigInitializer.getKeystoneConfiguration());
+
+        ClientResponse resp = UserServiceClient.getInstance().listRoleAssignments(userId, serviceToken);
+
+        if(resp.getStatus() / 100 != 2) {
+            LOGGER.error("role assignments could not be read, status : " + resp.getStatus());
+            throw new AuthException(HttpServletResponse.SC_BAD_GATEWAY, ErrorCode.COMMUNICATION_ERROR);
+        }
+
+        RoleAssignments assignments = readAssignments(resp.getBody());
+
+        cache.put(userId, assignments, changes);
+
+        return assignments;
+    }
+
+    private void refresh(final String userId) {
+
+        if(!refreshing.add(userId)) {
+            return;
+        }
+
+        try {
+            getRefreshExecutor().execute(DomainContext.wrap(new Runnable() {
+
+                public void run() {
+                    try {
+                        load(userId);
+                    } catch(AuthException e) {
+                        LOGGER.warn("role assignments not refreshed, the cached ones are kept : " + e);
+                    } finally {
+                        refreshing.remove(userId);
+                    }
+                }
+            }));
+        } catch(RejectedExecutionException e) {
+            refreshing.remove(userId);
+        }
+    }
+
+    /**
+     * Reads the role assignments given by the Service Client, only the roles on projects are kept.
+     * <br/>
+     *
+     * @param body : the body of the role assignments of a user.
+     * @return assignments : the ids and names of the roles, by project id.
+     * @since
+     */
+    static RoleAssignments readAssignments(String body) {
+
+        Map<String, Set<String>> roles = new HashMap<String, Set<String>>();
+
+        try {
+            JsonNode list = null == body ? null : new ObjectMapper().readTree(body).get("role_assignments");
+
+            if(null == list || !list.isArray()) {
+                throw new IOException("no role assignments");
+            }
+
+            Iterator<JsonNode> iterator = list.getElements();
+
+            while(iterator.hasNext()) {
+                JsonNode assignment = iterator.next();
+
+                String projectId = assignment.path("scope").path("project").path("id").getTextValue();
+
+                if(null == projectId) {
+                    continue;
+                }
+
+                Set<String> projectRoles = roles.get(projectId);
+
+                if(null == projectRoles) {
+                    projectRoles = new HashSet<String>();
+                    roles.put(projectId, projectRoles);
+                }
+
+                addIfPresent(projectRoles, assignment.path("role").path("id").getTextValue());
+                addIfPresent(projectRoles, assignment.path("role").path("name").getTextValue());
+            }
+        } catch(IOException e) {
+            LOGGER.error("Exception Caught " + e);
+            throw new AuthException(HttpServletResponse.SC_BAD_GATEWAY, ErrorCode.COMMUNICATION_ERROR);
+        }
+
+        return new RoleAssignments(roles);
+    }
+
+    private static void addIfPresent(Set<String> roles, String role) {
+        if(null != role) {
+            roles.add(role);
+        }
+    }
+
+    private ThreadPoolExecutor getRefreshExecutor() {
+
+        ThreadPoolExecutor executor = refreshExecutor;
+
+        if(null != executor) {
+            return executor;
+        }
+
+        synchronized(this) {
+            if(null == refreshExecutor) {
+                int threads = Math.max(1, ConfigUtil.getIntProperty(Constant.AUTHZ_ROLE_REFRESH_THREADS, 2));
+
+                final AtomicInteger count = new AtomicInteger();
+
+                refreshExecutor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                        new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+
+                            public Thread newThread(Runnable runnable) {
+                                Thread thread = new Thread(runnable, "auth-role-refresh-" + count.incrementAndGet());
+                                thread.setDaemon(true);
+                                return thread;
+                            }
+                        });
+                refreshExecutor.allowCoreThreadTimeOut(true);
+            }
+            return refreshExecutor;
+        }
+    }
+
+}
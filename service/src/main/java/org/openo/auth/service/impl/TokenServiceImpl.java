@@ -16,21 +16,40 @@
 
 package org.openo.auth.service.impl;
 
+import java.io.IOException;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
 import javax.servlet.http.Cookie;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.ws.rs.core.NewCookie;
 import javax.ws.rs.core.Response;
 
+import org.apache.commons.lang3.StringUtils;
+import org.codehaus.jackson.map.ObjectMapper;
 import org.openo.auth.common.CommonUtil;
+import org.openo.auth.common.ConfigUtil;
 import org.openo.auth.common.JsonFactory;
 import org.openo.auth.common.IJsonService;
+import org.openo.auth.common.cache.ScopedTokenCache;
+import org.openo.auth.common.cache.ScopedTokenCache.ScopedToken;
+import org.openo.auth.common.cache.TokenCacheFactory;
+import org.openo.auth.common.cache.UserNameCache;
+import org.openo.auth.common.cluster.CacheInvalidator;
+import org.openo.auth.common.cluster.PeerTokenCache;
 import org.openo.auth.common.keystone.KeyStoneConfigInitializer;
 import org.openo.auth.constant.Constant;
 import org.openo.auth.constant.ErrorCode;
 import org.openo.auth.entity.ClientResponse;
+import org.openo.auth.entity.ScopedTokenResult;
+import org.openo.auth.entity.TokenScopeUI;
+import org.openo.auth.entity.TokenValidationResult;
 import org.openo.auth.entity.UserCredentialUI;
 import org.openo.auth.entity.keystone.req.KeyStoneConfiguration;
+import org.openo.auth.entity.keystone.resp.Token;
+import org.openo.auth.entity.keystone.resp.TokenWrapper;
 import org.openo.auth.exception.AuthException;
 import org.openo.auth.rest.client.TokenServiceClient;
 import org.openo.auth.service.inf.ITokenDelegate;
@@ -77,6 +96,10 @@ public class TokenServiceImpl implements ITokenDelegate {
         response.addCookie(authToken);
 
         LOGGER.info("login result status : " + status);
+
+        if(status / 100 == 2) {
+            rememberUserName(resp.getBody());
+        }
         
         LOGGER.info("login's user is : " + userInfo.getUserName());
 
@@ -86,6 +109,32 @@ public class TokenServiceImpl implements ITokenDelegate {
 
     }
 
+    /**
+     * Remembers the name of the user the token is issued to, for the password changes.
+     * <br/>
+     * 
+     * @param body : the body of the token issued by the Service Client.
+     * @since  
+     */
+    private void rememberUserName(String body) {
+
+        if(null == body || body.isEmpty()) {
+            return;
+        }
+
+        try {
+            TokenWrapper wrapper = getJsonService().keyStoneRespToTokenObj(body);
+
+            Token token = null == wrapper ? null : wrapper.getToken();
+
+            if(null != token && null != token.getUser()) {
+                UserNameCache.getInstance().put(token.getUser().getId(), token.getUser().getName());
+            }
+        } catch(IOException e) {
+            LOGGER.warn("token body could not be read : " + e);
+        }
+    }
+
     /**
      * Get the Json Service instance according the service registered in the
      * <tt>auth_service.properties</tt> file.
@@ -131,6 +180,8 @@ public class TokenServiceImpl implements ITokenDelegate {
         authCookie.setMaxAge(0);
         response.addCookie(authCookie);
 
+        CacheInvalidator.getInstance().tokenRevoked(authToken);
+
         int status = TokenServiceClient.getInstance().doLogout(authToken);
 
         response.setStatus(status);
@@ -153,7 +204,7 @@ public class TokenServiceImpl implements ITokenDelegate {
 
         LOGGER.info("authToken" + authToken);
 
-        int status = TokenServiceClient.getInstance().checkToken(authToken);
+        int status = TokenValidator.getInstance().checkToken(authToken);
 
         response.setStatus(status);
 
@@ -161,4 +212,212 @@ public class TokenServiceImpl implements ITokenDelegate {
 
     }
 
+    /**
+     * Perform Validate tokens Operation, for a batch of tokens.
+     * <br/>
+     * 
+     * @param request : HttpServletRequest Object
+     * @param response : HttpServletResponse Object
+     * @return response with the result of each token, in the order of the request.
+     * @since  
+     */
+    public Response validateTokens(HttpServletRequest request, HttpServletResponse response) {
+
+        List<String> tokens = CommonUtil.getInstance().getTokenList(request, response);
+
+        if(tokens.size() > ConfigUtil.getIntProperty(Constant.TOKEN_BATCH_MAX_SIZE, 500)) {
+            LOGGER.error("token batch too large : " + tokens.size());
+            throw new AuthException(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE, ErrorCode.BATCH_TOO_LARGE);
+        }
+
+        List<TokenValidationResult> results = TokenValidator.getInstance().checkTokens(tokens);
+
+        try {
+            response.setStatus(HttpServletResponse.SC_OK);
+
+            return Response.status(HttpServletResponse.SC_OK).entity(new ObjectMapper().writeValueAsString(results))
+                    .build();
+
+        } catch(IOException e) {
+            LOGGER.error("Exception Caught " + e);
+            throw new AuthException(HttpServletResponse.SC_BAD_REQUEST, ErrorCode.COMMUNICATION_ERROR);
+        }
+    }
+
+    /**
+     * Perform Scope token Operation, exchanging the token for a token scoped to a project. The
+     * scoped tokens are cached per token and project, a repeated request is answered from the
+     * cache.
+     * <br/>
+     * 
+     * @param request : HttpServletRequest Object
+     * @param response : HttpServletResponse Object
+     * @return response with the scoped token in the <tt>X-Subject-Token</tt> header.
+     * @since  
+     */
+    public Response scopeToken(HttpServletRequest request, HttpServletResponse response) {
+
+        String authToken = request.getHeader(Constant.TOKEN_AUTH);
+
+        if(StringUtils.isEmpty(authToken)) {
+            throw new AuthException(HttpServletResponse.SC_UNAUTHORIZED, ErrorCode.FAILURE_INFORMATION);
+        }
+
+        TokenScopeUI scope = CommonUtil.getInstance().getTokenScope(request, response);
+
+        final KeyStoneConfiguration keyConf = KeyStoneConfigInitializer.getKeystoneConfiguration();
+
+        String scopeKey = StringUtils.isNotEmpty(scope.getProjectId()) ? "id:" + scope.getProjectId()
+                : "name:" + StringUtils.defaultString(scope.getDomainName(), keyConf.getDomainName()) + "/"
+                        + scope.getProjectName();
+
+        ScopedToken scopedToken = ScopedTokenCache.getInstance().get(authToken, scopeKey);
+
+        // A cached scoped token is only given for a token still valid, KeyStone checks it otherwise.
+        if(null != scopedToken) {
+
+            int status = TokenValidator.getInstance().checkToken(authToken);
+
+            if(status != HttpServletResponse.SC_OK) {
+                LOGGER.info("scope of a token no longer valid, status : " + status);
+                ScopedTokenCache.getInstance().remove(authToken);
+                response.setStatus(status);
+                return Response.status(status).entity("[]").build();
+            }
+        }
+
+        if(null == scopedToken) {
+
+            ClientResponse resp = TokenServiceClient.getInstance()
+                    .doScope(getJsonService().getTokenScopeJson(authToken, scope, keyConf));
+
+            LOGGER.info("scope result status : " + resp.getStatus());
+
+            if(resp.getStatus() / 100 != 2) {
+                response.setStatus(resp.getStatus());
+                return Response.status(resp.getStatus()).entity("[]").build();
+            }
+
+            scopedToken = readScopedToken(resp);
+
+            ScopedTokenCache.getInstance().put(authToken, scopeKey, scopedToken);
+        }
+
+        response.setStatus(HttpServletResponse.SC_OK);
+
+        return Response.status(HttpServletResponse.SC_OK).header(Constant.TOKEN_SUBJECT, scopedToken.getToken())
+                .entity(scopedToken.getBody()).build();
+    }
+
+    /**
+     * Reads the scoped token issued by the Service Client, and the body given to the client.
+     * <br/>
+     * 
+     * @param resp : the response of the Service Client.
+     * @return scopedToken : the scoped token.
+     * @since  
+     */
+    private ScopedToken readScopedToken(ClientResponse resp) {
+
+        try {
+            TokenWrapper wrapper = StringUtils.isEmpty(resp.getBody()) ? null
+                    : getJsonService().keyStoneRespToTokenObj(resp.getBody());
+
+            Token token = null == wrapper ? null : wrapper.getToken();
+
+            if(StringUtils.isEmpty(resp.getHeader()) || null == token || null == token.getExpiresAt()) {
+                throw new IOException("no scoped token");
+            }
+
+            ScopedTokenResult result = new ScopedTokenResult();
+            result.setUserId(null == token.getUser() ? null : token.getUser().getId());
+            result.setProjectId(null == token.getProject() ? null : token.getProject().getId());
+            result.setExpiresAt(token.getExpiresAt());
+
+            return new ScopedToken(resp.getHeader(), result.getUserId(), new ObjectMapper().writeValueAsString(result),
+                    Instant.parse(token.getExpiresAt()).toEpochMilli());
+
+        } catch(IOException | DateTimeParseException e) {
+            LOGGER.error("Exception Caught " + e);
+            throw new AuthException(HttpServletResponse.SC_BAD_GATEWAY, ErrorCode.COMMUNICATION_ERROR);
+        }
+    }
+
+    /**
+     * Perform Validate token Operation for another node of the cluster, which asks this node as
+     * the owner of the token. The token is answered from the caches of this node or else from the
+     * Service Client, and the answer is signed for the asking node.
+     * <br/>
+     * 
+     * @param request : HttpServletRequest Object
+     * @param response : HttpServletResponse Object
+     * @return response with the signed result of the token.
+     * @since  
+     */
+    public Response checkTokenForPeer(HttpServletRequest request, HttpServletResponse response) {
+
+        String authToken = request.getHeader(Constant.TOKEN_SUBJECT);
+
+        String signature = verifyPeer(request, authToken);
+
+        TokenValidationResult result = TokenValidator.getInstance().checkTokenForPeer(authToken);
+
+        try {
+            String body = new ObjectMapper().writeValueAsString(result);
+
+            response.setStatus(HttpServletResponse.SC_OK);
+
+            return Response.status(HttpServletResponse.SC_OK).entity(body)
+                    .header(Constant.PEER_SIGNATURE, PeerTokenCache.getInstance().signAnswer(signature, body)).build();
+
+        } catch(IOException e) {
+            LOGGER.error("Exception Caught " + e);
+            throw new AuthException(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, ErrorCode.COMMUNICATION_ERROR);
+        }
+    }
+
+    /**
+     * Perform Forget token Operation for another node of the cluster, on which the token was
+     * revoked : the token is dropped from the cache of this node, its owner.
+     * <br/>
+     * 
+     * @param request : HttpServletRequest Object
+     * @param response : HttpServletResponse Object
+     * @return response without content.
+     * @since  
+     */
+    public Response forgetTokenForPeer(HttpServletRequest request, HttpServletResponse response) {
+
+        String authToken = request.getHeader(Constant.TOKEN_SUBJECT);
+
+        verifyPeer(request, authToken);
+
+        TokenCacheFactory.getInstance().getTokenCache().remove(authToken);
+
+        response.setStatus(HttpServletResponse.SC_NO_CONTENT);
+
+        return Response.status(HttpServletResponse.SC_NO_CONTENT).build();
+    }
+
+    /**
+     * Verifies that the request was signed by a node of the cluster.
+     * <br/>
+     * 
+     * @param request : HttpServletRequest Object
+     * @param authToken : the token of the request.
+     * @return signature : the signature of the request.
+     * @since  
+     */
+    private String verifyPeer(HttpServletRequest request, String authToken) {
+
+        String signature = request.getHeader(Constant.PEER_SIGNATURE);
+
+        if(!PeerTokenCache.getInstance().verifyRequest(request.getMethod(), request.getHeader(Constant.PEER_TIME),
+                request.getHeader(Constant.AUTH_DOMAIN), authToken, signature)) {
+            LOGGER.error("peer request not signed by a node of the cluster");
+            throw new AuthException(HttpServletResponse.SC_FORBIDDEN, ErrorCode.ACCESS_DENIED);
+        }
+        return signature;
+    }
+
 }
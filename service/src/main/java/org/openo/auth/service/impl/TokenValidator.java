@@ -0,0 +1,471 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.service.impl;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.lang3.StringUtils;
+import org.openo.auth.common.ConfigUtil;
+import org.openo.auth.common.IJsonService;
+import org.openo.auth.common.JsonFactory;
+import org.openo.auth.common.cache.ITokenCache;
+import org.openo.auth.common.cache.NegativeTokenCache;
+import org.openo.auth.common.cache.TokenCacheFactory;
+import org.openo.auth.common.cache.UserNameCache;
+import org.openo.auth.common.cluster.PeerTokenCache;
+import org.openo.auth.common.keystone.DomainContext;
+import org.openo.auth.constant.Constant;
+import org.openo.auth.constant.ErrorCode;
+import org.openo.auth.entity.ClientResponse;
+import org.openo.auth.entity.TokenDetails;
+import org.openo.auth.entity.TokenValidationResult;
+import org.openo.auth.entity.keystone.resp.Token;
+import org.openo.auth.entity.keystone.resp.TokenWrapper;
+import org.openo.auth.exception.AuthException;
+import org.openo.auth.rest.client.TokenServiceClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * Validates the tokens, answering from the token caches when possible and from the Service Client
+ * otherwise.
+ * </p>
+ * <p>
+ * A batch of tokens is first answered from the caches, the remaining distinct tokens are then
+ * validated in parallel on a pool shared by all the batches, which bounds the concurrent calls to
+ * the Service Client.
+ * </p>
+ * <p>
+ * When the tokens are cached once in the cluster, a token missing from the caches is asked to the
+ * node owning it before the Service Client, and only the owner caches it.
+ * </p>
+ * <br/>
+ *
+ * @author
+ * @version
+ */
+public class TokenValidator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TokenValidator.class);
+
+    private static TokenValidator instance = new TokenValidator();
+
+    private final long batchTimeout = ConfigUtil.getLongProperty(Constant.TOKEN_BATCH_TIMEOUT_MS, 10000L);
+
+    private volatile ThreadPoolExecutor batchExecutor;
+
+    private TokenValidator() {
+    }
+
+    /**
+     * Singleton class, provides the instance of <tt>TokenValidator</tt> class.
+     * <br/>
+     *
+     * @return instance of <tt>TokenValidator</tt> class.
+     * @since
+     */
+    public static TokenValidator getInstance() {
+        return instance;
+    }
+
+    /**
+     * Validates the token.
+     * <br/>
+     *
+     * @param authToken : Auth token.
+     * @return status : the status of the validation.
+     * @since
+     */
+    public int checkToken(String authToken) {
+        return validate(authToken).getStatus();
+    }
+
+    /**
+     * Validates the token and provides the user and the project it belongs to.
+     * <br/>
+     *
+     * @param authToken : Auth token.
+     * @return details : the details of the token, <tt>null</tt> when the token is not valid or its
+     *         details are not known.
+     * @since
+     */
+    public TokenDetails getTokenDetails(String authToken) {
+        return validate(authToken).getDetails();
+    }
+
+    /**
+     * Validates the token for another node of the cluster, which found this node owns it : the
+     * token is answered from the caches of this node or else from the Service Client, never asked
+     * to another node.
+     * <br/>
+     *
+     * @param authToken : Auth token.
+     * @return result : the result of the token.
+     * @since
+     */
+    public TokenValidationResult checkTokenForPeer(String authToken) {
+        try {
+            return toResult(validate(authToken, false));
+        } catch(AuthException e) {
+            return toResult(new Validation(e.getResponse().getStatus(), null));
+        }
+    }
+
+    /**
+     * Validates a batch of tokens.
+     * <br/>
+     *
+     * @param authTokens : Auth tokens, duplicates are validated once.
+     * @return results : the result of each token, in the order of the tokens.
+     * @since
+     */
+    public List<TokenValidationResult> checkTokens(List<String> authTokens) {
+
+        List<TokenValidationResult> results = new ArrayList<TokenValidationResult>(authTokens.size());
+
+        Map<String, Validation> resolved = new LinkedHashMap<String, Validation>();
+
+        List<String> remaining = new ArrayList<String>();
+
+        for(String authToken : authTokens) {
+
+            if(StringUtils.isEmpty(authToken) || resolved.containsKey(authToken)) {
+                continue;
+            }
+
+            Validation local = validateLocally(authToken);
+
+            if(null == local) {
+                remaining.add(authToken);
+            }
+            resolved.put(authToken, local);
+        }
+
+        if(remaining.size() == 1) {
+            resolved.put(remaining.get(0), safeValidate(remaining.get(0)));
+        } else if(!remaining.isEmpty()) {
+            validateInParallel(remaining, resolved);
+        }
+
+        for(String authToken : authTokens) {
+            Validation validation = StringUtils.isEmpty(authToken)
+                    ? new Validation(HttpServletResponse.SC_UNAUTHORIZED, null) : resolved.get(authToken);
+            results.add(toResult(validation));
+        }
+
+        LOGGER.info("token batch of " + authTokens.size() + ", " + remaining.size() + " sent to the Service Client");
+
+        return results;
+    }
+
+    private void validateInParallel(List<String> authTokens, Map<String, Validation> resolved) {
+
+        ThreadPoolExecutor executor = getBatchExecutor();
+
+        List<Future<Validation>> futures = new ArrayList<Future<Validation>>(authTokens.size());
+
+        for(final String authToken : authTokens) {
+            futures.add(executor.submit(DomainContext.wrap(new Callable<Validation>() {
+
+                public Validation call() {
+                    return safeValidate(authToken);
+                }
+            })));
+        }
+
+        long deadline = System.currentTimeMillis() + batchTimeout;
+
+        for(int i = 0; i < authTokens.size(); i++) {
+
+            Future<Validation> future = futures.get(i);
+
+            Validation validation;
+
+            try {
+                validation = future.get(Math.max(0L, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+            } catch(TimeoutException e) {
+                future.cancel(true);
+                validation = new Validation(HttpServletResponse.SC_GATEWAY_TIMEOUT, null);
+            } catch(ExecutionException e) {
+                LOGGER.error("Exception Caught while validating a token ... " + e.getCause());
+                validation = new Validation(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, null);
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+                future.cancel(true);
+                validation = new Validation(HttpServletResponse.SC_SERVICE_UNAVAILABLE, null);
+            }
+            resolved.put(authTokens.get(i), validation);
+        }
+    }
+
+    private Validation safeValidate(String authToken) {
+        try {
+            return validate(authToken);
+        } catch(AuthException e) {
+            return new Validation(e.getResponse().getStatus(), null);
+        }
+    }
+
+    private ThreadPoolExecutor getBatchExecutor() {
+
+        ThreadPoolExecutor executor = batchExecutor;
+
+        if(null != executor) {
+            return executor;
+        }
+
+        synchronized(this) {
+            if(null == batchExecutor) {
+                int threads = Math.max(1, ConfigUtil.getIntProperty(Constant.TOKEN_BATCH_THREADS, 16));
+
+                final AtomicInteger count = new AtomicInteger();
+
+                batchExecutor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                        new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+
+                            public Thread newThread(Runnable runnable) {
+                                Thread thread = new Thread(runnable, "auth-token-batch-" + count.incrementAndGet());
+                                thread.setDaemon(true);
+                                return thread;
+                            }
+                        });
+                batchExecutor.allowCoreThreadTimeOut(true);
+            }
+            return batchExecutor;
+        }
+    }
+
+    private static TokenValidationResult toResult(Validation validation) {
+
+        TokenValidationResult result = new TokenValidationResult();
+
+        int status = validation.getStatus();
+
+        result.setStatus(status);
+        result.setValid(status >= HttpServletResponse.SC_OK && status < HttpServletResponse.SC_MULTIPLE_CHOICES);
+
+        TokenDetails details = validation.getDetails();
+
+        if(null != details) {
+            result.setUserId(details.getUserId());
+            result.setProjectId(details.getProjectId());
+            result.setExpiresAt(Instant.ofEpochMilli(details.getExpiresAt()).toString());
+        }
+        return result;
+    }
+
+    private Validation validateLocally(String authToken) {
+
+        Integer rejected = NegativeTokenCache.getInstance().getRejectedStatus(authToken);
+
+        if(null != rejected) {
+            return new Validation(rejected, null);
+        }
+
+        TokenDetails cached = TokenCacheFactory.getInstance().getTokenCache().get(authToken);
+
+        if(null != cached) {
+            return new Validation(HttpServletResponse.SC_OK, cached);
+        }
+        return null;
+    }
+
+    private Validation validate(String authToken) {
+        return validate(authToken, true);
+    }
+
+    private Validation validate(String authToken, boolean askOwner) {
+
+        Integer rejected = NegativeTokenCache.getInstance().getRejectedStatus(authToken);
+
+        if(null != rejected) {
+            LOGGER.info("token recently rejected, status : " + rejected);
+            return new Validation(rejected, null);
+        }
+
+        ITokenCache tokenCache = TokenCacheFactory.getInstance().getTokenCache();
+
+        TokenDetails cached = tokenCache.get(authToken);
+
+        if(null != cached) {
+            return new Validation(HttpServletResponse.SC_OK, cached);
+        }
+
+        if(askOwner) {
+            Validation owned = askOwner(authToken);
+            if(null != owned) {
+                return owned;
+            }
+        }
+
+        ClientResponse resp = TokenServiceClient.getInstance().validateToken(authToken);
+
+        int status = resp.getStatus();
+
+        if(status == HttpServletResponse.SC_UNAUTHORIZED) {
+            // KeyStone refused the token of the service, renewed by the ServiceTokenManager, the
+            // token of the request is not known to be invalid and is not remembered as such.
+            LOGGER.warn("token could not be validated, the service token was refused.");
+            return new Validation(status, null);
+        }
+
+        TokenDetails details = null;
+
+        if(status >= HttpServletResponse.SC_OK && status < HttpServletResponse.SC_MULTIPLE_CHOICES) {
+            details = readTokenDetails(resp.getBody());
+            if(null != details) {
+                tokenCache.put(authToken, details);
+            }
+        }
+
+        NegativeTokenCache.getInstance().putIfRejected(authToken, status);
+
+        return new Validation(status, details);
+    }
+
+    /**
+     * Asks the node owning the token, the answer is not cached here since the owner caches it.
+     * <br/>
+     *
+     * @param authToken : Auth token.
+     * @return validation : the validation of the owner, <tt>null</tt> when this node owns the
+     *         token, the owner did not answer or could not validate it with its service token.
+     * @since
+     */
+    private Validation askOwner(String authToken) {
+
+        PeerTokenCache peers = PeerTokenCache.getInstance();
+
+        String owner = peers.ownerOf(authToken);
+
+        if(null == owner) {
+            return null;
+        }
+
+        TokenValidationResult result = peers.ask(owner, authToken);
+
+        if(null == result || result.getStatus() == HttpServletResponse.SC_UNAUTHORIZED) {
+            return null;
+        }
+
+        TokenDetails details = null;
+
+        if(result.isValid() && null != result.getUserId() && null != result.getExpiresAt()) {
+            try {
+                details = new TokenDetails();
+                details.setUserId(result.getUserId());
+                details.setProjectId(result.getProjectId());
+                details.setExpiresAt(Instant.parse(result.getExpiresAt()).toEpochMilli());
+            } catch(DateTimeParseException e) {
+                LOGGER.warn("token details of the owner could not be read : " + e);
+                details = null;
+            }
+        }
+
+        NegativeTokenCache.getInstance().putIfRejected(authToken, result.getStatus());
+
+        return new Validation(result.getStatus(), details);
+    }
+
+    /**
+     * Reads the details of the token from the body of the validation, <tt>null</tt> when the body
+     * can not be read, in which case the token is not cached.
+     * <br/>
+     *
+     * @param body : The body of the validation provided by the Service Client.
+     * @return details : The details of the token.
+     * @since
+     */
+    private TokenDetails readTokenDetails(String body) {
+
+        if(null == body || body.isEmpty()) {
+            return null;
+        }
+
+        try {
+            TokenWrapper wrapper = getJsonService().keyStoneRespToTokenObj(body);
+
+            Token token = null == wrapper ? null : wrapper.getToken();
+
+            if(null == token || null == token.getUser() || null == token.getExpiresAt()) {
+                return null;
+            }
+
+            UserNameCache.getInstance().put(token.getUser().getId(), token.getUser().getName());
+
+            TokenDetails details = new TokenDetails();
+            details.setUserId(token.getUser().getId());
+            details.setProjectId(null == token.getProject() ? null : token.getProject().getId());
+            details.setExpiresAt(Instant.parse(token.getExpiresAt()).toEpochMilli());
+            return details;
+
+        } catch(IOException | DateTimeParseException e) {
+            LOGGER.warn("token details could not be read, token not cached : " + e);
+            return null;
+        }
+    }
+
+    private IJsonService getJsonService() {
+
+        IJsonService jsonService = JsonFactory.getInstance().getJsonService();
+
+        if(null == jsonService) {
+            LOGGER.error("Exception Caught while connecting client ... ");
+            throw new AuthException(HttpServletResponse.SC_REQUEST_TIMEOUT, ErrorCode.AUTH_LOAD_FAILED);
+        }
+        return jsonService;
+    }
+
+    private static final class Validation {
+
+        private final int status;
+
+        private final TokenDetails details;
+
+        Validation(int status, TokenDetails details) {
+            this.status = status;
+            this.details = details;
+        }
+
+        int getStatus() {
+            return status;
+        }
+
+        TokenDetails getDetails() {
+            return details;
+        }
+    }
+
+}
@@ -0,0 +1,444 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.openo.auth.service.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+
+import org.apache.commons.lang3.StringUtils;
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.JsonParseException;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.openo.auth.common.ConfigUtil;
+import org.openo.auth.common.keystone.DomainContext;
+import org.openo.auth.common.keystone.KeyStoneDomain;
+import org.openo.auth.common.keystone.ShardRouter;
+import org.openo.auth.constant.Constant;
+import org.openo.auth.dao.UserDirectoryDao;
+import org.openo.auth.entity.UserDirectoryPage;
+import org.openo.auth.entity.UserResponse;
+import org.openo.auth.rest.client.UserServiceClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * Exports all the users, one JSON object per line, while they are read : only a page of users is
+ * held at a time, whatever the number of users, and the first users are sent before the last ones
+ * are read.
+ * </p>
+ * <p>
+ * The users are read from the KeyStone database a page at a time when the backend is enabled,
+ * otherwise the user list of KeyStone is parsed as it is received and its next pages are followed.
+ * An export which fails once started is cut without its last chunk, so that the client can tell it
+ * from a complete one.
+ * </p>
+ * <p>
+ * When the KeyStone is sharded, the users of the other shards follow the ones of the configured
+ * KeyStone, the first page of every shard being fetched in parallel while the previous shards are
+ * written.
+ * </p>
+ *
+ * @author
+ * @version
+ */
+public class UserExporter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UserExporter.class);
+
+    private static final String GZIP = "gzip";
+
+    private static final int GZIP_BUFFER = 8192;
+
+    private static UserExporter instance = new UserExporter();
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private UserExporter() {
+    }
+
+    /**
+     * Singleton class, provides the instance of <tt>UserExporter</tt> class.
+     * <br/>
+     *
+     * @return instance of <tt>UserExporter</tt> class.
+     * @since
+     */
+    public static UserExporter getInstance() {
+        return instance;
+    }
+
+    /**
+     * Tells whether the export is compressed, when enabled and accepted by the client.
+     * <br/>
+     *
+     * @param request : HttpServletRequest Object
+     * @return <tt>true</tt> if the export is sent with the gzip content encoding.
+     * @since
+     */
+    public boolean isGzipAccepted(HttpServletRequest request) {
+
+        if(!ConfigUtil.getBooleanProperty(Constant.USER_EXPORT_GZIP, true)) {
+            return false;
+        }
+
+        String accepted = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+
+        if(StringUtils.isEmpty(accepted)) {
+            return false;
+        }
+
+        for(String coding : accepted.split(",")) {
+
+            String[] parts = coding.trim().split(";");
+
+            if(GZIP.equalsIgnoreCase(parts[0].trim())) {
+                return parts.length < 2 || !parts[1].trim().matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Provides the export of the users of the KeyStone database.
+     * <br/>
+     *
+     * @param dao : the KeyStone database.
+     * @param gzip : whether the export is compressed.
+     * @return output : the NDJSON users, in the order of their ids.
+     * @since
+     */
+    public StreamingOutput exportDirectory(final UserDirectoryDao dao, boolean gzip) {
+
+        final int pageSize = getPageSize();
+
+        return new Export(gzip) {
+
+            @Override
+            protected void writeUsers(OutputStream output) throws IOException {
+
+                String marker = null;
+
+                do {
+                    UserDirectoryPage page = dao.listUsers(marker, null, pageSize);
+
+                    for(UserResponse user : page.getUsers()) {
+                        writeUser(output, user);
+                    }
+                    output.flush();
+
+                    marker = page.getNextMarker();
+                } while(null != marker);
+            }
+        };
+    }
+
+    /**
+     * Provides the export of the users of the Service Client, starting with the page already
+     * received.
+     * <br/>
+     *
+     * @param firstPage : the successful response of the first page of users.
+     * @param authToken : Auth Token, representing the current session.
+     * @param gzip : whether the export is compressed.
+     * @return output : the NDJSON users, in the order of the Service Client.
+     * @since
+     */
+    public StreamingOutput exportKeystone(Response firstPage, String authToken, boolean gzip) {
+        return exportKeystone(firstPage, authToken, Collections.<KeyStoneDomain, Future<Response>> emptyMap(), gzip);
+    }
+
+    /**
+     * Provides the export of the users of the configured KeyStone followed by the users of the
+     * other shards, whose first pages are fetched meanwhile.
+     * <br/>
+     *
+     * @param firstPage : the successful response of the first page of users.
+     * @param authToken : Auth Token, representing the current session.
+     * @param shardPages : the first page of each other shard, read with the service token.
+     * @param gzip : whether the export is compressed.
+     * @return output : the NDJSON users, shard after shard.
+     * @since
+     */
+    public StreamingOutput exportKeystone(final Response firstPage, final String authToken,
+            final Map<KeyStoneDomain, Future<Response>> shardPages, boolean gzip) {
+
+        final int flushEvery = getPageSize();
+
+        return new Export(gzip) {
+
+            @Override
+            protected void writeUsers(OutputStream output) throws IOException {
+
+                try {
+                    writePages(this, firstPage, authToken, output, flushEvery);
+
+                    for(Map.Entry<KeyStoneDomain, Future<Response>> shard : shardPages.entrySet()) {
+                        writeShard(this, shard.getKey(), shard.getValue(), output, flushEvery);
+                    }
+                } finally {
+                    closeAll(shardPages.values());
+                }
+            }
+        };
+    }
+
+    /**
+     * Writes the users of a shard, in the domain of the shard so that its next pages are followed
+     * on the shard itself.
+     * <br/>
+     *
+     * @since
+     */
+    private void writeShard(Export export, KeyStoneDomain shard, Future<Response> firstPage, OutputStream output,
+            int flushEvery) throws IOException {
+
+        Response page;
+
+        try {
+            page = firstPage.get(ShardRouter.getInstance().getTimeout(), TimeUnit.MILLISECONDS);
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("user export interrupted", e);
+        } catch(ExecutionException | TimeoutException e) {
+            throw new IOException("user list of " + shard + " failed", e);
+        }
+
+        KeyStoneDomain previous = DomainContext.enter(shard);
+
+        try {
+            writePages(export, page, UserServiceClient.getInstance().getServiceToken(), output, flushEvery);
+        } finally {
+            DomainContext.restore(previous);
+        }
+    }
+
+    /**
+     * Writes the users of a page and of the pages following it.
+     * <br/>
+     *
+     * @since
+     */
+    private void writePages(Export export, Response firstPage, String authToken, OutputStream output,
+            int flushEvery) throws IOException {
+
+        Response page = firstPage;
+
+        while(null != page) {
+
+            String next;
+            try {
+                if(page.getStatus() / 100 != 2) {
+                    throw new IOException("user list failed with status " + page.getStatus());
+                }
+                next = writePage(export, (InputStream)page.getEntity(), output, flushEvery);
+            } finally {
+                page.close();
+            }
+
+            page = null == next ? null : UserServiceClient.getInstance().listUsers(next, authToken);
+        }
+    }
+
+    /**
+     * Releases the first pages of the shards an export did not reach, when it failed.
+     * <br/>
+     *
+     * @since
+     */
+    private static void closeAll(Collection<Future<Response>> pages) {
+
+        for(Future<Response> page : pages) {
+
+            if(page.cancel(true) || page.isCancelled()) {
+                continue;
+            }
+            try {
+                page.get().close();
+            } catch(Exception e) {
+                LOGGER.debug("first page of a shard not closed : " + e);
+            }
+        }
+    }
+
+    /**
+     * Writes the users of a KeyStone user list while it is parsed.
+     * <br/>
+     *
+     * @return next : the URL of the next page, <tt>null</tt> on the last page.
+     * @since
+     */
+    private String writePage(Export export, InputStream body, OutputStream output, int flushEvery)
+            throws IOException {
+
+        String next = null;
+
+        JsonParser parser = mapper.getJsonFactory().createJsonParser(body);
+
+        try {
+            if(parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException("A user list is expected", parser.getCurrentLocation());
+            }
+
+            while(parser.nextToken() == JsonToken.FIELD_NAME) {
+
+                String field = parser.getCurrentName();
+
+                JsonToken token = parser.nextToken();
+
+                if("users".equals(field) && token == JsonToken.START_ARRAY) {
+
+                    while(parser.nextToken() == JsonToken.START_OBJECT) {
+
+                        export.writeUser(output, toUserResponse(mapper.readTree(parser)));
+
+                        if(export.count % flushEvery == 0) {
+                            output.flush();
+                        }
+                    }
+                } else if("links".equals(field) && token == JsonToken.START_OBJECT) {
+                    next = getNextPage(mapper.readTree(parser));
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        } finally {
+            parser.close();
+        }
+        output.flush();
+
+        return next;
+    }
+
+    /**
+     * Provides the next page given by KeyStone, which is only followed on the Service Client
+     * itself, so that the token of the caller is never sent elsewhere.
+     * <br/>
+     *
+     * @since
+     */
+    private static String getNextPage(JsonNode links) {
+
+        String next = getText(links, "next");
+
+        if(null == next) {
+            return null;
+        }
+
+        if(!next.startsWith(ConfigUtil.getBaseURL() + "/")) {
+            LOGGER.warn("next page " + next + " is not on the Service Client, export stopped");
+            return null;
+        }
+        return next;
+    }
+
+    private static UserResponse toUserResponse(JsonNode node) {
+        UserResponse user = new UserResponse();
+        user.setId(getText(node, "id"));
+        user.setName(getText(node, "name"));
+        user.setEmail(getText(node, "email"));
+        user.setDescription(getText(node, "description"));
+        return user;
+    }
+
+    private static String getText(JsonNode node, String field) {
+        JsonNode value = null == node ? null : node.get(field);
+        return null == value || value.isNull() ? null : value.asText();
+    }
+
+    private static int getPageSize() {
+        return Math.max(1, ConfigUtil.getIntProperty(Constant.USER_EXPORT_PAGE_SIZE, 500));
+    }
+
+    /**
+     * The body of an export, which counts the users written and compresses them when asked.
+     */
+    private abstract class Export implements StreamingOutput {
+
+        private final boolean gzip;
+
+        // The users are written once the request is served, in the domain of the request.
+        private final KeyStoneDomain domain = DomainContext.current();
+
+        private long count;
+
+        Export(boolean gzip) {
+            this.gzip = gzip;
+        }
+
+        public void write(OutputStream output) throws IOException {
+
+            KeyStoneDomain previous = DomainContext.enter(domain);
+
+            try {
+                writeExport(output);
+            } finally {
+                DomainContext.restore(previous);
+            }
+        }
+
+        private void writeExport(OutputStream output) throws IOException {
+
+            long start = System.currentTimeMillis();
+
+            // A sync flush sends the compressed users of each page instead of holding them back.
+            GZIPOutputStream compressed = gzip ? new GZIPOutputStream(output, GZIP_BUFFER, true) : null;
+
+            boolean complete = false;
+
+            try {
+                writeUsers(null == compressed ? output : compressed);
+
+                if(null != compressed) {
+                    compressed.finish();
+                }
+                output.flush();
+
+                complete = true;
+            } finally {
+                LOGGER.info("user export of " + count + " users " + (complete ? "completed" : "failed") + " in "
+                        + (System.currentTimeMillis() - start) + " ms");
+            }
+        }
+
+        void writeUser(OutputStream output, UserResponse user) throws IOException {
+            output.write(mapper.writeValueAsBytes(user));
+            output.write('\n');
+            count++;
+        }
+
+        protected abstract void writeUsers(OutputStream output) throws IOException;
+    }
+
+}
@@ -17,21 +17,36 @@
 package org.openo.auth.service.impl;
 
 import java.io.IOException;
+import java.util.List;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 
 import org.apache.commons.lang3.StringUtils;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
 import org.openo.auth.common.CommonUtil;
+import org.openo.auth.common.ConfigUtil;
 import org.openo.auth.common.IJsonService;
 import org.openo.auth.common.JsonFactory;
+import org.openo.auth.common.cache.UserNameCache;
+import org.openo.auth.common.cache.UserResponseCache;
+import org.openo.auth.common.cache.UserResponseCache.Representation;
+import org.openo.auth.common.cluster.CacheInvalidator;
 import org.openo.auth.common.keystone.KeyStoneConfigInitializer;
 import org.openo.auth.constant.Constant;
 import org.openo.auth.constant.ErrorCode;
+import org.openo.auth.dao.UserDirectoryDao;
+import org.openo.auth.entity.BulkUserResult;
 import org.openo.auth.entity.ClientResponse;
 import org.openo.auth.entity.ModifyPassword;
 import org.openo.auth.entity.ModifyUser;
+import org.openo.auth.entity.TokenDetails;
+import org.openo.auth.entity.UserDirectoryPage;
 import org.openo.auth.entity.UserDetailsUI;
 import org.openo.auth.entity.keystone.req.KeyStoneConfiguration;
 import org.openo.auth.entity.keystone.resp.UserCreateWrapper;
@@ -93,6 +108,8 @@ public class UserServiceImpl implements IUserDelegate {
 
             /* assign the role to the user */
             if(status / 200 == 1) {
+                CacheInvalidator.getInstance().usersChanged();
+                rememberUserNames(resp.getBody());
                 respBody = getJsonService().responseForCreateUser(resp.getBody());
             }
             res = Response.status(status).entity(respBody).build();
@@ -104,6 +121,49 @@ public class UserServiceImpl implements IUserDelegate {
         return res;
     }
 
+    /**
+     * Perform Create users Operation, for a bulk of users given as a JSON array or as NDJSON.
+     * All the users are validated before any is created, the result of each user is then
+     * streamed as NDJSON as soon as it is created.
+     * <br/>
+     * 
+     * @param request : HttpServletRequest Object
+     * @param response : HttpServletResponse Object
+     * @return response streaming the result of each user, or listing the invalid users.
+     * @since  
+     */
+    public Response createUsers(HttpServletRequest request, HttpServletResponse response) {
+
+        String authToken = request.getHeader(Constant.TOKEN_AUTH);
+
+        BulkUserProvisioner provisioner = BulkUserProvisioner.getInstance();
+
+        try {
+            List<UserDetailsUI> records = provisioner.readRecords(request.getInputStream());
+
+            LOGGER.info("bulk request of " + records.size() + " users");
+
+            List<BulkUserResult> invalid = provisioner.validate(records);
+
+            if(!invalid.isEmpty()) {
+                response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                return Response.status(HttpServletResponse.SC_BAD_REQUEST).type(Constant.MEDIA_TYPE_JSON)
+                        .entity(new ObjectMapper().writeValueAsString(invalid)).build();
+            }
+
+            KeyStoneConfiguration keyConf = KeyStoneConfigInitializer.getKeystoneConfiguration();
+
+            response.setStatus(HttpServletResponse.SC_OK);
+
+            return Response.status(HttpServletResponse.SC_OK).type(Constant.MEDIA_TYPE_NDJSON)
+                    .entity(provisioner.provision(records, authToken, keyConf, getJsonService())).build();
+
+        } catch(IOException e) {
+            LOGGER.error("Exception Caught " + e);
+            throw new AuthException(HttpServletResponse.SC_BAD_REQUEST, ErrorCode.FAILURE_INFORMATION);
+        }
+    }
+
     /**
      * Get the Json Service instance according the service registered in the
      * <tt>auth_service.properties</tt> file.
@@ -151,6 +211,7 @@ public class UserServiceImpl implements IUserDelegate {
         String respBody = resp.getBody();
 
         if(status / 200 == 1) {
+            CacheInvalidator.getInstance().userModified(userId);
             respBody = getJsonService().responseForModifyUser(resp.getBody());
         }
 
@@ -184,6 +245,11 @@ public class UserServiceImpl implements IUserDelegate {
 
         int status = UserServiceClient.getInstance().deleteUser(userId, authToken);
 
+        if(status / 200 == 1) {
+            // KeyStone revokes the tokens of a deleted user.
+            CacheInvalidator.getInstance().userRevoked(userId);
+        }
+
         response.setStatus(status);
 
         return status;
@@ -191,7 +257,8 @@ public class UserServiceImpl implements IUserDelegate {
     }
 
     /**
-     * Fetch details for the specific user.
+     * Fetch details for the specific user. The response carries the entity tag of the user, a
+     * request with a matching <tt>If-None-Match</tt> header is answered <tt>304 Not Modified</tt>.
      * <br/>
      * 
      * @param request : HttpServletRequest Object
@@ -206,6 +273,16 @@ public class UserServiceImpl implements IUserDelegate {
 
         LOGGER.info("authToken = " + authToken);
 
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+
+        Response notModified = getNotModified(response, userId, authToken, ifNoneMatch);
+
+        if(null != notModified) {
+            return notModified;
+        }
+
+        long generation = UserResponseCache.getInstance().getGeneration();
+
         ClientResponse resp = UserServiceClient.getInstance().getUserDetails(userId, authToken);
 
         int status = resp.getStatus();
@@ -215,7 +292,15 @@ public class UserServiceImpl implements IUserDelegate {
         String respBody = resp.getBody();
 
         if(status / 200 == 1) {
-            respBody = getJsonService().responseForCreateUser(resp.getBody());
+            Representation user = UserResponseCache.getInstance().update(userId, authToken, respBody, generation,
+                    new UserResponseCache.Mapper() {
+
+                        public String map(String body) {
+                            rememberUserNames(body);
+                            return getJsonService().responseForCreateUser(body);
+                        }
+                    });
+            return toResponse(response, status, user, ifNoneMatch);
         }
 
         Response res = null;
@@ -231,7 +316,9 @@ public class UserServiceImpl implements IUserDelegate {
     }
 
     /**
-     * Fetches the user details of all user.
+     * Fetches the user details of all user. The response carries the entity tag of the users, a
+     * request with a matching <tt>If-None-Match</tt> header is answered <tt>304 Not Modified</tt>.
+     * The users of the other shards are only given to an administrator.
      * <br/>
      * 
      * @param request : HttpServletRequest Object
@@ -245,7 +332,22 @@ public class UserServiceImpl implements IUserDelegate {
 
         LOGGER.info("authToken = " + authToken);
 
-        ClientResponse resp = UserServiceClient.getInstance().getUserDetails(authToken);
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+
+        boolean allShards = isSpanningShards(authToken);
+
+        String key = allShards ? UserResponseCache.ALL_SHARDS_USERS : UserResponseCache.ALL_USERS;
+
+        Response notModified = getNotModified(response, key, authToken, ifNoneMatch);
+
+        if(null != notModified) {
+            return notModified;
+        }
+
+        long generation = UserResponseCache.getInstance().getGeneration();
+
+        ClientResponse resp = allShards ? UserServiceClient.getInstance().getUsersOfAllShards(authToken)
+                : UserServiceClient.getInstance().getUserDetails(authToken);
 
         int status = resp.getStatus();
 
@@ -254,7 +356,15 @@ public class UserServiceImpl implements IUserDelegate {
         String respBody = resp.getBody();
 
         if(status / 200 == 1) {
-            respBody = getJsonService().responseForMultipleUsers(resp.getBody());
+            Representation users = UserResponseCache.getInstance().update(key, authToken, respBody, generation,
+                    new UserResponseCache.Mapper() {
+
+                        public String map(String body) {
+                            rememberUserNames(body);
+                            return getJsonService().responseForMultipleUsers(body);
+                        }
+                    });
+            return toResponse(response, status, users, ifNoneMatch);
         }
 
         Response res = null;
@@ -269,6 +379,115 @@ public class UserServiceImpl implements IUserDelegate {
 
     }
 
+    /**
+     * Remembers the names of the users of a KeyStone user or user list, for the password changes.
+     * <br/>
+     * 
+     * @param body : the body given by KeyStone.
+     * @since  
+     */
+    private void rememberUserNames(String body) {
+
+        try {
+            JsonNode root = new ObjectMapper().readTree(body);
+
+            JsonNode user = null == root ? null : root.get("user");
+
+            if(null != user) {
+                UserNameCache.getInstance().put(getText(user, "id"), getText(user, "name"));
+            }
+
+            JsonNode users = null == root ? null : root.get("users");
+
+            if(null != users) {
+                for(JsonNode each : users) {
+                    UserNameCache.getInstance().put(getText(each, "id"), getText(each, "name"));
+                }
+            }
+        } catch(IOException e) {
+            LOGGER.warn("user names could not be read : " + e);
+        }
+    }
+
+    private static String getText(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        return null == value || value.isNull() ? null : value.asText();
+    }
+
+    /**
+     * Answers <tt>304 Not Modified</tt> from the cache, when the client holds the cached users and
+     * its token, which KeyStone already gave them to, is still valid.
+     * <br/>
+     * 
+     * @param response : HttpServletResponse Object
+     * @param key : the user id, or <tt>ALL_USERS</tt>.
+     * @param authToken : Auth token of the request.
+     * @param ifNoneMatch : the <tt>If-None-Match</tt> header of the request.
+     * @return response : <tt>304 Not Modified</tt>, <tt>null</tt> when KeyStone has to be asked.
+     * @since  
+     */
+    private Response getNotModified(HttpServletResponse response, String key, String authToken, String ifNoneMatch) {
+
+        String etag = UserResponseCache.getInstance().getMatchingETag(key, authToken, ifNoneMatch);
+
+        if(null == etag || TokenValidator.getInstance().checkToken(authToken) != HttpServletResponse.SC_OK) {
+            return null;
+        }
+
+        response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+
+        return Response.status(HttpServletResponse.SC_NOT_MODIFIED).header(HttpHeaders.ETAG, etag).build();
+    }
+
+    /**
+     * Provides the users with their entity tag, or <tt>304 Not Modified</tt> when the client
+     * already holds them.
+     * <br/>
+     * 
+     * @since  
+     */
+    private Response toResponse(HttpServletResponse response, int status, Representation users, String ifNoneMatch) {
+
+        if(UserResponseCache.matches(ifNoneMatch, users.getETag())) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return Response.status(HttpServletResponse.SC_NOT_MODIFIED).header(HttpHeaders.ETAG, users.getETag())
+                    .build();
+        }
+        return Response.status(status).header(HttpHeaders.ETAG, users.getETag()).entity(users.getBody()).build();
+    }
+
+    /**
+     * Checks whether the users of all the shards are given to the user of the token. The other
+     * shards are read with the token of the Auth Service, so the user must hold the administrator
+     * role on the project set by <tt>keystone.shards.admin_project_id</tt>, none when it is not set.
+     * <br/>
+     * 
+     * @since  
+     */
+    private boolean isSpanningShards(String authToken) {
+
+        if(!UserServiceClient.getInstance().isSpanningShards()) {
+            return false;
+        }
+
+        String adminProject = ConfigUtil.getProperty(Constant.KEYSTONE_SHARDS_ADMIN_PROJECT, "");
+
+        TokenDetails details = StringUtils.isEmpty(adminProject) ? null
+                : TokenValidator.getInstance().getTokenDetails(authToken);
+
+        if(null == details) {
+            return false;
+        }
+
+        boolean admin = RoleAssignmentResolver.getInstance().hasRole(details.getUserId(), adminProject,
+                ConfigUtil.getProperty(Constant.KEYSTONE_SHARDS_ADMIN_ROLE, "admin"));
+
+        if(!admin) {
+            LOGGER.info("users of the other shards not given to " + details.getUserId());
+        }
+        return admin;
+    }
+
     /**
      * Modify the password for the user
      * <br/>
@@ -285,26 +504,41 @@ public class UserServiceImpl implements IUserDelegate {
 
         String authToken = request.getHeader(Constant.TOKEN_AUTH);
 
-        UserCreateWrapper user = null;
-
         LOGGER.info("authToken = " + authToken);
 
         ModifyPassword modifyPwd = CommonUtil.getInstance().modifyPasswordJson(request, response);
 
-        ClientResponse resp = UserServiceClient.getInstance().getUserDetails(userId, authToken);
+        String userName = UserNameCache.getInstance().get(userId);
+
+        if(null == userName) {
+
+            ClientResponse resp = UserServiceClient.getInstance().getUserDetails(userId, authToken);
 
-        if(resp.getStatus() / 200 == 1) {
-            user = getJsonService().keyStoneRespToCreateUserObj(resp.getBody());
+            UserCreateWrapper user = null;
+
+            if(resp.getStatus() / 200 == 1) {
+                user = getJsonService().keyStoneRespToCreateUserObj(resp.getBody());
+            }
+
+            if(user != null && user.getUser() != null) {
+                userName = user.getUser().getName();
+                UserNameCache.getInstance().put(userId, userName);
+            }
         }
 
-        if(user != null && user.getUser() != null && StringUtils.isNotEmpty(user.getUser().getName())) {
-            CheckUserInfoRule.checkPassword(modifyPwd.getPassword(), user.getUser().getName());
+        if(StringUtils.isNotEmpty(userName)) {
+            CheckUserInfoRule.checkPassword(modifyPwd.getPassword(), userName);
         }
 
         String json = getJsonService().modifyPasswordJson(modifyPwd);
 
         int status = UserServiceClient.getInstance().modifyPassword(userId, json, authToken);
 
+        if(status / 200 == 1) {
+            // KeyStone revokes the tokens of the user when its password changes.
+            CacheInvalidator.getInstance().userRevoked(userId);
+        }
+
         response.setStatus(status);
 
         return status;
@@ -312,22 +546,129 @@ public class UserServiceImpl implements IUserDelegate {
     }
 
     /**
-     * Assigning Default Role and Default Project to the users created.
+     * Lists the users from the KeyStone database, a page at a time. The database is read directly,
+     * so the caller must hold the administrator role, which KeyStone would otherwise check.
      * <br/>
      * 
-     * @param authToken : Auth Token, representing the current session.
-     * @param keyConf : Default KeyStone configuration
-     * @param userId : userId for which roles need to be assigned.
-     * @return Return the status for the operation.
+     * @param request : HttpServletRequest Object
+     * @param response : HttpServletResponse Object
+     * @param marker : id of the last user of the previous page
+     * @param limit : maximum number of users of the page
+     * @param name : prefix of the user names
+     * @return response for the user directory operation
      * @since  
      */
-    private int assignRolesToUser(String authToken, KeyStoneConfiguration keyConf, String userId) {
+    public Response getUserDirectory(HttpServletRequest request, HttpServletResponse response, String marker,
+            int limit, String name) {
+
+        UserDirectoryDao dao = UserDirectoryDao.getInstance();
 
-        String projectId = keyConf.getProjectId();
+        if(!dao.isEnabled()) {
+            throw new AuthException(HttpServletResponse.SC_NOT_IMPLEMENTED, ErrorCode.DIRECTORY_DISABLED);
+        }
+
+        String authToken = request.getHeader(Constant.TOKEN_AUTH);
+
+        TokenDetails details = TokenValidator.getInstance().getTokenDetails(authToken);
+
+        if(null == details) {
+            throw new AuthException(HttpServletResponse.SC_UNAUTHORIZED, ErrorCode.ACCESS_DENIED);
+        }
+
+        try {
+
+            if(!dao.isAdmin(details.getUserId())) {
+                LOGGER.warn("user directory denied to " + details.getUserId());
+                throw new AuthException(HttpServletResponse.SC_FORBIDDEN, ErrorCode.ACCESS_DENIED);
+            }
 
-        String roleId = keyConf.getRoleId();
+            UserDirectoryPage page = dao.listUsers(marker, name, limit);
 
-        return UserServiceClient.getInstance().assignRolesToUser(authToken, projectId, userId, roleId);
+            response.setStatus(HttpServletResponse.SC_OK);
+
+            return Response.status(HttpServletResponse.SC_OK).entity(new ObjectMapper().writeValueAsString(page))
+                    .build();
+
+        } catch(PersistenceException | IOException e) {
+            LOGGER.error("Exception Caught " + e);
+            throw new AuthException(HttpServletResponse.SC_BAD_REQUEST, ErrorCode.COMMUNICATION_ERROR);
+        }
+    }
+
+    /**
+     * Exports all the users as NDJSON. The users are read a page at a time, from the KeyStone
+     * database when it is enabled, with the same administrator check as the user directory, or
+     * else from the Service Client which checks the token itself.
+     * <br/>
+     * 
+     * @param request : HttpServletRequest Object
+     * @param response : HttpServletResponse Object
+     * @return response streaming the users.
+     * @since  
+     */
+    public Response exportUsers(HttpServletRequest request, HttpServletResponse response) {
+
+        String authToken = request.getHeader(Constant.TOKEN_AUTH);
+
+        UserExporter exporter = UserExporter.getInstance();
+
+        boolean gzip = exporter.isGzipAccepted(request);
+
+        UserDirectoryDao dao = UserDirectoryDao.getInstance();
+
+        StreamingOutput output;
+
+        if(dao.isEnabled()) {
+
+            TokenDetails details = TokenValidator.getInstance().getTokenDetails(authToken);
+
+            if(null == details) {
+                throw new AuthException(HttpServletResponse.SC_UNAUTHORIZED, ErrorCode.ACCESS_DENIED);
+            }
+
+            try {
+                if(!dao.isAdmin(details.getUserId())) {
+                    LOGGER.warn("user export denied to " + details.getUserId());
+                    throw new AuthException(HttpServletResponse.SC_FORBIDDEN, ErrorCode.ACCESS_DENIED);
+                }
+            } catch(PersistenceException e) {
+                LOGGER.error("Exception Caught " + e);
+                throw new AuthException(HttpServletResponse.SC_BAD_REQUEST, ErrorCode.COMMUNICATION_ERROR);
+            }
+
+            output = exporter.exportDirectory(dao, gzip);
+
+        } else {
+
+            // The first page is read before answering, so that a refused token gets its status.
+            Response firstPage = UserServiceClient.getInstance().listUsers(null, authToken);
+
+            int status = firstPage.getStatus();
+
+            if(status / 100 != 2) {
+                firstPage.close();
+                response.setStatus(status);
+                return Response.status(status).build();
+            }
+
+            // The other shards are listed only once the configured KeyStone accepted the token.
+            if(isSpanningShards(authToken)) {
+                output = exporter.exportKeystone(firstPage, authToken,
+                        UserServiceClient.getInstance().listUsersOfOtherShards(), gzip);
+            } else {
+                output = exporter.exportKeystone(firstPage, authToken, gzip);
+            }
+        }
+
+        response.setStatus(HttpServletResponse.SC_OK);
+
+        Response.ResponseBuilder builder = Response.status(HttpServletResponse.SC_OK).type(Constant.MEDIA_TYPE_NDJSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING).entity(output);
+
+        if(gzip) {
+            builder.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return builder.build();
     }
 
 }
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.service.inf;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.ws.rs.core.Response;
+
+/**
+ * An Authorization Service Delegate
+ * <br/>
+ * 
+ * @author
+ * @version  
+ */
+public interface IAuthzDelegate {
+
+    /**
+     * Perform Authorization check Operation, whether the user of a token holds a role on a
+     * project.
+     * <br/>
+     * 
+     * @param request : HttpServletRequest Object
+     * @param response : HttpServletResponse Object
+     * @return response with the decision.
+     * @since  
+     */
+    Response checkRole(HttpServletRequest request, HttpServletResponse response);
+
+    /**
+     * Perform Policy evaluation Operation, whether a rule of the policy file allows the user of a
+     * token to act on a target.
+     * <br/>
+     * 
+     * @param request : HttpServletRequest Object
+     * @param response : HttpServletResponse Object
+     * @return response with the decision.
+     * @since  
+     */
+    Response evaluatePolicy(HttpServletRequest request, HttpServletResponse response);
+
+}
@@ -63,4 +63,50 @@ public interface ITokenDelegate {
      * @since  
      */
     int checkToken(HttpServletRequest request, HttpServletResponse response);
+
+    /**
+     * Perform Validate tokens Operation, for a batch of tokens.
+     * <br/>
+     * 
+     * @param request : HttpServletRequest Object
+     * @param response : HttpServletResponse Object
+     * @return response with the result of each token.
+     * @since  
+     */
+    Response validateTokens(HttpServletRequest request, HttpServletResponse response);
+
+    /**
+     * Perform Scope token Operation, exchanging the token for a token scoped to a project.
+     * <br/>
+     * 
+     * @param request : HttpServletRequest Object
+     * @param response : HttpServletResponse Object
+     * @return response with the scoped token.
+     * @since  
+     */
+    Response scopeToken(HttpServletRequest request, HttpServletResponse response);
+
+    /**
+     * Perform Validate token Operation for another node of the cluster, which asks this node as
+     * the owner of the token.
+     * <br/>
+     * 
+     * @param request : HttpServletRequest Object
+     * @param response : HttpServletResponse Object
+     * @return response with the signed result of the token.
+     * @since  
+     */
+    Response checkTokenForPeer(HttpServletRequest request, HttpServletResponse response);
+
+    /**
+     * Perform Forget token Operation for another node of the cluster, on which the token was
+     * revoked.
+     * <br/>
+     * 
+     * @param request : HttpServletRequest Object
+     * @param response : HttpServletResponse Object
+     * @return response without content.
+     * @since  
+     */
+    Response forgetTokenForPeer(HttpServletRequest request, HttpServletResponse response);
 }
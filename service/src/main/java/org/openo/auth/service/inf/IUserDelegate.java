@@ -42,6 +42,17 @@ public interface IUserDelegate {
      */
     Response createUser(HttpServletRequest request, HttpServletResponse response);
 
+    /**
+     * Perform Create users Operation, for a bulk of users.
+     * <br/>
+     * 
+     * @param request : HttpServletRequest Object
+     * @param response : HttpServletResponse Object
+     * @return response streaming the result of each user.
+     * @since  
+     */
+    Response createUsers(HttpServletRequest request, HttpServletResponse response);
+
     /**
      * Perform Modify user Operation.
      * <br/>
@@ -102,4 +113,30 @@ public interface IUserDelegate {
      */
     int modifyPasword(HttpServletRequest request, HttpServletResponse response, String userId) throws IOException;
 
+    /**
+     * Lists the users from the KeyStone database, a page at a time.
+     * <br/>
+     * 
+     * @param request : HttpServletRequest Object
+     * @param response : HttpServletResponse Object
+     * @param marker : id of the last user of the previous page
+     * @param limit : maximum number of users of the page
+     * @param name : prefix of the user names
+     * @return response for the user directory operation
+     * @since  
+     */
+    Response getUserDirectory(HttpServletRequest request, HttpServletResponse response, String marker, int limit,
+            String name);
+
+    /**
+     * Exports all the users as NDJSON, streamed while the users are read.
+     * <br/>
+     * 
+     * @param request : HttpServletRequest Object
+     * @param response : HttpServletResponse Object
+     * @return response streaming the users.
+     * @since  
+     */
+    Response exportUsers(HttpServletRequest request, HttpServletResponse response);
+
 }
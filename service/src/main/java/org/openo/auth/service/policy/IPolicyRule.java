@@ -0,0 +1,55 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.service.policy;
+
+import java.util.Map;
+
+/**
+ * A compiled policy rule.
+ * <br/>
+ * <p>
+ * The rules are immutable and evaluated without any remote call, against the credentials of the
+ * caller and the target of the operation.
+ * </p>
+ *
+ * @author
+ * @version
+ */
+public interface IPolicyRule {
+
+    /**
+     * Evaluates the rule.
+     * <br/>
+     *
+     * @param credentials : the credentials of the caller.
+     * @param target : the attributes of the target of the operation.
+     * @return <tt>true</tt> if the rule allows the operation.
+     * @since
+     */
+    boolean evaluate(PolicyCredentials credentials, Map<String, String> target);
+
+    /**
+     * Provides the relative cost of the evaluation, the cheapest checks of a conjunction or a
+     * disjunction are evaluated first.
+     * <br/>
+     *
+     * @return cost : the relative cost of the evaluation.
+     * @since
+     */
+    int cost();
+
+}
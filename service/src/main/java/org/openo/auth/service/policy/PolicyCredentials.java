@@ -0,0 +1,114 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.service.policy;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * <p>
+ * The credentials of a caller, as known by the token caches : the user and the project of the
+ * token, and the roles of the user on this project.
+ * </p>
+ *
+ * @author
+ * @version
+ */
+public final class PolicyCredentials {
+
+    /**
+     * The credentials a rule can compare, <tt>user_id:%(user_id)s</tt> compares the user of the
+     * caller.
+     */
+    enum Key {
+        USER_ID("user_id"), PROJECT_ID("project_id");
+
+        private final String name;
+
+        Key(String name) {
+            this.name = name;
+        }
+
+        static Key of(String name) {
+            for(Key key : values()) {
+                if(key.name.equals(name)) {
+                    return key;
+                }
+            }
+            return null;
+        }
+    }
+
+    private final String userId;
+
+    private final String projectId;
+
+    private final Set<String> roles;
+
+    /**
+     * Constructor<br/>
+     * <p>
+     * </p>
+     *
+     * @param userId : id of the user of the token.
+     * @param projectId : id of the project of the token, <tt>null</tt> for an unscoped token.
+     * @param roles : ids and names of the roles of the user on the project.
+     * @since
+     */
+    public PolicyCredentials(String userId, String projectId, Set<String> roles) {
+
+        this.userId = userId;
+
+        this.projectId = projectId;
+
+        Set<String> lowerCase = new HashSet<String>();
+
+        if(null != roles) {
+            for(String role : roles) {
+                lowerCase.add(role.toLowerCase(Locale.ROOT));
+            }
+        }
+        this.roles = Collections.unmodifiableSet(lowerCase);
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public String getProjectId() {
+        return projectId;
+    }
+
+    /**
+     * Checks whether the caller holds the role, the roles are compared without case.
+     * <br/>
+     *
+     * @param lowerCaseRole : the id or the name of the role, in lower case.
+     * @return <tt>true</tt> if the caller holds the role.
+     * @since
+     */
+    boolean hasRole(String lowerCaseRole) {
+        return roles.contains(lowerCaseRole);
+    }
+
+    String get(Key key) {
+        return key == Key.USER_ID ? userId : projectId;
+    }
+
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.service.policy;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.type.TypeReference;
+import org.openo.auth.common.ConfigUtil;
+import org.openo.auth.constant.Constant;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * Provides the rules of the policy file configured in the <tt>auth_service.properties</tt> file,
+ * compiled once when the service starts.
+ * </p>
+ * <p>
+ * A policy file which can not be read or compiled leaves the service without rules, so that every
+ * rule denies rather than a broken rule allowing.
+ * </p>
+ *
+ * @author
+ * @version
+ */
+public class PolicyEngine {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PolicyEngine.class);
+
+    private static PolicyEngine instance = new PolicyEngine(
+            ConfigUtil.getProperty(Constant.POLICY_FILE, "auth_policy.json"));
+
+    private final PolicySet policies;
+
+    /**
+     * Constructor<br/>
+     * <p>
+     * </p>
+     *
+     * @param file : path of the policy file, or its name on the classpath.
+     * @since
+     */
+    PolicyEngine(String file) {
+        this.policies = load(file);
+    }
+
+    /**
+     * Singleton class, provides the instance of <tt>PolicyEngine</tt> class.
+     * <br/>
+     *
+     * @return instance of <tt>PolicyEngine</tt> class.
+     * @since
+     */
+    public static PolicyEngine getInstance() {
+        return instance;
+    }
+
+    /**
+     * Provides the compiled rules.
+     * <br/>
+     *
+     * @return policies : the compiled rules, empty when the policy file could not be loaded.
+     * @since
+     */
+    public PolicySet getPolicies() {
+        return policies;
+    }
+
+    /**
+     * Reads and compiles the rules of a policy file.
+     * <br/>
+     *
+     * @param input : the content of the policy file, a JSON object of the rules by name.
+     * @return policies : the compiled rules.
+     * @throws IOException when the content is not a JSON object of rules.
+     * @since
+     */
+    public static PolicySet read(InputStream input) throws IOException {
+
+        Map<String, String> definitions = new ObjectMapper().readValue(input,
+                new TypeReference<LinkedHashMap<String, String>>() {});
+
+        return PolicySet.compile(definitions);
+    }
+
+    private static PolicySet load(String file) {
+
+        try(InputStream input = open(file)) {
+
+            if(null == input) {
+                LOGGER.error("Policy file " + file + " not found, every rule is denied.");
+                return PolicySet.empty();
+            }
+
+            PolicySet set = read(input);
+
+            LOGGER.info("Policy file " + file + " loaded, rules = " + set.size());
+            return set;
+
+        } catch(IOException | IllegalArgumentException e) {
+            LOGGER.error("Policy file " + file + " could not be loaded, every rule is denied : " + e);
+            return PolicySet.empty();
+        }
+    }
+
+    private static InputStream open(String file) throws IOException {
+
+        Path path = Paths.get(file);
+
+        if(Files.isRegularFile(path)) {
+            return Files.newInputStream(path);
+        }
+        return Thread.currentThread().getContextClassLoader().getResourceAsStream(file);
+    }
+
+}
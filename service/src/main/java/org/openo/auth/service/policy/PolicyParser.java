@@ -0,0 +1,206 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.service.policy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * <p>
+ * Parses a rule written in the OpenStack policy language into its compiled form.
+ * </p>
+ * <blockquote><pre>
+ * Example :
+ * role:admin or (role:member and user_id:%(user_id)s)
+ * not role:reader and rule:owner
+ * </blockquote></pre>
+ * <p>
+ * <tt>not</tt> binds tighter than <tt>and</tt>, which binds tighter than <tt>or</tt>. An empty
+ * rule and <tt>@</tt> always allow, <tt>!</tt> never allows.
+ * </p>
+ *
+ * @author
+ * @version
+ */
+final class PolicyParser {
+
+    /**
+     * Resolves the rules referenced by <tt>rule:name</tt>.
+     */
+    interface Resolver {
+
+        IPolicyRule resolve(String name);
+    }
+
+    private final List<String> tokens;
+
+    private final Resolver resolver;
+
+    private final String text;
+
+    private int position;
+
+    private PolicyParser(String text, Resolver resolver) {
+        this.text = text;
+        this.tokens = tokenize(text);
+        this.resolver = resolver;
+    }
+
+    /**
+     * Parses a rule.
+     * <br/>
+     *
+     * @param text : the rule.
+     * @param resolver : resolves the rules referenced by the rule.
+     * @return rule : the compiled rule.
+     * @throws IllegalArgumentException when the rule is not well formed.
+     * @since
+     */
+    static IPolicyRule parse(String text, Resolver resolver) {
+
+        if(null == text || text.trim().isEmpty()) {
+            return PolicyRules.ALWAYS;
+        }
+
+        PolicyParser parser = new PolicyParser(text, resolver);
+
+        IPolicyRule rule = parser.parseOr();
+
+        if(parser.position != parser.tokens.size()) {
+            throw parser.error("unexpected '" + parser.tokens.get(parser.position) + "'");
+        }
+        return rule;
+    }
+
+    private IPolicyRule parseOr() {
+
+        List<IPolicyRule> rules = new ArrayList<IPolicyRule>();
+
+        rules.add(parseAnd());
+
+        while(accept("or")) {
+            rules.add(parseAnd());
+        }
+        return PolicyRules.anyOf(rules);
+    }
+
+    private IPolicyRule parseAnd() {
+
+        List<IPolicyRule> rules = new ArrayList<IPolicyRule>();
+
+        rules.add(parseNot());
+
+        while(accept("and")) {
+            rules.add(parseNot());
+        }
+        return PolicyRules.allOf(rules);
+    }
+
+    private IPolicyRule parseNot() {
+
+        if(accept("not")) {
+            return PolicyRules.not(parseNot());
+        }
+
+        if(position >= tokens.size()) {
+            throw error("unexpected end");
+        }
+
+        String token = tokens.get(position++);
+
+        if("(".equals(token)) {
+            IPolicyRule rule = parseOr();
+            if(position >= tokens.size() || !")".equals(tokens.get(position++))) {
+                throw error("missing ')'");
+            }
+            return rule;
+        }
+        return parseCheck(token);
+    }
+
+    private IPolicyRule parseCheck(String token) {
+
+        if("@".equals(token)) {
+            return PolicyRules.ALWAYS;
+        }
+        if("!".equals(token)) {
+            return PolicyRules.NEVER;
+        }
+
+        int colon = token.indexOf(':');
+
+        if(colon <= 0 || colon == token.length() - 1) {
+            throw error("invalid check '" + token + "'");
+        }
+
+        String kind = token.substring(0, colon);
+        String match = token.substring(colon + 1);
+
+        if("rule".equals(kind)) {
+            return resolver.resolve(match);
+        }
+        if("role".equals(kind)) {
+            return PolicyRules.role(match);
+        }
+        return PolicyRules.generic(kind, match);
+    }
+
+    private boolean accept(String keyword) {
+
+        if(position < tokens.size() && keyword.equals(tokens.get(position).toLowerCase(Locale.ROOT))) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private IllegalArgumentException error(String reason) {
+        return new IllegalArgumentException("Invalid rule \"" + text + "\" : " + reason);
+    }
+
+    private static List<String> tokenize(String text) {
+
+        List<String> tokens = new ArrayList<String>();
+
+        for(String word : text.trim().split("\\s+")) {
+
+            int start = 0;
+            while(start < word.length() && word.charAt(start) == '(') {
+                tokens.add("(");
+                start++;
+            }
+
+            // A substitution ends with ")s", so the trailing parentheses always close a group.
+            int end = word.length();
+            int closing = 0;
+            while(end > start && word.charAt(end - 1) == ')') {
+                end--;
+                closing++;
+            }
+
+            if(end > start) {
+                tokens.add(word.substring(start, end));
+            }
+            for(int i = 0; i < closing; i++) {
+                tokens.add(")");
+            }
+        }
+        return tokens;
+    }
+
+}
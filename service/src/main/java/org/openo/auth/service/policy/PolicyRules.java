@@ -0,0 +1,397 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.service.policy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.openo.auth.service.policy.PolicyCredentials.Key;
+
+/**
+ * <p>
+ * Builds the compiled rules. The constant parts of a rule are folded, the nested conjunctions and
+ * disjunctions are flattened, and their cheapest checks are evaluated first, so that a rule is a
+ * small tree of final classes evaluated without allocation.
+ * </p>
+ *
+ * @author
+ * @version
+ */
+final class PolicyRules {
+
+    static final IPolicyRule ALWAYS = new Constant(true);
+
+    static final IPolicyRule NEVER = new Constant(false);
+
+    private static final Comparator<IPolicyRule> BY_COST = new Comparator<IPolicyRule>() {
+
+        public int compare(IPolicyRule left, IPolicyRule right) {
+            return Integer.compare(left.cost(), right.cost());
+        }
+    };
+
+    private PolicyRules() {
+    }
+
+    /**
+     * Provides the check of <tt>role:match</tt>.
+     * <br/>
+     *
+     * @param match : the role, or <tt>%(field)s</tt> for the role given by the target.
+     * @return rule : the compiled check.
+     * @since
+     */
+    static IPolicyRule role(String match) {
+
+        String field = targetField(match);
+
+        if(null != field) {
+            return new TargetRoleCheck(field);
+        }
+        return new RoleCheck(literal(match).toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Provides the check of <tt>kind:match</tt>, which compares a credential of the caller.
+     * <br/>
+     *
+     * @param kind : the name of the credential, such as <tt>user_id</tt>.
+     * @param match : the expected value, or <tt>%(field)s</tt> for the value given by the target.
+     * @return rule : the compiled check, which never matches an unknown credential.
+     * @since
+     */
+    static IPolicyRule generic(String kind, String match) {
+
+        Key key = Key.of(kind);
+
+        if(null == key) {
+            return NEVER;
+        }
+
+        String field = targetField(match);
+
+        if(null != field) {
+            return new CredentialTargetCheck(key, field);
+        }
+        return new CredentialLiteralCheck(key, literal(match));
+    }
+
+    static IPolicyRule not(IPolicyRule rule) {
+
+        if(rule == ALWAYS) {
+            return NEVER;
+        }
+        if(rule == NEVER) {
+            return ALWAYS;
+        }
+        if(rule instanceof Not) {
+            return ((Not)rule).rule;
+        }
+        return new Not(rule);
+    }
+
+    static IPolicyRule allOf(List<IPolicyRule> rules) {
+
+        List<IPolicyRule> flat = new ArrayList<IPolicyRule>();
+
+        for(IPolicyRule rule : rules) {
+            if(rule == NEVER) {
+                return NEVER;
+            }
+            if(rule instanceof AllOf) {
+                flat.addAll(Arrays.asList(((AllOf)rule).rules));
+            } else if(rule != ALWAYS) {
+                flat.add(rule);
+            }
+        }
+
+        if(flat.isEmpty()) {
+            return ALWAYS;
+        }
+        return flat.size() == 1 ? flat.get(0) : new AllOf(sortByCost(flat));
+    }
+
+    static IPolicyRule anyOf(List<IPolicyRule> rules) {
+
+        List<IPolicyRule> flat = new ArrayList<IPolicyRule>();
+
+        for(IPolicyRule rule : rules) {
+            if(rule == ALWAYS) {
+                return ALWAYS;
+            }
+            if(rule instanceof AnyOf) {
+                flat.addAll(Arrays.asList(((AnyOf)rule).rules));
+            } else if(rule != NEVER) {
+                flat.add(rule);
+            }
+        }
+
+        if(flat.isEmpty()) {
+            return NEVER;
+        }
+        return flat.size() == 1 ? flat.get(0) : new AnyOf(sortByCost(flat));
+    }
+
+    private static IPolicyRule[] sortByCost(List<IPolicyRule> rules) {
+        IPolicyRule[] sorted = rules.toArray(new IPolicyRule[rules.size()]);
+        Arrays.sort(sorted, BY_COST);
+        return sorted;
+    }
+
+    private static String targetField(String match) {
+
+        if(match.length() > 4 && match.startsWith("%(") && match.endsWith(")s")) {
+            return match.substring(2, match.length() - 2);
+        }
+        return null;
+    }
+
+    private static String literal(String match) {
+
+        if(match.length() >= 2 && (match.charAt(0) == '\'' || match.charAt(0) == '"')
+                && match.charAt(match.length() - 1) == match.charAt(0)) {
+            return match.substring(1, match.length() - 1);
+        }
+        return match;
+    }
+
+    private static final class Constant implements IPolicyRule {
+
+        private final boolean value;
+
+        Constant(boolean value) {
+            this.value = value;
+        }
+
+        public boolean evaluate(PolicyCredentials credentials, Map<String, String> target) {
+            return value;
+        }
+
+        public int cost() {
+            return 0;
+        }
+
+        @Override
+        public String toString() {
+            return value ? "@" : "!";
+        }
+    }
+
+    private static final class RoleCheck implements IPolicyRule {
+
+        private final String role;
+
+        RoleCheck(String role) {
+            this.role = role;
+        }
+
+        public boolean evaluate(PolicyCredentials credentials, Map<String, String> target) {
+            return credentials.hasRole(role);
+        }
+
+        public int cost() {
+            return 2;
+        }
+
+        @Override
+        public String toString() {
+            return "role:" + role;
+        }
+    }
+
+    private static final class TargetRoleCheck implements IPolicyRule {
+
+        private final String field;
+
+        TargetRoleCheck(String field) {
+            this.field = field;
+        }
+
+        public boolean evaluate(PolicyCredentials credentials, Map<String, String> target) {
+            String role = target.get(field);
+            return null != role && credentials.hasRole(role.toLowerCase(Locale.ROOT));
+        }
+
+        public int cost() {
+            return 4;
+        }
+
+        @Override
+        public String toString() {
+            return "role:%(" + field + ")s";
+        }
+    }
+
+    private static final class CredentialLiteralCheck implements IPolicyRule {
+
+        private final Key key;
+
+        private final String value;
+
+        CredentialLiteralCheck(Key key, String value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        public boolean evaluate(PolicyCredentials credentials, Map<String, String> target) {
+            return value.equals(credentials.get(key));
+        }
+
+        public int cost() {
+            return 1;
+        }
+
+        @Override
+        public String toString() {
+            return key.name().toLowerCase(Locale.ROOT) + ":" + value;
+        }
+    }
+
+    private static final class CredentialTargetCheck implements IPolicyRule {
+
+        private final Key key;
+
+        private final String field;
+
+        CredentialTargetCheck(Key key, String field) {
+            this.key = key;
+            this.field = field;
+        }
+
+        public boolean evaluate(PolicyCredentials credentials, Map<String, String> target) {
+            String value = credentials.get(key);
+            return null != value && value.equals(target.get(field));
+        }
+
+        public int cost() {
+            return 3;
+        }
+
+        @Override
+        public String toString() {
+            return key.name().toLowerCase(Locale.ROOT) + ":%(" + field + ")s";
+        }
+    }
+
+    private static final class Not implements IPolicyRule {
+
+        private final IPolicyRule rule;
+
+        Not(IPolicyRule rule) {
+            this.rule = rule;
+        }
+
+        public boolean evaluate(PolicyCredentials credentials, Map<String, String> target) {
+            return !rule.evaluate(credentials, target);
+        }
+
+        public int cost() {
+            return rule.cost();
+        }
+
+        @Override
+        public String toString() {
+            return "not " + rule;
+        }
+    }
+
+    private static final class AllOf implements IPolicyRule {
+
+        private final IPolicyRule[] rules;
+
+        private final int cost;
+
+        AllOf(IPolicyRule[] rules) {
+            this.rules = rules;
+            this.cost = totalCost(rules);
+        }
+
+        public boolean evaluate(PolicyCredentials credentials, Map<String, String> target) {
+            for(int i = 0; i < rules.length; i++) {
+                if(!rules[i].evaluate(credentials, target)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        public int cost() {
+            return cost;
+        }
+
+        @Override
+        public String toString() {
+            return join(rules, " and ");
+        }
+    }
+
+    private static final class AnyOf implements IPolicyRule {
+
+        private final IPolicyRule[] rules;
+
+        private final int cost;
+
+        AnyOf(IPolicyRule[] rules) {
+            this.rules = rules;
+            this.cost = totalCost(rules);
+        }
+
+        public boolean evaluate(PolicyCredentials credentials, Map<String, String> target) {
+            for(int i = 0; i < rules.length; i++) {
+                if(rules[i].evaluate(credentials, target)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public int cost() {
+            return cost;
+        }
+
+        @Override
+        public String toString() {
+            return join(rules, " or ");
+        }
+    }
+
+    private static int totalCost(IPolicyRule[] rules) {
+        int cost = 0;
+        for(IPolicyRule rule : rules) {
+            cost += rule.cost();
+        }
+        return cost;
+    }
+
+    private static String join(IPolicyRule[] rules, String separator) {
+
+        StringBuilder builder = new StringBuilder("(");
+
+        for(int i = 0; i < rules.length; i++) {
+            if(i > 0) {
+                builder.append(separator);
+            }
+            builder.append(rules[i]);
+        }
+        return builder.append(')').toString();
+    }
+
+}
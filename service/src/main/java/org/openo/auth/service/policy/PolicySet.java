@@ -0,0 +1,172 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.service.policy;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <p>
+ * A set of named rules, compiled once when the policy file is loaded. The references between the
+ * rules are inlined, so that evaluating a rule never looks another rule up.
+ * </p>
+ * <p>
+ * A rule which is not defined falls back to the <tt>default</tt> rule, and never allows when there
+ * is no <tt>default</tt> rule.
+ * </p>
+ *
+ * @author
+ * @version
+ */
+public final class PolicySet {
+
+    /**
+     * Name of the rule used for the rules which are not defined.
+     */
+    public static final String DEFAULT_RULE = "default";
+
+    private static final PolicySet EMPTY = new PolicySet(Collections.<String, IPolicyRule> emptyMap());
+
+    private final Map<String, IPolicyRule> rules;
+
+    private final IPolicyRule defaultRule;
+
+    private PolicySet(Map<String, IPolicyRule> rules) {
+        this.rules = rules;
+        IPolicyRule rule = rules.get(DEFAULT_RULE);
+        this.defaultRule = null == rule ? PolicyRules.NEVER : rule;
+    }
+
+    /**
+     * Provides a set without any rule, which never allows.
+     * <br/>
+     *
+     * @return set : the empty set.
+     * @since
+     */
+    public static PolicySet empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Compiles the rules.
+     * <br/>
+     *
+     * @param definitions : the rules, by name.
+     * @return set : the compiled rules.
+     * @throws IllegalArgumentException when a rule is not well formed, or the rules reference each
+     *             other in a cycle.
+     * @since
+     */
+    public static PolicySet compile(Map<String, String> definitions) {
+        return new PolicySet(Collections.unmodifiableMap(new Compiler(definitions).compileAll()));
+    }
+
+    /**
+     * Evaluates a rule.
+     * <br/>
+     *
+     * @param name : the name of the rule.
+     * @param credentials : the credentials of the caller.
+     * @param target : the attributes of the target of the operation.
+     * @return <tt>true</tt> if the rule allows the operation.
+     * @since
+     */
+    public boolean isAllowed(String name, PolicyCredentials credentials, Map<String, String> target) {
+
+        IPolicyRule rule = rules.get(name);
+
+        if(null == rule) {
+            rule = defaultRule;
+        }
+        return rule.evaluate(credentials, null == target ? Collections.<String, String> emptyMap() : target);
+    }
+
+    /**
+     * Provides a compiled rule.
+     * <br/>
+     *
+     * @param name : the name of the rule.
+     * @return rule : the compiled rule, <tt>null</tt> when it is not defined.
+     * @since
+     */
+    public IPolicyRule getRule(String name) {
+        return rules.get(name);
+    }
+
+    public Set<String> getRuleNames() {
+        return rules.keySet();
+    }
+
+    public int size() {
+        return rules.size();
+    }
+
+    /**
+     * Compiles each rule once, inlining the compiled rules it references.
+     */
+    private static final class Compiler implements PolicyParser.Resolver {
+
+        private final Map<String, String> definitions;
+
+        private final Map<String, IPolicyRule> compiled = new HashMap<String, IPolicyRule>();
+
+        private final Set<String> compiling = new HashSet<String>();
+
+        Compiler(Map<String, String> definitions) {
+            this.definitions = definitions;
+        }
+
+        Map<String, IPolicyRule> compileAll() {
+
+            Map<String, IPolicyRule> all = new LinkedHashMap<String, IPolicyRule>();
+
+            for(String name : definitions.keySet()) {
+                all.put(name, resolve(name));
+            }
+            return all;
+        }
+
+        public IPolicyRule resolve(String name) {
+
+            IPolicyRule rule = compiled.get(name);
+
+            if(null != rule) {
+                return rule;
+            }
+
+            if(!definitions.containsKey(name)) {
+                return PolicyRules.NEVER;
+            }
+
+            if(!compiling.add(name)) {
+                throw new IllegalArgumentException("Rule \"" + name + "\" is part of a reference cycle");
+            }
+
+            rule = PolicyParser.parse(definitions.get(name), this);
+
+            compiling.remove(name);
+            compiled.put(name, rule);
+            return rule;
+        }
+    }
+
+}
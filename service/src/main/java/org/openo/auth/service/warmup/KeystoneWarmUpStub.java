@@ -0,0 +1,207 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.service.warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openo.auth.constant.Constant;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * <p>
+ * A KeyStone stub on the loopback interface, answering the calls of the Auth Service with fixed
+ * responses, so that the warm-up runs the real client, JSON and service code without touching
+ * the configured KeyStone.
+ * </p>
+ *
+ * @author
+ * @version
+ */
+public class KeystoneWarmUpStub {
+
+    public static final String USER_ID = "warmup-user";
+
+    private static final String EXPIRES_AT = "2099-12-31T00:00:00.000000Z";
+
+    private static final String TOKEN_BODY = "{\"token\": {\"expires_at\": \"" + EXPIRES_AT + "\", "
+            + "\"issued_at\": \"2016-01-01T00:00:00.000000Z\", \"methods\": [\"password\"], "
+            + "\"user\": {\"id\": \"" + USER_ID + "\", \"name\": \"warmup\", "
+            + "\"domain\": {\"id\": \"default\", \"name\": \"Default\"}}, "
+            + "\"project\": {\"id\": \"warmup-project\", \"name\": \"admin\", "
+            + "\"domain\": {\"id\": \"default\", \"name\": \"Default\"}}, "
+            + "\"roles\": [{\"id\": \"warmup-role\", \"name\": \"admin\"}]}}";
+
+    private static final String USER = "{\"links\": {\"self\": \"http://127.0.0.1/v3/users/" + USER_ID + "\"}, "
+            + "\"id\": \"" + USER_ID + "\", \"name\": \"warmup\", \"domain_id\": \"default\", \"enabled\": true, "
+            + "\"default_project_id\": \"warmup-project\", \"email\": \"warmup@example.com\", "
+            + "\"description\": \"warm-up\"";
+
+    private static final String USER_BODY = "{\"user\": " + USER + "}}";
+
+    private static final String MODIFIED_USER_BODY = "{\"user\": " + USER
+            + ", \"extra\": {\"email\": \"warmup@example.com\", \"description\": \"warm-up\"}}}";
+
+    private static final String USERS_BODY = "{\"users\": [" + USER + "}, " + USER + "}], "
+            + "\"links\": {\"self\": \"http://127.0.0.1/v3/users\", \"previous\": null, \"next\": null}}";
+
+    private final AtomicLong tokens = new AtomicLong();
+
+    private HttpServer server;
+
+    private ExecutorService executor;
+
+    /**
+     * Starts the stub on a free port.
+     * <br/>
+     *
+     * @throws IOException if the server can not be started.
+     * @since
+     */
+    public synchronized void start() throws IOException {
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 64);
+
+        executor = Executors.newFixedThreadPool(2, new ThreadFactory() {
+
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "auth-warmup-stub");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        server.setExecutor(executor);
+        server.createContext("/v3", new Handler());
+        server.start();
+    }
+
+    /**
+     * Stops the stub.
+     * <br/>
+     *
+     * @since
+     */
+    public synchronized void stop() {
+        if(null != server) {
+            server.stop(0);
+            executor.shutdownNow();
+            server = null;
+        }
+    }
+
+    /**
+     * Provides the base URL of the stub, such as <tt>http://127.0.0.1:40000</tt>.
+     * <br/>
+     *
+     * @return url : the base URL.
+     * @since
+     */
+    public String getBaseURL() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    private final class Handler implements HttpHandler {
+
+        public void handle(HttpExchange exchange) throws IOException {
+
+            try {
+                drain(exchange.getRequestBody());
+
+                String method = exchange.getRequestMethod();
+
+                String path = exchange.getRequestURI().getPath();
+
+                if(path.startsWith(Constant.KEYSTONE_IDENTITY_TOKEN)) {
+                    handleToken(exchange, method);
+                } else if(path.equals(Constant.KEYSTONE_IDENTITY_USER)) {
+                    send(exchange, "POST".equals(method) ? 201 : 200, "POST".equals(method) ? USER_BODY : USERS_BODY);
+                } else if(path.startsWith(Constant.KEYSTONE_IDENTITY_USER + "/")) {
+                    handleUser(exchange, method, path);
+                } else if(path.startsWith(Constant.KEYSTONE_IDENTITY_PROJECTS)) {
+                    send(exchange, 204, null);
+                } else {
+                    send(exchange, 404, null);
+                }
+            } finally {
+                exchange.close();
+            }
+        }
+
+        private void handleToken(HttpExchange exchange, String method) throws IOException {
+
+            if("POST".equals(method)) {
+                exchange.getResponseHeaders().set(Constant.TOKEN_SUBJECT, "warmup-" + tokens.incrementAndGet());
+                send(exchange, 201, TOKEN_BODY);
+            } else if("DELETE".equals(method)) {
+                send(exchange, 204, null);
+            } else {
+                String subject = exchange.getRequestHeaders().getFirst(Constant.TOKEN_SUBJECT);
+                exchange.getResponseHeaders().set(Constant.TOKEN_SUBJECT, null == subject ? "" : subject);
+                send(exchange, 200, "HEAD".equals(method) ? null : TOKEN_BODY);
+            }
+        }
+
+        private void handleUser(HttpExchange exchange, String method, String path) throws IOException {
+
+            if(path.endsWith("/password")) {
+                send(exchange, 204, null);
+            } else if("PATCH".equals(method)) {
+                send(exchange, 200, MODIFIED_USER_BODY);
+            } else if("DELETE".equals(method)) {
+                send(exchange, 204, null);
+            } else {
+                send(exchange, 200, USER_BODY);
+            }
+        }
+
+        private void send(HttpExchange exchange, int status, String body) throws IOException {
+
+            if(null == body) {
+                exchange.sendResponseHeaders(status, -1);
+                return;
+            }
+
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+
+            exchange.getResponseHeaders().set("Content-Type", Constant.MEDIA_TYPE_JSON);
+            exchange.sendResponseHeaders(status, bytes.length);
+
+            OutputStream out = exchange.getResponseBody();
+            out.write(bytes);
+            out.close();
+        }
+
+        private void drain(InputStream in) throws IOException {
+            byte[] buffer = new byte[4096];
+            while(in.read(buffer) >= 0) {
+                // Discarded, the answers do not depend on the requests.
+            }
+        }
+    }
+
+}
@@ -0,0 +1,291 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.service.warmup;
+
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.openo.auth.common.ConfigUtil;
+import org.openo.auth.common.cache.ITokenCache;
+import org.openo.auth.common.cache.TokenCacheFactory;
+import org.openo.auth.constant.Constant;
+import org.openo.auth.service.inf.ITokenDelegate;
+import org.openo.auth.service.inf.IUserDelegate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * Runs synthetic traffic through the token and user delegates, against a local KeyStone stub,
+ * until the JIT compiler settles down, so that the first real requests after the registration
+ * with the MSB are not served by the interpreter.
+ * </p>
+ * <p>
+ * The warm-up runs in batches, it stops when the compilation time spent during a batch stays
+ * under <tt>warmup.stable_compile_ms</tt> for <tt>warmup.stable_batches</tt> batches in a row,
+ * or after <tt>warmup.max_ms</tt>. Only the calling thread talks to the stub, the requests of the
+ * other threads keep going to the configured KeyStone. Nothing of the warm-up leaves the process :
+ * the calling thread asks no other node about its tokens, sends no invalidation to the cluster and
+ * does not list the users of the other KeyStone shards.
+ * </p>
+ *
+ * @author
+ * @version
+ */
+public class ServiceWarmUp {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ServiceWarmUp.class);
+
+    private static final String USER_NAME = "warmup_user";
+
+    private static final String PASSWORD = "Warm_up#2016";
+
+    private static final String LOGIN_BODY = "{\"userName\":\"" + USER_NAME + "\",\"password\":\"" + PASSWORD + "\"}";
+
+    private static final String CREATE_BODY = "{\"userName\":\"" + USER_NAME + "\",\"password\":\"" + PASSWORD
+            + "\",\"email\":\"warmup@example.com\",\"description\":\"warm-up\"}";
+
+    private static final String MODIFY_BODY = "{\"email\":\"warmup@example.com\",\"description\":\"warm-up\"}";
+
+    private static final Map<String, String> NO_HEADERS = Collections.emptyMap();
+
+    private final ITokenDelegate tokenDelegate;
+
+    private final IUserDelegate userDelegate;
+
+    private final long maxMillis;
+
+    private final int batchSize;
+
+    private final int stableBatches;
+
+    private final long stableCompileMillis;
+
+    private long iterations;
+
+    private long failures;
+
+    private long checked;
+
+    private final String hotToken = "warmup-" + UUID.randomUUID();
+
+    /**
+     * Constructor<br/>
+     * <p>
+     * Reads the limits of the warm-up from the <tt>auth_service.properties</tt> file.
+     * </p>
+     *
+     * @param tokenDelegate : the token delegate to warm up.
+     * @param userDelegate : the user delegate to warm up.
+     * @since
+     */
+    public ServiceWarmUp(ITokenDelegate tokenDelegate, IUserDelegate userDelegate) {
+        this(tokenDelegate, userDelegate, ConfigUtil.getLongProperty(Constant.WARMUP_MAX_MS, 30000L),
+                ConfigUtil.getIntProperty(Constant.WARMUP_BATCH_SIZE, 200),
+                ConfigUtil.getIntProperty(Constant.WARMUP_STABLE_BATCHES, 3),
+                ConfigUtil.getLongProperty(Constant.WARMUP_STABLE_COMPILE_MS, 5L));
+    }
+
+    /**
+     * Constructor<br/>
+     * <p>
+     * </p>
+     *
+     * @param tokenDelegate : the token delegate to warm up.
+     * @param userDelegate : the user delegate to warm up.
+     * @param maxMillis : the longest duration of the warm-up.
+     * @param batchSize : the number of iterations of a batch.
+     * @param stableBatches : the number of quiet batches in a row which end the warm-up.
+     * @param stableCompileMillis : the compilation time under which a batch is quiet.
+     * @since
+     */
+    public ServiceWarmUp(ITokenDelegate tokenDelegate, IUserDelegate userDelegate, long maxMillis, int batchSize,
+            int stableBatches, long stableCompileMillis) {
+        this.tokenDelegate = tokenDelegate;
+        this.userDelegate = userDelegate;
+        this.maxMillis = maxMillis;
+        this.batchSize = Math.max(1, batchSize);
+        this.stableBatches = Math.max(1, stableBatches);
+        this.stableCompileMillis = stableCompileMillis;
+    }
+
+    /**
+     * Runs the warm-up until the compilation settles down, the time limit or an interrupt.
+     * <br/>
+     *
+     * @return elapsed : the duration of the warm-up in milliseconds.
+     * @since
+     */
+    public long run() {
+
+        long start = System.currentTimeMillis();
+
+        CompilationMXBean compiler = ManagementFactory.getCompilationMXBean();
+
+        boolean monitored = null != compiler && compiler.isCompilationTimeMonitoringSupported();
+
+        long compileStart = monitored ? compiler.getTotalCompilationTime() : 0L;
+
+        KeystoneWarmUpStub stub = new KeystoneWarmUpStub();
+
+        String reason = "time limit";
+
+        try {
+            stub.start();
+
+            // The delegates log every call at INFO, the WarmUpLogFilter drops these logs of this thread.
+            ConfigUtil.setThreadBaseURL(stub.getBaseURL());
+
+            long lastCompile = compileStart;
+            int quiet = 0;
+
+            while(System.currentTimeMillis() - start < maxMillis) {
+
+                if(Thread.currentThread().isInterrupted()) {
+                    reason = "interrupted";
+                    break;
+                }
+
+                for(int i = 0; i < batchSize; i++) {
+                    iterate();
+                }
+
+                if(!monitored) {
+                    quiet++;
+                } else {
+                    long compile = compiler.getTotalCompilationTime();
+                    quiet = compile - lastCompile <= stableCompileMillis ? quiet + 1 : 0;
+                    lastCompile = compile;
+                }
+
+                if(quiet >= stableBatches) {
+                    reason = monitored ? "compilation stable" : "no compilation monitoring";
+                    break;
+                }
+            }
+        } catch(Exception e) {
+            reason = "failed to start the KeyStone stub";
+            LOGGER.error("Exception Caught while warming up the service ... " + e);
+        } finally {
+            forgetTokens();
+            ConfigUtil.setThreadBaseURL(null);
+            stub.stop();
+        }
+
+        long elapsed = System.currentTimeMillis() - start;
+
+        long compiled = monitored ? compiler.getTotalCompilationTime() - compileStart : -1L;
+
+        LOGGER.info("Warm-up done : " + reason + ", " + iterations + " iterations, " + failures + " failures in "
+                + elapsed + " ms, JIT compilation " + compiled + " ms");
+
+        return elapsed;
+    }
+
+    /**
+     * Provides the number of iterations run.
+     * <br/>
+     *
+     * @return iterations : the number of iterations run.
+     * @since
+     */
+    public long getIterations() {
+        return iterations;
+    }
+
+    /**
+     * Provides the number of operations which failed.
+     * <br/>
+     *
+     * @return failures : the number of failed operations.
+     * @since
+     */
+    public long getFailures() {
+        return failures;
+    }
+
+    private void iterate() {
+
+        iterations++;
+
+        try {
+            tokenDelegate.login(SyntheticRequest.request(NO_HEADERS, null, LOGIN_BODY),
+                    SyntheticRequest.response());
+        } catch(Exception e) {
+            failures++;
+        }
+
+        // A fresh token runs the validation through the KeyStone client, the hot one the cache.
+        String token = "warmup-check-" + (checked++);
+        check(token);
+        check(hotToken);
+        TokenCacheFactory.getInstance().getTokenCache().remove(token);
+
+        try {
+            userDelegate.getUserDetails(withToken(null), SyntheticRequest.response());
+            userDelegate.getUserDetails(withToken(null), SyntheticRequest.response(), KeystoneWarmUpStub.USER_ID);
+            userDelegate.modifyUser(withToken(MODIFY_BODY), SyntheticRequest.response(), KeystoneWarmUpStub.USER_ID);
+            userDelegate.createUser(withToken(CREATE_BODY), SyntheticRequest.response());
+            userDelegate.deleteUser(withToken(null), SyntheticRequest.response(), KeystoneWarmUpStub.USER_ID);
+        } catch(Exception e) {
+            failures++;
+        }
+
+        try {
+            Cookie[] cookies = new Cookie[] {new Cookie(Constant.TOKEN_AUTH, hotToken + "-logout")};
+            tokenDelegate.logout(SyntheticRequest.request(NO_HEADERS, cookies, null),
+                    SyntheticRequest.response());
+        } catch(Exception e) {
+            failures++;
+        }
+    }
+
+    private void check(String token) {
+
+        HttpServletResponse response = SyntheticRequest.response();
+
+        try {
+            int status = tokenDelegate.checkToken(SyntheticRequest.withToken(Constant.TOKEN_AUTH, token, null), response);
+            if(status / 100 != 2) {
+                failures++;
+            }
+        } catch(Exception e) {
+            failures++;
+        }
+    }
+
+    private HttpServletRequest withToken(String body) {
+        return SyntheticRequest.withToken(Constant.TOKEN_AUTH, hotToken, body);
+    }
+
+    private void forgetTokens() {
+
+        // Only the tokens of the warm-up are removed, the cache may hold a restored snapshot. They
+        // are cached apart from the tokens of the requests, under the redirect of this thread.
+        ITokenCache tokenCache = TokenCacheFactory.getInstance().getTokenCache();
+
+        tokenCache.remove(hotToken);
+    }
+
+}
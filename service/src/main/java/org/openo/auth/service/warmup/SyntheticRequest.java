@@ -0,0 +1,174 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.service.warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * <p>
+ * Builds the in-memory servlet requests and responses handed to the service delegates during the
+ * warm-up. Only the methods used by the delegates answer something meaningful.
+ * </p>
+ *
+ * @author
+ * @version
+ */
+final class SyntheticRequest {
+
+    private SyntheticRequest() {
+    }
+
+    /**
+     * Creates a request with the given headers, cookies and JSON body.
+     * <br/>
+     *
+     * @param headers : the request headers.
+     * @param cookies : the request cookies, may be <tt>null</tt>.
+     * @param body : the request body, may be <tt>null</tt>.
+     * @return request : the synthetic request.
+     * @since
+     */
+    static HttpServletRequest request(final Map<String, String> headers, final Cookie[] cookies, String body) {
+
+        final byte[] bytes = null == body ? new byte[0] : body.getBytes(StandardCharsets.UTF_8);
+
+        final ByteArrayInputStream in = new ByteArrayInputStream(bytes);
+
+        final ServletInputStream stream = new ServletInputStream() {
+
+            @Override
+            public int read() throws IOException {
+                return in.read();
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                return in.read(buffer, offset, length);
+            }
+
+            @Override
+            public boolean isFinished() {
+                return in.available() == 0;
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setReadListener(ReadListener listener) {
+                // Never read asynchronously.
+            }
+        };
+
+        return (HttpServletRequest)Proxy.newProxyInstance(SyntheticRequest.class.getClassLoader(),
+                new Class<?>[] {HttpServletRequest.class}, new InvocationHandler() {
+
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+
+                        String name = method.getName();
+
+                        if("getHeader".equals(name)) {
+                            return headers.get(args[0]);
+                        } else if("getCookies".equals(name)) {
+                            return null == cookies ? new Cookie[0] : cookies;
+                        } else if("getInputStream".equals(name)) {
+                            return stream;
+                        } else if("getContentLength".equals(name)) {
+                            return bytes.length;
+                        } else if("getHeaderNames".equals(name)) {
+                            return Collections.enumeration(headers.keySet());
+                        }
+                        return defaultValue(proxy, method, args);
+                    }
+                });
+    }
+
+    /**
+     * Creates a request carrying only the token header.
+     * <br/>
+     *
+     * @param header : the name of the token header.
+     * @param token : the token.
+     * @param body : the request body, may be <tt>null</tt>.
+     * @return request : the synthetic request.
+     * @since
+     */
+    static HttpServletRequest withToken(String header, String token, String body) {
+        Map<String, String> headers = new HashMap<String, String>();
+        headers.put(header, token);
+        return request(headers, null, body);
+    }
+
+    /**
+     * Creates a response which discards everything written to it.
+     * <br/>
+     *
+     * @return response : the synthetic response.
+     * @since
+     */
+    static HttpServletResponse response() {
+
+        return (HttpServletResponse)Proxy.newProxyInstance(SyntheticRequest.class.getClassLoader(),
+                new Class<?>[] {HttpServletResponse.class}, new InvocationHandler() {
+
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        return defaultValue(proxy, method, args);
+                    }
+                });
+    }
+
+    private static Object defaultValue(Object proxy, Method method, Object[] args) {
+
+        String name = method.getName();
+
+        if("equals".equals(name)) {
+            return proxy == args[0];
+        } else if("hashCode".equals(name)) {
+            return System.identityHashCode(proxy);
+        } else if("toString".equals(name)) {
+            return "SyntheticRequest";
+        }
+
+        Class<?> type = method.getReturnType();
+
+        if(type == boolean.class) {
+            return Boolean.FALSE;
+        } else if(type == int.class) {
+            return 0;
+        } else if(type == long.class) {
+            return 0L;
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.service.warmup;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+
+import org.openo.auth.common.ConfigUtil;
+import org.openo.auth.constant.Constant;
+import org.openo.auth.service.inf.ITokenDelegate;
+import org.openo.auth.service.inf.IUserDelegate;
+import org.openo.baseservice.bus.util.RegisterServiceListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.context.support.WebApplicationContextUtils;
+
+/**
+ * <p>
+ * Warms the service up before registering it with the MSB, so that the traffic routed by the MSB
+ * meets compiled code. The warm-up runs in the background, the service answers direct requests
+ * meanwhile, and the registration happens as soon as the warm-up is done.
+ * </p>
+ * <p>
+ * Must be declared after the Spring <tt>ContextLoaderListener</tt>, in place of the
+ * <tt>RegisterServiceListener</tt>.
+ * </p>
+ *
+ * @author
+ * @version
+ */
+public class WarmUpListener implements ServletContextListener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(WarmUpListener.class);
+
+    private final RegisterServiceListener registerListener;
+
+    private Thread thread;
+
+    /**
+     * Constructor<br/>
+     * <p>
+     * Registers the service with the MSB after the warm-up.
+     * </p>
+     *
+     * @since
+     */
+    public WarmUpListener() {
+        this(true);
+    }
+
+    /**
+     * Constructor<br/>
+     * <p>
+     * </p>
+     *
+     * @param register : whether the service is registered with the MSB after the warm-up.
+     * @since
+     */
+    public WarmUpListener(boolean register) {
+        this.registerListener = register ? new RegisterServiceListener() : null;
+    }
+
+    /**
+     * Starts the warm-up, followed by the registration with the MSB.
+     * <br/>
+     *
+     * @param event : the servlet context event.
+     * @since
+     */
+    public void contextInitialized(final ServletContextEvent event) {
+
+        if(!ConfigUtil.getBooleanProperty(Constant.WARMUP_ENABLED, true)) {
+            LOGGER.info("Warm-up is disabled.");
+            register(event);
+            return;
+        }
+
+        WebApplicationContext context = WebApplicationContextUtils.getRequiredWebApplicationContext(event
+                .getServletContext());
+
+        final ServiceWarmUp warmUp = new ServiceWarmUp(context.getBean("tokenDelegate", ITokenDelegate.class),
+                context.getBean("userDelegate", IUserDelegate.class));
+
+        thread = new Thread(new Runnable() {
+
+            public void run() {
+                warmUp.run();
+                if(!Thread.currentThread().isInterrupted()) {
+                    register(event);
+                }
+            }
+        }, "auth-warmup");
+
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops the warm-up if it still runs and unregisters the service.
+     * <br/>
+     *
+     * @param event : the servlet context event.
+     * @since
+     */
+    public void contextDestroyed(ServletContextEvent event) {
+
+        if(null != thread) {
+            thread.interrupt();
+            try {
+                thread.join(5000L);
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        if(null != registerListener) {
+            registerListener.contextDestroyed(event);
+        }
+    }
+
+    private void register(ServletContextEvent event) {
+
+        if(null == registerListener) {
+            return;
+        }
+
+        try {
+            registerListener.contextInitialized(event);
+            LOGGER.info("Service registered with the MSB.");
+        } catch(Exception e) {
+            LOGGER.error("Exception Caught while registering the service ... " + e);
+        }
+    }
+
+}
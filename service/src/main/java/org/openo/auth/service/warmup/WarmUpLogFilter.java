@@ -0,0 +1,58 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.openo.auth.service.warmup;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.spi.Filter;
+import org.apache.log4j.spi.LoggingEvent;
+import org.openo.auth.common.ConfigUtil;
+
+/**
+ * <p>
+ * Drops the logs under WARN of the thread running the warm-up, whose synthetic requests would
+ * flood the log. The logs of the other threads, serving the real requests meanwhile, are kept.
+ * </p>
+ * <blockquote><pre>
+ * Example :
+ * log4j.appender.root.filter.warmup=org.openo.auth.service.warmup.WarmUpLogFilter
+ * </pre></blockquote>
+ *
+ * @author
+ * @version
+ */
+public class WarmUpLogFilter extends Filter {
+
+    /**
+     * Decides whether the event is logged.
+     * <br/>
+     *
+     * @param event : the logging event.
+     * @return decision : <tt>DENY</tt> for the logs under WARN of the warm-up, <tt>NEUTRAL</tt>
+     *         otherwise.
+     * @since
+     */
+    @Override
+    public int decide(LoggingEvent event) {
+
+        if(!event.getLevel().isGreaterOrEqual(Level.WARN) && ConfigUtil.isThreadRedirected()) {
+            return DENY;
+        }
+        return NEUTRAL;
+    }
+
+}
@@ -36,7 +36,7 @@ import org.openo.auth.entity.keystone.resp.UserCreate;
 import org.openo.auth.entity.keystone.resp.UserCreateWrapper;
 import org.openo.auth.rest.client.TokenServiceClient;
 import org.openo.auth.rest.client.UserServiceClient;
-import org.openo.auth.service.impl.UserServiceImpl;
+import org.openo.auth.service.impl.BulkUserProvisioner;
 
 import mockit.Mock;
 import mockit.MockUp;
@@ -184,7 +184,7 @@ public class CommonMockUp {
 
     public void mockForUserService() {
 
-        new MockUp<UserServiceImpl>() {
+        new MockUp<BulkUserProvisioner>() {
 
             @Mock
             private int assignRolesToUser(String authToken, KeyStoneConfiguration keyConf, String userId) {
@@ -239,6 +239,16 @@ public class CommonMockUp {
             public int checkToken(String token) {
                 return HttpServletResponse.SC_OK;
             }
+
+            @Mock
+            public ClientResponse validateToken(String token) {
+                ClientResponse resp = new ClientResponse();
+                resp.setStatus(HttpServletResponse.SC_OK);
+                resp.setBody("{\"token\": {\"expires_at\": \"2099-01-01T00:00:00.000000Z\", "
+                        + "\"user\": {\"id\": \"user-id\", \"name\": \"admin\"}, "
+                        + "\"project\": {\"id\": \"project-id\", \"name\": \"admin\"}}}");
+                return resp;
+            }
         };
 
     }
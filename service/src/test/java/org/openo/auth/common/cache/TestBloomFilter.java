@@ -0,0 +1,68 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.common.cache;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestBloomFilter {
+
+    @Test
+    public void testNoFalseNegative() {
+
+        BloomFilter filter = new BloomFilter(1000, 10);
+
+        for(long i = 0; i < 1000; i++) {
+            filter.put(TokenFingerprint.of("token-" + i));
+        }
+
+        for(long i = 0; i < 1000; i++) {
+            Assert.assertTrue(filter.mightContain(TokenFingerprint.of("token-" + i)));
+        }
+    }
+
+    @Test
+    public void testFalsePositiveRate() {
+
+        BloomFilter filter = new BloomFilter(1000, 10);
+
+        for(long i = 0; i < 1000; i++) {
+            filter.put(TokenFingerprint.of("token-" + i));
+        }
+
+        int falsePositives = 0;
+        for(long i = 0; i < 10000; i++) {
+            if(filter.mightContain(TokenFingerprint.of("other-" + i))) {
+                falsePositives++;
+            }
+        }
+
+        Assert.assertTrue("false positives : " + falsePositives, falsePositives < 500);
+    }
+
+    @Test
+    public void testClear() {
+
+        BloomFilter filter = new BloomFilter(10, 10);
+
+        filter.put(42L);
+        filter.clear();
+
+        Assert.assertFalse(filter.mightContain(42L));
+    }
+
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.common.cache;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.openo.auth.entity.TokenDetails;
+
+public class TestCacheSnapshotManager {
+
+    private Path file;
+
+    @Before
+    public void setUp() throws Exception {
+        file = File.createTempFile("auth-cache", ".snapshot").toPath();
+        Files.delete(file);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(file);
+    }
+
+    private static OffHeapTokenCache newCache() {
+        return new OffHeapTokenCache(64, 60000L, 64);
+    }
+
+    private static TokenDetails details(long expiresAt) {
+        TokenDetails details = new TokenDetails();
+        details.setUserId("user");
+        details.setProjectId("project");
+        details.setExpiresAt(expiresAt);
+        return details;
+    }
+
+    private static CacheSnapshotManager newManager(OffHeapTokenCache cache) {
+        CacheSnapshotManager manager = new CacheSnapshotManager();
+        manager.register(cache);
+        return manager;
+    }
+
+    @Test
+    public void testSaveAndRestore() throws Exception {
+
+        OffHeapTokenCache cache = newCache();
+        cache.put("token", details(System.currentTimeMillis() + 60000L));
+
+        newManager(cache).save(file);
+
+        OffHeapTokenCache restored = newCache();
+        CacheSnapshotManager manager = newManager(restored);
+
+        Assert.assertTrue(manager.prepareRestore(file));
+        Assert.assertEquals(1, manager.restore(file));
+
+        TokenDetails details = restored.get("token");
+        Assert.assertNotNull(details);
+        Assert.assertEquals("user", details.getUserId());
+        Assert.assertEquals("project", details.getProjectId());
+    }
+
+    @Test
+    public void testCorruptedSectionIgnored() throws Exception {
+
+        OffHeapTokenCache cache = newCache();
+        cache.put("token", details(System.currentTimeMillis() + 60000L));
+
+        newManager(cache).save(file);
+
+        RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw");
+        try {
+            raf.seek(raf.length() - 12);
+            int value = raf.read();
+            raf.seek(raf.length() - 12);
+            raf.write(value ^ 0xFF);
+        } finally {
+            raf.close();
+        }
+
+        OffHeapTokenCache restored = newCache();
+
+        Assert.assertEquals(0, newManager(restored).restore(file));
+        Assert.assertNull(restored.get("token"));
+    }
+
+    @Test
+    public void testMissingSnapshot() {
+
+        Assert.assertFalse(newManager(newCache()).prepareRestore(file));
+    }
+
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.common.cache;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestNegativeTokenCache {
+
+    @Test
+    public void testRejectedTokenCached() {
+
+        NegativeTokenCache cache = new NegativeTokenCache(true, 60000L, 100);
+
+        cache.putIfRejected("forged", HttpServletResponse.SC_NOT_FOUND);
+
+        Assert.assertEquals(Integer.valueOf(HttpServletResponse.SC_NOT_FOUND), cache.getRejectedStatus("forged"));
+        Assert.assertNull(cache.getRejectedStatus("valid"));
+    }
+
+    @Test
+    public void testValidTokenNotCached() {
+
+        NegativeTokenCache cache = new NegativeTokenCache(true, 60000L, 100);
+
+        cache.putIfRejected("valid", HttpServletResponse.SC_OK);
+        cache.putIfRejected("valid", HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+
+        Assert.assertNull(cache.getRejectedStatus("valid"));
+        Assert.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testUnauthorizedNotCached() {
+
+        NegativeTokenCache cache = new NegativeTokenCache(true, 60000L, 100);
+
+        // A 401 refuses the credential of the caller, the token itself may well be valid.
+        cache.putIfRejected("valid", HttpServletResponse.SC_UNAUTHORIZED);
+
+        Assert.assertNull(cache.getRejectedStatus("valid"));
+        Assert.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testBounded() {
+
+        NegativeTokenCache cache = new NegativeTokenCache(true, 60000L, 10);
+
+        for(int i = 0; i < 100; i++) {
+            cache.putIfRejected("forged-" + i, HttpServletResponse.SC_NOT_FOUND);
+        }
+
+        Assert.assertEquals(10, cache.size());
+    }
+
+    @Test
+    public void testDisabled() {
+
+        NegativeTokenCache cache = new NegativeTokenCache(false, 60000L, 100);
+
+        cache.putIfRejected("forged", HttpServletResponse.SC_NOT_FOUND);
+
+        Assert.assertNull(cache.getRejectedStatus("forged"));
+    }
+
+    @Test
+    public void testClear() {
+
+        NegativeTokenCache cache = new NegativeTokenCache(true, 60000L, 100);
+
+        cache.putIfRejected("forged", HttpServletResponse.SC_NOT_FOUND);
+        cache.clear();
+
+        Assert.assertNull(cache.getRejectedStatus("forged"));
+    }
+
+}
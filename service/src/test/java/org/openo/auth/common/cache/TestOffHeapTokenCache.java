@@ -0,0 +1,158 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.common.cache;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openo.auth.entity.TokenDetails;
+
+public class TestOffHeapTokenCache {
+
+    private static TokenDetails details(String userId, long expiresAt) {
+        TokenDetails details = new TokenDetails();
+        details.setUserId(userId);
+        details.setProjectId("project");
+        details.setExpiresAt(expiresAt);
+        return details;
+    }
+
+    @Test
+    public void testPutAndGet() {
+
+        OffHeapTokenCache cache = new OffHeapTokenCache(64, 60000L, 64);
+
+        cache.put("token", details("user", System.currentTimeMillis() + 60000L));
+
+        TokenDetails cached = cache.get("token");
+
+        Assert.assertNotNull(cached);
+        Assert.assertEquals("user", cached.getUserId());
+        Assert.assertEquals("project", cached.getProjectId());
+        Assert.assertNull(cache.get("unknown"));
+        Assert.assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testExpiredTokenNotCached() {
+
+        OffHeapTokenCache cache = new OffHeapTokenCache(64, 60000L, 64);
+
+        cache.put("token", details("user", System.currentTimeMillis() - 1000L));
+
+        Assert.assertNull(cache.get("token"));
+        Assert.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testBounded() {
+
+        OffHeapTokenCache cache = new OffHeapTokenCache(16, 60000L, 1024);
+
+        long expiresAt = System.currentTimeMillis() + 60000L;
+
+        for(int i = 0; i < 1000; i++) {
+            cache.put("token-" + i, details("user-" + i, expiresAt));
+        }
+
+        Assert.assertTrue(cache.size() <= 16);
+        Assert.assertNotNull(cache.get("token-999"));
+    }
+
+    @Test
+    public void testReferencesReused() {
+
+        // A single bucket of 8 slots, and room for 12 ids at the same time : the 100 users only
+        // fit when the ids of the evicted and removed tokens are given back.
+        OffHeapTokenCache cache = new OffHeapTokenCache(8, 60000L, 12);
+
+        long expiresAt = System.currentTimeMillis() + 60000L;
+
+        for(int i = 0; i < 100; i++) {
+
+            cache.put("token-" + i, details("user-" + i, expiresAt));
+
+            TokenDetails cached = cache.get("token-" + i);
+
+            Assert.assertNotNull("token-" + i, cached);
+            Assert.assertEquals("user-" + i, cached.getUserId());
+            Assert.assertEquals("project", cached.getProjectId());
+
+            if(i % 3 == 0) {
+                cache.remove("token-" + i);
+            }
+        }
+
+        Assert.assertTrue(cache.size() <= 8);
+
+        cache.clear();
+
+        cache.put("token-last", details("user-last", expiresAt));
+
+        Assert.assertEquals("user-last", cache.get("token-last").getUserId());
+    }
+
+    @Test
+    public void testRemoveAndClear() {
+
+        OffHeapTokenCache cache = new OffHeapTokenCache(64, 60000L, 64);
+
+        long expiresAt = System.currentTimeMillis() + 60000L;
+
+        cache.put("one", details("user", expiresAt));
+        cache.put("two", details("user", expiresAt));
+
+        cache.remove("one");
+        Assert.assertNull(cache.get("one"));
+        Assert.assertNotNull(cache.get("two"));
+
+        cache.clear();
+        Assert.assertNull(cache.get("two"));
+        Assert.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testRemoveFingerprintAndUser() {
+
+        OffHeapTokenCache cache = new OffHeapTokenCache(64, 60000L, 64);
+
+        long expiresAt = System.currentTimeMillis() + 60000L;
+
+        cache.put("one", details("user", expiresAt));
+        cache.put("two", details("user", expiresAt));
+        cache.put("three", details("other", expiresAt));
+
+        cache.removeFingerprint(TokenFingerprint.of("one"));
+        Assert.assertNull(cache.get("one"));
+
+        cache.removeUser("unknown");
+        cache.removeUser("user");
+        Assert.assertNull(cache.get("two"));
+        Assert.assertNotNull(cache.get("three"));
+        Assert.assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testDisabled() {
+
+        OffHeapTokenCache cache = new OffHeapTokenCache(0, 60000L, 64);
+
+        cache.put("token", details("user", System.currentTimeMillis() + 60000L));
+
+        Assert.assertNull(cache.get("token"));
+    }
+
+}
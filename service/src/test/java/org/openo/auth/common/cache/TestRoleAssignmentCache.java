@@ -0,0 +1,106 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.common.cache;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openo.auth.common.cache.RoleAssignmentCache.RoleAssignments;
+
+public class TestRoleAssignmentCache {
+
+    @Test
+    public void testPutGet() {
+
+        RoleAssignmentCache cache = new RoleAssignmentCache(true, 60000L, -1L, 100);
+
+        cache.put("user-1", assignments("project-1", "admin"), cache.getChanges());
+
+        Assert.assertTrue(cache.get("user-1").hasRole("project-1", "admin"));
+        Assert.assertFalse(cache.get("user-1").hasRole("project-2", "admin"));
+        Assert.assertFalse(cache.isStale(cache.get("user-1")));
+    }
+
+    @Test
+    public void testAddRole() {
+
+        RoleAssignmentCache cache = new RoleAssignmentCache(true, 60000L, -1L, 100);
+
+        cache.put("user-1", assignments("project-1", "admin"), cache.getChanges());
+
+        cache.addRole("user-1", "project-2", "member");
+
+        Assert.assertTrue(cache.get("user-1").hasRole("project-1", "admin"));
+        Assert.assertTrue(cache.get("user-1").hasRole("project-2", "member"));
+    }
+
+    @Test
+    public void testReadBeforeChangeNotCached() {
+
+        RoleAssignmentCache cache = new RoleAssignmentCache(true, 60000L, -1L, 100);
+
+        long changes = cache.getChanges();
+
+        cache.addRole("user-1", "project-1", "member");
+
+        cache.put("user-1", assignments("project-1", "admin"), changes);
+
+        Assert.assertNull(cache.get("user-1"));
+    }
+
+    @Test
+    public void testRemove() {
+
+        RoleAssignmentCache cache = new RoleAssignmentCache(true, 60000L, -1L, 100);
+
+        cache.put("user-1", assignments("project-1", "admin"), cache.getChanges());
+
+        cache.remove("user-1");
+
+        Assert.assertNull(cache.get("user-1"));
+        Assert.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testExpired() {
+
+        RoleAssignmentCache cache = new RoleAssignmentCache(true, 60000L, -1L, 100);
+
+        long now = System.currentTimeMillis();
+
+        Assert.assertTrue(cache.isStale(assignments("project-1", "admin", now - 90000L)));
+        Assert.assertFalse(cache.isExpired(assignments("project-1", "admin", now - 90000L)));
+        Assert.assertTrue(cache.isExpired(assignments("project-1", "admin", now - 150000L)));
+    }
+
+    private static RoleAssignments assignments(String projectId, String role) {
+        return assignments(projectId, role, System.currentTimeMillis());
+    }
+
+    private static RoleAssignments assignments(String projectId, String role, long loadedAt) {
+
+        Map<String, Set<String>> roles = new HashMap<String, Set<String>>();
+        roles.put(projectId, Collections.singleton(role));
+
+        return new RoleAssignments(roles, loadedAt);
+    }
+
+}
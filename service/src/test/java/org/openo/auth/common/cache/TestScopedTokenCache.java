@@ -0,0 +1,103 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.common.cache;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openo.auth.common.cache.ScopedTokenCache.ScopedToken;
+
+public class TestScopedTokenCache {
+
+    @Test
+    public void testPutGet() {
+
+        ScopedTokenCache cache = new ScopedTokenCache(true, 60000L, 100);
+
+        cache.put("token-1", "id:p1", scopedToken("scoped-1", 3600000L));
+
+        Assert.assertEquals("scoped-1", cache.get("token-1", "id:p1").getToken());
+        Assert.assertNull(cache.get("token-1", "id:p2"));
+        Assert.assertNull(cache.get("token-2", "id:p1"));
+    }
+
+    @Test
+    public void testNearExpiryNotGiven() {
+
+        ScopedTokenCache cache = new ScopedTokenCache(true, 60000L, 100);
+
+        cache.put("token-1", "id:p1", scopedToken("scoped-1", 30000L));
+
+        Assert.assertNull(cache.get("token-1", "id:p1"));
+    }
+
+    @Test
+    public void testRemoveDropsAllScopes() {
+
+        ScopedTokenCache cache = new ScopedTokenCache(true, 60000L, 100);
+
+        cache.put("token-1", "id:p1", scopedToken("scoped-1", 3600000L));
+        cache.put("token-1", "id:p2", scopedToken("scoped-2", 3600000L));
+        cache.put("token-2", "id:p1", scopedToken("scoped-3", 3600000L));
+
+        cache.remove("token-1");
+
+        Assert.assertNull(cache.get("token-1", "id:p1"));
+        Assert.assertNull(cache.get("token-1", "id:p2"));
+        Assert.assertEquals("scoped-3", cache.get("token-2", "id:p1").getToken());
+    }
+
+    @Test
+    public void testRemoveUserDropsItsTokens() {
+
+        ScopedTokenCache cache = new ScopedTokenCache(true, 60000L, 100);
+
+        cache.put("token-1", "id:p1", scopedToken("scoped-1", "user-1", 3600000L));
+        cache.put("token-1", "id:p2", scopedToken("scoped-2", "user-1", 3600000L));
+        cache.put("token-2", "id:p1", scopedToken("scoped-3", "user-2", 3600000L));
+
+        cache.removeUser("user-1");
+
+        Assert.assertNull(cache.get("token-1", "id:p1"));
+        Assert.assertNull(cache.get("token-1", "id:p2"));
+        Assert.assertEquals("scoped-3", cache.get("token-2", "id:p1").getToken());
+        Assert.assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEvicted() {
+
+        ScopedTokenCache cache = new ScopedTokenCache(true, 60000L, 2);
+
+        cache.put("token-1", "id:p1", scopedToken("scoped-1", 3600000L));
+        cache.put("token-2", "id:p1", scopedToken("scoped-2", 3600000L));
+        cache.get("token-1", "id:p1");
+        cache.put("token-3", "id:p1", scopedToken("scoped-3", 3600000L));
+
+        Assert.assertNotNull(cache.get("token-1", "id:p1"));
+        Assert.assertNull(cache.get("token-2", "id:p1"));
+        Assert.assertEquals(2, cache.size());
+    }
+
+    private static ScopedToken scopedToken(String token, long lifetime) {
+        return scopedToken(token, "user-1", lifetime);
+    }
+
+    private static ScopedToken scopedToken(String token, String userId, long lifetime) {
+        return new ScopedToken(token, userId, "{}", System.currentTimeMillis() + lifetime);
+    }
+
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.openo.auth.common.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestUserNameCache {
+
+    @Test
+    public void testPutGetRemove() {
+
+        UserNameCache cache = new UserNameCache(true, 60000L, 100);
+
+        cache.put("id-1", "user1");
+
+        Assert.assertEquals("user1", cache.get("id-1"));
+
+        cache.remove("id-1");
+
+        Assert.assertNull(cache.get("id-1"));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEvicted() {
+
+        UserNameCache cache = new UserNameCache(true, 60000L, 2);
+
+        cache.put("id-1", "user1");
+        cache.put("id-2", "user2");
+        cache.get("id-1");
+        cache.put("id-3", "user3");
+
+        Assert.assertEquals("user1", cache.get("id-1"));
+        Assert.assertNull(cache.get("id-2"));
+        Assert.assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void testSnapshot() throws IOException {
+
+        UserNameCache cache = new UserNameCache(true, 60000L, 100);
+
+        cache.put("id-1", "user1");
+        cache.put("id-2", "user2");
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        cache.save(new DataOutputStream(bytes));
+
+        UserNameCache restored = new UserNameCache(true, 60000L, 100);
+        restored.put("id-2", "renamed");
+        restored.restore(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        Assert.assertEquals("user1", restored.get("id-1"));
+        Assert.assertEquals("renamed", restored.get("id-2"));
+    }
+
+    @Test
+    public void testDisabled() {
+
+        UserNameCache cache = new UserNameCache(false, 60000L, 100);
+
+        cache.put("id-1", "user1");
+
+        Assert.assertNull(cache.get("id-1"));
+    }
+
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.openo.auth.common.cache;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openo.auth.common.cache.UserResponseCache.Representation;
+
+public class TestUserResponseCache {
+
+    private final AtomicInteger mapped = new AtomicInteger();
+
+    private final UserResponseCache.Mapper mapper = new UserResponseCache.Mapper() {
+
+        public String map(String body) {
+            mapped.incrementAndGet();
+            return "mapped-" + body;
+        }
+    };
+
+    @Test
+    public void testETagStable() {
+
+        UserResponseCache cache = new UserResponseCache(true, 60000L, 100);
+
+        Representation first = cache.update("u1", "token", "body", cache.getGeneration(), mapper);
+        Representation second = cache.update("u1", "token", "body", cache.getGeneration(), mapper);
+
+        Assert.assertEquals("mapped-body", first.getBody());
+        Assert.assertEquals(first.getETag(), second.getETag());
+        Assert.assertEquals(1, mapped.get());
+
+        Representation changed = cache.update("u1", "token", "other", cache.getGeneration(), mapper);
+
+        Assert.assertNotEquals(first.getETag(), changed.getETag());
+    }
+
+    @Test
+    public void testMatchingETagOnlyForReaders() {
+
+        UserResponseCache cache = new UserResponseCache(true, 60000L, 100);
+
+        String etag = cache.update("u1", "token", "body", cache.getGeneration(), mapper).getETag();
+
+        Assert.assertEquals(etag, cache.getMatchingETag("u1", "token", etag));
+        Assert.assertEquals(etag, cache.getMatchingETag("u1", "token", "\"other\", W/" + etag));
+        Assert.assertNull(cache.getMatchingETag("u1", "other-token", etag));
+        Assert.assertNull(cache.getMatchingETag("u1", "token", "\"other\""));
+        Assert.assertNull(cache.getMatchingETag("u2", "token", etag));
+    }
+
+    @Test
+    public void testInvalidate() {
+
+        UserResponseCache cache = new UserResponseCache(true, 60000L, 100);
+
+        String etag = cache.update("u1", "token", "body", cache.getGeneration(), mapper).getETag();
+        cache.update(UserResponseCache.ALL_USERS, "token", "list", cache.getGeneration(), mapper);
+
+        cache.invalidate("u1");
+
+        Assert.assertNull(cache.getMatchingETag("u1", "token", etag));
+        Assert.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testReadBeforeWriteNotCached() {
+
+        UserResponseCache cache = new UserResponseCache(true, 60000L, 100);
+
+        long generation = cache.getGeneration();
+
+        cache.invalidate("u1");
+
+        String etag = cache.update("u1", "token", "stale", generation, mapper).getETag();
+
+        Assert.assertNull(cache.getMatchingETag("u1", "token", etag));
+    }
+
+    @Test
+    public void testDisabled() {
+
+        UserResponseCache cache = new UserResponseCache(false, 60000L, 100);
+
+        String etag = cache.update("u1", "token", "body", cache.getGeneration(), mapper).getETag();
+
+        Assert.assertNotNull(etag);
+        Assert.assertNull(cache.getMatchingETag("u1", "token", etag));
+    }
+
+    @Test
+    public void testMatchesWeakForm() {
+        Assert.assertTrue(UserResponseCache.matches("\"abc\"", "\"abc\""));
+        Assert.assertTrue(UserResponseCache.matches("W/\"abc\"", "\"abc\""));
+        Assert.assertTrue(UserResponseCache.matches("\"x\", W/\"abc\"", "\"abc\""));
+        Assert.assertFalse(UserResponseCache.matches("W/\"abd\"", "\"abc\""));
+    }
+
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.common.capture;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestTrafficCaptureLog {
+
+    private Path file;
+
+    @Before
+    public void setUp() throws Exception {
+        file = File.createTempFile("auth-capture", ".bin").toPath();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void testRecordAndRead() throws Exception {
+
+        TrafficCaptureLog log = new TrafficCaptureLog(file, 1024L * 1024L);
+
+        long start = System.nanoTime();
+        for(int i = 0; i < 5000; i++) {
+            log.record(CapturedEndpoint.CHECK_TOKEN, "token-" + (i % 10), null, 200, -1, 0, start + i * 1000L, 2000L);
+        }
+        log.record(CapturedEndpoint.USER_GET, "token-0", "user", 404, 0, 120, start + 6000000L, 3000L);
+        log.close();
+
+        Assert.assertEquals(TrafficCaptureLog.HEADER_SIZE + 5001L * TrafficCaptureLog.RECORD_SIZE, Files.size(file));
+
+        TrafficLogReader reader = new TrafficLogReader(file);
+        try {
+            TrafficRecord first = reader.next();
+            Assert.assertEquals(CapturedEndpoint.CHECK_TOKEN, first.getEndpoint());
+            Assert.assertEquals(2, first.getDurationMicros());
+            Assert.assertEquals(0L, first.getUserHash());
+
+            TrafficRecord record = first;
+            for(int i = 1; i < 5001; i++) {
+                record = reader.next();
+                if(i % 10 == 0 && i < 5000) {
+                    Assert.assertEquals(first.getTokenHash(), record.getTokenHash());
+                }
+            }
+
+            Assert.assertEquals(CapturedEndpoint.USER_GET, record.getEndpoint());
+            Assert.assertEquals(first.getTokenHash(), record.getTokenHash());
+            Assert.assertNotEquals(0L, record.getUserHash());
+            Assert.assertEquals(404, record.getStatus());
+            Assert.assertEquals(120, record.getResponseSize());
+            Assert.assertTrue(record.getOffsetMicros() >= first.getOffsetMicros() + 5000);
+            Assert.assertNull(reader.next());
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testStopsAtMaxSize() throws Exception {
+
+        TrafficCaptureLog log = new TrafficCaptureLog(file, TrafficCaptureLog.HEADER_SIZE
+                + 10L * TrafficCaptureLog.RECORD_SIZE);
+
+        for(int i = 0; i < 20; i++) {
+            log.record(CapturedEndpoint.LOGIN, null, null, 201, 40, -1, System.nanoTime(), 1000L);
+        }
+
+        Assert.assertFalse(log.isEnabled());
+        Assert.assertEquals(TrafficCaptureLog.HEADER_SIZE + 10L * TrafficCaptureLog.RECORD_SIZE, Files.size(file));
+    }
+
+    @Test
+    public void testWrittenWhenIdle() throws Exception {
+
+        TrafficCaptureLog log = new TrafficCaptureLog(file, 1024L * 1024L);
+
+        log.record(CapturedEndpoint.CHECK_TOKEN, "token", null, 200, -1, 0, System.nanoTime(), 1000L);
+
+        long expected = TrafficCaptureLog.HEADER_SIZE + TrafficCaptureLog.RECORD_SIZE;
+
+        // No other request comes, the writer still writes the record within about a second.
+        long deadline = System.currentTimeMillis() + 5000L;
+        while(Files.size(file) < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50L);
+        }
+
+        Assert.assertEquals(expected, Files.size(file));
+        Assert.assertTrue(log.isEnabled());
+
+        log.close();
+    }
+
+    @Test
+    public void testAnonymize() throws Exception {
+
+        TrafficCaptureLog log = new TrafficCaptureLog(file, 1024L);
+        TrafficCaptureLog other = new TrafficCaptureLog(file, 1024L);
+
+        Assert.assertEquals(0L, log.anonymize(null));
+        Assert.assertEquals(log.anonymize("token"), log.anonymize("token"));
+        Assert.assertNotEquals(log.anonymize("token"), log.anonymize("other"));
+        Assert.assertNotEquals(log.anonymize("token"), other.anonymize("token"));
+
+        log.close();
+        other.close();
+    }
+
+    @Test
+    public void testEndpoints() {
+
+        Assert.assertEquals(CapturedEndpoint.LOGIN, CapturedEndpoint.of("POST", "/tokens"));
+        Assert.assertEquals(CapturedEndpoint.CHECK_TOKEN, CapturedEndpoint.of("HEAD", "tokens"));
+        Assert.assertEquals(CapturedEndpoint.LOGOUT, CapturedEndpoint.of("DELETE", "tokens/"));
+        Assert.assertEquals(CapturedEndpoint.USER_LIST, CapturedEndpoint.of("GET", "users"));
+        Assert.assertEquals(CapturedEndpoint.USER_DIRECTORY, CapturedEndpoint.of("GET", "users/directory"));
+        Assert.assertEquals(CapturedEndpoint.USER_MODIFY, CapturedEndpoint.of("PATCH", "users/abc"));
+        Assert.assertEquals(CapturedEndpoint.USER_PASSWORD, CapturedEndpoint.of("POST", "users/abc/password"));
+        Assert.assertEquals(CapturedEndpoint.OTHER, CapturedEndpoint.of("PUT", "users/abc"));
+
+        Assert.assertEquals("abc", CapturedEndpoint.userIdOf("/users/abc/password"));
+        Assert.assertNull(CapturedEndpoint.userIdOf("users/directory"));
+        Assert.assertNull(CapturedEndpoint.userIdOf("tokens"));
+
+        for(CapturedEndpoint endpoint : CapturedEndpoint.values()) {
+            Assert.assertEquals(endpoint, CapturedEndpoint.fromCode(endpoint.getCode()));
+        }
+    }
+
+}
@@ -0,0 +1,259 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.common.cluster;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.openo.auth.common.ConfigUtil;
+import org.openo.auth.common.cache.ITokenCache;
+import org.openo.auth.common.cache.TokenCacheFactory;
+import org.openo.auth.common.cache.TokenFingerprint;
+import org.openo.auth.common.cache.UserNameCache;
+import org.openo.auth.entity.TokenDetails;
+
+public class TestCacheInvalidator {
+
+    private final List<InvalidationBatch> received = Collections.synchronizedList(new ArrayList<InvalidationBatch>());
+
+    private final IInvalidationListener recorder = new IInvalidationListener() {
+
+        public void received(InvalidationBatch batch) {
+            received.add(batch);
+        }
+    };
+
+    private CacheInvalidator sender;
+
+    private LocalInvalidationBus peer;
+
+    @After
+    public void tearDown() {
+        if(null != sender) {
+            sender.stop();
+        }
+        if(null != peer) {
+            peer.stop();
+        }
+    }
+
+    private void startNodes(String channel, long batchDelay, int maxBatch) throws Exception {
+
+        sender = new CacheInvalidator("node-a", batchDelay, maxBatch);
+        sender.start(new LocalInvalidationBus(channel));
+
+        peer = new LocalInvalidationBus(channel);
+        peer.start(recorder);
+    }
+
+    @Test
+    public void testCoalesced() throws Exception {
+
+        startNodes("coalesced", 60000L, 100);
+
+        sender.userModified("u1");
+        sender.userModified("u1");
+        sender.rolesChanged("u2");
+        sender.userRevoked("u2");
+        sender.userModified("u2");
+        sender.usersChanged();
+
+        Assert.assertTrue(received.isEmpty());
+
+        sender.flush();
+
+        Assert.assertEquals(1, received.size());
+
+        InvalidationBatch batch = received.get(0);
+
+        Assert.assertEquals("node-a", batch.getOrigin());
+        Assert.assertEquals(Arrays.asList(new InvalidationEvent(InvalidationEvent.Type.USER, "u1"),
+                new InvalidationEvent(InvalidationEvent.Type.USER_REVOKED, "u2"),
+                new InvalidationEvent(InvalidationEvent.Type.USERS, null)), batch.getEvents());
+        Assert.assertTrue(batch.getCreatedAt() <= System.currentTimeMillis());
+    }
+
+    @Test
+    public void testSplitInBatches() throws Exception {
+
+        startNodes("split", 60000L, 2);
+
+        sender.userModified("u1");
+        sender.userModified("u2");
+
+        // A full batch is sent at once.
+        Assert.assertEquals(1, received.size());
+
+        sender.userModified("u3");
+        sender.flush();
+
+        Assert.assertEquals(2, received.size());
+        Assert.assertEquals(received.get(0).getSequence() + 1, received.get(1).getSequence());
+    }
+
+    @Test
+    public void testRedirectedNotInvalidated() throws Exception {
+
+        startNodes("redirected", 0L, 100);
+
+        UserNameCache.getInstance().put("u-synthetic", "name");
+
+        ConfigUtil.setThreadBaseURL("http://127.0.0.1:1");
+
+        try {
+            sender.userModified("u-synthetic");
+            sender.userRevoked("u-synthetic");
+            sender.usersChanged();
+            sender.rolesChanged("u-synthetic");
+            sender.tokenRevoked("synthetic-token");
+        } finally {
+            ConfigUtil.setThreadBaseURL(null);
+        }
+
+        Assert.assertTrue(received.isEmpty());
+        Assert.assertEquals("name", UserNameCache.getInstance().get("u-synthetic"));
+
+        sender.userModified("u-synthetic");
+
+        Assert.assertEquals(1, received.size());
+        Assert.assertNull(UserNameCache.getInstance().get("u-synthetic"));
+    }
+
+    @Test
+    public void testReceived() {
+
+        ITokenCache tokenCache = TokenCacheFactory.getInstance().getTokenCache();
+
+        TokenDetails details = new TokenDetails();
+        details.setUserId("u-received");
+        details.setExpiresAt(System.currentTimeMillis() + 60000L);
+
+        tokenCache.put("logged-out", details);
+        tokenCache.put("revoked", details);
+        UserNameCache.getInstance().put("u-modified", "name");
+
+        long lagsBefore = InvalidationMetrics.getInstance().getBatchesReceived();
+
+        CacheInvalidator node = new CacheInvalidator("node-b", 0L, 100);
+
+        node.received(new InvalidationBatch("node-b", 1, System.currentTimeMillis(),
+                Arrays.asList(new InvalidationEvent(InvalidationEvent.Type.USER, "u-modified"))));
+
+        // The own batches of a node are ignored.
+        Assert.assertEquals("name", UserNameCache.getInstance().get("u-modified"));
+
+        node.received(new InvalidationBatch("node-a", 1, System.currentTimeMillis() - 5,
+                Arrays.asList(InvalidationEvent.token(TokenFingerprint.of("logged-out")),
+                        new InvalidationEvent(InvalidationEvent.Type.USER, "u-modified"))));
+
+        Assert.assertNull(tokenCache.get("logged-out"));
+        Assert.assertNotNull(tokenCache.get("revoked"));
+        Assert.assertNull(UserNameCache.getInstance().get("u-modified"));
+
+        node.received(new InvalidationBatch("node-a", 2, System.currentTimeMillis(),
+                Arrays.asList(new InvalidationEvent(InvalidationEvent.Type.USER_REVOKED, "u-received"))));
+
+        Assert.assertNull(tokenCache.get("revoked"));
+        Assert.assertEquals(lagsBefore + 2, InvalidationMetrics.getInstance().getBatchesReceived());
+        Assert.assertTrue(InvalidationMetrics.getInstance().getMaxLagMillis() >= 5);
+    }
+
+    @Test
+    public void testInvalidEventSkipped() {
+
+        ITokenCache tokenCache = TokenCacheFactory.getInstance().getTokenCache();
+
+        TokenDetails details = new TokenDetails();
+        details.setUserId("u-after-invalid");
+        details.setExpiresAt(System.currentTimeMillis() + 60000L);
+
+        tokenCache.put("revoked-after-invalid", details);
+
+        CacheInvalidator node = new CacheInvalidator("node-b", 0L, 100);
+
+        node.received(new InvalidationBatch("node-a", 1, System.currentTimeMillis(),
+                Arrays.asList(new InvalidationEvent(InvalidationEvent.Type.TOKEN, "not-a-fingerprint"),
+                        new InvalidationEvent(InvalidationEvent.Type.USER_REVOKED, "u-after-invalid"))));
+
+        Assert.assertNull(tokenCache.get("revoked-after-invalid"));
+    }
+
+    @Test
+    public void testUdpBus() throws Exception {
+
+        final CountDownLatch latch = new CountDownLatch(1);
+
+        byte[] key = "cluster-key".getBytes("UTF-8");
+
+        UdpInvalidationBus receiver = new UdpInvalidationBus(0, Collections.<InetSocketAddress> emptyList(), 60000L,
+                key);
+
+        receiver.start(new IInvalidationListener() {
+
+            public void received(InvalidationBatch batch) {
+                received.add(batch);
+                latch.countDown();
+            }
+        });
+
+        UdpInvalidationBus publisher = new UdpInvalidationBus(0,
+                Arrays.asList(new InetSocketAddress("127.0.0.1", receiver.getLocalPort())), 60000L, key);
+
+        publisher.start(recorder);
+
+        try {
+            publisher.publish(new InvalidationBatch("node-a", 7, System.currentTimeMillis(),
+                    Arrays.asList(InvalidationEvent.token(-42L),
+                            new InvalidationEvent(InvalidationEvent.Type.ROLES, "u1"))));
+
+            Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+
+            InvalidationBatch batch = received.get(0);
+
+            Assert.assertEquals(7, batch.getSequence());
+            Assert.assertEquals(-42L, batch.getEvents().get(0).getFingerprint());
+            Assert.assertEquals("u1", batch.getEvents().get(1).getKey());
+        } finally {
+            publisher.stop();
+            receiver.stop();
+        }
+    }
+
+    @Test
+    public void testCreateBus() {
+
+        Assert.assertNull(CacheInvalidator.createBus(" none "));
+        Assert.assertNull(CacheInvalidator.createBus("java.lang.String"));
+        Assert.assertTrue(CacheInvalidator.createBus("local") instanceof LocalInvalidationBus);
+        Assert.assertTrue(CacheInvalidator.createBus(LocalInvalidationBus.class.getName())
+                instanceof LocalInvalidationBus);
+
+        List<InetSocketAddress> peers = CacheInvalidator.parsePeers("10.0.0.1:7950, ,bad,10.0.0.2:x,10.0.0.3:7951");
+
+        Assert.assertEquals(2, peers.size());
+        Assert.assertEquals(7951, peers.get(1).getPort());
+    }
+
+}
@@ -0,0 +1,314 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.openo.auth.common.cluster;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.openo.auth.common.ConfigUtil;
+import org.openo.auth.constant.Constant;
+import org.openo.auth.entity.TokenValidationResult;
+import org.openo.auth.service.impl.TokenServiceImpl;
+import org.openo.auth.service.impl.UserServiceImpl;
+import org.openo.auth.service.warmup.ServiceWarmUp;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import mockit.Mock;
+import mockit.MockUp;
+
+public class TestPeerTokenCache {
+
+    private static final byte[] KEY = "0123456789abcdef0123456789abcdef".getBytes(StandardCharsets.UTF_8);
+
+    private static final String ANSWER =
+            "{\"status\":200,\"valid\":true,\"user_id\":\"u1\",\"expires_at\":\"2030-01-01T00:00:00Z\"}";
+
+    private HttpServer server;
+
+    private PeerTokenCache node;
+
+    @After
+    public void tearDown() {
+        if(null != server) {
+            server.stop(0);
+        }
+        if(null != node) {
+            node.stop();
+        }
+    }
+
+    private static PeerTokenCache newCache(String self, List<String> nodes, byte[] key) {
+        return new PeerTokenCache(self, nodes, 64, 4, 2000, 60000L, 30000L, key);
+    }
+
+    private static String tokenOwnedBy(PeerTokenCache cache, String owner) {
+        for(int i = 0; i < 1000; i++) {
+            if(owner.equals(cache.ownerOf("token-" + i))) {
+                return "token-" + i;
+            }
+        }
+        throw new AssertionError("no token owned by " + owner);
+    }
+
+    private String startOwner(final PeerTokenCache owner, final boolean tamper) throws IOException {
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+
+        server.createContext("/openoapi/auth/v1/tokens/peer", new HttpHandler() {
+
+            public void handle(HttpExchange exchange) throws IOException {
+
+                String signature = exchange.getRequestHeaders().getFirst(Constant.PEER_SIGNATURE);
+
+                boolean signed = owner.verifyRequest(exchange.getRequestMethod(),
+                        exchange.getRequestHeaders().getFirst(Constant.PEER_TIME),
+                        exchange.getRequestHeaders().getFirst(Constant.AUTH_DOMAIN),
+                        exchange.getRequestHeaders().getFirst(Constant.TOKEN_SUBJECT), signature);
+
+                if(!signed) {
+                    exchange.sendResponseHeaders(403, -1);
+                    exchange.close();
+                    return;
+                }
+
+                byte[] body = ANSWER.getBytes(StandardCharsets.UTF_8);
+
+                exchange.getResponseHeaders().add(Constant.PEER_SIGNATURE,
+                        owner.signAnswer(signature, tamper ? ANSWER + " " : ANSWER));
+                exchange.sendResponseHeaders(200, body.length);
+
+                OutputStream output = exchange.getResponseBody();
+                output.write(body);
+                output.close();
+            }
+        });
+        server.start();
+
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/openoapi/auth/v1";
+    }
+
+    @Test
+    public void testWarmUpMakesNoPeerCalls() throws IOException {
+
+        final AtomicInteger requests = new AtomicInteger();
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+
+        server.createContext("/", new HttpHandler() {
+
+            public void handle(HttpExchange exchange) throws IOException {
+                requests.incrementAndGet();
+                exchange.sendResponseHeaders(503, -1);
+                exchange.close();
+            }
+        });
+        server.start();
+
+        String self = "http://127.0.0.1:1/openoapi/auth/v1";
+        String peer = "http://127.0.0.1:" + server.getAddress().getPort() + "/openoapi/auth/v1";
+
+        node = newCache(self, Arrays.asList(self, peer), KEY);
+
+        final PeerTokenCache enabled = node;
+
+        new MockUp<PeerTokenCache>() {
+
+            @Mock
+            public PeerTokenCache getInstance() {
+                return enabled;
+            }
+        };
+
+        String token = tokenOwnedBy(node, peer);
+
+        ConfigUtil.setThreadBaseURL("http://127.0.0.1:1");
+        try {
+            Assert.assertNull(node.ownerOf(token));
+            node.forget(token);
+        } finally {
+            ConfigUtil.setThreadBaseURL(null);
+        }
+
+        ServiceWarmUp warmUp = new ServiceWarmUp(new TokenServiceImpl(), new UserServiceImpl(), 10000L, 5, 1,
+                Long.MAX_VALUE);
+
+        warmUp.run();
+
+        Assert.assertEquals(5, warmUp.getIterations());
+        Assert.assertEquals(0, requests.get());
+        Assert.assertEquals(peer, node.ownerOf(token));
+    }
+
+    @Test
+    public void testParseNodes() {
+
+        List<String> nodes = PeerTokenCache.parseNodes(" 10.0.0.1:8102, http://10.0.0.2:8102/auth/ ,,10.0.0.1:8102");
+
+        Assert.assertEquals(Arrays.asList("http://10.0.0.1:8102/openoapi/auth/v1", "http://10.0.0.2:8102/auth"), nodes);
+
+        Assert.assertTrue(PeerTokenCache.parseNodes(null).isEmpty());
+    }
+
+    @Test
+    public void testReadNodesFile() throws IOException {
+
+        File file = File.createTempFile("auth_rest", ".json");
+        file.deleteOnExit();
+
+        Files.write(file.toPath(), ("{\"serviceName\":\"auth\",\"url\":\"/openoapi/auth/v1\",\"nodes\":["
+                + "{\"ip\":\"10.229.47.199\",\"port\":\"8102\",\"ttl\":0},{\"ip\":\"10.229.47.200\",\"port\":8102}]}")
+                        .getBytes(StandardCharsets.UTF_8));
+
+        Assert.assertEquals(Arrays.asList("http://10.229.47.199:8102/openoapi/auth/v1",
+                "http://10.229.47.200:8102/openoapi/auth/v1"), PeerTokenCache.readNodesFile(file.getPath()));
+
+        Assert.assertTrue(PeerTokenCache.readNodesFile("no_such_nodes.json").isEmpty());
+    }
+
+    @Test
+    public void testOwnership() {
+
+        List<String> nodes = Arrays.asList("http://a:1/x", "http://b:1/x", "http://c:1/x");
+
+        PeerTokenCache a = newCache("http://a:1/x", nodes, KEY);
+        PeerTokenCache b = newCache("http://b:1/x", nodes, KEY);
+
+        int ownedByA = 0;
+
+        for(int i = 0; i < 300; i++) {
+
+            String token = "token-" + i;
+
+            String ownerForA = a.ownerOf(token);
+            String ownerForB = b.ownerOf(token);
+
+            // A node never asks itself, and the nodes agree on the owner of a token.
+            if(null == ownerForA) {
+                ownedByA++;
+                Assert.assertEquals("http://a:1/x", ownerForB);
+            } else if(null != ownerForB) {
+                Assert.assertEquals(ownerForA, ownerForB);
+            }
+        }
+        Assert.assertTrue(ownedByA > 30 && ownedByA < 200);
+
+        Assert.assertFalse(newCache("http://d:1/x", nodes, KEY).isEnabled());
+        Assert.assertFalse(newCache("http://a:1/x", nodes, null).isEnabled());
+        Assert.assertFalse(newCache("http://a:1/x", Arrays.asList("http://a:1/x"), KEY).isEnabled());
+        Assert.assertNull(newCache("http://a:1/x", nodes, null).ownerOf("token-1"));
+    }
+
+    @Test
+    public void testAskOwner() throws IOException {
+
+        PeerTokenCache owner = newCache("http://127.0.0.1:1/openoapi/auth/v1",
+                Arrays.asList("http://127.0.0.1:1/openoapi/auth/v1", "http://127.0.0.1:2/openoapi/auth/v1"), KEY);
+
+        String ownerURL = startOwner(owner, false);
+
+        List<String> nodes = Arrays.asList(ownerURL, "http://127.0.0.1:2/openoapi/auth/v1");
+
+        node = newCache("http://127.0.0.1:2/openoapi/auth/v1", nodes, KEY);
+
+        String token = tokenOwnedBy(node, ownerURL);
+
+        TokenValidationResult result = node.ask(ownerURL, token);
+
+        Assert.assertNotNull(result);
+        Assert.assertTrue(result.isValid());
+        Assert.assertEquals("u1", result.getUserId());
+        Assert.assertEquals("2030-01-01T00:00:00Z", result.getExpiresAt());
+
+        // A node without the key of the cluster is refused.
+        PeerTokenCache stranger = newCache("http://127.0.0.1:2/openoapi/auth/v1", nodes,
+                "fedcba9876543210fedcba9876543210".getBytes(StandardCharsets.UTF_8));
+        try {
+            Assert.assertNull(stranger.ask(ownerURL, token));
+        } finally {
+            stranger.stop();
+        }
+    }
+
+    @Test
+    public void testUnsignedAnswerIgnored() throws IOException {
+
+        PeerTokenCache owner = newCache("http://127.0.0.1:1/openoapi/auth/v1",
+                Arrays.asList("http://127.0.0.1:1/openoapi/auth/v1", "http://127.0.0.1:2/openoapi/auth/v1"), KEY);
+
+        String ownerURL = startOwner(owner, true);
+
+        node = newCache("http://127.0.0.1:2/openoapi/auth/v1",
+                Arrays.asList(ownerURL, "http://127.0.0.1:2/openoapi/auth/v1"), KEY);
+
+        String token = tokenOwnedBy(node, ownerURL);
+
+        Assert.assertNull(node.ask(ownerURL, token));
+
+        // A wrong answer is not a failure of the owner, it is still asked.
+        Assert.assertEquals(ownerURL, node.ownerOf(token));
+    }
+
+    @Test
+    public void testUnreachableOwnerSkipped() throws IOException {
+
+        int port;
+        try(ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+
+        String ownerURL = "http://127.0.0.1:" + port + "/openoapi/auth/v1";
+
+        node = newCache("http://127.0.0.1:2/openoapi/auth/v1",
+                Arrays.asList(ownerURL, "http://127.0.0.1:2/openoapi/auth/v1"), KEY);
+
+        String token = tokenOwnedBy(node, ownerURL);
+
+        Assert.assertNull(node.ask(ownerURL, token));
+
+        // Its tokens are validated locally until the retry delay is over.
+        Assert.assertNull(node.ownerOf(token));
+    }
+
+    @Test
+    public void testStaleRequestRefused() {
+
+        PeerTokenCache owner = newCache("http://a:1/x", Arrays.asList("http://a:1/x", "http://b:1/x"), KEY);
+
+        String stale = String.valueOf(System.currentTimeMillis() - 60000L);
+
+        Assert.assertFalse(owner.verifyRequest("GET", stale, null, "token-1", "c2lnbmF0dXJl"));
+        Assert.assertFalse(owner.verifyRequest("GET", "not-a-time", null, "token-1", "c2lnbmF0dXJl"));
+        Assert.assertFalse(owner.verifyRequest("GET", String.valueOf(System.currentTimeMillis()), null, "token-1",
+                null));
+    }
+
+}
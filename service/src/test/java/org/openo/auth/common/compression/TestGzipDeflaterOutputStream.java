@@ -0,0 +1,105 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.openo.auth.common.compression;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestGzipDeflaterOutputStream {
+
+    private static byte[] users() {
+        StringBuilder users = new StringBuilder();
+        for(int i = 0; i < 5000; i++) {
+            users.append("{\"id\":\"id-").append(i).append("\",\"name\":\"user").append(i).append("\"}\n");
+        }
+        return users.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] readAll(InputStream input) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while((read = input.read(buffer)) > 0) {
+            output.write(buffer, 0, read);
+        }
+        return output.toByteArray();
+    }
+
+    @Test
+    public void testReadableByGzipInputStream() throws IOException {
+
+        byte[] data = users();
+
+        DeflaterPool pool = new DeflaterPool(6, true, 1);
+
+        for(int i = 0; i < 3; i++) {
+
+            Deflater deflater = pool.borrow();
+
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+            GzipDeflaterOutputStream gzip = new GzipDeflaterOutputStream(output, deflater);
+            gzip.write(data, 0, 10);
+            gzip.write(data, 10, data.length - 10);
+            gzip.finish();
+
+            pool.release(deflater);
+
+            Assert.assertEquals(output.size(), gzip.getBytesWritten());
+            Assert.assertArrayEquals(data,
+                    readAll(new GZIPInputStream(new ByteArrayInputStream(output.toByteArray()))));
+        }
+
+        Assert.assertEquals(1, pool.getIdle());
+    }
+
+    @Test
+    public void testDecodingInputStream() throws IOException {
+
+        byte[] data = users();
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        GZIPOutputStream gzip = new GZIPOutputStream(output);
+        gzip.write(data);
+        gzip.close();
+
+        long saved = CompressionMetrics.getInstance().getClientBytesSaved();
+
+        Assert.assertArrayEquals(data,
+                readAll(new DecodingInputStream(new ByteArrayInputStream(output.toByteArray()), true)));
+
+        Assert.assertEquals(data.length - output.size(),
+                CompressionMetrics.getInstance().getClientBytesSaved() - saved);
+    }
+
+    @Test
+    public void testDecodingEmptyBody() throws IOException {
+        Assert.assertEquals(-1, new DecodingInputStream(new ByteArrayInputStream(new byte[0]), true).read());
+    }
+
+}
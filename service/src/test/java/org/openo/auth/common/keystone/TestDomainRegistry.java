@@ -0,0 +1,117 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.common.keystone;
+
+import java.util.Properties;
+import java.util.concurrent.Callable;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.openo.auth.common.ConfigUtil;
+import org.openo.auth.common.cache.TokenFingerprint;
+import org.openo.auth.entity.keystone.req.KeyStoneConfiguration;
+
+public class TestDomainRegistry {
+
+    private DomainRegistry registry;
+
+    @Before
+    public void setUp() {
+
+        Properties properties = new Properties();
+        properties.setProperty("acme.domain_id", "d-acme");
+        properties.setProperty("acme.project_name", "acme-admin");
+        properties.setProperty("acme.endpoint", "http://10.0.0.5:5000/");
+        properties.setProperty("globex.domain_id", "d-globex");
+        properties.setProperty("globex.domain_name", "Globex");
+        properties.setProperty("nameless.project_name", "ignored");
+        properties.setProperty("broken.domain_id", "d-broken");
+        properties.setProperty("broken.endpoint", "10.0.0.6:5000");
+        properties.setProperty("twin.domain_id", "d-acme");
+
+        registry = new DomainRegistry(properties);
+    }
+
+    @After
+    public void tearDown() {
+        DomainContext.restore(null);
+    }
+
+    @Test
+    public void testLoad() {
+
+        Assert.assertEquals(2, registry.size());
+        Assert.assertNull(registry.get("nameless"));
+        Assert.assertNull(registry.get("broken"));
+        Assert.assertNull(registry.get(null));
+
+        KeyStoneDomain acme = registry.get("acme");
+
+        Assert.assertSame(acme, registry.get("d-acme"));
+        Assert.assertEquals("http://10.0.0.5:5000", acme.getBaseURL());
+        Assert.assertTrue(acme.needsOwnServiceToken());
+
+        KeyStoneConfiguration keyConf = acme.getConfiguration();
+
+        Assert.assertEquals("acme", keyConf.getDomainName());
+        Assert.assertEquals("acme-admin", keyConf.getProjectName());
+        Assert.assertEquals(KeyStoneConfigInitializer.getDefaultConfiguration().getAdminName(), keyConf.getAdminName());
+
+        KeyStoneDomain globex = registry.get("globex");
+
+        Assert.assertEquals("Globex", globex.getConfiguration().getDomainName());
+        Assert.assertFalse(globex.hasOwnEndpoint());
+        Assert.assertFalse(globex.needsOwnServiceToken());
+    }
+
+    @Test
+    public void testDomainContext() throws Exception {
+
+        String defaultURL = ConfigUtil.getBaseURL();
+
+        long fingerprint = TokenFingerprint.of("token");
+
+        KeyStoneDomain previous = DomainContext.enter(registry.get("acme"));
+
+        Assert.assertNull(previous);
+        Assert.assertEquals("d-acme", KeyStoneConfigInitializer.getKeystoneConfiguration().getDomainId());
+        Assert.assertEquals("http://10.0.0.5:5000", ConfigUtil.getBaseURL());
+        Assert.assertNotEquals(fingerprint, TokenFingerprint.of("token"));
+
+        Callable<String> task = DomainContext.wrap(new Callable<String>() {
+
+            public String call() {
+                return KeyStoneConfigInitializer.getKeystoneConfiguration().getDomainId();
+            }
+        });
+
+        DomainContext.enter(registry.get("globex"));
+
+        Assert.assertEquals(defaultURL, ConfigUtil.getBaseURL());
+        Assert.assertEquals(fingerprint, TokenFingerprint.of("token"));
+        Assert.assertEquals("d-acme", task.call());
+        Assert.assertEquals("d-globex", KeyStoneConfigInitializer.getKeystoneConfiguration().getDomainId());
+
+        DomainContext.restore(previous);
+
+        Assert.assertNull(DomainContext.current());
+        Assert.assertEquals("default", KeyStoneConfigInitializer.getKeystoneConfiguration().getDomainId());
+    }
+
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.common.keystone;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.openo.auth.common.ConfigUtil;
+
+public class TestShardRouter {
+
+    private static final String SHARD_1 = "http://10.0.1.1:5000";
+
+    private static final String SHARD_2 = "http://10.0.1.2:5000";
+
+    @After
+    public void tearDown() {
+        DomainContext.restore(null);
+    }
+
+    @Test
+    public void testNotSharded() {
+
+        ShardRouter router = new ShardRouter(" , ", 16, 2);
+
+        Assert.assertFalse(router.isEnabled());
+        Assert.assertTrue(router.getShards().isEmpty());
+        Assert.assertNull(router.shardOf("d-acme"));
+    }
+
+    @Test
+    public void testShards() {
+
+        String home = ConfigUtil.getConfiguredBaseURL();
+
+        ShardRouter router = new ShardRouter(home + "/," + SHARD_1 + "," + SHARD_1 + "/", 16, 2);
+
+        Assert.assertTrue(router.isEnabled());
+        Assert.assertEquals(2, router.getShards().size());
+
+        // The configured KeyStone is reached as usual, without an endpoint of its own.
+        Assert.assertFalse(router.getShards().get(0).hasOwnEndpoint());
+        Assert.assertEquals(SHARD_1, router.getShards().get(1).getBaseURL());
+        Assert.assertTrue(router.getShards().get(1).needsOwnServiceToken());
+    }
+
+    @Test
+    public void testShardOf() {
+
+        ShardRouter router = new ShardRouter(SHARD_1 + "," + SHARD_2, 128, 2);
+
+        Map<KeyStoneDomain, Integer> counts = new HashMap<KeyStoneDomain, Integer>();
+
+        for(int i = 0; i < 1000; i++) {
+
+            KeyStoneDomain shard = router.shardOf("d-" + i);
+
+            Assert.assertSame(shard, router.shardOf("d-" + i));
+
+            Integer count = counts.get(shard);
+            counts.put(shard, null == count ? 1 : count + 1);
+        }
+
+        Assert.assertEquals(2, counts.size());
+        for(Integer count : counts.values()) {
+            Assert.assertTrue("unbalanced shards : " + counts.values(), count > 350);
+        }
+    }
+
+    @Test
+    public void testShardAdded() {
+
+        ShardRouter two = new ShardRouter(SHARD_1 + "," + SHARD_2, 128, 2);
+        ShardRouter three = new ShardRouter(SHARD_1 + "," + SHARD_2 + ",http://10.0.1.3:5000", 128, 2);
+
+        for(int i = 0; i < 1000; i++) {
+
+            String before = two.shardOf("d-" + i).getBaseURL();
+            String after = three.shardOf("d-" + i).getBaseURL();
+
+            // A domain either stays on its shard or moves to the new one.
+            Assert.assertTrue(before.equals(after) || "http://10.0.1.3:5000".equals(after));
+        }
+    }
+
+    @Test
+    public void testSubmit() throws Exception {
+
+        final ShardRouter router = new ShardRouter(SHARD_1 + "," + SHARD_2, 16, 1);
+
+        KeyStoneDomain shard = router.getShards().get(1);
+
+        Assert.assertSame(shard, router.submit(shard, new Callable<KeyStoneDomain>() {
+
+            public KeyStoneDomain call() {
+                return DomainContext.current();
+            }
+        }).get());
+
+        Assert.assertNull(DomainContext.current());
+    }
+
+    @Test
+    public void testDomainPlacement() {
+
+        ShardRouter router = new ShardRouter(SHARD_1 + "," + SHARD_2, 16, 2);
+
+        Properties properties = new Properties();
+        properties.setProperty("acme.domain_id", "d-acme");
+        properties.setProperty("globex.domain_id", "d-globex");
+        properties.setProperty("globex.endpoint", "http://10.0.0.5:5000");
+
+        DomainRegistry registry = new DomainRegistry(properties, router);
+
+        Assert.assertEquals(router.shardOf("d-acme").getBaseURL(), registry.get("acme").getBaseURL());
+        Assert.assertEquals("http://10.0.0.5:5000", registry.get("globex").getBaseURL());
+    }
+
+}
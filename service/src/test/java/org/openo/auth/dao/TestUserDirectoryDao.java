@@ -0,0 +1,115 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.dao;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.Properties;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openo.auth.constant.Constant;
+import org.openo.auth.entity.UserDirectoryPage;
+
+public class TestUserDirectoryDao {
+
+    private static final String URL = "jdbc:h2:mem:keystone;MODE=MySQL;DB_CLOSE_DELAY=-1";
+
+    private static UserDirectoryDao dao;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+
+        Connection connection = DriverManager.getConnection(URL, "sa", "");
+        try {
+            Statement statement = connection.createStatement();
+            statement.execute("RUNSCRIPT FROM 'classpath:keystone_h2.sql'");
+            statement.close();
+        } finally {
+            connection.close();
+        }
+
+        Properties properties = new Properties();
+        properties.setProperty(Constant.KEYSTONE_DB_ENABLED, "true");
+        properties.setProperty(Constant.KEYSTONE_DB_DRIVER, "org.h2.Driver");
+        properties.setProperty(Constant.KEYSTONE_DB_URL, URL);
+        properties.setProperty(Constant.KEYSTONE_DB_USERNAME, "sa");
+        properties.setProperty(Constant.KEYSTONE_DB_PASSWORD, "");
+        properties.setProperty(Constant.KEYSTONE_DB_MAX_PAGE_SIZE, "3");
+
+        dao = new UserDirectoryDao(properties);
+    }
+
+    @Test
+    public void testKeysetPagination() {
+
+        UserDirectoryPage first = dao.listUsers(null, null, 2);
+
+        Assert.assertEquals(2, first.getUsers().size());
+        Assert.assertEquals("u1", first.getUsers().get(0).getId());
+        Assert.assertEquals("admin", first.getUsers().get(0).getName());
+        Assert.assertEquals("admin@openo.org", first.getUsers().get(0).getEmail());
+        Assert.assertEquals("administrator", first.getUsers().get(0).getDescription());
+        Assert.assertEquals("u2", first.getNextMarker());
+
+        UserDirectoryPage second = dao.listUsers(first.getNextMarker(), null, 2);
+
+        Assert.assertEquals("u3", second.getUsers().get(0).getId());
+        Assert.assertEquals("u4", second.getNextMarker());
+
+        UserDirectoryPage last = dao.listUsers(second.getNextMarker(), null, 2);
+
+        Assert.assertEquals(1, last.getUsers().size());
+        Assert.assertNull(last.getNextMarker());
+    }
+
+    @Test
+    public void testPageSizeBounded() {
+
+        Assert.assertEquals(3, dao.listUsers(null, null, 1000).getUsers().size());
+    }
+
+    @Test
+    public void testNamePrefix() {
+
+        UserDirectoryPage page = dao.listUsers(null, "al", 10);
+
+        Assert.assertEquals(2, page.getUsers().size());
+
+        page = dao.listUsers(null, "al_", 10);
+
+        Assert.assertEquals(1, page.getUsers().size());
+        Assert.assertEquals("al_x", page.getUsers().get(0).getName());
+    }
+
+    @Test
+    public void testIsAdmin() {
+
+        Assert.assertTrue(dao.isAdmin("u1"));
+        Assert.assertFalse(dao.isAdmin("u2"));
+        Assert.assertFalse(dao.isAdmin("unknown"));
+    }
+
+    @Test
+    public void testDisabled() {
+
+        Assert.assertFalse(new UserDirectoryDao(new Properties()).isEnabled());
+    }
+
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.rest.client;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+import javax.servlet.http.HttpServletResponse;
+import javax.ws.rs.core.Response;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.openo.auth.common.keystone.KeyStoneConfigInitializer;
+import org.openo.auth.constant.Constant;
+import org.openo.auth.entity.keystone.req.KeyStoneConfiguration;
+
+import mockit.Mock;
+import mockit.MockUp;
+
+public class TestServiceTokenManager {
+
+    private static final long LIFETIME = 3600000L;
+
+    private ServiceTokenManager manager = new ServiceTokenManager(300000L, 5000L);
+
+    @After
+    public void tearDown() {
+        manager.stop();
+    }
+
+    @Test
+    public void testRefreshDelay() {
+
+        Assert.assertEquals(LIFETIME - 300000L, ServiceTokenManager.refreshDelay(0L, LIFETIME, 300000L));
+
+        Assert.assertEquals(200000L, ServiceTokenManager.refreshDelay(0L, 400000L, 300000L));
+
+        Assert.assertEquals(0L, ServiceTokenManager.refreshDelay(1000L, 500L, 300000L));
+    }
+
+    @Test
+    public void testAdminTokenWithoutServiceUser() {
+
+        KeyStoneConfiguration keyConf = getConfiguration("");
+
+        Assert.assertEquals("admin-token", manager.getToken(keyConf));
+        Assert.assertNull(manager.getCurrentToken());
+    }
+
+    @Test
+    public void testServiceToken() {
+
+        mockConfiguration();
+        mockLogin(HttpServletResponse.SC_CREATED, "service-token-1");
+
+        long delay = manager.refresh();
+
+        Assert.assertEquals("service-token-1", manager.getToken(getConfiguration("auth")));
+        Assert.assertTrue(delay > LIFETIME - 300000L - 60000L && delay <= LIFETIME - 300000L);
+    }
+
+    @Test
+    public void testFailedRefreshKeepsToken() {
+
+        mockConfiguration();
+        mockLogin(HttpServletResponse.SC_CREATED, "service-token-1");
+        manager.refresh();
+
+        mockLogin(HttpServletResponse.SC_SERVICE_UNAVAILABLE, null);
+
+        Assert.assertEquals(5000L, manager.refresh());
+        Assert.assertEquals("service-token-1", manager.getToken(getConfiguration("auth")));
+    }
+
+    @Test
+    public void testRotation() {
+
+        mockConfiguration();
+        mockLogin(HttpServletResponse.SC_CREATED, "service-token-1");
+        manager.refresh();
+
+        mockLogin(HttpServletResponse.SC_CREATED, "service-token-2");
+        manager.refresh();
+
+        Assert.assertEquals("service-token-2", manager.getToken(getConfiguration("auth")));
+    }
+
+    private static KeyStoneConfiguration getConfiguration(String serviceUserName) {
+
+        KeyStoneConfiguration keyConf = new KeyStoneConfiguration();
+        keyConf.setDomainName("Default");
+        keyConf.setProjectName("service");
+        keyConf.setAdminToken("admin-token");
+        keyConf.setServiceUserName(serviceUserName);
+        keyConf.setServiceUserPassword("secret");
+        return keyConf;
+    }
+
+    private static void mockConfiguration() {
+        new MockUp<KeyStoneConfigInitializer>() {
+
+            @Mock
+            public KeyStoneConfiguration getKeystoneConfiguration() {
+                return getConfiguration("auth");
+            }
+        };
+    }
+
+    private static void mockLogin(final int status, final String token) {
+        new MockUp<ClientCommunicationUtil>() {
+
+            @Mock
+            public Response getResponseFromService(String url, String input, String type) {
+
+                String expiresAt = Instant.ofEpochMilli(System.currentTimeMillis() + LIFETIME).toString();
+                String body = "{\"token\": {\"expires_at\": \"" + expiresAt + "\"}}";
+
+                return Response.status(status).header(Constant.TOKEN_SUBJECT, token)
+                        .entity(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8))).build();
+            }
+        };
+    }
+
+}
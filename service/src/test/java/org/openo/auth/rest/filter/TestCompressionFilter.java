@@ -0,0 +1,50 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.openo.auth.rest.filter;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestCompressionFilter {
+
+    @Test
+    public void testNegotiate() {
+        Assert.assertEquals("gzip", CompressionFilter.negotiate("deflate, gzip"));
+        Assert.assertEquals("gzip", CompressionFilter.negotiate("*"));
+        Assert.assertEquals("deflate", CompressionFilter.negotiate("gzip;q=0, deflate"));
+        Assert.assertNull(CompressionFilter.negotiate("identity"));
+        Assert.assertNull(CompressionFilter.negotiate(null));
+    }
+
+    @Test
+    public void testWeakenedETag() {
+        Assert.assertEquals("W/\"abc\"", CompressionFilter.weaken("\"abc\""));
+        Assert.assertEquals("W/\"abc\"", CompressionFilter.weaken("W/\"abc\""));
+    }
+
+    @Test
+    public void testSizeInBytes() {
+        Assert.assertEquals(3L, CompressionFilter.sizeOf("abc"));
+        Assert.assertEquals(5L, CompressionFilter.sizeOf("\u00e9t\u00e9"));
+        Assert.assertEquals(3L, CompressionFilter.sizeOf("\u4e2d"));
+        Assert.assertEquals(4L, CompressionFilter.sizeOf("\ud83d\ude00"));
+        Assert.assertEquals(2L, CompressionFilter.sizeOf(new byte[2]));
+        Assert.assertEquals(-1L, CompressionFilter.sizeOf(null));
+    }
+
+}
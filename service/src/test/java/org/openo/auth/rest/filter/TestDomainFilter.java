@@ -0,0 +1,35 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.rest.filter;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestDomainFilter {
+
+    @Test
+    public void testSplitDomainPath() {
+        Assert.assertArrayEquals(new String[] {"acme", "tokens/validate"},
+                DomainFilter.splitDomainPath("domains/acme/tokens/validate"));
+        Assert.assertArrayEquals(new String[] {"acme", "users"}, DomainFilter.splitDomainPath("/domains/acme/users"));
+        Assert.assertArrayEquals(new String[] {"acme", ""}, DomainFilter.splitDomainPath("domains/acme"));
+        Assert.assertNull(DomainFilter.splitDomainPath("domains/"));
+        Assert.assertNull(DomainFilter.splitDomainPath("tokens"));
+        Assert.assertNull(DomainFilter.splitDomainPath(null));
+    }
+
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.service.impl;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.ws.rs.core.Response;
+
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.type.TypeReference;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.openo.auth.common.CommonMockUp;
+import org.openo.auth.common.cache.RoleAssignmentCache;
+import org.openo.auth.common.cache.RoleAssignmentCache.RoleAssignments;
+import org.openo.auth.entity.ClientResponse;
+import org.openo.auth.entity.TokenDetails;
+import org.openo.auth.exception.AuthException;
+import org.openo.auth.rest.client.UserServiceClient;
+
+import mockit.Mock;
+import mockit.MockUp;
+
+public class TestAuthzServiceImpl {
+
+    private static final String ASSIGNMENTS = "{\"role_assignments\": ["
+            + "{\"role\": {\"id\": \"r1\", \"name\": \"admin\"}, \"user\": {\"id\": \"u1\"},"
+            + " \"scope\": {\"project\": {\"id\": \"p1\"}}},"
+            + "{\"role\": {\"id\": \"r2\", \"name\": \"reader\"}, \"user\": {\"id\": \"u1\"},"
+            + " \"scope\": {\"domain\": {\"id\": \"default\"}}}]}";
+
+    private AuthzServiceImpl instance;
+
+    private HttpServletResponse response;
+
+    private AtomicInteger calls;
+
+    private AtomicInteger status;
+
+    @Before
+    public void setUp() {
+
+        instance = new AuthzServiceImpl();
+        response = CommonMockUp.getInstance().mockHttpServletResponse();
+        calls = new AtomicInteger();
+        status = new AtomicInteger(HttpServletResponse.SC_OK);
+
+        RoleAssignmentCache.getInstance().clear();
+
+        CommonMockUp.getInstance().mockKeystoneConfiguration();
+
+        new MockUp<UserServiceClient>() {
+
+            @Mock
+            public ClientResponse listRoleAssignments(String userId, String authToken) {
+                calls.incrementAndGet();
+                ClientResponse resp = new ClientResponse();
+                resp.setStatus(status.get());
+                resp.setBody(ASSIGNMENTS);
+                return resp;
+            }
+        };
+    }
+
+    @After
+    public void tearDown() {
+        RoleAssignmentCache.getInstance().clear();
+    }
+
+    @Test
+    public void testCheckRole() throws Exception {
+
+        mockTokenDetails("u1");
+
+        Assert.assertTrue(check("admin"));
+        Assert.assertTrue(check("r1"));
+        Assert.assertFalse(check("reader"));
+
+        Assert.assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void testCheckRoleAssignedThroughService() throws Exception {
+
+        mockTokenDetails("u1");
+
+        Assert.assertFalse(check("r3"));
+
+        RoleAssignmentCache.getInstance().addRole("u1", "p1", "r3");
+
+        Assert.assertTrue(check("r3"));
+        Assert.assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void testCheckRoleTooStale() throws Exception {
+
+        mockTokenDetails("u1");
+
+        Assert.assertTrue(check("admin"));
+
+        new MockUp<RoleAssignmentCache>() {
+
+            @Mock
+            public boolean isExpired(RoleAssignments assignments) {
+                return true;
+            }
+        };
+
+        status.set(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+
+        int checkStatus;
+        try {
+            checkStatus = instance.checkRole(mockCheckRequest("admin"), response).getStatus();
+        } catch(AuthException e) {
+            checkStatus = e.getResponse().getStatus();
+        }
+
+        Assert.assertEquals(HttpServletResponse.SC_BAD_GATEWAY, checkStatus);
+
+        status.set(HttpServletResponse.SC_OK);
+
+        Assert.assertTrue(check("admin"));
+        Assert.assertEquals(3, calls.get());
+    }
+
+    @Test
+    public void testCheckRoleInvalidToken() {
+
+        mockTokenDetails(null);
+
+        Response res = instance.checkRole(mockCheckRequest("admin"), response);
+
+        Assert.assertEquals(HttpServletResponse.SC_UNAUTHORIZED, res.getStatus());
+        Assert.assertEquals(0, calls.get());
+    }
+
+    @Test
+    public void testEvaluatePolicy() throws Exception {
+
+        mockTokenDetails("u1");
+
+        Assert.assertTrue(evaluate("identity:list_users", "{}"));
+        Assert.assertTrue(evaluate("identity:change_password", "{\"user_id\": \"u1\"}"));
+        Assert.assertFalse(evaluate("identity:change_password", "{\"user_id\": \"u2\"}"));
+        Assert.assertTrue(evaluate("identity:undefined", "{}"));
+        Assert.assertFalse(evaluate("owner", "{}"));
+
+        Assert.assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void testEvaluatePolicyInvalidToken() {
+
+        mockTokenDetails(null);
+
+        Response res = instance.evaluatePolicy(mockPolicyRequest("identity:list_users", "{}"), response);
+
+        Assert.assertEquals(HttpServletResponse.SC_UNAUTHORIZED, res.getStatus());
+        Assert.assertEquals(0, calls.get());
+    }
+
+    private boolean evaluate(String rule, String target) throws Exception {
+        return isAllowed(instance.evaluatePolicy(mockPolicyRequest(rule, target), response));
+    }
+
+    private boolean check(String role) throws Exception {
+        return isAllowed(instance.checkRole(mockCheckRequest(role), response));
+    }
+
+    private static boolean isAllowed(Response res) throws Exception {
+
+        Assert.assertEquals(HttpServletResponse.SC_OK, res.getStatus());
+
+        Map<String, Object> decision = new ObjectMapper().readValue((String)res.getEntity(),
+                new TypeReference<Map<String, Object>>() {
+                });
+
+        return Boolean.TRUE.equals(decision.get("allowed"));
+    }
+
+    private static HttpServletRequest mockCheckRequest(String role) {
+        return CommonMockUp.getInstance().mockRequestInputStream(
+                "{\"token\": \"user-token\", \"project_id\": \"p1\", \"role\": \"" + role + "\"}");
+    }
+
+    private static HttpServletRequest mockPolicyRequest(String rule, String target) {
+        return CommonMockUp.getInstance().mockRequestInputStream(
+                "{\"token\": \"user-token\", \"rule\": \"" + rule + "\", \"target\": " + target + "}");
+    }
+
+    private static void mockTokenDetails(final String userId) {
+        new MockUp<TokenValidator>() {
+
+            @Mock
+            public TokenDetails getTokenDetails(String authToken) {
+                if(null == userId) {
+                    return null;
+                }
+                TokenDetails details = new TokenDetails();
+                details.setUserId(userId);
+                details.setProjectId("p1");
+                return details;
+            }
+        };
+    }
+
+}
@@ -16,17 +16,34 @@
 
 package org.openo.auth.service.impl;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.ServletInputStream;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.ws.rs.core.Response;
 
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.type.TypeReference;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.openo.auth.common.CommUtil;
 import org.openo.auth.common.CommonMockUp;
+import org.openo.auth.common.DelegateServletStream;
+import org.openo.auth.constant.Constant;
+import org.openo.auth.entity.ClientResponse;
 import org.openo.auth.entity.UserCredentialUI;
+import org.openo.auth.rest.client.TokenServiceClient;
+
+import mockit.Mock;
+import mockit.MockUp;
 
 //import mockit.Mockit;
 
@@ -133,4 +150,238 @@ public class TestTokenServiceImpl {
 
     }
 
+    /**
+     * Test method for
+     * {@link org.openo.auth.service.impl.TokenServiceImpl#checkToken(javax.servlet.http.HttpServletRequest, javax.servlet.http.HttpServletResponse)}
+     * with a token rejected twice.
+     */
+    @Test
+    public void testCheckTokenRejectedCached() {
+
+        final int[] calls = new int[1];
+
+        new MockUp<TokenServiceClient>() {
+
+            @Mock
+            public ClientResponse validateToken(String token) {
+                calls[0]++;
+                ClientResponse resp = new ClientResponse();
+                resp.setStatus(HttpServletResponse.SC_NOT_FOUND);
+                return resp;
+            }
+        };
+
+        HttpServletRequest request = new MockUp<HttpServletRequest>() {
+
+            @Mock
+            public String getHeader(String name) {
+                return "forged-token";
+            }
+        }.getMockInstance();
+
+        Assert.assertEquals(HttpServletResponse.SC_NOT_FOUND, instance.checkToken(request, response));
+        Assert.assertEquals(HttpServletResponse.SC_NOT_FOUND, instance.checkToken(request, response));
+
+        Assert.assertEquals(1, calls[0]);
+
+    }
+
+    /**
+     * Test method for
+     * {@link org.openo.auth.service.impl.TokenServiceImpl#checkToken(javax.servlet.http.HttpServletRequest, javax.servlet.http.HttpServletResponse)}
+     * while the service token is refused.
+     */
+    @Test
+    public void testCheckTokenServiceRefusedNotCached() {
+
+        final int[] status = {HttpServletResponse.SC_UNAUTHORIZED};
+
+        new MockUp<TokenServiceClient>() {
+
+            @Mock
+            public ClientResponse validateToken(String token) {
+                ClientResponse resp = new ClientResponse();
+                resp.setStatus(status[0]);
+                resp.setBody("{\"token\":{\"user\":{\"id\":\"user\"},\"expires_at\":\""
+                        + Instant.now().plusSeconds(3600) + "\"}}");
+                return resp;
+            }
+        };
+
+        HttpServletRequest request = new MockUp<HttpServletRequest>() {
+
+            @Mock
+            public String getHeader(String name) {
+                return "token-while-refused";
+            }
+        }.getMockInstance();
+
+        Assert.assertEquals(HttpServletResponse.SC_UNAUTHORIZED, instance.checkToken(request, response));
+
+        status[0] = HttpServletResponse.SC_OK;
+
+        Assert.assertEquals(HttpServletResponse.SC_OK, instance.checkToken(request, response));
+
+    }
+
+    /**
+     * Test method for
+     * {@link org.openo.auth.service.impl.TokenServiceImpl#validateTokens(javax.servlet.http.HttpServletRequest, javax.servlet.http.HttpServletResponse)}
+     * with duplicated and empty tokens.
+     */
+    @Test
+    public void testValidateTokens() throws Exception {
+
+        final AtomicInteger calls = new AtomicInteger();
+
+        new MockUp<TokenServiceClient>() {
+
+            @Mock
+            public ClientResponse validateToken(String token) {
+                calls.incrementAndGet();
+                ClientResponse resp = new ClientResponse();
+                resp.setStatus(HttpServletResponse.SC_NOT_FOUND);
+                return resp;
+            }
+        };
+
+        HttpServletRequest request = CommonMockUp.getInstance()
+                .mockRequestInputStream("[\"batch-a\", \"batch-b\", \"batch-a\", \"\"]");
+
+        Response res = instance.validateTokens(request, response);
+
+        Assert.assertEquals(HttpServletResponse.SC_OK, res.getStatus());
+
+        List<Map<String, Object>> results = new ObjectMapper().readValue((String)res.getEntity(),
+                new TypeReference<List<Map<String, Object>>>() {
+                });
+
+        Assert.assertEquals(4, results.size());
+        Assert.assertEquals(HttpServletResponse.SC_NOT_FOUND, results.get(0).get("status"));
+        Assert.assertEquals(Boolean.FALSE, results.get(2).get("valid"));
+        Assert.assertEquals(HttpServletResponse.SC_UNAUTHORIZED, results.get(3).get("status"));
+
+        Assert.assertEquals(2, calls.get());
+
+    }
+
+    /**
+     * Test method for
+     * {@link org.openo.auth.service.impl.TokenServiceImpl#scopeToken(javax.servlet.http.HttpServletRequest, javax.servlet.http.HttpServletResponse)}
+     * with the same scope requested twice.
+     */
+    @Test
+    public void testScopeToken() throws Exception {
+
+        final AtomicInteger calls = new AtomicInteger();
+
+        final String expiresAt = Instant.now().plusSeconds(3600).toString();
+
+        new MockUp<TokenServiceClient>() {
+
+            @Mock
+            public ClientResponse doScope(String json) {
+                calls.incrementAndGet();
+                ClientResponse resp = new ClientResponse();
+                resp.setStatus(HttpServletResponse.SC_CREATED);
+                resp.setHeader("scoped-token");
+                resp.setBody("{\"token\": {\"expires_at\": \"" + expiresAt
+                        + "\", \"user\": {\"id\": \"u1\"}, \"project\": {\"id\": \"p1\"}}}");
+                return resp;
+            }
+
+            @Mock
+            public ClientResponse validateToken(String token) {
+                ClientResponse resp = new ClientResponse();
+                resp.setStatus(HttpServletResponse.SC_OK);
+                resp.setBody("{\"token\": {\"expires_at\": \"" + expiresAt + "\", \"user\": {\"id\": \"u1\"}}}");
+                return resp;
+            }
+        };
+
+        CommonMockUp.getInstance().mockKeystoneConfigurationName();
+
+        CommonMockUp.getInstance().mockJsonFactory();
+
+        Response first = instance.scopeToken(mockScopeRequest("scope-source-token"), response);
+        Response second = instance.scopeToken(mockScopeRequest("scope-source-token"), response);
+
+        Assert.assertEquals(HttpServletResponse.SC_OK, first.getStatus());
+        Assert.assertEquals("scoped-token", second.getHeaderString(Constant.TOKEN_SUBJECT));
+
+        Map<String, Object> body = new ObjectMapper().readValue((String)second.getEntity(),
+                new TypeReference<Map<String, Object>>() {
+                });
+
+        Assert.assertEquals("p1", body.get("project_id"));
+        Assert.assertEquals(expiresAt, body.get("expires_at"));
+
+        Assert.assertEquals(1, calls.get());
+
+    }
+
+    /**
+     * Test method for
+     * {@link org.openo.auth.service.impl.TokenServiceImpl#scopeToken(javax.servlet.http.HttpServletRequest, javax.servlet.http.HttpServletResponse)}
+     * with a cached scope of a token revoked meanwhile.
+     */
+    @Test
+    public void testScopeOfRevokedToken() throws Exception {
+
+        final AtomicInteger calls = new AtomicInteger();
+
+        final String expiresAt = Instant.now().plusSeconds(3600).toString();
+
+        new MockUp<TokenServiceClient>() {
+
+            @Mock
+            public ClientResponse doScope(String json) {
+                calls.incrementAndGet();
+                ClientResponse resp = new ClientResponse();
+                resp.setStatus(HttpServletResponse.SC_CREATED);
+                resp.setHeader("scoped-token");
+                resp.setBody("{\"token\": {\"expires_at\": \"" + expiresAt
+                        + "\", \"user\": {\"id\": \"u1\"}, \"project\": {\"id\": \"p1\"}}}");
+                return resp;
+            }
+
+            @Mock
+            public ClientResponse validateToken(String token) {
+                ClientResponse resp = new ClientResponse();
+                resp.setStatus(HttpServletResponse.SC_NOT_FOUND);
+                return resp;
+            }
+        };
+
+        CommonMockUp.getInstance().mockKeystoneConfigurationName();
+
+        CommonMockUp.getInstance().mockJsonFactory();
+
+        Response first = instance.scopeToken(mockScopeRequest("scope-revoked-token"), response);
+        Response second = instance.scopeToken(mockScopeRequest("scope-revoked-token"), response);
+
+        Assert.assertEquals(HttpServletResponse.SC_OK, first.getStatus());
+        Assert.assertEquals(HttpServletResponse.SC_NOT_FOUND, second.getStatus());
+        Assert.assertNull(second.getHeaderString(Constant.TOKEN_SUBJECT));
+
+        Assert.assertEquals(1, calls.get());
+
+    }
+
+    private HttpServletRequest mockScopeRequest(final String token) {
+
+        return new MockUp<HttpServletRequest>() {
+
+            @Mock
+            public String getHeader(String name) {
+                return token;
+            }
+
+            @Mock
+            public ServletInputStream getInputStream() throws IOException {
+                return new DelegateServletStream(new ByteArrayInputStream("{\"project_id\": \"p1\"}".getBytes()));
+            }
+        }.getMockInstance();
+    }
+
 }
@@ -16,18 +16,37 @@
 
 package org.openo.auth.service.impl;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 
+import org.apache.cxf.helpers.IOUtils;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.openo.auth.common.CommonMockUp;
+import org.openo.auth.common.ConfigUtil;
+import org.openo.auth.common.cache.UserNameCache;
+import org.openo.auth.common.cache.UserResponseCache;
+import org.openo.auth.common.keystone.ShardRouter;
+import org.openo.auth.constant.Constant;
+import org.openo.auth.entity.ClientResponse;
+import org.openo.auth.entity.TokenDetails;
 import org.openo.auth.exception.AuthException;
+import org.openo.auth.rest.client.UserServiceClient;
+
+import mockit.Mock;
+import mockit.MockUp;
 
 
 /**
@@ -270,6 +289,112 @@ public class TestUserServiceImpl {
         Assert.assertEquals("ok", HttpServletResponse.SC_OK, status);
     }
 
+    /**
+     * Test method for
+     * {@link org.openo.auth.service.impl.UserServiceImpl#getUserDetails(javax.servlet.http.HttpServletRequest, javax.servlet.http.HttpServletResponse)}
+     * on a sharded KeyStone, whose other shards are only listed for an administrator.
+     */
+    @Test
+    public void testGetUserDetailsOtherShardsForAdminOnly() {
+
+        final AtomicInteger allShards = new AtomicInteger();
+
+        final boolean[] admin = new boolean[1];
+
+        UserResponseCache.getInstance().clear();
+
+        CommonMockUp.getInstance().mockCommonUtilApi();
+
+        CommonMockUp.getInstance().mockJsonFactory();
+
+        CommonMockUp.getInstance().mockKeyStoneServiceJson();
+
+        new MockUp<UserServiceClient>() {
+
+            @Mock
+            public boolean isSpanningShards() {
+                return true;
+            }
+
+            @Mock
+            public ClientResponse getUserDetails(String authToken) {
+                ClientResponse resp = new ClientResponse();
+                resp.setStatus(HttpServletResponse.SC_OK);
+                resp.setBody("{\"users\":[]}");
+                return resp;
+            }
+
+            @Mock
+            public ClientResponse getUsersOfAllShards(String authToken) {
+                allShards.incrementAndGet();
+                return getUserDetails(authToken);
+            }
+        };
+
+        new MockUp<ConfigUtil>() {
+
+            @Mock
+            public String getProperty(String key, String defaultValue) {
+                return Constant.KEYSTONE_SHARDS_ADMIN_PROJECT.equals(key) ? "admin-project" : defaultValue;
+            }
+        };
+
+        new MockUp<TokenValidator>() {
+
+            @Mock
+            public TokenDetails getTokenDetails(String authToken) {
+                TokenDetails details = new TokenDetails();
+                details.setUserId("u1");
+                return details;
+            }
+        };
+
+        new MockUp<RoleAssignmentResolver>() {
+
+            @Mock
+            public boolean hasRole(String userId, String projectId, String role) {
+                return admin[0] && "admin-project".equals(projectId) && "admin".equals(role);
+            }
+        };
+
+        Assert.assertEquals(HttpServletResponse.SC_OK, instance.getUserDetails(request, response).getStatus());
+        Assert.assertEquals(0, allShards.get());
+
+        admin[0] = true;
+
+        Assert.assertEquals(HttpServletResponse.SC_OK, instance.getUserDetails(request, response).getStatus());
+        Assert.assertEquals(1, allShards.get());
+
+        UserResponseCache.getInstance().clear();
+    }
+
+    /**
+     * Test method for
+     * {@link org.openo.auth.service.impl.UserServiceImpl#getUserDetails(javax.servlet.http.HttpServletRequest, javax.servlet.http.HttpServletResponse)}
+     * on a sharded KeyStone, whose other shards are not listed while the thread is redirected.
+     */
+    @Test
+    public void testGetUserDetailsRedirectedNotSpanningShards() {
+
+        new MockUp<ShardRouter>() {
+
+            @Mock
+            public boolean isEnabled() {
+                return true;
+            }
+        };
+
+        Assert.assertTrue(UserServiceClient.getInstance().isSpanningShards());
+
+        ConfigUtil.setThreadBaseURL("http://127.0.0.1:1");
+
+        try {
+            Assert.assertFalse(UserServiceClient.getInstance().isSpanningShards());
+        } finally {
+            ConfigUtil.setThreadBaseURL(null);
+        }
+    }
+
     @Test
     public void testGetUserDetailsAllException() {
 
@@ -329,4 +454,275 @@ public class TestUserServiceImpl {
         Assert.assertEquals("ok", HttpServletResponse.SC_BAD_REQUEST, status);
     }
 
+    /**
+     * Test method for
+     * {@link org.openo.auth.service.impl.UserServiceImpl#createUsers(javax.servlet.http.HttpServletRequest, javax.servlet.http.HttpServletResponse)}
+     * with NDJSON records.
+     */
+    @Test
+    public void testCreateUsers() throws IOException {
+
+        CommonMockUp.getInstance().mockKeystoneConfiguration();
+
+        CommonMockUp.getInstance().mockJsonFactory();
+
+        CommonMockUp.getInstance().mockUserClient();
+
+        CommonMockUp.getInstance().mockKeyStoneServiceJson();
+
+        HttpServletRequest request = CommonMockUp.getInstance().mockRequestInputStream(
+                "{\"userName\":\"bulk_user1\",\"password\":\"Bulk_pass#1\"}\n"
+                        + "{\"userName\":\"bulk_user2\",\"password\":\"Bulk_pass#2\"}\n");
+
+        Response res = instance.createUsers(request, response);
+
+        Assert.assertEquals(HttpServletResponse.SC_OK, res.getStatus());
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        ((StreamingOutput)res.getEntity()).write(output);
+
+        String[] lines = new String(output.toByteArray(), StandardCharsets.UTF_8).trim().split("\n");
+
+        Assert.assertEquals(2, lines.length);
+        Assert.assertTrue(lines[0].contains("\"status\":201"));
+        Assert.assertTrue(lines[0].contains("\"role_status\":200"));
+    }
+
+    /**
+     * Test method for
+     * {@link org.openo.auth.service.impl.UserServiceImpl#createUsers(javax.servlet.http.HttpServletRequest, javax.servlet.http.HttpServletResponse)}
+     * with an invalid and a duplicated record in a JSON array.
+     */
+    @Test
+    public void testCreateUsersInvalid() {
+
+        HttpServletRequest request = CommonMockUp.getInstance().mockRequestInputStream(
+                "[{\"userName\":\"bulk_user1\",\"password\":\"Bulk_pass#1\"},"
+                        + "{\"userName\":\"bulk_user1\",\"password\":\"Bulk_pass#1\"},"
+                        + "{\"userName\":\"bu\",\"password\":\"short\"}]");
+
+        Response res = instance.createUsers(request, response);
+
+        Assert.assertEquals(HttpServletResponse.SC_BAD_REQUEST, res.getStatus());
+
+        String body = (String)res.getEntity();
+
+        Assert.assertTrue(body.contains("\"index\":1"));
+        Assert.assertTrue(body.contains("\"index\":2"));
+        Assert.assertFalse(body.contains("\"index\":0"));
+    }
+
+    private void mockUserList(final int status) {
+
+        final String next = ConfigUtil.getBaseURL() + "/v3/users?page=2";
+
+        new MockUp<UserServiceClient>() {
+
+            @Mock
+            public Response listUsers(String pageURL, String authToken) {
+
+                String body = null == pageURL
+                        ? "{\"links\":{\"next\":\"" + next + "\"},\"users\":[{\"id\":\"u1\",\"name\":\"user1\","
+                                + "\"enabled\":true,\"links\":{\"self\":\"x\"}},{\"id\":\"u2\",\"name\":\"user2\"}]}"
+                        : "{\"users\":[{\"id\":\"u3\",\"name\":\"user3\",\"email\":\"u3@x.org\"}],"
+                                + "\"links\":{\"next\":null}}";
+
+                return Response.status(status)
+                        .entity(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8))).build();
+            }
+        };
+    }
+
+    private static HttpServletRequest mockAcceptEncoding(final String encoding) {
+
+        return new MockUp<HttpServletRequest>() {
+
+            @Mock
+            public String getHeader(String name) {
+                return HttpHeaders.ACCEPT_ENCODING.equals(name) ? encoding : "token";
+            }
+        }.getMockInstance();
+    }
+
+    /**
+     * Test method for
+     * {@link org.openo.auth.service.impl.UserServiceImpl#exportUsers(javax.servlet.http.HttpServletRequest, javax.servlet.http.HttpServletResponse)}
+     * following the next page of the user list.
+     */
+    @Test
+    public void testExportUsers() throws IOException {
+
+        mockUserList(HttpServletResponse.SC_OK);
+
+        Response res = instance.exportUsers(mockAcceptEncoding("identity"), response);
+
+        Assert.assertEquals(HttpServletResponse.SC_OK, res.getStatus());
+        Assert.assertNull(res.getMetadata().getFirst(HttpHeaders.CONTENT_ENCODING));
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        ((StreamingOutput)res.getEntity()).write(output);
+
+        String[] lines = new String(output.toByteArray(), StandardCharsets.UTF_8).split("\n");
+
+        Assert.assertEquals(3, lines.length);
+        Assert.assertTrue(lines[0].contains("\"id\":\"u1\""));
+        Assert.assertFalse(lines[0].contains("enabled"));
+        Assert.assertTrue(lines[2].contains("\"email\":\"u3@x.org\""));
+    }
+
+    /**
+     * Test method for
+     * {@link org.openo.auth.service.impl.UserServiceImpl#exportUsers(javax.servlet.http.HttpServletRequest, javax.servlet.http.HttpServletResponse)}
+     * for a client accepting gzip.
+     */
+    @Test
+    public void testExportUsersGzip() throws IOException {
+
+        mockUserList(HttpServletResponse.SC_OK);
+
+        Response res = instance.exportUsers(mockAcceptEncoding("deflate, gzip"), response);
+
+        Assert.assertEquals("gzip", res.getMetadata().getFirst(HttpHeaders.CONTENT_ENCODING));
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        ((StreamingOutput)res.getEntity()).write(output);
+
+        String body = IOUtils.toString(new GZIPInputStream(new ByteArrayInputStream(output.toByteArray())));
+
+        Assert.assertEquals(3, body.split("\n").length);
+    }
+
+    /**
+     * Test method for
+     * {@link org.openo.auth.service.impl.UserServiceImpl#exportUsers(javax.servlet.http.HttpServletRequest, javax.servlet.http.HttpServletResponse)}
+     * with a token refused by the Service Client.
+     */
+    @Test
+    public void testExportUsersUnauthorized() {
+
+        mockUserList(HttpServletResponse.SC_UNAUTHORIZED);
+
+        Response res = instance.exportUsers(mockAcceptEncoding(null), response);
+
+        Assert.assertEquals(HttpServletResponse.SC_UNAUTHORIZED, res.getStatus());
+    }
+
+    /**
+     * Test method for
+     * {@link org.openo.auth.service.impl.UserServiceImpl#getUserDetails(javax.servlet.http.HttpServletRequest, javax.servlet.http.HttpServletResponse, java.lang.String)}
+     * with a matching If-None-Match, answered from the cache until the user is modified.
+     */
+    @Test
+    public void testGetUserDetailsNotModified() {
+
+        final AtomicInteger calls = new AtomicInteger();
+
+        final String[] ifNoneMatch = new String[1];
+
+        UserResponseCache.getInstance().clear();
+
+        CommonMockUp.getInstance().mockCommonUtilApi();
+
+        CommonMockUp.getInstance().mockUserClient();
+
+        CommonMockUp.getInstance().mockJsonFactory();
+
+        CommonMockUp.getInstance().mockKeyStoneServiceJson();
+
+        new MockUp<UserServiceClient>() {
+
+            @Mock
+            public ClientResponse getUserDetails(String userId, String authToken) {
+                calls.incrementAndGet();
+                ClientResponse resp = new ClientResponse();
+                resp.setStatus(HttpServletResponse.SC_OK);
+                resp.setBody("{\"user\":{\"id\":\"" + userId + "\"}}");
+                return resp;
+            }
+        };
+
+        new MockUp<TokenValidator>() {
+
+            @Mock
+            public int checkToken(String authToken) {
+                return HttpServletResponse.SC_OK;
+            }
+        };
+
+        HttpServletRequest conditional = new MockUp<HttpServletRequest>() {
+
+            @Mock
+            public String getHeader(String name) {
+                return HttpHeaders.IF_NONE_MATCH.equals(name) ? ifNoneMatch[0] : "token";
+            }
+        }.getMockInstance();
+
+        Response res = instance.getUserDetails(conditional, response, "user-id");
+
+        Assert.assertEquals(HttpServletResponse.SC_OK, res.getStatus());
+
+        ifNoneMatch[0] = (String)res.getMetadata().getFirst(HttpHeaders.ETAG);
+
+        Assert.assertNotNull(ifNoneMatch[0]);
+
+        res = instance.getUserDetails(conditional, response, "user-id");
+
+        Assert.assertEquals(HttpServletResponse.SC_NOT_MODIFIED, res.getStatus());
+        Assert.assertNull(res.getEntity());
+        Assert.assertEquals(1, calls.get());
+
+        instance.modifyUser(conditional, response, "user-id");
+
+        res = instance.getUserDetails(conditional, response, "user-id");
+
+        Assert.assertEquals(HttpServletResponse.SC_NOT_MODIFIED, res.getStatus());
+        Assert.assertEquals(2, calls.get());
+    }
+
+    /**
+     * Test method for
+     * {@link org.openo.auth.service.impl.UserServiceImpl#modifyPasword(javax.servlet.http.HttpServletRequest, javax.servlet.http.HttpServletResponse, java.lang.String)}
+     * with the user name known by the cache, the user is not read from the Service Client.
+     */
+    @Test
+    public void testModifyPaswordCachedName() throws IOException {
+
+        final AtomicInteger calls = new AtomicInteger();
+
+        CommonMockUp.getInstance().mockCommonUtilApi();
+
+        CommonMockUp.getInstance().mockJsonFactory();
+
+        CommonMockUp.getInstance().mockUserClient();
+
+        new MockUp<UserServiceClient>() {
+
+            @Mock
+            public ClientResponse getUserDetails(String userId, String authToken) {
+                calls.incrementAndGet();
+                return new ClientResponse();
+            }
+        };
+
+        UserNameCache.getInstance().put("user-id-9", "Changeme");
+
+        int status;
+        try {
+            status = instance.modifyPasword(request, response, "user-id-9");
+        } catch(AuthException e) {
+            status = e.getResponse().getStatus();
+        }
+
+        Assert.assertEquals(HttpServletResponse.SC_BAD_REQUEST, status);
+        Assert.assertEquals(0, calls.get());
+
+        UserNameCache.getInstance().put("user-id-9", "other_user");
+
+        Assert.assertEquals(HttpServletResponse.SC_OK, instance.modifyPasword(request, response, "user-id-9"));
+        Assert.assertEquals(0, calls.get());
+    }
+
 }
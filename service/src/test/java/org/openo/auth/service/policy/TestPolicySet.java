@@ -0,0 +1,191 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.service.policy;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestPolicySet {
+
+    private Map<String, String> rules;
+
+    private PolicyCredentials member;
+
+    @Before
+    public void setUp() {
+
+        rules = new LinkedHashMap<String, String>();
+        rules.put("admin_required", "role:admin");
+        rules.put("owner", "user_id:%(user_id)s");
+        rules.put("admin_or_owner", "rule:admin_required or rule:owner");
+
+        member = new PolicyCredentials("u1", "p1", new HashSet<String>(Arrays.asList("r2", "Member")));
+    }
+
+    @Test
+    public void testRuleReferences() {
+
+        PolicySet set = PolicySet.compile(rules);
+
+        Assert.assertTrue(set.isAllowed("admin_or_owner", member, target("user_id", "u1")));
+        Assert.assertFalse(set.isAllowed("admin_or_owner", member, target("user_id", "u2")));
+        Assert.assertFalse(set.isAllowed("admin_or_owner", member, null));
+        Assert.assertTrue(set.isAllowed("admin_or_owner", admin(), target("user_id", "u2")));
+    }
+
+    @Test
+    public void testPrecedence() {
+
+        rules.put("a", "role:admin or role:member and role:reader");
+        rules.put("b", "(role:admin or role:member) and not role:reader");
+        rules.put("c", "not role:admin and ( role:MEMBER or role:r3 )");
+
+        PolicySet set = PolicySet.compile(rules);
+
+        Assert.assertFalse(set.isAllowed("a", member, null));
+        Assert.assertTrue(set.isAllowed("b", member, null));
+        Assert.assertTrue(set.isAllowed("c", member, null));
+        Assert.assertFalse(set.isAllowed("c", admin(), null));
+    }
+
+    @Test
+    public void testTargetChecks() {
+
+        rules.put("project", "project_id:%(project_id)s");
+        rules.put("literal", "project_id:'p1'");
+        rules.put("target_role", "role:%(role)s");
+        rules.put("unknown_credential", "domain_id:%(domain_id)s");
+
+        PolicySet set = PolicySet.compile(rules);
+
+        Assert.assertTrue(set.isAllowed("project", member, target("project_id", "p1")));
+        Assert.assertFalse(set.isAllowed("project", member, target("project_id", "p2")));
+        Assert.assertTrue(set.isAllowed("literal", member, null));
+        Assert.assertTrue(set.isAllowed("target_role", member, target("role", "member")));
+        Assert.assertFalse(set.isAllowed("target_role", member, null));
+        Assert.assertFalse(set.isAllowed("unknown_credential", member, target("domain_id", "d1")));
+    }
+
+    @Test
+    public void testConstantFolding() {
+
+        rules.put("always", "");
+        rules.put("anyone", "@ or role:admin");
+        rules.put("nobody", "! and role:admin");
+        rules.put("not_nobody", "not not !");
+        rules.put("undefined", "rule:missing or role:r2");
+
+        PolicySet set = PolicySet.compile(rules);
+
+        Assert.assertSame(PolicyRules.ALWAYS, set.getRule("always"));
+        Assert.assertSame(PolicyRules.ALWAYS, set.getRule("anyone"));
+        Assert.assertSame(PolicyRules.NEVER, set.getRule("nobody"));
+        Assert.assertSame(PolicyRules.NEVER, set.getRule("not_nobody"));
+        Assert.assertEquals("role:r2", set.getRule("undefined").toString());
+    }
+
+    @Test
+    public void testCheapestChecksFirst() {
+
+        rules.put("ordered", "role:%(role)s or user_id:%(user_id)s or role:admin or project_id:p1");
+
+        PolicySet set = PolicySet.compile(rules);
+
+        Assert.assertEquals("(project_id:p1 or role:admin or user_id:%(user_id)s or role:%(role)s)",
+                set.getRule("ordered").toString());
+    }
+
+    @Test
+    public void testDefaultRule() {
+
+        Assert.assertFalse(PolicySet.compile(rules).isAllowed("undefined", admin(), null));
+
+        rules.put(PolicySet.DEFAULT_RULE, "rule:admin_required");
+
+        PolicySet set = PolicySet.compile(rules);
+
+        Assert.assertTrue(set.isAllowed("undefined", admin(), null));
+        Assert.assertFalse(set.isAllowed("undefined", member, null));
+        Assert.assertFalse(PolicySet.empty().isAllowed("undefined", admin(), null));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCycle() {
+
+        rules.put("a", "rule:b or role:admin");
+        rules.put("b", "rule:a");
+
+        PolicySet.compile(rules);
+    }
+
+    @Test
+    public void testMalformedRules() {
+
+        String[] malformed = {"(role:admin", "role:admin)", "role:admin or", "and role:admin", "role:", "admin"};
+
+        for(String rule : malformed) {
+            try {
+                PolicySet.compile(Collections.singletonMap("bad", rule));
+                Assert.fail(rule);
+            } catch(IllegalArgumentException e) {
+                Assert.assertTrue(e.getMessage().contains(rule));
+            }
+        }
+    }
+
+    @Test
+    public void testRead() throws Exception {
+
+        PolicySet set = PolicyEngine.read(new ByteArrayInputStream(
+                "{\"admin_required\": \"role:admin\", \"default\": \"rule:admin_required\"}"
+                        .getBytes(StandardCharsets.UTF_8)));
+
+        Assert.assertEquals(2, set.size());
+        Assert.assertTrue(set.isAllowed("identity:list_users", admin(), null));
+    }
+
+    @Test
+    public void testPackagedPolicy() {
+
+        PolicySet set = new PolicyEngine("auth_policy.json").getPolicies();
+
+        Assert.assertTrue(set.size() > 0);
+        Assert.assertTrue(set.isAllowed("identity:get_user", member, target("user_id", "u1")));
+        Assert.assertFalse(set.isAllowed("identity:get_user", member, target("user_id", "u2")));
+    }
+
+    private static PolicyCredentials admin() {
+        return new PolicyCredentials("u9", "p1", Collections.singleton("admin"));
+    }
+
+    private static Map<String, String> target(String field, String value) {
+        Map<String, String> target = new HashMap<String, String>();
+        target.put(field, value);
+        return target;
+    }
+
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.service.warmup;
+
+import java.util.Collections;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.spi.Filter;
+import org.apache.log4j.spi.LoggingEvent;
+import org.junit.Assert;
+import org.junit.Test;
+import org.openo.auth.common.ConfigUtil;
+import org.openo.auth.common.cache.ITokenCache;
+import org.openo.auth.common.cache.NegativeTokenCache;
+import org.openo.auth.common.cache.RoleAssignmentCache;
+import org.openo.auth.common.cache.RoleAssignmentCache.RoleAssignments;
+import org.openo.auth.common.cache.TokenCacheFactory;
+import org.openo.auth.entity.TokenDetails;
+import org.openo.auth.service.impl.TokenServiceImpl;
+import org.openo.auth.service.impl.UserServiceImpl;
+
+public class TestServiceWarmUp {
+
+    @Test
+    public void testWarmUpAgainstStub() {
+
+        long before = TokenCacheFactory.getInstance().getTokenCache().size();
+
+        String baseURL = ConfigUtil.getBaseURL();
+
+        ServiceWarmUp warmUp = new ServiceWarmUp(new TokenServiceImpl(), new UserServiceImpl(), 10000L, 5, 1,
+                Long.MAX_VALUE);
+
+        warmUp.run();
+
+        Assert.assertEquals(5, warmUp.getIterations());
+        Assert.assertEquals(0, warmUp.getFailures());
+        Assert.assertEquals(before, TokenCacheFactory.getInstance().getTokenCache().size());
+        Assert.assertEquals(baseURL, ConfigUtil.getBaseURL());
+    }
+
+    @Test
+    public void testWarmUpCachesKeptApart() {
+
+        ITokenCache tokenCache = TokenCacheFactory.getInstance().getTokenCache();
+        RoleAssignmentCache roleCache = RoleAssignmentCache.getInstance();
+
+        TokenDetails details = new TokenDetails();
+        details.setUserId("warmup-apart");
+        details.setExpiresAt(System.currentTimeMillis() + 60000L);
+
+        RoleAssignments roles = new RoleAssignments(
+                Collections.singletonMap("project", Collections.singleton("admin")));
+
+        ConfigUtil.setThreadBaseURL("http://127.0.0.1:1");
+        try {
+            tokenCache.put("warmup-apart", details);
+            NegativeTokenCache.getInstance().putIfRejected("warmup-rejected", HttpServletResponse.SC_NOT_FOUND);
+            roleCache.put("warmup-apart", roles, roleCache.getChanges());
+
+            Assert.assertNotNull(tokenCache.get("warmup-apart"));
+            Assert.assertNull(roleCache.get("warmup-apart"));
+        } finally {
+            ConfigUtil.setThreadBaseURL(null);
+        }
+
+        // The synthetic validations are not taken for the requests of the other threads.
+        Assert.assertNull(tokenCache.get("warmup-apart"));
+        Assert.assertNull(NegativeTokenCache.getInstance().getRejectedStatus("warmup-rejected"));
+        Assert.assertNull(roleCache.get("warmup-apart"));
+    }
+
+    @Test
+    public void testWarmUpStopsAtTimeLimit() {
+
+        ServiceWarmUp warmUp = new ServiceWarmUp(new TokenServiceImpl(), new UserServiceImpl(), 0L, 5, 1,
+                Long.MAX_VALUE);
+
+        warmUp.run();
+
+        Assert.assertEquals(0, warmUp.getIterations());
+    }
+
+    @Test
+    public void testOnlyWarmUpLogsFiltered() {
+
+        WarmUpLogFilter filter = new WarmUpLogFilter();
+
+        Logger logger = Logger.getLogger(TestServiceWarmUp.class);
+
+        LoggingEvent info = new LoggingEvent(Logger.class.getName(), logger, Level.INFO, "info", null);
+        LoggingEvent warn = new LoggingEvent(Logger.class.getName(), logger, Level.WARN, "warn", null);
+
+        Assert.assertEquals(Filter.NEUTRAL, filter.decide(info));
+
+        ConfigUtil.setThreadBaseURL("http://127.0.0.1:1");
+        try {
+            Assert.assertTrue(ConfigUtil.isThreadRedirected());
+            Assert.assertEquals(Filter.DENY, filter.decide(info));
+            Assert.assertEquals(Filter.NEUTRAL, filter.decide(warn));
+        } finally {
+            ConfigUtil.setThreadBaseURL(null);
+        }
+
+        Assert.assertFalse(ConfigUtil.isThreadRedirected());
+        Assert.assertEquals(Filter.NEUTRAL, filter.decide(info));
+    }
+
+}
@@ -0,0 +1,68 @@
+-- Subset of the KeyStone schema read by the user directory, with test data.
+
+CREATE TABLE project (
+    id VARCHAR(64) PRIMARY KEY,
+    name VARCHAR(64) NOT NULL,
+    extra TEXT,
+    description TEXT,
+    enabled BOOLEAN,
+    domain_id VARCHAR(64) NOT NULL,
+    parent_id VARCHAR(64),
+    is_domain BOOLEAN DEFAULT FALSE NOT NULL
+);
+
+CREATE TABLE `user` (
+    id VARCHAR(64) PRIMARY KEY,
+    extra TEXT,
+    enabled BOOLEAN,
+    default_project_id VARCHAR(64),
+    created_at DATETIME,
+    domain_id VARCHAR(64) NOT NULL
+);
+
+CREATE TABLE local_user (
+    id INT AUTO_INCREMENT PRIMARY KEY,
+    user_id VARCHAR(64) NOT NULL UNIQUE,
+    domain_id VARCHAR(64) NOT NULL,
+    name VARCHAR(255) NOT NULL,
+    UNIQUE (domain_id, name)
+);
+
+CREATE TABLE role (
+    id VARCHAR(64) PRIMARY KEY,
+    name VARCHAR(255) NOT NULL,
+    extra TEXT,
+    domain_id VARCHAR(64) NOT NULL
+);
+
+CREATE TABLE assignment (
+    type VARCHAR(64) NOT NULL,
+    actor_id VARCHAR(64) NOT NULL,
+    target_id VARCHAR(64) NOT NULL,
+    role_id VARCHAR(64) NOT NULL,
+    inherited BOOLEAN NOT NULL,
+    PRIMARY KEY (type, actor_id, target_id, role_id, inherited)
+);
+
+INSERT INTO project (id, name, enabled, domain_id) VALUES ('p1', 'admin', TRUE, 'default');
+
+INSERT INTO role (id, name, domain_id) VALUES ('r1', 'admin', '<<null>>');
+INSERT INTO role (id, name, domain_id) VALUES ('r2', 'member', '<<null>>');
+
+INSERT INTO `user` (id, extra, enabled, default_project_id, domain_id) VALUES
+    ('u1', '{"email": "admin@openo.org", "description": "administrator"}', TRUE, 'p1', 'default'),
+    ('u2', '{"email": "alice@openo.org"}', TRUE, 'p1', 'default'),
+    ('u3', '{}', TRUE, NULL, 'default'),
+    ('u4', NULL, FALSE, NULL, 'default'),
+    ('u5', '{"email": "al_x@openo.org"}', TRUE, NULL, 'default');
+
+INSERT INTO local_user (user_id, domain_id, name) VALUES
+    ('u1', 'default', 'admin'),
+    ('u2', 'default', 'alice'),
+    ('u3', 'default', 'bob'),
+    ('u4', 'default', 'carol'),
+    ('u5', 'default', 'al_x');
+
+INSERT INTO assignment (type, actor_id, target_id, role_id, inherited) VALUES
+    ('UserProject', 'u1', 'p1', 'r1', FALSE),
+    ('UserProject', 'u2', 'p1', 'r2', FALSE);
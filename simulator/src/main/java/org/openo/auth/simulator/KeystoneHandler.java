@@ -0,0 +1,539 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.simulator;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.node.ArrayNode;
+import org.codehaus.jackson.node.ObjectNode;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+/**
+ * <p>
+ * Serves the KeyStone v3 API used by the Auth Service, after the simulated queueing, latency and
+ * faults.
+ * </p>
+ * <blockquote><pre>
+ * POST, HEAD, GET, DELETE /v3/auth/tokens
+ * POST, GET /v3/users
+ * GET, PATCH, DELETE /v3/users/{user_id}
+ * POST /v3/users/{user_id}/password
+ * PUT /v3/projects/{project_id}/users/{user_id}/roles/{role_id}
+ * GET /v3/role_assignments?user.id={user_id}
+ * </pre></blockquote>
+ *
+ * @author
+ * @version
+ */
+class KeystoneHandler implements HttpHandler {
+
+    private static final String TOKEN_AUTH = "X-Auth-Token";
+
+    private static final String TOKEN_SUBJECT = "X-Subject-Token";
+
+    private final SimulatorConfig config;
+
+    private final KeystoneState state;
+
+    private final SimulatorStats stats;
+
+    private final Semaphore workers;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    KeystoneHandler(SimulatorConfig config, KeystoneState state, SimulatorStats stats) {
+        this.config = config;
+        this.state = state;
+        this.stats = stats;
+        this.workers = new Semaphore(config.getConcurrency(), true);
+    }
+
+    public void handle(HttpExchange exchange) throws IOException {
+
+        String[] path = exchange.getRequestURI().getPath().replaceAll("/+$", "").split("/");
+
+        Route route = resolve(exchange.getRequestMethod(), path);
+
+        stats.record(route);
+
+        try {
+            if(!workers.tryAcquire(config.getQueueTimeoutMs(), TimeUnit.MILLISECONDS)) {
+                stats.recordRejected();
+                sendError(exchange, 503, "Service Unavailable", "The server is busy.");
+                return;
+            }
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            exchange.close();
+            return;
+        }
+
+        try {
+            TimeUnit.MICROSECONDS.sleep(config.getLatency(route).sampleMicros());
+
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+
+            if(random.nextDouble() < config.getResetRate()) {
+                stats.recordReset();
+                // Closing before the headers are sent drops the connection without a response.
+                exchange.close();
+                return;
+            }
+
+            if(random.nextDouble() < config.getErrorRate()) {
+                stats.recordError();
+                sendError(exchange, 500, "Internal Server Error", "Injected failure.");
+                return;
+            }
+
+            dispatch(exchange, route, path);
+
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch(IOException | RuntimeException e) {
+            sendError(exchange, 400, "Bad Request", String.valueOf(e.getMessage()));
+        } finally {
+            workers.release();
+            exchange.close();
+        }
+    }
+
+    private static Route resolve(String method, String[] path) {
+
+        // path[0] is the empty string before the leading slash.
+        if(path.length < 3 || !"v3".equals(path[1])) {
+            return Route.UNKNOWN;
+        }
+
+        if(path.length == 4 && "auth".equals(path[2]) && "tokens".equals(path[3])) {
+            if("POST".equals(method)) {
+                return Route.TOKEN_ISSUE;
+            } else if("HEAD".equals(method) || "GET".equals(method)) {
+                return Route.TOKEN_VALIDATE;
+            } else if("DELETE".equals(method)) {
+                return Route.TOKEN_REVOKE;
+            }
+        } else if("users".equals(path[2])) {
+            if(path.length == 3) {
+                return "POST".equals(method) ? Route.USER_CREATE : "GET".equals(method) ? Route.USER_LIST : Route.UNKNOWN;
+            } else if(path.length == 4) {
+                if("GET".equals(method)) {
+                    return Route.USER_GET;
+                } else if("PATCH".equals(method)) {
+                    return Route.USER_UPDATE;
+                } else if("DELETE".equals(method)) {
+                    return Route.USER_DELETE;
+                }
+            } else if(path.length == 5 && "password".equals(path[4]) && "POST".equals(method)) {
+                return Route.USER_PASSWORD;
+            }
+        } else if("projects".equals(path[2]) && path.length == 8 && "users".equals(path[4])
+                && "roles".equals(path[6]) && "PUT".equals(method)) {
+            return Route.ROLE_ASSIGN;
+        } else if("role_assignments".equals(path[2]) && path.length == 3 && "GET".equals(method)) {
+            return Route.ROLE_LIST;
+        }
+        return Route.UNKNOWN;
+    }
+
+    private void dispatch(HttpExchange exchange, Route route, String[] path) throws IOException {
+
+        if(route == Route.UNKNOWN) {
+            sendError(exchange, 404, "Not Found", "Could not find the route.");
+            return;
+        }
+
+        if(route != Route.TOKEN_ISSUE && !state.isAuthorized(exchange.getRequestHeaders().getFirst(TOKEN_AUTH))) {
+            sendError(exchange, 401, "Unauthorized", "The request you have made requires authentication.");
+            return;
+        }
+
+        switch(route) {
+            case TOKEN_ISSUE:
+                issueToken(exchange);
+                break;
+            case TOKEN_VALIDATE:
+                validateToken(exchange);
+                break;
+            case TOKEN_REVOKE:
+                send(exchange, state.revokeToken(exchange.getRequestHeaders().getFirst(TOKEN_SUBJECT)) ? 204 : 404,
+                        null);
+                break;
+            case USER_CREATE:
+                createUser(exchange);
+                break;
+            case USER_LIST:
+                listUsers(exchange);
+                break;
+            case USER_GET:
+                getUser(exchange, path[3]);
+                break;
+            case USER_UPDATE:
+                updateUser(exchange, path[3]);
+                break;
+            case USER_DELETE:
+                send(exchange, state.deleteUser(path[3]) ? 204 : 404, null);
+                break;
+            case USER_PASSWORD:
+                changePassword(exchange, path[3]);
+                break;
+            case ROLE_ASSIGN:
+                send(exchange, state.assignRole(path[3], path[5], path[7]) ? 204 : 404, null);
+                break;
+            case ROLE_LIST:
+                listRoleAssignments(exchange);
+                break;
+            default:
+                sendError(exchange, 404, "Not Found", "Could not find the route.");
+        }
+    }
+
+    private void issueToken(HttpExchange exchange) throws IOException {
+
+        JsonNode auth = readBody(exchange).path("auth");
+
+        JsonNode identity = auth.path("identity");
+
+        KeystoneState.User user = null;
+
+        if(identity.has("password")) {
+
+            JsonNode userNode = identity.path("password").path("user");
+
+            user = userNode.has("id") ? state.getUser(userNode.path("id").getTextValue())
+                    : state.getUserByName(userNode.path("name").getTextValue());
+
+            if(null != user && !userNode.path("password").asText().equals(user.getPassword())) {
+                user = null;
+            }
+
+        } else if(identity.has("token")) {
+
+            KeystoneState.TokenInfo token = state.getToken(identity.path("token").path("id").getTextValue());
+
+            user = null == token ? null : state.getUser(token.getUserId());
+        }
+
+        if(null == user || !user.isEnabled()) {
+            sendError(exchange, 401, "Unauthorized", "The request you have made requires authentication.");
+            return;
+        }
+
+        String projectId = null;
+
+        JsonNode project = auth.path("scope").path("project");
+
+        if(!project.isMissingNode()) {
+
+            projectId = project.has("id") ? project.path("id").getTextValue()
+                    : state.getProjectId(project.path("name").getTextValue());
+
+            if(null == projectId || state.getRoles(projectId, user.getId()).isEmpty()) {
+                sendError(exchange, 401, "Unauthorized", "User has no access to project.");
+                return;
+            }
+        }
+
+        KeystoneState.TokenInfo token = state.issueToken(user.getId(), projectId);
+
+        exchange.getResponseHeaders().set(TOKEN_SUBJECT, token.getId());
+
+        send(exchange, 201, tokenJson(token));
+    }
+
+    private void validateToken(HttpExchange exchange) throws IOException {
+
+        KeystoneState.TokenInfo token = state.getToken(exchange.getRequestHeaders().getFirst(TOKEN_SUBJECT));
+
+        if(null == token) {
+            sendError(exchange, 404, "Not Found", "Could not find token.");
+            return;
+        }
+
+        exchange.getResponseHeaders().set(TOKEN_SUBJECT, token.getId());
+
+        send(exchange, 200, "HEAD".equals(exchange.getRequestMethod()) ? null : tokenJson(token));
+    }
+
+    private ObjectNode tokenJson(KeystoneState.TokenInfo token) {
+
+        ObjectNode body = mapper.createObjectNode();
+
+        ObjectNode node = body.putObject("token");
+
+        node.put("expires_at", isoTime(token.getExpiresAt()));
+        node.put("issued_at", isoTime(System.currentTimeMillis()));
+        node.putArray("methods").add("password");
+
+        KeystoneState.User user = state.getUser(token.getUserId());
+
+        ObjectNode userNode = node.putObject("user");
+        userNode.put("id", token.getUserId());
+        userNode.put("name", null == user ? null : user.getName());
+        userNode.putObject("domain").put("id", KeystoneState.DOMAIN_ID).put("name", KeystoneState.DOMAIN_NAME);
+
+        if(null != token.getProjectId()) {
+
+            ObjectNode project = node.putObject("project");
+            project.put("id", token.getProjectId());
+            project.put("name", state.getProjectName(token.getProjectId()));
+            project.putObject("domain").put("id", KeystoneState.DOMAIN_ID).put("name", KeystoneState.DOMAIN_NAME);
+
+            ArrayNode roles = node.putArray("roles");
+
+            for(String roleId : state.getRoles(token.getProjectId(), token.getUserId())) {
+                roles.addObject().put("id", roleId).put("name", state.getRoleName(roleId));
+            }
+        }
+        return body;
+    }
+
+    private void createUser(HttpExchange exchange) throws IOException {
+
+        JsonNode node = readBody(exchange).path("user");
+
+        KeystoneState.User user = new KeystoneState.User();
+        user.setName(node.path("name").getTextValue());
+        user.setPassword(node.path("password").getTextValue());
+        user.setEmail(node.path("email").getTextValue());
+        user.setDescription(node.path("description").getTextValue());
+        user.setDefaultProjectId(node.path("default_project_id").getTextValue());
+        user.setEnabled(node.path("enabled").asBoolean(true));
+
+        if(null == user.getName()) {
+            sendError(exchange, 400, "Bad Request", "'name' is a required property.");
+            return;
+        }
+
+        if(null == state.createUser(user)) {
+            sendError(exchange, 409, "Conflict", "Duplicate entry found with name " + user.getName() + ".");
+            return;
+        }
+
+        ObjectNode body = mapper.createObjectNode();
+        body.put("user", userJson(exchange, user));
+        send(exchange, 201, body);
+    }
+
+    private void listUsers(HttpExchange exchange) throws IOException {
+
+        String name = queryParameter(exchange, "name");
+
+        List<KeystoneState.User> users = state.listUsers(name);
+
+        ObjectNode body = mapper.createObjectNode();
+
+        ArrayNode array = body.putArray("users");
+
+        for(KeystoneState.User user : users) {
+            array.add(userJson(exchange, user));
+        }
+
+        ObjectNode links = body.putObject("links");
+        links.putNull("next");
+        links.putNull("previous");
+
+        send(exchange, 200, body);
+    }
+
+    private void listRoleAssignments(HttpExchange exchange) throws IOException {
+
+        String userId = queryParameter(exchange, "user.id");
+
+        ObjectNode body = mapper.createObjectNode();
+
+        ArrayNode array = body.putArray("role_assignments");
+
+        for(Map.Entry<String, List<String>> project : state.getRoles(userId).entrySet()) {
+            for(String roleId : project.getValue()) {
+                ObjectNode assignment = array.addObject();
+                assignment.putObject("role").put("id", roleId).put("name", state.getRoleName(roleId));
+                assignment.putObject("user").put("id", userId);
+                assignment.putObject("scope").putObject("project").put("id", project.getKey());
+            }
+        }
+
+        send(exchange, 200, body);
+    }
+
+    private void getUser(HttpExchange exchange, String userId) throws IOException {
+
+        KeystoneState.User user = state.getUser(userId);
+
+        if(null == user) {
+            sendError(exchange, 404, "Not Found", "Could not find user: " + userId + ".");
+            return;
+        }
+
+        ObjectNode body = mapper.createObjectNode();
+        body.put("user", userJson(exchange, user));
+        send(exchange, 200, body);
+    }
+
+    private void updateUser(HttpExchange exchange, String userId) throws IOException {
+
+        KeystoneState.User user = state.getUser(userId);
+
+        if(null == user) {
+            sendError(exchange, 404, "Not Found", "Could not find user: " + userId + ".");
+            return;
+        }
+
+        JsonNode node = readBody(exchange).path("user");
+
+        if(node.has("email")) {
+            user.setEmail(node.path("email").getTextValue());
+        }
+        if(node.has("description")) {
+            user.setDescription(node.path("description").getTextValue());
+        }
+        if(node.has("enabled")) {
+            user.setEnabled(node.path("enabled").asBoolean());
+        }
+
+        ObjectNode userNode = userJson(exchange, user);
+
+        // KeyStone answers a modification with the extra attributes in their own object.
+        ObjectNode extra = userNode.putObject("extra");
+        extra.put("email", user.getEmail());
+        extra.put("description", user.getDescription());
+
+        ObjectNode body = mapper.createObjectNode();
+        body.put("user", userNode);
+        send(exchange, 200, body);
+    }
+
+    private void changePassword(HttpExchange exchange, String userId) throws IOException {
+
+        KeystoneState.User user = state.getUser(userId);
+
+        if(null == user) {
+            sendError(exchange, 404, "Not Found", "Could not find user: " + userId + ".");
+            return;
+        }
+
+        JsonNode node = readBody(exchange).path("user");
+
+        if(!node.path("original_password").asText().equals(user.getPassword())) {
+            sendError(exchange, 401, "Unauthorized", "The request you have made requires authentication.");
+            return;
+        }
+
+        user.setPassword(node.path("password").getTextValue());
+        send(exchange, 204, null);
+    }
+
+    private ObjectNode userJson(HttpExchange exchange, KeystoneState.User user) {
+
+        ObjectNode node = mapper.createObjectNode();
+
+        node.putObject("links").put("self", "http://" + exchange.getRequestHeaders().getFirst("Host")
+                + "/v3/users/" + user.getId());
+        node.put("id", user.getId());
+        node.put("name", user.getName());
+        node.put("domain_id", KeystoneState.DOMAIN_ID);
+        node.put("enabled", user.isEnabled());
+
+        if(null != user.getDefaultProjectId()) {
+            node.put("default_project_id", user.getDefaultProjectId());
+        }
+        if(null != user.getEmail()) {
+            node.put("email", user.getEmail());
+        }
+        if(null != user.getDescription()) {
+            node.put("description", user.getDescription());
+        }
+        return node;
+    }
+
+    private JsonNode readBody(HttpExchange exchange) throws IOException {
+        JsonNode node = mapper.readTree(exchange.getRequestBody());
+        return null == node ? mapper.createObjectNode() : node;
+    }
+
+    private static String queryParameter(HttpExchange exchange, String name) {
+
+        String query = exchange.getRequestURI().getQuery();
+
+        if(null == query) {
+            return null;
+        }
+
+        for(String parameter : query.split("&")) {
+            if(parameter.startsWith(name + "=")) {
+                try {
+                    return URLDecoder.decode(parameter.substring(name.length() + 1), "UTF-8");
+                } catch(UnsupportedEncodingException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+        return null;
+    }
+
+    private void sendError(HttpExchange exchange, int status, String title, String message) throws IOException {
+
+        ObjectNode body = mapper.createObjectNode();
+
+        ObjectNode error = body.putObject("error");
+        error.put("message", message);
+        error.put("code", status);
+        error.put("title", title);
+
+        send(exchange, status, body);
+    }
+
+    private void send(HttpExchange exchange, int status, JsonNode body) throws IOException {
+
+        if(null == body) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+
+        byte[] bytes = mapper.writeValueAsBytes(body);
+
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+
+        OutputStream out = exchange.getResponseBody();
+        out.write(bytes);
+        out.close();
+    }
+
+    private static String isoTime(long millis) {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'000Z'", Locale.ROOT);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format.format(new Date(millis));
+    }
+
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.simulator;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * <p>
+ * A lightweight KeyStone v3 server, running in the process of the tests, so that the performance,
+ * soak and chaos tests of the Auth Service run on one machine without any network.
+ * </p>
+ * <blockquote><pre>
+ * Example :
+ * KeystoneSimulator keystone = new KeystoneSimulator(config);
+ * keystone.start();
+ * ... IP=127.0.0.1, PORT=keystone.getPort() in auth_service.properties
+ * keystone.stop();
+ * </pre></blockquote>
+ * <p>
+ * It can also run alone : <tt>java -cp ... KeystoneSimulator [simulator.properties]</tt>.
+ * </p>
+ *
+ * @author
+ * @version
+ */
+public class KeystoneSimulator {
+
+    private final SimulatorConfig config;
+
+    private final KeystoneState state;
+
+    private final SimulatorStats stats = new SimulatorStats();
+
+    private HttpServer server;
+
+    private ExecutorService executor;
+
+    /**
+     * Constructor<br/>
+     * <p>
+     * </p>
+     *
+     * @param config : the configuration of the simulator, its port 0 picks a free port.
+     * @since
+     */
+    public KeystoneSimulator(SimulatorConfig config) {
+        this.config = config;
+        this.state = new KeystoneState(config);
+    }
+
+    /**
+     * Starts listening on the loopback interface.
+     * <br/>
+     *
+     * @throws IOException if the port can not be bound.
+     * @since
+     */
+    public synchronized void start() throws IOException {
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", config.getPort()), 1024);
+
+        final AtomicInteger count = new AtomicInteger();
+
+        // The requests over the concurrency cap wait in the handler, so the pool itself is unbounded.
+        executor = Executors.newCachedThreadPool(new ThreadFactory() {
+
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "keystone-simulator-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        server.setExecutor(executor);
+        server.createContext("/v3", new KeystoneHandler(config, state, stats));
+        server.start();
+    }
+
+    /**
+     * Stops the server.
+     * <br/>
+     *
+     * @since
+     */
+    public synchronized void stop() {
+        if(null != server) {
+            server.stop(0);
+            executor.shutdownNow();
+            server = null;
+        }
+    }
+
+    /**
+     * Provides the port the server listens on.
+     * <br/>
+     *
+     * @return port : the port.
+     * @since
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Provides the base URL of the server, such as <tt>http://127.0.0.1:35357</tt>.
+     * <br/>
+     *
+     * @return url : the base URL.
+     * @since
+     */
+    public String getBaseURL() {
+        return "http://127.0.0.1:" + getPort();
+    }
+
+    public SimulatorConfig getConfig() {
+        return config;
+    }
+
+    public KeystoneState getState() {
+        return state;
+    }
+
+    public SimulatorStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Runs the simulator until the process is stopped.
+     * <br/>
+     *
+     * @param args : optional path of the properties file, see {@link SimulatorConfig}.
+     * @throws IOException if the properties can not be read or the port can not be bound.
+     * @since
+     */
+    public static void main(String[] args) throws IOException {
+
+        Properties properties = new Properties();
+
+        if(args.length > 0) {
+            InputStream in = new FileInputStream(args[0]);
+            try {
+                properties.load(in);
+            } finally {
+                in.close();
+            }
+        }
+
+        final KeystoneSimulator simulator = new KeystoneSimulator(SimulatorConfig.fromProperties(properties));
+
+        simulator.start();
+
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+
+            @Override
+            public void run() {
+                System.out.println(simulator.getStats());
+                simulator.stop();
+            }
+        });
+
+        System.out.println("KeyStone simulator listening on " + simulator.getBaseURL());
+    }
+
+}
@@ -0,0 +1,434 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.simulator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>
+ * The identity data of the KeyStone simulator, held in memory : users, projects, roles, role
+ * assignments and issued tokens. A single domain, <tt>default</tt>, is simulated.
+ * </p>
+ * <p>
+ * The state is seeded with an <tt>admin</tt> user holding the <tt>admin</tt> role on the
+ * <tt>admin</tt> project, and a <tt>member</tt> role.
+ * </p>
+ *
+ * @author
+ * @version
+ */
+public class KeystoneState {
+
+    public static final String DOMAIN_ID = "default";
+
+    public static final String DOMAIN_NAME = "Default";
+
+    public static final String ADMIN_PROJECT_ID = "admin-project";
+
+    public static final String ADMIN_ROLE_ID = "admin-role";
+
+    public static final String MEMBER_ROLE_ID = "member-role";
+
+    private final Map<String, User> users = new ConcurrentHashMap<String, User>();
+
+    private final Map<String, String> userIdsByName = new ConcurrentHashMap<String, String>();
+
+    private final Map<String, String> projects = new ConcurrentHashMap<String, String>();
+
+    private final Map<String, String> roles = new ConcurrentHashMap<String, String>();
+
+    private final Set<String> assignments = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    private final Map<String, TokenInfo> tokens = new ConcurrentHashMap<String, TokenInfo>();
+
+    private final SimulatorConfig config;
+
+    /**
+     * Constructor<br/>
+     * <p>
+     * </p>
+     *
+     * @param config : the configuration of the simulator.
+     * @since
+     */
+    public KeystoneState(SimulatorConfig config) {
+
+        this.config = config;
+
+        projects.put(ADMIN_PROJECT_ID, "admin");
+        roles.put(ADMIN_ROLE_ID, "admin");
+        roles.put(MEMBER_ROLE_ID, "member");
+
+        User admin = new User();
+        admin.setName("admin");
+        admin.setPassword(config.getAdminPassword());
+        admin.setDefaultProjectId(ADMIN_PROJECT_ID);
+        admin.setEnabled(true);
+
+        String adminId = createUser(admin);
+
+        assignRole(ADMIN_PROJECT_ID, adminId, ADMIN_ROLE_ID);
+    }
+
+    /**
+     * Creates the user.
+     * <br/>
+     *
+     * @param user : the user, without id.
+     * @return id : the id of the user, <tt>null</tt> if the name is already used.
+     * @since
+     */
+    public synchronized String createUser(User user) {
+
+        if(userIdsByName.containsKey(user.getName())) {
+            return null;
+        }
+
+        user.setId(newId());
+        users.put(user.getId(), user);
+        userIdsByName.put(user.getName(), user.getId());
+        return user.getId();
+    }
+
+    public User getUser(String userId) {
+        return users.get(userId);
+    }
+
+    public User getUserByName(String name) {
+        String userId = userIdsByName.get(name);
+        return null == userId ? null : users.get(userId);
+    }
+
+    /**
+     * Lists the users, optionally filtered by name.
+     * <br/>
+     *
+     * @param name : the name of the user, <tt>null</tt> for all the users.
+     * @return users : the users.
+     * @since
+     */
+    public List<User> listUsers(String name) {
+
+        if(null != name) {
+            User user = getUserByName(name);
+            return null == user ? Collections.<User> emptyList() : Collections.singletonList(user);
+        }
+        return new ArrayList<User>(users.values());
+    }
+
+    /**
+     * Deletes the user, its role assignments and its tokens.
+     * <br/>
+     *
+     * @param userId : the id of the user.
+     * @return <tt>true</tt> if the user existed.
+     * @since
+     */
+    public synchronized boolean deleteUser(String userId) {
+
+        User user = users.remove(userId);
+
+        if(null == user) {
+            return false;
+        }
+
+        userIdsByName.remove(user.getName());
+
+        for(String assignment : new ArrayList<String>(assignments)) {
+            if(assignment.contains("|" + userId + "|")) {
+                assignments.remove(assignment);
+            }
+        }
+
+        for(Map.Entry<String, TokenInfo> entry : tokens.entrySet()) {
+            if(userId.equals(entry.getValue().getUserId())) {
+                tokens.remove(entry.getKey());
+            }
+        }
+        return true;
+    }
+
+    public String getProjectName(String projectId) {
+        return projects.get(projectId);
+    }
+
+    /**
+     * Provides the id of a project from its name.
+     * <br/>
+     *
+     * @param name : the name of the project.
+     * @return id : the id of the project, <tt>null</tt> if unknown.
+     * @since
+     */
+    public String getProjectId(String name) {
+        for(Map.Entry<String, String> entry : projects.entrySet()) {
+            if(entry.getValue().equals(name)) {
+                return entry.getKey();
+            }
+        }
+        return null;
+    }
+
+    public String getRoleName(String roleId) {
+        return roles.get(roleId);
+    }
+
+    /**
+     * Assigns the role to the user on the project.
+     * <br/>
+     *
+     * @param projectId : the id of the project.
+     * @param userId : the id of the user.
+     * @param roleId : the id of the role.
+     * @return <tt>false</tt> if the project, the user or the role is unknown.
+     * @since
+     */
+    public boolean assignRole(String projectId, String userId, String roleId) {
+
+        if(!projects.containsKey(projectId) || !users.containsKey(userId) || !roles.containsKey(roleId)) {
+            return false;
+        }
+
+        assignments.add(projectId + "|" + userId + "|" + roleId);
+        return true;
+    }
+
+    /**
+     * Provides the roles of the user on the project.
+     * <br/>
+     *
+     * @param projectId : the id of the project.
+     * @param userId : the id of the user.
+     * @return roleIds : the ids of the roles.
+     * @since
+     */
+    public List<String> getRoles(String projectId, String userId) {
+
+        List<String> roleIds = new ArrayList<String>();
+
+        for(String roleId : roles.keySet()) {
+            if(assignments.contains(projectId + "|" + userId + "|" + roleId)) {
+                roleIds.add(roleId);
+            }
+        }
+        return roleIds;
+    }
+
+    /**
+     * Provides the roles of the user on each project.
+     * <br/>
+     *
+     * @param userId : the id of the user.
+     * @return roleIds : the ids of the roles, by project id, only the projects the user has a role
+     *         on.
+     * @since
+     */
+    public Map<String, List<String>> getRoles(String userId) {
+
+        Map<String, List<String>> roleIds = new HashMap<String, List<String>>();
+
+        for(String projectId : projects.keySet()) {
+            List<String> projectRoles = getRoles(projectId, userId);
+            if(!projectRoles.isEmpty()) {
+                roleIds.put(projectId, projectRoles);
+            }
+        }
+        return roleIds;
+    }
+
+    /**
+     * Issues a token for the user.
+     * <br/>
+     *
+     * @param userId : the id of the user.
+     * @param projectId : the id of the project of the scope, <tt>null</tt> for an unscoped token.
+     * @return token : the issued token.
+     * @since
+     */
+    public TokenInfo issueToken(String userId, String projectId) {
+
+        TokenInfo token = new TokenInfo(newId(), userId, projectId,
+                System.currentTimeMillis() + config.getTokenTtlSeconds() * 1000);
+
+        tokens.put(token.getId(), token);
+        return token;
+    }
+
+    /**
+     * Provides a token which is not expired.
+     * <br/>
+     *
+     * @param tokenId : the token.
+     * @return token : the token, <tt>null</tt> if unknown or expired.
+     * @since
+     */
+    public TokenInfo getToken(String tokenId) {
+
+        if(null == tokenId) {
+            return null;
+        }
+
+        TokenInfo token = tokens.get(tokenId);
+
+        if(null != token && token.getExpiresAt() < System.currentTimeMillis()) {
+            tokens.remove(tokenId);
+            return null;
+        }
+        return token;
+    }
+
+    public boolean revokeToken(String tokenId) {
+        return null != tokenId && null != tokens.remove(tokenId);
+    }
+
+    /**
+     * Tells whether the token of a request is the admin token or a valid token.
+     * <br/>
+     *
+     * @param tokenId : the <tt>X-Auth-Token</tt> of the request.
+     * @return <tt>true</tt> if the request is authorized.
+     * @since
+     */
+    public boolean isAuthorized(String tokenId) {
+        return null != tokenId && (tokenId.equals(config.getAdminToken()) || null != getToken(tokenId));
+    }
+
+    private static String newId() {
+        return UUID.randomUUID().toString().replace("-", "");
+    }
+
+    /**
+     * A user of the simulator.
+     */
+    public static class User {
+
+        private volatile String id;
+
+        private volatile String name;
+
+        private volatile String password;
+
+        private volatile String email;
+
+        private volatile String description;
+
+        private volatile String defaultProjectId;
+
+        private volatile boolean enabled = true;
+
+        public String getId() {
+            return id;
+        }
+
+        public void setId(String id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public String getPassword() {
+            return password;
+        }
+
+        public void setPassword(String password) {
+            this.password = password;
+        }
+
+        public String getEmail() {
+            return email;
+        }
+
+        public void setEmail(String email) {
+            this.email = email;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        public void setDescription(String description) {
+            this.description = description;
+        }
+
+        public String getDefaultProjectId() {
+            return defaultProjectId;
+        }
+
+        public void setDefaultProjectId(String defaultProjectId) {
+            this.defaultProjectId = defaultProjectId;
+        }
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+    }
+
+    /**
+     * A token issued by the simulator.
+     */
+    public static class TokenInfo {
+
+        private final String id;
+
+        private final String userId;
+
+        private final String projectId;
+
+        private final long expiresAt;
+
+        TokenInfo(String id, String userId, String projectId, long expiresAt) {
+            this.id = id;
+            this.userId = userId;
+            this.projectId = projectId;
+            this.expiresAt = expiresAt;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getUserId() {
+            return userId;
+        }
+
+        public String getProjectId() {
+            return projectId;
+        }
+
+        public long getExpiresAt() {
+            return expiresAt;
+        }
+    }
+
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.simulator;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * <p>
+ * A distribution of the service time of the simulated KeyStone.
+ * </p>
+ * <blockquote><pre>
+ * Syntax, times in milliseconds :
+ * none
+ * fixed:20
+ * uniform:10,30
+ * exponential:20 - mean
+ * lognormal:20,0.5 - median, sigma ; a long tail for sigma above 1
+ * </pre></blockquote>
+ *
+ * @author
+ * @version
+ */
+public abstract class LatencyModel {
+
+    /**
+     * No latency.
+     */
+    public static final LatencyModel NONE = fixed(0);
+
+    /**
+     * Draws a latency.
+     * <br/>
+     *
+     * @return latency : the latency in microseconds.
+     * @since
+     */
+    public abstract long sampleMicros();
+
+    /**
+     * Provides a constant latency.
+     * <br/>
+     *
+     * @param millis : the latency.
+     * @return model : the latency model.
+     * @since
+     */
+    public static LatencyModel fixed(final double millis) {
+        return new LatencyModel() {
+
+            @Override
+            public long sampleMicros() {
+                return (long)(millis * 1000);
+            }
+        };
+    }
+
+    /**
+     * Provides a latency uniformly distributed between two bounds.
+     * <br/>
+     *
+     * @param minMillis : the lower bound.
+     * @param maxMillis : the upper bound.
+     * @return model : the latency model.
+     * @since
+     */
+    public static LatencyModel uniform(final double minMillis, final double maxMillis) {
+        return new LatencyModel() {
+
+            @Override
+            public long sampleMicros() {
+                return (long)(1000 * (minMillis + ThreadLocalRandom.current().nextDouble() * (maxMillis - minMillis)));
+            }
+        };
+    }
+
+    /**
+     * Provides an exponentially distributed latency.
+     * <br/>
+     *
+     * @param meanMillis : the mean latency.
+     * @return model : the latency model.
+     * @since
+     */
+    public static LatencyModel exponential(final double meanMillis) {
+        return new LatencyModel() {
+
+            @Override
+            public long sampleMicros() {
+                return (long)(-1000 * meanMillis * Math.log(1 - ThreadLocalRandom.current().nextDouble()));
+            }
+        };
+    }
+
+    /**
+     * Provides a log-normally distributed latency, whose tail grows with sigma.
+     * <br/>
+     *
+     * @param medianMillis : the median latency.
+     * @param sigma : the standard deviation of the logarithm of the latency.
+     * @return model : the latency model.
+     * @since
+     */
+    public static LatencyModel logNormal(final double medianMillis, final double sigma) {
+        return new LatencyModel() {
+
+            @Override
+            public long sampleMicros() {
+                return (long)(1000 * medianMillis * Math.exp(sigma * ThreadLocalRandom.current().nextGaussian()));
+            }
+        };
+    }
+
+    /**
+     * Parses a latency model, see the class documentation for the syntax.
+     * <br/>
+     *
+     * @param spec : the specification of the model.
+     * @return model : the latency model.
+     * @throws IllegalArgumentException if the specification is invalid.
+     * @since
+     */
+    public static LatencyModel parse(String spec) {
+
+        String value = spec.trim();
+
+        if(value.isEmpty() || "none".equals(value)) {
+            return NONE;
+        }
+
+        int colon = value.indexOf(':');
+
+        if(colon < 0) {
+            throw new IllegalArgumentException("Invalid latency : " + spec);
+        }
+
+        String type = value.substring(0, colon);
+
+        String[] params = value.substring(colon + 1).split(",");
+
+        try {
+            if("fixed".equals(type) && params.length == 1) {
+                return fixed(Double.parseDouble(params[0]));
+            } else if("uniform".equals(type) && params.length == 2) {
+                return uniform(Double.parseDouble(params[0]), Double.parseDouble(params[1]));
+            } else if("exponential".equals(type) && params.length == 1) {
+                return exponential(Double.parseDouble(params[0]));
+            } else if("lognormal".equals(type) && params.length == 2) {
+                return logNormal(Double.parseDouble(params[0]), Double.parseDouble(params[1]));
+            }
+        } catch(NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid latency : " + spec, e);
+        }
+        throw new IllegalArgumentException("Invalid latency : " + spec);
+    }
+
+}
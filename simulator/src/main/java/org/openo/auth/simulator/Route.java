@@ -0,0 +1,64 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.simulator;
+
+/**
+ * <p>
+ * The routes of the KeyStone simulator, each with its own latency and request count.
+ * </p>
+ * <br/>
+ *
+ * @author
+ * @version
+ */
+public enum Route {
+
+    TOKEN_ISSUE("token.issue"),
+
+    TOKEN_VALIDATE("token.validate"),
+
+    TOKEN_REVOKE("token.revoke"),
+
+    USER_CREATE("user.create"),
+
+    USER_LIST("user.list"),
+
+    USER_GET("user.get"),
+
+    USER_UPDATE("user.update"),
+
+    USER_DELETE("user.delete"),
+
+    USER_PASSWORD("user.password"),
+
+    ROLE_ASSIGN("role.assign"),
+
+    ROLE_LIST("role.list"),
+
+    UNKNOWN("unknown");
+
+    private final String name;
+
+    Route(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+}
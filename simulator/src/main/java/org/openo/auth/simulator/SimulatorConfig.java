@@ -0,0 +1,197 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.simulator;
+
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>
+ * The configuration of the KeyStone simulator : its seeded administrator, the latency of each
+ * route and the injected faults.
+ * </p>
+ * <p>
+ * The concurrency cap mimics KeyStone served by <tt>mod_wsgi</tt> with <tt>processes=5
+ * threads=1</tt> : at most 5 requests are processed at a time, the others wait in the queue,
+ * and wait longer than the queue timeout gives a 503 as Apache does.
+ * </p>
+ * <blockquote><pre>
+ * Properties :
+ * port=35357
+ * concurrency=5
+ * queue_timeout_ms=30000
+ * latency=lognormal:15,0.5
+ * latency.token.validate=fixed:2 - per route, see {@link Route}
+ * error_rate=0.0 - share of the requests answered with a 500
+ * reset_rate=0.0 - share of the requests whose connection is dropped
+ * token_ttl_s=3600
+ * admin_token=ADMIN
+ * admin_password=admin
+ * </pre></blockquote>
+ *
+ * @author
+ * @version
+ */
+public class SimulatorConfig {
+
+    private int port = 35357;
+
+    private int concurrency = 5;
+
+    private long queueTimeoutMs = 30000L;
+
+    private LatencyModel latency = LatencyModel.NONE;
+
+    private final Map<Route, LatencyModel> routeLatencies = new ConcurrentHashMap<Route, LatencyModel>();
+
+    private volatile double errorRate;
+
+    private volatile double resetRate;
+
+    private long tokenTtlSeconds = 3600L;
+
+    private String adminToken = "ADMIN";
+
+    private String adminPassword = "admin";
+
+    /**
+     * Reads the configuration from properties, the missing properties keep their default value.
+     * <br/>
+     *
+     * @param properties : the properties.
+     * @return config : the configuration.
+     * @since
+     */
+    public static SimulatorConfig fromProperties(Properties properties) {
+
+        SimulatorConfig config = new SimulatorConfig();
+
+        config.setPort(Integer.parseInt(properties.getProperty("port", String.valueOf(config.getPort()))));
+        config.setConcurrency(
+                Integer.parseInt(properties.getProperty("concurrency", String.valueOf(config.getConcurrency()))));
+        config.setQueueTimeoutMs(Long.parseLong(
+                properties.getProperty("queue_timeout_ms", String.valueOf(config.getQueueTimeoutMs()))));
+        config.setLatency(LatencyModel.parse(properties.getProperty("latency", "none")));
+
+        for(Route route : Route.values()) {
+            String spec = properties.getProperty("latency." + route.getName());
+            if(null != spec) {
+                config.setLatency(route, LatencyModel.parse(spec));
+            }
+        }
+
+        config.setErrorRate(Double.parseDouble(properties.getProperty("error_rate", "0")));
+        config.setResetRate(Double.parseDouble(properties.getProperty("reset_rate", "0")));
+        config.setTokenTtlSeconds(
+                Long.parseLong(properties.getProperty("token_ttl_s", String.valueOf(config.getTokenTtlSeconds()))));
+        config.setAdminToken(properties.getProperty("admin_token", config.getAdminToken()));
+        config.setAdminPassword(properties.getProperty("admin_password", config.getAdminPassword()));
+
+        return config;
+    }
+
+    /**
+     * Provides the latency of a route, its own if configured, the default one otherwise.
+     * <br/>
+     *
+     * @param route : the route.
+     * @return latency : the latency model of the route.
+     * @since
+     */
+    public LatencyModel getLatency(Route route) {
+        LatencyModel model = routeLatencies.get(route);
+        return null == model ? latency : model;
+    }
+
+    public void setLatency(Route route, LatencyModel model) {
+        routeLatencies.put(route, model);
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public void setPort(int port) {
+        this.port = port;
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public void setConcurrency(int concurrency) {
+        this.concurrency = concurrency;
+    }
+
+    public long getQueueTimeoutMs() {
+        return queueTimeoutMs;
+    }
+
+    public void setQueueTimeoutMs(long queueTimeoutMs) {
+        this.queueTimeoutMs = queueTimeoutMs;
+    }
+
+    public LatencyModel getLatency() {
+        return latency;
+    }
+
+    public void setLatency(LatencyModel latency) {
+        this.latency = latency;
+    }
+
+    public double getErrorRate() {
+        return errorRate;
+    }
+
+    public void setErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+    }
+
+    public double getResetRate() {
+        return resetRate;
+    }
+
+    public void setResetRate(double resetRate) {
+        this.resetRate = resetRate;
+    }
+
+    public long getTokenTtlSeconds() {
+        return tokenTtlSeconds;
+    }
+
+    public void setTokenTtlSeconds(long tokenTtlSeconds) {
+        this.tokenTtlSeconds = tokenTtlSeconds;
+    }
+
+    public String getAdminToken() {
+        return adminToken;
+    }
+
+    public void setAdminToken(String adminToken) {
+        this.adminToken = adminToken;
+    }
+
+    public String getAdminPassword() {
+        return adminPassword;
+    }
+
+    public void setAdminPassword(String adminPassword) {
+        this.adminPassword = adminPassword;
+    }
+
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.simulator;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>
+ * Counts the requests received by the KeyStone simulator, so that the tests can check how many
+ * requests the Auth Service really sent, for instance to measure the hit ratio of its caches.
+ * </p>
+ * <br/>
+ *
+ * @author
+ * @version
+ */
+public class SimulatorStats {
+
+    private final Map<Route, AtomicLong> requests = new EnumMap<Route, AtomicLong>(Route.class);
+
+    private final AtomicLong rejected = new AtomicLong();
+
+    private final AtomicLong resets = new AtomicLong();
+
+    private final AtomicLong errors = new AtomicLong();
+
+    SimulatorStats() {
+        for(Route route : Route.values()) {
+            requests.put(route, new AtomicLong());
+        }
+    }
+
+    void record(Route route) {
+        requests.get(route).incrementAndGet();
+    }
+
+    void recordRejected() {
+        rejected.incrementAndGet();
+    }
+
+    void recordReset() {
+        resets.incrementAndGet();
+    }
+
+    void recordError() {
+        errors.incrementAndGet();
+    }
+
+    /**
+     * Provides the number of requests received on a route, including the failed ones.
+     * <br/>
+     *
+     * @param route : the route.
+     * @return count : the number of requests.
+     * @since
+     */
+    public long getRequests(Route route) {
+        return requests.get(route).get();
+    }
+
+    /**
+     * Provides the number of requests rejected with a 503 after waiting longer than the queue
+     * timeout.
+     * <br/>
+     *
+     * @return count : the number of requests.
+     * @since
+     */
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    public long getResets() {
+        return resets.get();
+    }
+
+    public long getErrors() {
+        return errors.get();
+    }
+
+    /**
+     * Resets all the counters.
+     * <br/>
+     *
+     * @since
+     */
+    public void reset() {
+        for(AtomicLong count : requests.values()) {
+            count.set(0);
+        }
+        rejected.set(0);
+        resets.set(0);
+        errors.set(0);
+    }
+
+    @Override
+    public String toString() {
+
+        StringBuilder builder = new StringBuilder();
+
+        for(Map.Entry<Route, AtomicLong> entry : requests.entrySet()) {
+            if(entry.getValue().get() > 0) {
+                builder.append(entry.getKey().getName()).append('=').append(entry.getValue().get()).append(' ');
+            }
+        }
+        builder.append("rejected=").append(rejected.get()).append(" resets=").append(resets.get())
+                .append(" errors=").append(errors.get());
+        return builder.toString();
+    }
+
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.simulator;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestKeystoneSimulator {
+
+    private static final String LOGIN = "{\"auth\": {\"identity\": {\"methods\": [\"password\"], \"password\": "
+            + "{\"user\": {\"name\": \"admin\", \"domain\": {\"name\": \"Default\"}, \"password\": \"admin\"}}}, "
+            + "\"scope\": {\"project\": {\"name\": \"admin\", \"domain\": {\"name\": \"Default\"}}}}}";
+
+    private KeystoneSimulator simulator;
+
+    private KeystoneSimulator start(SimulatorConfig config) throws IOException {
+        config.setPort(0);
+        simulator = new KeystoneSimulator(config);
+        simulator.start();
+        return simulator;
+    }
+
+    @After
+    public void tearDown() {
+        if(null != simulator) {
+            simulator.stop();
+        }
+    }
+
+    private HttpURLConnection request(String method, String path, String token, String subject, String body)
+            throws IOException {
+
+        HttpURLConnection connection = (HttpURLConnection)new URL(simulator.getBaseURL() + path).openConnection();
+        connection.setRequestMethod(method);
+
+        if(null != token) {
+            connection.setRequestProperty("X-Auth-Token", token);
+        }
+        if(null != subject) {
+            connection.setRequestProperty("X-Subject-Token", subject);
+        }
+        if(null != body) {
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/json");
+            OutputStream out = connection.getOutputStream();
+            out.write(body.getBytes(StandardCharsets.UTF_8));
+            out.close();
+        }
+        return connection;
+    }
+
+    @Test
+    public void testTokenLifecycle() throws Exception {
+
+        start(new SimulatorConfig());
+
+        HttpURLConnection login = request("POST", "/v3/auth/tokens", null, null, LOGIN);
+        Assert.assertEquals(201, login.getResponseCode());
+
+        String token = login.getHeaderField("X-Subject-Token");
+        Assert.assertNotNull(token);
+
+        Assert.assertEquals(200, request("HEAD", "/v3/auth/tokens", token, token, null).getResponseCode());
+        Assert.assertEquals(204, request("DELETE", "/v3/auth/tokens", token, token, null).getResponseCode());
+        Assert.assertEquals(404, request("HEAD", "/v3/auth/tokens", "ADMIN", token, null).getResponseCode());
+        Assert.assertEquals(401, request("HEAD", "/v3/auth/tokens", "forged", token, null).getResponseCode());
+
+        Assert.assertEquals(3, simulator.getStats().getRequests(Route.TOKEN_VALIDATE));
+    }
+
+    @Test
+    public void testUserLifecycle() throws Exception {
+
+        start(new SimulatorConfig());
+
+        HttpURLConnection create = request("POST", "/v3/users", "ADMIN", null,
+                "{\"user\": {\"name\": \"alice\", \"password\": \"Secret_123\", \"email\": \"alice@openo.org\"}}");
+        Assert.assertEquals(201, create.getResponseCode());
+
+        String userId = simulator.getState().getUserByName("alice").getId();
+
+        Assert.assertEquals(409, request("POST", "/v3/users", "ADMIN", null,
+                "{\"user\": {\"name\": \"alice\", \"password\": \"Secret_123\"}}").getResponseCode());
+        Assert.assertEquals(200, request("GET", "/v3/users", "ADMIN", null, null).getResponseCode());
+        Assert.assertEquals(200, request("GET", "/v3/users/" + userId, "ADMIN", null, null).getResponseCode());
+        Assert.assertEquals(204, request("PUT", "/v3/projects/" + KeystoneState.ADMIN_PROJECT_ID + "/users/" + userId
+                + "/roles/" + KeystoneState.MEMBER_ROLE_ID, "ADMIN", null, null).getResponseCode());
+        Assert.assertEquals(204, request("POST", "/v3/users/" + userId + "/password", "ADMIN", null,
+                "{\"user\": {\"password\": \"Secret_456\", \"original_password\": \"Secret_123\"}}").getResponseCode());
+        Assert.assertEquals(204, request("DELETE", "/v3/users/" + userId, "ADMIN", null, null).getResponseCode());
+        Assert.assertEquals(404, request("GET", "/v3/users/" + userId, "ADMIN", null, null).getResponseCode());
+    }
+
+    @Test
+    public void testInjectedErrors() throws Exception {
+
+        SimulatorConfig config = new SimulatorConfig();
+        config.setErrorRate(1.0);
+
+        start(config);
+
+        Assert.assertEquals(500, request("GET", "/v3/users", "ADMIN", null, null).getResponseCode());
+        Assert.assertEquals(1, simulator.getStats().getErrors());
+    }
+
+    @Test
+    public void testInjectedResets() throws Exception {
+
+        SimulatorConfig config = new SimulatorConfig();
+        config.setResetRate(1.0);
+
+        start(config);
+
+        try {
+            request("GET", "/v3/users", "ADMIN", null, null).getResponseCode();
+            Assert.fail("connection should be dropped");
+        } catch(IOException e) {
+            Assert.assertTrue(simulator.getStats().getResets() > 0);
+        }
+    }
+
+    @Test
+    public void testConcurrencyCap() throws Exception {
+
+        SimulatorConfig config = new SimulatorConfig();
+        config.setConcurrency(1);
+        config.setQueueTimeoutMs(50);
+        config.setLatency(LatencyModel.fixed(500));
+
+        start(config);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        try {
+            Callable<Integer> call = new Callable<Integer>() {
+
+                public Integer call() throws Exception {
+                    return request("GET", "/v3/users", "ADMIN", null, null).getResponseCode();
+                }
+            };
+
+            Future<Integer> first = executor.submit(call);
+            Future<Integer> second = executor.submit(call);
+
+            int firstStatus = first.get();
+            int secondStatus = second.get();
+
+            Assert.assertTrue(firstStatus == 503 || secondStatus == 503);
+            Assert.assertEquals(200 + 503, firstStatus + secondStatus);
+            Assert.assertEquals(1, simulator.getStats().getRejected());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testLatencyParse() {
+
+        Assert.assertEquals(20000L, LatencyModel.parse("fixed:20").sampleMicros());
+        Assert.assertEquals(0L, LatencyModel.parse("none").sampleMicros());
+        Assert.assertTrue(LatencyModel.parse("uniform:10,30").sampleMicros() >= 10000L);
+    }
+
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.standalone;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import org.openo.auth.service.warmup.KeystoneWarmUpStub;
+
+/**
+ * <p>
+ * The training run of the class data sharing archive : starts the standalone service against a
+ * local KeyStone stub, sends every kind of request through Jetty, CXF and the service, lets the
+ * warm-up finish and exits, so that the JVM dumps the classes it loaded.
+ * </p>
+ * <blockquote><pre>
+ * Example (JDK 13 and later) :
+ * java -XX:ArchiveClassesAtExit=cds/standalone.jsa -cp "lib/*" org.openo.auth.standalone.CdsTrainingRun [rounds]
+ * </pre></blockquote>
+ * <p>
+ * <tt>bin/cds-archive.sh</tt> runs it with the options of the installed JVM.
+ * </p>
+ *
+ * @author
+ * @version
+ */
+public class CdsTrainingRun {
+
+    private static final String LOGIN_BODY = "{\"userName\":\"cds_training\",\"password\":\"Cds_training#1\"}";
+
+    private static final String CREATE_BODY = "{\"userName\":\"cds_training\",\"password\":\"Cds_training#1\","
+            + "\"email\":\"cds@example.com\",\"description\":\"cds\"}";
+
+    private static final String PASSWORD_BODY = "{\"originalPassword\":\"Cds_training#1\",\"password\":\"Cds_training#2\"}";
+
+    private static final long WARMUP_JOIN_MS = 60000L;
+
+    private final String baseURL;
+
+    /**
+     * Constructor<br/>
+     * <p>
+     * </p>
+     *
+     * @param baseURL : the URL of the REST API, such as
+     *            <tt>http://127.0.0.1:8102/openoapi/auth/v1</tt>.
+     * @since
+     */
+    public CdsTrainingRun(String baseURL) {
+        this.baseURL = baseURL;
+    }
+
+    /**
+     * Sends one request of every kind, the statuses do not matter.
+     * <br/>
+     *
+     * @throws IOException if the service can not be reached.
+     * @since
+     */
+    public void round() throws IOException {
+
+        String userPath = "/users/" + KeystoneWarmUpStub.USER_ID;
+
+        send("POST", "/tokens", LOGIN_BODY);
+        send("HEAD", "/tokens", null);
+        send("GET", "/users", null);
+        send("GET", userPath, null);
+        send("POST", "/users", CREATE_BODY);
+        send("POST", userPath + "/password", PASSWORD_BODY);
+        send("DELETE", userPath, null);
+        send("GET", "/users/directory?limit=10", null);
+        send("DELETE", "/tokens", null);
+    }
+
+    private int send(String method, String path, String body) throws IOException {
+
+        HttpURLConnection connection = (HttpURLConnection)new URL(baseURL + path).openConnection();
+        connection.setRequestMethod(method);
+        connection.setRequestProperty("X-Auth-Token", "cds-training");
+        connection.setRequestProperty("Cookie", "X-Auth-Token=cds-training");
+
+        if(null != body) {
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/json");
+            OutputStream out = connection.getOutputStream();
+            out.write(bytes);
+            out.close();
+        }
+
+        int status = connection.getResponseCode();
+
+        InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+        if(null != in) {
+            byte[] buffer = new byte[4096];
+            while(in.read(buffer) >= 0) {
+                // Only the classes loaded on the way matter.
+            }
+            in.close();
+        }
+        return status;
+    }
+
+    private static void joinWarmUp() throws InterruptedException {
+        for(Thread thread : Thread.getAllStackTraces().keySet()) {
+            if("auth-warmup".equals(thread.getName())) {
+                thread.join(WARMUP_JOIN_MS);
+            }
+        }
+    }
+
+    /**
+     * Runs the training and exits the JVM.
+     * <br/>
+     *
+     * @param args : optional number of rounds of requests, 20 by default.
+     * @throws Exception if the service fails to start.
+     * @since
+     */
+    public static void main(String[] args) throws Exception {
+
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+
+        KeystoneWarmUpStub keystone = new KeystoneWarmUpStub();
+        keystone.start();
+
+        URL keystoneURL = new URL(keystone.getBaseURL());
+
+        // Same overrides as the openo.auth.* options of a real start, read by the service at start up.
+        System.setProperty("openo.auth.IP", keystoneURL.getHost());
+        System.setProperty("openo.auth.PORT", String.valueOf(keystoneURL.getPort()));
+        System.setProperty("openo.auth.cache.snapshot.enabled", "false");
+        System.setProperty("openo.auth.capture.enabled", "false");
+        System.setProperty("openo.auth.warmup.max_ms", "10000");
+
+        StandaloneLauncher launcher = new StandaloneLauncher("127.0.0.1", 0, 16, false, null);
+
+        int status = 0;
+
+        try {
+            launcher.start();
+
+            CdsTrainingRun training = new CdsTrainingRun("http://127.0.0.1:" + launcher.getPort()
+                    + StandaloneLauncher.SERVLET_PATH);
+
+            for(int i = 0; i < rounds; i++) {
+                training.round();
+            }
+
+            joinWarmUp();
+
+            System.out.println("Training run done, " + rounds + " rounds");
+        } catch(Exception e) {
+            System.err.println("Training run failed : " + e);
+            status = 1;
+        } finally {
+            launcher.stop();
+            keystone.stop();
+        }
+
+        // The archive is written when the JVM exits.
+        System.exit(status);
+    }
+
+}
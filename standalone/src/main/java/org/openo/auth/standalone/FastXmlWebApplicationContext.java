@@ -0,0 +1,46 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.standalone;
+
+import org.springframework.beans.factory.xml.XmlBeanDefinitionReader;
+import org.springframework.web.context.support.XmlWebApplicationContext;
+
+/**
+ * <p>
+ * The Spring context of the standalone launcher : the same XML as the packaged war, read without
+ * schema validation. The validation loads and compiles the Spring and CXF schemas at every
+ * start, which is a large part of the start up time and only checks a file which never changes
+ * after the build.
+ * </p>
+ *
+ * @author
+ * @version
+ */
+public class FastXmlWebApplicationContext extends XmlWebApplicationContext {
+
+    @Override
+    protected void initBeanDefinitionReader(XmlBeanDefinitionReader beanDefinitionReader) {
+
+        super.initBeanDefinitionReader(beanDefinitionReader);
+
+        beanDefinitionReader.setValidationMode(XmlBeanDefinitionReader.VALIDATION_NONE);
+
+        // Without validation the parser is not namespace aware by default, which the jaxrs: tags need.
+        beanDefinitionReader.setNamespaceAware(true);
+    }
+
+}
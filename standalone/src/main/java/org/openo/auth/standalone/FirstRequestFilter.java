@@ -0,0 +1,81 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.standalone;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Logs the time from the start of the JVM to the end of the first request served, which is the
+ * start up time as seen by a load balancer or an autoscaler.
+ * <br/>
+ *
+ * @author
+ * @version
+ */
+public class FirstRequestFilter implements Filter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FirstRequestFilter.class);
+
+    private static volatile long firstRequestMillis = -1;
+
+    private final AtomicBoolean served = new AtomicBoolean();
+
+    public void init(FilterConfig filterConfig) throws ServletException {
+        // Nothing to initialize.
+    }
+
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            if(!served.get() && served.compareAndSet(false, true)) {
+                firstRequestMillis = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+                LOGGER.info("First request served " + firstRequestMillis + " ms after the JVM start");
+            }
+        }
+    }
+
+    public void destroy() {
+        // Nothing to release.
+    }
+
+    /**
+     * Provides the time from the start of the JVM to the end of the first request.
+     * <br/>
+     *
+     * @return time : the time in milliseconds, -1 if no request was served yet.
+     * @since
+     */
+    public static long getFirstRequestMillis() {
+        return firstRequestMillis;
+    }
+
+}
@@ -0,0 +1,258 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.standalone;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.EnumSet;
+
+import javax.servlet.DispatcherType;
+
+import org.apache.cxf.transport.servlet.CXFServlet;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.HandlerCollection;
+import org.eclipse.jetty.servlet.DefaultServlet;
+import org.eclipse.jetty.servlet.FilterHolder;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.openo.auth.common.cache.CacheSnapshotListener;
+import org.openo.auth.service.warmup.WarmUpListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.context.ContextLoader;
+import org.springframework.web.context.ContextLoaderListener;
+
+/**
+ * <p>
+ * Runs the Auth Service on an embedded Jetty NIO connector, without an external Tomcat : the
+ * same Spring context, CXF servlet and listeners as the <tt>web.xml</tt> of the war, but no JSP,
+ * no session, no annotation or TLD scanning and no Spring schema validation.
+ * </p>
+ * <blockquote><pre>
+ * System properties :
+ * auth.standalone.host=0.0.0.0 - Interface to listen on.
+ * auth.standalone.port=8102 - Port to listen on.
+ * auth.standalone.threads=200 - Maximum number of request threads.
+ * auth.standalone.register=true - Whether the service registers to the microservice bus.
+ * auth.standalone.ui_dir=webapps/openoui#auth#v1 - Static UI served on /openoui/auth/v1, if present.
+ * </pre></blockquote>
+ * <p>
+ * <tt>catalina.base</tt> defaults to the working directory, the logs, snapshot and capture files
+ * stay where they are with Tomcat.
+ * </p>
+ *
+ * @author
+ * @version
+ */
+public class StandaloneLauncher {
+
+    static {
+        // The log4j configuration of the service refers to catalina.base, it must be set first.
+        if(null == System.getProperty("catalina.base")) {
+            System.setProperty("catalina.base", new File(".").getAbsoluteFile().getParent());
+        }
+    }
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StandaloneLauncher.class);
+
+    public static final String CONTEXT_CONFIG = "classpath:spring/authservice_service.xml";
+
+    public static final String SERVLET_PATH = "/openoapi/auth/v1";
+
+    public static final String UI_PATH = "/openoui/auth/v1";
+
+    private final String host;
+
+    private final int port;
+
+    private final int threads;
+
+    private final boolean register;
+
+    private final File uiDir;
+
+    private Server server;
+
+    /**
+     * Constructor<br/>
+     * <p>
+     * </p>
+     *
+     * @param host : the interface to listen on.
+     * @param port : the port to listen on, 0 picks a free port.
+     * @param threads : the maximum number of request threads.
+     * @param register : whether the service registers to the microservice bus.
+     * @param uiDir : the directory of the static UI, <tt>null</tt> for none.
+     * @since
+     */
+    public StandaloneLauncher(String host, int port, int threads, boolean register, File uiDir) {
+        this.host = host;
+        this.port = port;
+        this.threads = threads;
+        this.register = register;
+        this.uiDir = uiDir;
+    }
+
+    /**
+     * Creates the launcher from the <tt>auth.standalone.*</tt> system properties.
+     * <br/>
+     *
+     * @return launcher : the launcher.
+     * @since
+     */
+    public static StandaloneLauncher fromSystemProperties() {
+
+        String base = System.getProperty("catalina.base");
+
+        File uiDir = new File(System.getProperty("auth.standalone.ui_dir",
+                new File(new File(base, "webapps"), "openoui#auth#v1").getPath()));
+
+        return new StandaloneLauncher(System.getProperty("auth.standalone.host", "0.0.0.0"),
+                Integer.getInteger("auth.standalone.port", 8102), Integer.getInteger("auth.standalone.threads", 200),
+                Boolean.parseBoolean(System.getProperty("auth.standalone.register", "true")),
+                uiDir.isDirectory() ? uiDir : null);
+    }
+
+    /**
+     * Starts the server, returns once the Spring context and the CXF servlet are initialized.
+     * <br/>
+     *
+     * @throws Exception if the server fails to start.
+     * @since
+     */
+    public synchronized void start() throws Exception {
+
+        QueuedThreadPool pool = new QueuedThreadPool(threads, Math.min(8, threads));
+        pool.setName("auth");
+
+        server = new Server(pool);
+
+        ServerConnector connector = new ServerConnector(server);
+        connector.setHost(host);
+        connector.setPort(port);
+        server.addConnector(connector);
+
+        HandlerCollection handlers = new HandlerCollection();
+        handlers.addHandler(createServiceContext());
+
+        if(null != uiDir) {
+            handlers.addHandler(createUiContext(uiDir));
+        }
+
+        server.setHandler(handlers);
+        server.setStopAtShutdown(true);
+        server.start();
+
+        LOGGER.info("Auth Service listening on " + host + ":" + getPort() + ", started "
+                + (System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime())
+                + " ms after the JVM start");
+    }
+
+    private ServletContextHandler createServiceContext() {
+
+        ServletContextHandler context = new ServletContextHandler(ServletContextHandler.NO_SESSIONS);
+        context.setContextPath("/");
+
+        context.setInitParameter(ContextLoader.CONFIG_LOCATION_PARAM, CONTEXT_CONFIG);
+        context.setInitParameter(ContextLoader.CONTEXT_CLASS_PARAM, FastXmlWebApplicationContext.class.getName());
+
+        // Same listeners and order as the web.xml of the war.
+        context.addEventListener(new ContextLoaderListener());
+        context.addEventListener(new CacheSnapshotListener());
+        context.addEventListener(new WarmUpListener(register));
+
+        context.addFilter(new FilterHolder(new FirstRequestFilter()), SERVLET_PATH + "/*",
+                EnumSet.of(DispatcherType.REQUEST));
+
+        ServletHolder cxf = new ServletHolder("CXFServlet", new CXFServlet());
+        cxf.setInitOrder(1);
+        context.addServlet(cxf, SERVLET_PATH + "/*");
+
+        return context;
+    }
+
+    private static ServletContextHandler createUiContext(File uiDir) {
+
+        ServletContextHandler context = new ServletContextHandler(ServletContextHandler.NO_SESSIONS);
+        context.setContextPath(UI_PATH);
+        context.setResourceBase(uiDir.getAbsolutePath());
+        context.addServlet(new ServletHolder("default", new DefaultServlet()), "/");
+
+        return context;
+    }
+
+    /**
+     * Stops the server, which saves the cache snapshot.
+     * <br/>
+     *
+     * @throws Exception if the server fails to stop.
+     * @since
+     */
+    public synchronized void stop() throws Exception {
+        if(null != server) {
+            server.stop();
+            server = null;
+        }
+    }
+
+    /**
+     * Provides the port the server listens on.
+     * <br/>
+     *
+     * @return port : the port.
+     * @since
+     */
+    public int getPort() {
+        return ((ServerConnector)server.getConnectors()[0]).getLocalPort();
+    }
+
+    /**
+     * Waits until the server is stopped.
+     * <br/>
+     *
+     * @throws InterruptedException if the thread is interrupted.
+     * @since
+     */
+    public void join() throws InterruptedException {
+        server.join();
+    }
+
+    /**
+     * Runs the Auth Service until the process is stopped.
+     * <br/>
+     *
+     * @param args : not used, see the system properties of the class.
+     * @throws Exception if the server fails to start.
+     * @since
+     */
+    public static void main(String[] args) throws Exception {
+
+        StandaloneLauncher launcher = fromSystemProperties();
+
+        try {
+            launcher.start();
+        } catch(Exception e) {
+            LOGGER.error("Auth Service failed to start : " + e);
+            launcher.stop();
+            throw e;
+        }
+        launcher.join();
+    }
+
+}
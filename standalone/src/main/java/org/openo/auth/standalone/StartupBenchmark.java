@@ -0,0 +1,282 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.standalone;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ClassLoadingMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.management.MBeanServerConnection;
+import javax.management.remote.JMXConnector;
+import javax.management.remote.JMXConnectorFactory;
+import javax.management.remote.JMXServiceURL;
+
+/**
+ * <p>
+ * Measures the cold start of the standalone launcher : the time from the launch of a new JVM to
+ * the first HTTP response of the REST API, and the metaspace used and classes loaded at that
+ * moment, over several runs.
+ * </p>
+ * <blockquote><pre>
+ * Example :
+ * java -cp "lib/*" org.openo.auth.standalone.StartupBenchmark [runs] [extra JVM options...]
+ * </pre></blockquote>
+ * <p>
+ * The probe is a token check with a dummy token, any status means the request went through
+ * Jetty, CXF and the service, KeyStone does not need to be reachable. The launched JVM does not
+ * register to the microservice bus. The memory is read through a local JMX connector, the agent
+ * costs the same in every run.
+ * </p>
+ *
+ * @author
+ * @version
+ */
+public class StartupBenchmark {
+
+    private static final long TIMEOUT_MS = 60000L;
+
+    private static final long POLL_MS = 5L;
+
+    private final List<String> jvmOptions;
+
+    /**
+     * Constructor<br/>
+     * <p>
+     * </p>
+     *
+     * @param jvmOptions : extra options of the launched JVM, such as a class data sharing archive.
+     * @since
+     */
+    public StartupBenchmark(List<String> jvmOptions) {
+        this.jvmOptions = jvmOptions;
+    }
+
+    /**
+     * Launches the service once and waits for its first response.
+     * <br/>
+     *
+     * @return run : the time to the first response and the memory at that moment.
+     * @throws IOException if the JVM can not be launched or does not answer in time.
+     * @throws InterruptedException if the thread is interrupted.
+     * @since
+     */
+    public Run measureOnce() throws IOException, InterruptedException {
+
+        int port = freePort();
+
+        int jmxPort = freePort();
+
+        List<String> command = new ArrayList<String>();
+        command.add(new File(new File(System.getProperty("java.home"), "bin"), "java").getPath());
+        command.addAll(jvmOptions);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add("-Dauth.standalone.host=127.0.0.1");
+        command.add("-Dauth.standalone.port=" + port);
+        command.add("-Dauth.standalone.register=false");
+        command.add("-Dcom.sun.management.jmxremote.port=" + jmxPort);
+        command.add("-Dcom.sun.management.jmxremote.rmi.port=" + jmxPort);
+        command.add("-Dcom.sun.management.jmxremote.authenticate=false");
+        command.add("-Dcom.sun.management.jmxremote.ssl=false");
+        command.add("-Dcom.sun.management.jmxremote.local.only=true");
+        command.add("-Djava.rmi.server.hostname=127.0.0.1");
+        command.add(StandaloneLauncher.class.getName());
+
+        long start = System.nanoTime();
+
+        Process process = new ProcessBuilder(command).redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.appendTo(new File("startup-benchmark.log"))).start();
+
+        try {
+            URL probe = new URL("http://127.0.0.1:" + port + StandaloneLauncher.SERVLET_PATH + "/tokens");
+
+            while(System.nanoTime() - start < TIMEOUT_MS * 1000000L) {
+
+                if(answers(probe)) {
+                    long time = (System.nanoTime() - start) / 1000000L;
+                    return readMemory(time, jmxPort);
+                }
+
+                if(!process.isAlive()) {
+                    throw new IOException("The service exited with " + process.exitValue()
+                            + ", see startup-benchmark.log");
+                }
+                Thread.sleep(POLL_MS);
+            }
+            throw new IOException("The service did not answer within " + TIMEOUT_MS + " ms");
+        } finally {
+            process.destroy();
+            process.waitFor();
+        }
+    }
+
+    private static Run readMemory(long time, int jmxPort) throws IOException {
+
+        JMXConnector connector = JMXConnectorFactory.connect(new JMXServiceURL(
+                "service:jmx:rmi:///jndi/rmi://127.0.0.1:" + jmxPort + "/jmxrmi"));
+
+        try {
+            MBeanServerConnection connection = connector.getMBeanServerConnection();
+
+            long metaspace = 0;
+            for(MemoryPoolMXBean pool : ManagementFactory.getPlatformMXBeans(connection, MemoryPoolMXBean.class)) {
+                if("Metaspace".equals(pool.getName())) {
+                    metaspace = pool.getUsage().getUsed();
+                }
+            }
+
+            ClassLoadingMXBean classLoading = ManagementFactory.newPlatformMXBeanProxy(connection,
+                    ManagementFactory.CLASS_LOADING_MXBEAN_NAME, ClassLoadingMXBean.class);
+
+            return new Run(time, metaspace, classLoading.getLoadedClassCount());
+        } finally {
+            connector.close();
+        }
+    }
+
+    private static boolean answers(URL probe) {
+        try {
+            HttpURLConnection connection = (HttpURLConnection)probe.openConnection();
+            connection.setRequestMethod("HEAD");
+            connection.setRequestProperty("X-Auth-Token", "startup-probe");
+            connection.setConnectTimeout(1000);
+            connection.setReadTimeout((int)TIMEOUT_MS);
+            connection.getResponseCode();
+            connection.disconnect();
+            return true;
+        } catch(IOException e) {
+            return false;
+        }
+    }
+
+    private static int freePort() throws IOException {
+        ServerSocket socket = new ServerSocket(0);
+        try {
+            return socket.getLocalPort();
+        } finally {
+            socket.close();
+        }
+    }
+
+    /**
+     * Runs the benchmark and prints the time to first request and the metaspace used of each run,
+     * and their medians.
+     * <br/>
+     *
+     * @param args : optional number of runs (5 by default), then extra options of the launched
+     *            JVM.
+     * @throws Exception if a run fails.
+     * @since
+     */
+    public static void main(String[] args) throws Exception {
+
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+
+        List<String> options = args.length > 1 ? Arrays.asList(args).subList(1, args.length)
+                : Collections.<String> emptyList();
+
+        StartupBenchmark benchmark = new StartupBenchmark(options);
+
+        List<Long> times = new ArrayList<Long>();
+
+        List<Long> metaspaces = new ArrayList<Long>();
+
+        for(int i = 0; i < runs; i++) {
+            Run run = benchmark.measureOnce();
+            times.add(run.getTime());
+            metaspaces.add(run.getMetaspaceUsed());
+            System.out.println("run " + (i + 1) + " : first response after " + run.getTime() + " ms, metaspace used "
+                    + run.getMetaspaceUsed() / 1024 + " KB, " + run.getLoadedClasses() + " classes loaded");
+        }
+
+        Collections.sort(times);
+        Collections.sort(metaspaces);
+
+        System.out.println("time to first request " + options + " : min " + times.get(0) + " ms, median "
+                + times.get(times.size() / 2) + " ms, max " + times.get(times.size() - 1) + " ms");
+
+        System.out.println("metaspace used " + options + " : median " + metaspaces.get(metaspaces.size() / 2) / 1024
+                + " KB");
+    }
+
+    /**
+     * <p>
+     * The measures of one launch.
+     * </p>
+     *
+     * @author
+     * @version
+     */
+    public static final class Run {
+
+        private final long time;
+
+        private final long metaspaceUsed;
+
+        private final int loadedClasses;
+
+        Run(long time, long metaspaceUsed, int loadedClasses) {
+            this.time = time;
+            this.metaspaceUsed = metaspaceUsed;
+            this.loadedClasses = loadedClasses;
+        }
+
+        /**
+         * Provides the time from the launch to the first response.
+         * <br/>
+         *
+         * @return time : milliseconds from the launch to the first response.
+         * @since
+         */
+        public long getTime() {
+            return time;
+        }
+
+        /**
+         * Provides the metaspace used by the launched JVM after the first response, the classes
+         * mapped from a shared archive are not counted.
+         * <br/>
+         *
+         * @return metaspace : bytes of metaspace used.
+         * @since
+         */
+        public long getMetaspaceUsed() {
+            return metaspaceUsed;
+        }
+
+        /**
+         * Provides the number of classes loaded by the launched JVM after the first response.
+         * <br/>
+         *
+         * @return classes : number of loaded classes.
+         * @since
+         */
+        public int getLoadedClasses() {
+            return loadedClasses;
+        }
+    }
+
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2016 Huawei Technologies Co., Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openo.auth.standalone;
+
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class TestStandaloneLauncher {
+
+    private StandaloneLauncher launcher;
+
+    @BeforeClass
+    public static void setUpClass() {
+        System.setProperty("openo.auth.cache.snapshot.enabled", "false");
+        System.setProperty("openo.auth.warmup.enabled", "false");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if(null != launcher) {
+            launcher.stop();
+        }
+    }
+
+    @Test
+    public void testServesRestApi() throws Exception {
+
+        launcher = new StandaloneLauncher("127.0.0.1", 0, 8, false, null);
+        launcher.start();
+
+        HttpURLConnection connection = (HttpURLConnection)new URL(
+                "http://127.0.0.1:" + launcher.getPort() + StandaloneLauncher.SERVLET_PATH + "/tokens").openConnection();
+        connection.setRequestMethod("HEAD");
+        connection.setRequestProperty("X-Auth-Token", "token");
+
+        Assert.assertTrue(connection.getResponseCode() > 0);
+        Assert.assertTrue(FirstRequestFilter.getFirstRequestMillis() > 0);
+
+        HttpURLConnection unknown = (HttpURLConnection)new URL(
+                "http://127.0.0.1:" + launcher.getPort() + "/unknown").openConnection();
+
+        Assert.assertEquals(404, unknown.getResponseCode());
+    }
+
+}